@@ -0,0 +1,218 @@
+// Zátěžový scénář e-shopu pro k6 (https://k6.io) proti aplikaci s profilem "loadtest".
+//
+// Spuštění: k6 run scripts/loadtest/checkout-flow.js
+// Proměnné prostředí (k6 -e NAZEV=hodnota):
+//   BASE_URL        - adresa aplikace (výchozí http://localhost:8080)
+//   PRODUCTS        - počet seedovaných standardních produktů (eshop.loadtest.products, výchozí 40)
+//   SHOPPERS        - cílový počet souběžných nakupujících (výchozí 20)
+//   ADMINS          - počet souběžných administrátorů (výchozí 2)
+//   DURATION        - délka ustáleného zatížení (výchozí 3m)
+//   ADMIN_EMAIL, ADMIN_PASSWORD - účet z LoadTestDataSeeder
+//
+// Každá fáze má vlastní tag "flow", takže souhrn i thresholds jsou po krocích:
+// browse -> configure -> cart -> checkout, a zvlášť admin (login, seznam, detail, změna stavu).
+import http from 'k6/http';
+import { check, fail, group, sleep } from 'k6';
+import { Counter } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const PRODUCTS = parseInt(__ENV.PRODUCTS || '40', 10);
+const SHOPPERS = parseInt(__ENV.SHOPPERS || '20', 10);
+const ADMINS = parseInt(__ENV.ADMINS || '2', 10);
+const DURATION = __ENV.DURATION || '3m';
+const ADMIN_EMAIL = __ENV.ADMIN_EMAIL || 'admin@loadtest.local';
+const ADMIN_PASSWORD = __ENV.ADMIN_PASSWORD || 'loadtest';
+const CUSTOM_SLUG = 'loadtest-na-miru';
+
+const ordersCreated = new Counter('orders_created');
+const checkoutFailures = new Counter('checkout_failures');
+
+export const options = {
+    scenarios: {
+        shoppers: {
+            executor: 'ramping-vus',
+            exec: 'shopper',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: SHOPPERS },
+                { duration: DURATION, target: SHOPPERS },
+                { duration: '15s', target: 0 },
+            ],
+        },
+        admins: {
+            executor: 'constant-vus',
+            exec: 'admin',
+            vus: ADMINS,
+            duration: DURATION,
+            startTime: '30s',
+        },
+    },
+    summaryTrendStats: ['avg', 'min', 'p(50)', 'p(90)', 'p(95)', 'p(99)', 'max'],
+    thresholds: {
+        'http_req_failed': ['rate<0.01'],
+        'http_req_duration{flow:browse}': ['p(95)<300', 'p(99)<800'],
+        'http_req_duration{flow:configure}': ['p(95)<150', 'p(99)<400'],
+        'http_req_duration{flow:cart}': ['p(95)<300', 'p(99)<800'],
+        'http_req_duration{flow:checkout}': ['p(95)<1500', 'p(99)<3000'],
+        'http_req_duration{flow:admin}': ['p(95)<800', 'p(99)<2000'],
+        'checkout_failures': ['count<1'],
+    },
+};
+
+function randomInt(min, max) {
+    return Math.floor(Math.random() * (max - min + 1)) + min;
+}
+
+function pick(values) {
+    return values && values.length ? values[randomInt(0, values.length - 1)] : null;
+}
+
+// CSRF token aktuální session - stránky z PageCacheFilter obsahují jen zástupný token.
+function csrfToken(flow) {
+    const res = http.get(`${BASE_URL}/api/session-state`, { tags: { flow, name: 'GET /api/session-state' } });
+    check(res, { 'session-state 200': (r) => r.status === 200 });
+    return res.json('csrfToken');
+}
+
+function catalogProduct(slug, flow) {
+    const res = http.get(`${BASE_URL}/api/catalog/products/${slug}`, { tags: { flow, name: 'GET /api/catalog/products/{slug}' } });
+    if (!check(res, { 'catalog product 200': (r) => r.status === 200 })) {
+        fail(`Product ${slug} not found in catalog - is the loadtest profile active?`);
+    }
+    return res.json('product');
+}
+
+function addToCart(product, csrf, custom) {
+    const form = {
+        _csrf: csrf,
+        productId: String(product.id),
+        quantity: String(randomInt(1, 2)),
+        isCustom: String(custom),
+        selectedTaxRateId: String(pick(product.taxRateIds)),
+        selectedDesignId: String(pick(product.designIds)),
+        selectedGlazeId: String(pick(product.glazeIds)),
+        selectedRoofColorId: String(pick(product.roofColorIds)),
+    };
+    if (custom) {
+        form['customDimensions[length]'] = String(randomInt(150, 400));
+        form['customDimensions[width]'] = String(randomInt(80, 180));
+        form['customDimensions[height]'] = String(randomInt(160, 230));
+        const addonId = pick(product.addonIds);
+        if (addonId) form.selectedAddonIds = String(addonId);
+    }
+    const res = http.post(`${BASE_URL}/kosik/pridat`, form, { tags: { flow: 'cart', name: 'POST /kosik/pridat' } });
+    check(res, { 'cart add ok': (r) => r.status === 200 });
+}
+
+export function shopper() {
+    const standardSlug = `loadtest-produkt-${randomInt(1, PRODUCTS)}`;
+    let standard;
+    let custom;
+
+    group('browse', () => {
+        http.get(`${BASE_URL}/`, { tags: { flow: 'browse', name: 'GET /' } });
+        http.get(`${BASE_URL}/produkty`, { tags: { flow: 'browse', name: 'GET /produkty' } });
+        http.get(`${BASE_URL}/produkt/${standardSlug}`, { tags: { flow: 'browse', name: 'GET /produkt/{slug}' } });
+        standard = catalogProduct(standardSlug, 'browse');
+        sleep(Math.random());
+    });
+
+    const configureCustom = Math.random() < 0.5;
+    if (configureCustom) {
+        group('configure', () => {
+            http.get(`${BASE_URL}/produkt/${CUSTOM_SLUG}`, { tags: { flow: 'browse', name: 'GET /produkt/{slug}' } });
+            custom = catalogProduct(CUSTOM_SLUG, 'configure');
+            // Konfigurátor přepočítává cenu při každé změně rozměru nebo doplňku
+            for (let i = 0; i < randomInt(3, 6); i++) {
+                const res = http.post(`${BASE_URL}/api/product/calculate-price`, JSON.stringify({
+                    productId: custom.id,
+                    customDimensions: { length: randomInt(150, 400), width: randomInt(80, 180), height: randomInt(160, 230) },
+                    selectedDesignId: pick(custom.designIds),
+                    selectedGlazeId: pick(custom.glazeIds),
+                    selectedRoofColorId: pick(custom.roofColorIds),
+                    selectedAddonIds: custom.addonIds.filter(() => Math.random() < 0.5),
+                }), { headers: { 'Content-Type': 'application/json' }, tags: { flow: 'configure', name: 'POST /api/product/calculate-price' } });
+                check(res, { 'price calculated': (r) => r.status === 200 });
+                sleep(0.2 + Math.random() * 0.3);
+            }
+        });
+    }
+
+    group('cart', () => {
+        const csrf = csrfToken('cart');
+        addToCart(standard, csrf, false);
+        if (configureCustom) addToCart(custom, csrf, true);
+        http.get(`${BASE_URL}/kosik`, { tags: { flow: 'cart', name: 'GET /kosik' } });
+    });
+
+    group('checkout', () => {
+        http.get(`${BASE_URL}/pokladna`, { tags: { flow: 'checkout', name: 'GET /pokladna' } });
+        const csrf = csrfToken('checkout');
+        const address = { street: `Zátěžová ${__VU}`, city: 'Praha', zipCode: '11000', country: 'Česká republika' };
+        const shipping = http.post(`${BASE_URL}/pokladna/calculate-shipping`, JSON.stringify(address), {
+            headers: { 'Content-Type': 'application/json', 'X-CSRF-TOKEN': csrf },
+            tags: { flow: 'checkout', name: 'POST /pokladna/calculate-shipping' },
+        });
+        check(shipping, { 'shipping calculated': (r) => r.status === 200 });
+        const shippingCost = shipping.status === 200 ? shipping.json('shippingCostNoTax') : null;
+        const shippingTax = shipping.status === 200 ? shipping.json('shippingTax') : null;
+
+        const form = {
+            _csrf: csrf,
+            email: `vu${__VU}-${__ITER}@loadtest.local`,
+            firstName: 'Zátěžový',
+            lastName: `Nakupující ${__VU}`,
+            phone: '+420777000000',
+            invoiceStreet: address.street,
+            invoiceCity: address.city,
+            invoiceZipCode: address.zipCode,
+            invoiceCountry: address.country,
+            useInvoiceAddressAsDelivery: 'true',
+            paymentMethod: Math.random() < 0.7 ? 'BANK_TRANSFER' : 'CASH_ON_DELIVERY',
+            agreeTerms: 'true',
+        };
+        if (shippingCost != null) form.shippingCostNoTax = String(shippingCost);
+        if (shippingTax != null) form.shippingTax = String(shippingTax);
+
+        const res = http.post(`${BASE_URL}/pokladna/odeslat`, form, { tags: { flow: 'checkout', name: 'POST /pokladna/odeslat' } });
+        if (check(res, { 'order created': (r) => r.url.includes('/pokladna/dekujeme') })) {
+            ordersCreated.add(1);
+        } else {
+            checkoutFailures.add(1);
+        }
+    });
+
+    // Nová session pro další iteraci (prázdný košík, nový host)
+    http.cookieJar().clear(BASE_URL);
+    sleep(1 + Math.random() * 2);
+}
+
+export function admin() {
+    if (__ITER === 0) { // Přihlášení jednou za VU, session pak zůstává v cookie jar
+        const csrf = csrfToken('admin');
+        const login = http.post(`${BASE_URL}/prihlaseni`, { username: ADMIN_EMAIL, password: ADMIN_PASSWORD, _csrf: csrf },
+            { tags: { flow: 'admin', name: 'POST /prihlaseni' } });
+        check(login, { 'admin logged in': (r) => r.status === 200 && !r.url.includes('error') });
+    }
+
+    group('admin', () => {
+        const list = http.get(`${BASE_URL}/admin/orders`, { tags: { flow: 'admin', name: 'GET /admin/orders' } });
+        check(list, { 'order list 200': (r) => r.status === 200 });
+        const ids = [...(list.body || '').matchAll(/\/admin\/orders\/(\d+)/g)].map((m) => m[1]);
+        const orderId = pick(ids);
+        if (!orderId) return; // Zatím žádné objednávky
+
+        const detail = http.get(`${BASE_URL}/admin/orders/${orderId}`, { tags: { flow: 'admin', name: 'GET /admin/orders/{id}' } });
+        check(detail, { 'order detail 200': (r) => r.status === 200 });
+        const stateSelect = (detail.body || '').match(/<select name="newStateId"[\s\S]*?<\/select>/);
+        const stateIds = stateSelect ? [...stateSelect[0].matchAll(/value="(\d+)"/g)].map((m) => m[1]) : [];
+        const newStateId = pick(stateIds);
+        const csrf = (detail.body || '').match(/name="_csrf"\s+content="([^"]+)"/);
+        if (newStateId && csrf) {
+            const update = http.post(`${BASE_URL}/admin/orders/${orderId}/update-state`, { newStateId, _csrf: csrf[1] },
+                { tags: { flow: 'admin', name: 'POST /admin/orders/{id}/update-state' } });
+            check(update, { 'state updated': (r) => r.status === 200 });
+        }
+    });
+    sleep(2 + Math.random() * 3);
+}
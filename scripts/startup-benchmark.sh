@@ -0,0 +1,67 @@
+#!/usr/bin/env bash
+# Měření doby studeného startu do prvního úspěšného požadavku (time-to-first-request).
+#
+# Použití:
+#   scripts/startup-benchmark.sh [cesta/k/app.jar] [počet běhů]
+# Proměnné prostředí:
+#   JAVA_OPTS   - volby JVM, např. "-XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true"
+#   APP_ARGS    - argumenty aplikace (výchozí: --spring.profiles.active=fast-start)
+#   PORT        - port aplikace (výchozí 8080)
+#   URL_PATH    - měřená stránka (výchozí /o-nas - nečte katalog)
+#   TIMEOUT_S   - maximální doba čekání na jeden start (výchozí 120)
+#
+# Pro porovnání stačí spustit jednou bez JAVA_OPTS/profilu a jednou s nimi.
+set -euo pipefail
+
+JAR="${1:-target/app.jar}"
+RUNS="${2:-5}"
+PORT="${PORT:-8080}"
+URL_PATH="${URL_PATH:-/o-nas}"
+TIMEOUT_S="${TIMEOUT_S:-120}"
+APP_ARGS="${APP_ARGS:---spring.profiles.active=fast-start}"
+LOG_DIR="$(mktemp -d)"
+
+now_ms() { date +%s%3N; }
+
+results=()
+for run in $(seq 1 "$RUNS"); do
+  log_file="$LOG_DIR/run-$run.log"
+  start=$(now_ms)
+  # shellcheck disable=SC2086
+  java ${JAVA_OPTS:-} -jar "$JAR" --server.port="$PORT" $APP_ARGS >"$log_file" 2>&1 &
+  pid=$!
+
+  elapsed=""
+  while (( $(now_ms) - start < TIMEOUT_S * 1000 )); do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "Běh $run: aplikace skončila předčasně, viz $log_file" >&2
+      break
+    fi
+    if [[ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT$URL_PATH" || true)" == "200" ]]; then
+      elapsed=$(( $(now_ms) - start ))
+      break
+    fi
+    sleep 0.05
+  done
+
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+
+  if [[ -z "$elapsed" ]]; then
+    echo "Běh $run: bez odpovědi 200 do ${TIMEOUT_S}s" >&2
+    continue
+  fi
+  results+=("$elapsed")
+  echo "Běh $run: první požadavek za ${elapsed} ms"
+  grep -h "STARTUP" "$log_file" | sed 's/^/    /' || true
+done
+
+if (( ${#results[@]} == 0 )); then
+  echo "Žádný úspěšný běh." >&2
+  exit 1
+fi
+
+sorted=($(printf '%s\n' "${results[@]}" | sort -n))
+count=${#sorted[@]}
+echo "Time-to-first-request (${count} běhů): min ${sorted[0]} ms, medián ${sorted[$((count / 2))]} ms, max ${sorted[$((count - 1))]} ms"
+echo "Logy běhů: $LOG_DIR"
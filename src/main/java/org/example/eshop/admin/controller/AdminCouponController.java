@@ -2,12 +2,16 @@ package org.example.eshop.admin.controller;
 
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.example.eshop.model.Coupon;
+import org.example.eshop.service.CouponCampaignService;
 import org.example.eshop.service.CouponService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -16,6 +20,7 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.Collections;
@@ -27,9 +32,13 @@ import java.util.List;
 public class AdminCouponController {
 
     private static final Logger log = LoggerFactory.getLogger(AdminCouponController.class);
+    private static final int DEFAULT_CAMPAIGN_COUNT = 1000;
+    private static final int DEFAULT_CAMPAIGN_RANDOM_LENGTH = 10;
 
     @Autowired
     private CouponService couponService;
+    @Autowired
+    private CouponCampaignService couponCampaignService;
 
     @ModelAttribute("currentUri")
     public String getCurrentUri(HttpServletRequest request) {
@@ -42,10 +51,12 @@ public class AdminCouponController {
         try {
             List<Coupon> coupons = couponService.getAllCoupons();
             model.addAttribute("coupons", coupons);
+            model.addAttribute("campaigns", couponCampaignService.getCampaignSummaries());
         } catch (Exception e) {
             log.error("Error fetching coupons: {}", e.getMessage(), e);
             model.addAttribute("errorMessage", "Nepodařilo se načíst seznam kupónů.");
             model.addAttribute("coupons", Collections.emptyList());
+            model.addAttribute("campaigns", Collections.emptyList());
         }
         return "admin/coupons-list";
     }
@@ -106,6 +117,66 @@ public class AdminCouponController {
         }
     }
 
+    // --- Hromadné kampaně jednorázových kódů ---
+    @GetMapping("/campaign/new")
+    public String showCampaignForm(Model model) {
+        log.info("Requesting new coupon campaign form.");
+        Coupon template = new Coupon();
+        template.setActive(true);
+        template.setPercentage(false);
+        template.setFreeShipping(false);
+        template.setUsageLimit(1);
+        model.addAttribute("coupon", template);
+        addCampaignFormAttributes(model, "Nová kampaň jednorázových kupónů", null, null, DEFAULT_CAMPAIGN_COUNT, DEFAULT_CAMPAIGN_RANDOM_LENGTH);
+        return "admin/coupon-form";
+    }
+
+    @PostMapping("/campaign")
+    public String generateCampaign(@Valid @ModelAttribute("coupon") Coupon template,
+                                   BindingResult bindingResult,
+                                   @RequestParam String campaign,
+                                   @RequestParam(required = false) String codePrefix,
+                                   @RequestParam(defaultValue = "" + DEFAULT_CAMPAIGN_COUNT) int codeCount,
+                                   @RequestParam(defaultValue = "" + DEFAULT_CAMPAIGN_RANDOM_LENGTH) int randomLength,
+                                   @RequestParam(value = "startDateString", required = false) String startDateString,
+                                   @RequestParam(value = "expirationDateString", required = false) String expirationDateString,
+                                   RedirectAttributes redirectAttributes,
+                                   Model model) {
+        log.info("Attempting to generate coupon campaign '{}': {} codes, prefix '{}'", campaign, codeCount, codePrefix);
+        parseAndSetDates(template, startDateString, expirationDateString, bindingResult);
+        if (!bindingResult.hasErrors()) {
+            try {
+                CouponCampaignService.CampaignResult result = couponCampaignService.generateCampaign(template, campaign, codePrefix, codeCount, randomLength);
+                redirectAttributes.addFlashAttribute("successMessage", "Kampaň '" + result.campaign() + "': vygenerováno "
+                        + result.generated() + " kupónů za " + result.millis() + " ms.");
+                return "redirect:/admin/coupons";
+            } catch (IllegalArgumentException e) {
+                log.warn("Error generating coupon campaign '{}': {}", campaign, e.getMessage());
+                assignValidationError(e, bindingResult, model);
+            } catch (Exception e) {
+                log.error("Unexpected error generating coupon campaign '{}': {}", campaign, e.getMessage(), e);
+                model.addAttribute("errorMessage", "Při generování kampaně nastala neočekávaná chyba: " + e.getMessage());
+            }
+        }
+        model.addAttribute("coupon", template);
+        addCampaignFormAttributes(model, "Nová kampaň jednorázových kupónů (Chyba)", campaign, codePrefix, codeCount, randomLength);
+        return "admin/coupon-form";
+    }
+
+    @GetMapping("/campaign/{campaign}/export")
+    public void exportCampaign(@PathVariable String campaign, HttpServletResponse response) throws IOException {
+        if (!couponCampaignService.campaignExists(campaign)) {
+            log.warn("Export requested for unknown coupon campaign '{}'.", campaign);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Kampaň nenalezena.");
+            return;
+        }
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("kupony-" + campaign + ".csv").build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        // Zapisuje se rovnou do odpovědi - chybu v průběhu už nelze zobrazit jako stránku
+        couponCampaignService.exportCampaign(campaign, response.getOutputStream());
+    }
+
     @GetMapping("/{id}/edit")
     public String showEditForm(@PathVariable Long id, Model model, RedirectAttributes redirectAttributes) {
         // Zůstává stejné, jen už nepotřebujeme explicitně přidávat isPercentage a freeShipping,
@@ -194,6 +265,15 @@ public class AdminCouponController {
     }
 
     // --- Pomocné metody ---
+    private void addCampaignFormAttributes(Model model, String pageTitle, String campaign, String codePrefix, int codeCount, int randomLength) {
+        model.addAttribute("pageTitle", pageTitle);
+        model.addAttribute("campaignMode", true);
+        model.addAttribute("campaign", campaign);
+        model.addAttribute("codePrefix", codePrefix);
+        model.addAttribute("codeCount", codeCount);
+        model.addAttribute("randomLength", randomLength);
+    }
+
     private void parseAndSetDates(Coupon coupon, String startDateStr, String expirationDateStr, BindingResult bindingResult) {
         if (StringUtils.hasText(startDateStr)) {
             try {
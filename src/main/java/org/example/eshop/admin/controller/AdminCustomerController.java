@@ -6,6 +6,8 @@ import jakarta.validation.Valid;
 import org.example.eshop.dto.AddressDto;
 import org.example.eshop.dto.ProfileUpdateDto;
 import org.example.eshop.model.Customer;
+import org.example.eshop.model.CustomerOrderStats;
+import org.example.eshop.service.CustomerOrderStatsService;
 import org.example.eshop.service.CustomerService;
 import org.example.eshop.service.OrderService;
 import org.slf4j.Logger;
@@ -23,7 +25,10 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Controller
@@ -34,10 +39,13 @@ public class AdminCustomerController {
     private static final Logger log = LoggerFactory.getLogger(AdminCustomerController.class);
 
     private final CustomerService customerService;
+    private final CustomerOrderStatsService customerOrderStatsService;
 
     // Konstruktor pro injektáž závislostí
-    public AdminCustomerController(CustomerService customerService, OrderService orderService) {
+    public AdminCustomerController(CustomerService customerService, OrderService orderService,
+                                   CustomerOrderStatsService customerOrderStatsService) {
         this.customerService = customerService;
+        this.customerOrderStatsService = customerOrderStatsService;
         // Může se hodit pro budoucí rozšíření
     }
 
@@ -52,6 +60,7 @@ public class AdminCustomerController {
                 .orElseThrow(() -> new EntityNotFoundException("Zákazník s ID " + customerId + " nenalezen při přípravě modelu."));
 
         model.addAttribute("customer", customer);
+        model.addAttribute("customerStats", customerOrderStatsService.getStats(customerId).orElse(null));
 
         // Ensure DTOs are added even if not already present (e.g., initial load or error path)
         if (!model.containsAttribute("profileUpdateDto")) {
@@ -80,14 +89,29 @@ public class AdminCustomerController {
         String emailFilter = email.filter(StringUtils::hasText).orElse(null);
         String nameFilter = name.filter(StringUtils::hasText).orElse(null);
         Boolean enabledFilter = enabled.orElse(null);
+        pageable = CustomerOrderStatsService.normalizeSort(pageable); // Smíšené řazení (souhrn + zákazník) nejde jedním dotazem
 
         log.info("Requesting admin customer list view. Filters: email={}, name={}, enabled={}. Pageable: {}",
                 emailFilter, nameFilter, enabledFilter, pageable);
 
         try {
-            Page<Customer> customerPage = customerService.findCustomers(pageable, emailFilter, nameFilter, enabledFilter);
+            Page<Customer> customerPage;
+            Map<Long, CustomerOrderStats> customerStats;
+            boolean statsSort = CustomerOrderStatsService.isStatsSort(pageable.getSort());
+            if (statsSort) {
+                // Řazení podle útraty/poslední objednávky jde po indexu tabulky souhrnů (jen zákazníci s objednávkou)
+                Page<CustomerOrderStats> statsPage = customerOrderStatsService.findStatsPage(pageable, emailFilter, nameFilter, enabledFilter);
+                customerPage = statsPage.map(CustomerOrderStats::getCustomer);
+                customerStats = statsPage.stream()
+                        .collect(Collectors.toMap(CustomerOrderStats::getCustomerId, Function.identity()));
+            } else {
+                customerPage = customerService.findCustomers(pageable, emailFilter, nameFilter, enabledFilter);
+                customerStats = customerOrderStatsService.getStatsByCustomerIds(customerPage.map(Customer::getId).getContent());
+            }
 
             model.addAttribute("customerPage", customerPage);
+            model.addAttribute("customerStats", customerStats);
+            model.addAttribute("statsSort", statsSort);
             model.addAttribute("emailFilter", emailFilter);
             model.addAttribute("nameFilter", nameFilter);
             model.addAttribute("enabledFilter", enabledFilter);
@@ -111,6 +135,8 @@ public class AdminCustomerController {
             log.error("Error fetching customers for admin view: {}", e.getMessage(), e);
             model.addAttribute("errorMessage", "Nepodařilo se načíst zákazníky.");
             model.addAttribute("customerPage", Page.empty(pageable));
+            model.addAttribute("customerStats", Collections.emptyMap());
+            model.addAttribute("statsSort", false);
             // Add filters back even on error
             model.addAttribute("emailFilter", emailFilter);
             model.addAttribute("nameFilter", nameFilter);
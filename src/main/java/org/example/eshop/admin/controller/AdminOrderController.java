@@ -2,12 +2,15 @@ package org.example.eshop.admin.controller;
 
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.eshop.admin.service.OrderExportService;
 import org.example.eshop.model.Conversation;
 import org.example.eshop.model.Message;
 import org.example.eshop.model.Order;
 import org.example.eshop.model.OrderState;
 import org.example.eshop.repository.ConversationRepository;
 import org.example.eshop.service.ConversationService;
+import org.example.eshop.service.OrderMessageStreamService;
 import org.example.eshop.service.OrderService;
 import org.example.eshop.service.OrderStateService;
 import org.example.eshop.service.SuperFakturaInvoiceService;
@@ -20,15 +23,22 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.security.Principal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -50,18 +60,22 @@ public class AdminOrderController {
     private final SuperFakturaInvoiceService superFakturaInvoiceService;
     private final ConversationService conversationService;
     private final ConversationRepository conversationRepository;
+    private final OrderMessageStreamService orderMessageStreamService;
+    private final OrderExportService orderExportService;
 
     @Value("${superfaktura.api.url:https://moje.superfaktura.cz}")
     private String superFakturaBaseUrl;
 
     // Konstruktor pro dependency injection
     @Autowired
-    public AdminOrderController(OrderService orderService, OrderStateService orderStateService, SuperFakturaInvoiceService superFakturaInvoiceService, ConversationService conversionService, ConversationRepository conversationRepository) {
+    public AdminOrderController(OrderService orderService, OrderStateService orderStateService, SuperFakturaInvoiceService superFakturaInvoiceService, ConversationService conversionService, ConversationRepository conversationRepository, OrderMessageStreamService orderMessageStreamService, OrderExportService orderExportService) {
         this.orderService = orderService;
         this.orderStateService = orderStateService;
         this.superFakturaInvoiceService = superFakturaInvoiceService;
         this.conversationService = conversionService;
         this.conversationRepository = conversationRepository;
+        this.orderMessageStreamService = orderMessageStreamService;
+        this.orderExportService = orderExportService;
     }
 
 
@@ -148,6 +162,37 @@ public class AdminOrderController {
         return "admin/orders-list";
     }
 
+    // --- Export pro účetnictví (stejné filtry jako seznam) ---
+    @GetMapping("/export")
+    public void exportOrders(@RequestParam(defaultValue = "csv") String format,
+                             @RequestParam Optional<Long> stateId,
+                             @RequestParam Optional<String> paymentStatus,
+                             @RequestParam Optional<String> customerEmail,
+                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Optional<LocalDate> dateFrom,
+                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Optional<LocalDate> dateTo,
+                             HttpServletResponse response) throws IOException {
+        OrderExportService.Format exportFormat = OrderExportService.Format.fromParam(format);
+        if (exportFormat == null) {
+            log.warn("Order export requested with unknown format '{}'.", format);
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Neznámý formát exportu.");
+            return;
+        }
+        String fileName = "objednavky-" + dateFrom.map(LocalDate::toString).orElse("od-zacatku")
+                + "-" + dateTo.map(LocalDate::toString).orElse(LocalDate.now().toString()) + "." + exportFormat.getExtension();
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+
+        // Zapisuje se rovnou do odpovědi - chybu v průběhu už nelze zobrazit jako stránku, klient dostane useknutý soubor
+        orderExportService.exportOrders(exportFormat,
+                stateId.orElse(null),
+                paymentStatus.filter(StringUtils::hasText).orElse(null),
+                customerEmail.filter(StringUtils::hasText).orElse(null),
+                dateFrom.map(LocalDate::atStartOfDay).orElse(null),
+                dateTo.map(d -> d.atTime(LocalTime.MAX)).orElse(null),
+                response.getOutputStream());
+    }
+
     @GetMapping("/{id}")
     @Transactional(readOnly = true) // Může zůstat, service metody mají své transakce
     public String viewOrderDetail(@PathVariable Long id, Model model, RedirectAttributes redirectAttributes) {
@@ -166,6 +211,10 @@ public class AdminOrderController {
 
             model.addAttribute("internalMessages", conversationMap.getOrDefault(Conversation.ConversationType.INTERNAL, List.of()));
             model.addAttribute("externalMessages", conversationMap.getOrDefault(Conversation.ConversationType.EXTERNAL, List.of()));
+            model.addAttribute("externalUnreadByAdmin", conversations.stream()
+                    .filter(c -> c.getType() == Conversation.ConversationType.EXTERNAL)
+                    .mapToInt(Conversation::getUnreadByAdminCount)
+                    .sum());
             // -------------------------
 
             model.addAttribute("order", order);
@@ -173,8 +222,7 @@ public class AdminOrderController {
             model.addAttribute("allOrderStates", allStates);
             model.addAttribute("superFakturaBaseUrl", this.superFakturaBaseUrl);
 
-            // Označení zpráv jako přečtených adminem (pokud je třeba - spíše na AJAX request?)
-            // conversationService.markExternalMessagesAsRead(id, Message.SenderType.ADMIN);
+            // Zprávy označuje jako přečtené až stránka (POST /messages/read) - tato metoda běží v read-only transakci
 
             log.info("Order detail loaded successfully for ID: {}", id);
 
@@ -193,10 +241,11 @@ public class AdminOrderController {
     @PostMapping("/{id}/update-state")
     public String updateOrderState(@PathVariable Long id,
                                    @RequestParam Long newStateId,
+                                   Principal principal,
                                    RedirectAttributes redirectAttributes) {
         log.info("Attempting to update state for order ID: {} to state ID: {}", id, newStateId);
         try {
-            orderService.updateOrderState(id, newStateId);
+            orderService.updateOrderState(id, newStateId, principal != null ? principal.getName() : null);
             redirectAttributes.addFlashAttribute("successMessage", "Stav objednávky byl úspěšně změněn.");
             log.info("Successfully updated state for order ID: {}", id);
         } catch (EntityNotFoundException e) {
@@ -211,6 +260,51 @@ public class AdminOrderController {
         return "redirect:/admin/orders/" + id; // Úspěch -> zpět na detail
     }
 
+    /**
+     * Hromadná změna stavu objednávek vybraných v seznamu (např. celá výrobní dávka do IN_PRODUCTION).
+     * Po změně se vrací na seznam se stejnými filtry.
+     */
+    @PostMapping("/bulk-update-state")
+    public String bulkUpdateOrderState(@RequestParam(name = "orderIds", required = false) List<Long> orderIds,
+                                       @RequestParam Long newStateId,
+                                       @RequestParam Optional<Long> stateId,
+                                       @RequestParam Optional<String> paymentStatus,
+                                       @RequestParam Optional<String> customerEmail,
+                                       @RequestParam Optional<String> dateFrom,
+                                       @RequestParam Optional<String> dateTo,
+                                       @RequestParam Optional<String> sort,
+                                       @RequestParam Optional<Integer> size,
+                                       Principal principal,
+                                       RedirectAttributes redirectAttributes) {
+        stateId.ifPresent(v -> redirectAttributes.addAttribute("stateId", v));
+        paymentStatus.filter(StringUtils::hasText).ifPresent(v -> redirectAttributes.addAttribute("paymentStatus", v));
+        customerEmail.filter(StringUtils::hasText).ifPresent(v -> redirectAttributes.addAttribute("customerEmail", v));
+        dateFrom.filter(StringUtils::hasText).ifPresent(v -> redirectAttributes.addAttribute("dateFrom", v));
+        dateTo.filter(StringUtils::hasText).ifPresent(v -> redirectAttributes.addAttribute("dateTo", v));
+        sort.filter(StringUtils::hasText).ifPresent(v -> redirectAttributes.addAttribute("sort", v));
+        size.ifPresent(v -> redirectAttributes.addAttribute("size", v));
+
+        if (orderIds == null || orderIds.isEmpty()) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Nebyly vybrány žádné objednávky.");
+            return "redirect:/admin/orders";
+        }
+        log.info("Attempting bulk state update of {} orders to state ID: {}", orderIds.size(), newStateId);
+        try {
+            OrderService.BulkStateChangeResult result = orderService.bulkUpdateOrderState(orderIds, newStateId,
+                    principal != null ? principal.getName() : null);
+            String skipped = result.changed() < result.requested()
+                    ? " (" + (result.requested() - result.changed()) + " už bylo v cílovém stavu nebo neexistuje)" : "";
+            redirectAttributes.addFlashAttribute("successMessage", "Stav byl změněn u " + result.changed() + " objednávek" + skipped + ".");
+        } catch (EntityNotFoundException e) {
+            log.warn("Cannot bulk update state. OrderState not found. NewStateID: {}", newStateId);
+            redirectAttributes.addFlashAttribute("errorMessage", "Chyba: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Error during bulk order state update to state ID {}: {}", newStateId, e.getMessage(), e);
+            redirectAttributes.addFlashAttribute("errorMessage", "Při hromadné změně stavu nastala neočekávaná chyba: " + e.getMessage());
+        }
+        return "redirect:/admin/orders";
+    }
+
     /**
      * Manuálně označí zálohu jako zaplacenou.
      */
@@ -460,4 +554,20 @@ public class AdminOrderController {
         }
         return "redirect:/admin/orders/" + id;
     }
-}
\ No newline at end of file
+
+    // Živý kanál zpráv k objednávce (SSE) - nové interní i externí zprávy a čítače nepřečtených
+    @GetMapping(value = "/{id}/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamMessages(@PathVariable Long id) {
+        log.debug("Admin subscribed to message stream for order ID {}", id);
+        return orderMessageStreamService.subscribe(id, OrderMessageStreamService.Audience.ADMIN);
+    }
+
+    // Označení zpráv od zákazníka jako přečtených (volá stránka detailu při zobrazení / příchodu nové zprávy)
+    @PostMapping("/{id}/messages/read")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> markMessagesRead(@PathVariable Long id) {
+        int updated = conversationService.markExternalMessagesAsRead(id, Message.SenderType.ADMIN);
+        return ResponseEntity.ok(Map.of("marked", updated));
+    }
+}
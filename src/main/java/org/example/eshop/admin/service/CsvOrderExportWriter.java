@@ -0,0 +1,88 @@
+package org.example.eshop.admin.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * CSV pro české Excely a účetní programy: UTF-8 s BOM, oddělovač středník, desetinná čárka.
+ * <p>
+ * Text začínající znakem, který Excel chápe jako začátek vzorce ({@code = + - @}, tabulátor, CR), dostane na začátek
+ * apostrof - poznámka nebo jméno zákazníka jako {@code =HYPERLINK(...)} se tak otevře jako text, ne jako vzorec.
+ */
+class CsvOrderExportWriter implements OrderExportWriter {
+
+    private static final char SEPARATOR = ';';
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    private final Writer writer;
+
+    CsvOrderExportWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF'); // BOM - bez něj Excel čte soubor jako cp1250
+    }
+
+    @Override
+    public void writeHeader(List<String> headers) throws IOException {
+        writeRow(headers);
+    }
+
+    @Override
+    public void writeRow(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(SEPARATOR);
+            }
+            writeValue(values.get(i));
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof BigDecimal number) {
+            writer.write(number.toPlainString().replace('.', ','));
+        } else if (value instanceof LocalDateTime dateTime) {
+            writer.write(DATE_TIME_FORMAT.format(dateTime));
+        } else if (value instanceof Number number) {
+            writer.write(number.toString()); // Celá čísla (ID, počty) - záporné nejsou vzorec
+        } else if (value instanceof Boolean flag) {
+            writer.write(flag ? "ano" : "ne");
+        } else {
+            writeText(value.toString());
+        }
+    }
+
+    private void writeText(String value) throws IOException {
+        String text = !value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0 ? "'" + value : value;
+        boolean quote = text.indexOf(SEPARATOR) >= 0 || text.indexOf('"') >= 0
+                || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,262 @@
+package org.example.eshop.admin.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.example.eshop.model.Customer;
+import org.example.eshop.model.Order;
+import org.example.eshop.model.OrderItem;
+import org.example.eshop.model.OrderState;
+import org.example.eshop.repository.OrderSpecifications;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Export objednávek pro účetnictví (CSV, XLSX) - jeden řádek na položku objednávky plus řádek dopravy,
+ * údaje objednávky (kupón, záloha, data plateb, čísla dokladů SuperFaktury) se u každého řádku opakují.
+ * Součet sloupců základ/DPH podle sazby dává rozpis DPH objednávky.
+ * <p>
+ * Čte se jediným dotazem na skalární hodnoty (žádné entity v persistence contextu) přes dopředný kurzor
+ * {@link ScrollableResults} s fetch size {@code eshop.order-export.fetch-size}; řádky jdou rovnou do výstupního
+ * streamu a po každé dávce se odešlou klientovi. Paměť je tak konstantní bez ohledu na počet objednávek.
+ * Na MySQL je kurzor serverový díky {@code useCursorFetch=true} v URL datasource (jinak by Connector/J
+ * načetl celý výsledek do paměti).
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExportService.class);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final String SHIPPING_ITEM_NAME = "Doprava";
+
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @return formát podle parametru URL (csv, xlsx), null pro neznámý
+         */
+        public static Format fromParam(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final List<String> HEADERS = List.of(
+            "Kód objednávky", "Datum objednávky", "Stav", "E-mail zákazníka",
+            "Fakturační jméno", "Fakturační příjmení", "Firma", "IČO", "DIČ", "Země",
+            "Měna", "Způsob platby", "Stav platby", "Kód kupónu", "Sleva kupónem bez DPH",
+            "Mezisoučet bez DPH", "Doprava bez DPH", "DPH položky", "DPH doprava", "DPH celkem",
+            "Celkem bez DPH", "Celkem s DPH", "Záloha", "Záloha uhrazena", "Uhrazeno",
+            "Zálohová faktura", "Daňový doklad k záloze", "Faktura",
+            "Položka", "SKU", "Varianta", "Množství", "Sazba DPH %", "Přenesená daň. povinnost",
+            "Cena/ks bez DPH", "Základ", "DPH", "Celkem s DPH (položka)");
+
+    // Pořadí odpovídá HEADERS (část objednávky); hodnoty se čtou z Tuple podle aliasu
+    private static final List<String> ORDER_ATTRIBUTES = List.of(
+            "orderCode", "orderDate", "invoiceFirstName", "invoiceLastName", "invoiceCompanyName",
+            "invoiceTaxId", "invoiceVatId", "invoiceCountry", "currency", "paymentMethod", "paymentStatus",
+            "appliedCouponCode", "couponDiscountAmount", "subTotalWithoutTax", "shippingCostWithoutTax",
+            "totalItemsTax", "shippingTax", "totalTax", "totalPriceWithoutTax", "totalPrice", "depositAmount",
+            "depositPaidDate", "paymentDate", "proformaInvoiceNumber", "taxDocumentNumber", "finalInvoiceNumber",
+            "shippingTaxRate");
+    private static final List<String> ITEM_ATTRIBUTES = List.of(
+            "productName", "sku", "variantInfo", "count", "taxRate", "isReverseCharge",
+            "unitPriceWithoutTax", "totalPriceWithoutTax", "totalTaxAmount", "totalPriceWithTax");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${eshop.order-export.fetch-size:500}")
+    private int fetchSize;
+
+    /**
+     * Zapíše objednávky odpovídající filtrům administrace do {@code out} (řazeno podle data objednávky).
+     *
+     * @return počet exportovaných objednávek
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(Format format, Long stateId, String paymentStatus, String customerEmail,
+                             LocalDateTime dateTimeFrom, LocalDateTime dateTimeTo, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        log.info("Starting {} order export. Filters: stateId={}, paymentStatus={}, customerEmail={}, from={}, to={}",
+                format, stateId, paymentStatus, customerEmail, dateTimeFrom, dateTimeTo);
+        Specification<Order> spec = OrderSpecifications.adminFilter(customerEmail, stateId, paymentStatus, dateTimeFrom, dateTimeTo);
+
+        OrderExportWriter writer = format == Format.XLSX ? new XlsxOrderExportWriter(out) : new CsvOrderExportWriter(out);
+        writer.writeHeader(HEADERS);
+
+        int chunkSize = Math.max(1, fetchSize);
+        long orders = 0;
+        long rows = 0;
+        long read = 0;
+        Tuple previous = null;
+        @SuppressWarnings("unchecked")
+        Query<Tuple> query = entityManager.createQuery(buildQuery(spec)).unwrap(Query.class);
+        try (ScrollableResults<Tuple> results = query
+                .setReadOnly(true)
+                .setCacheable(false)
+                .setFetchSize(chunkSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                Tuple tuple = results.get();
+                if (previous == null || !Objects.equals(previous.get("o_id"), tuple.get("o_id"))) {
+                    if (previous != null) {
+                        rows += writeShippingRow(writer, previous);
+                    }
+                    previous = tuple;
+                    orders++;
+                }
+                if (tuple.get("i_id") != null) {
+                    writer.writeRow(itemRow(tuple));
+                    rows++;
+                }
+                if (++read % chunkSize == 0) {
+                    writer.flush(); // Dávka je venku - klient vidí průběh, proxy neukončí nečinné spojení
+                }
+            }
+            if (previous != null) {
+                rows += writeShippingRow(writer, previous);
+            }
+        }
+        writer.finish();
+        log.info("Order export finished: {} orders, {} rows in {} ms.", orders, rows, System.currentTimeMillis() - start);
+        return orders;
+    }
+
+    private CriteriaQuery<Tuple> buildQuery(Specification<Order> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Order> order = query.from(Order.class);
+        Join<Order, Customer> customer = order.join("customer", JoinType.LEFT);
+        Join<Order, OrderState> state = order.join("stateOfOrder", JoinType.LEFT);
+        Join<Order, OrderItem> item = order.join("orderItems", JoinType.LEFT);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(order.get("id").alias("o_id"));
+        selections.add(customer.get("email").alias("customerEmail"));
+        selections.add(state.get("name").alias("stateName"));
+        addAll(selections, order, "o_", ORDER_ATTRIBUTES);
+        selections.add(item.get("id").alias("i_id"));
+        addAll(selections, item, "i_", ITEM_ATTRIBUTES);
+        query.multiselect(selections);
+
+        Predicate predicate = spec.toPredicate(order, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        // Řádky jedné objednávky musí jít za sebou - skupinu rozpoznáváme podle změny ID
+        query.orderBy(cb.asc(order.get("orderDate")), cb.asc(order.get("id")), cb.asc(item.get("id")));
+        return query;
+    }
+
+    private static void addAll(List<Selection<?>> selections, From<?, ?> from, String prefix, List<String> attributes) {
+        for (String attribute : attributes) {
+            selections.add(from.get(attribute).alias(prefix + attribute));
+        }
+    }
+
+    private List<Object> orderColumns(Tuple tuple) {
+        List<Object> row = new ArrayList<>(HEADERS.size());
+        row.add(tuple.get("o_orderCode"));
+        row.add(tuple.get("o_orderDate"));
+        row.add(tuple.get("stateName"));
+        row.add(tuple.get("customerEmail"));
+        for (String attribute : ORDER_ATTRIBUTES.subList(2, ORDER_ATTRIBUTES.size() - 1)) { // bez kódu, data a sazby dopravy
+            row.add(tuple.get("o_" + attribute));
+        }
+        return row;
+    }
+
+    private List<Object> itemRow(Tuple tuple) {
+        List<Object> row = orderColumns(tuple);
+        row.add(tuple.get("i_productName"));
+        row.add(tuple.get("i_sku"));
+        row.add(tuple.get("i_variantInfo"));
+        row.add(tuple.get("i_count"));
+        row.add(toPercent(tuple.get("i_taxRate", BigDecimal.class)));
+        row.add(tuple.get("i_isReverseCharge"));
+        row.add(tuple.get("i_unitPriceWithoutTax"));
+        row.add(tuple.get("i_totalPriceWithoutTax"));
+        row.add(tuple.get("i_totalTaxAmount"));
+        row.add(tuple.get("i_totalPriceWithTax"));
+        return row;
+    }
+
+    private int writeShippingRow(OrderExportWriter writer, Tuple orderTuple) throws IOException {
+        BigDecimal shippingCost = orderTuple.get("o_shippingCostWithoutTax", BigDecimal.class);
+        BigDecimal shippingTax = orderTuple.get("o_shippingTax", BigDecimal.class);
+        if (isZero(shippingCost) && isZero(shippingTax)) {
+            return 0;
+        }
+        BigDecimal base = shippingCost != null ? shippingCost : BigDecimal.ZERO;
+        BigDecimal tax = shippingTax != null ? shippingTax : BigDecimal.ZERO;
+        List<Object> row = orderColumns(orderTuple);
+        row.add(SHIPPING_ITEM_NAME);
+        row.add(null);
+        row.add(null);
+        row.add(1);
+        row.add(toPercent(orderTuple.get("o_shippingTaxRate", BigDecimal.class)));
+        row.add(Boolean.FALSE);
+        row.add(base);
+        row.add(base);
+        row.add(tax);
+        row.add(base.add(tax));
+        writer.writeRow(row);
+        return 1;
+    }
+
+    private static boolean isZero(BigDecimal value) {
+        return value == null || value.signum() == 0;
+    }
+
+    private static BigDecimal toPercent(BigDecimal rate) {
+        return rate != null ? rate.multiply(HUNDRED).stripTrailingZeros() : null;
+    }
+}
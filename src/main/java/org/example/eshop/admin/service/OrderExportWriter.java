@@ -0,0 +1,25 @@
+package org.example.eshop.admin.service;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Zápis řádků exportu objednávek přímo do výstupního streamu (nic se nedrží v paměti).
+ * Hodnoty jsou {@code String}, {@code BigDecimal}, {@code Integer}, {@code Boolean}, {@code LocalDateTime} nebo null.
+ */
+interface OrderExportWriter {
+
+    void writeHeader(List<String> headers) throws IOException;
+
+    void writeRow(List<?> values) throws IOException;
+
+    /**
+     * Odešle dosud zapsaná data klientovi (volá se po každé dávce řádků).
+     */
+    void flush() throws IOException;
+
+    /**
+     * Dokončí soubor. Podkladový stream nezavírá - patří servlet kontejneru.
+     */
+    void finish() throws IOException;
+}
@@ -24,16 +24,14 @@ public class GlobalModelAttributeAdvice {
      */
     @ModelAttribute("currentGlobalCurrency") // Název atributu v modelu
     public String addGlobalCurrencyToModel(HttpServletRequest request) { // Přidán request pro logování
-        logger.info(">>> [GlobalModelAttributeAdvice] Vstupuji do addGlobalCurrencyToModel pro request: {}", request.getRequestURI()); // <-- NOVÝ LOG
         String selectedCurrency = "CZK"; // Default hodnota pro případ chyby
         try {
             selectedCurrency = currencyService.getSelectedCurrency(); // Původní volání
-            logger.info("[GlobalModelAttributeAdvice] Získána měna ze CurrencyService: {}", selectedCurrency); // <-- NOVÝ LOG
         } catch (Exception e) {
-            logger.error("!!! [GlobalModelAttributeAdvice] Chyba při získávání měny z CurrencyService: {} !!!", e.getMessage(), e); // <-- NOVÝ LOG
+            logger.error("!!! [GlobalModelAttributeAdvice] Chyba při získávání měny z CurrencyService: {} !!!", e.getMessage(), e);
             // selectedCurrency zůstane "CZK"
         }
-        logger.info(">>> [GlobalModelAttributeAdvice] Opouštím addGlobalCurrencyToModel. Vracím měnu: {}", selectedCurrency); // <-- NOVÝ LOG
+        logger.debug("[GlobalModelAttributeAdvice] Měna pro request {}: {}", request.getRequestURI(), selectedCurrency);
         return selectedCurrency;
     }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Value; // Import
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.Resource; // Import
 import org.springframework.web.client.RestTemplate;
 
@@ -29,7 +30,10 @@ public class AppConfig {
     @Value("${gcs.credentials.location:}") // Defaultně prázdné - použije ADC
     private Resource gcsCredentialsResource;
 
+    // Líná inicializace - vyhledání ADC a vytvoření klienta trvá při studeném startu (Cloud Run) stovky ms,
+    // přitom klient je potřeba až při prvním nahrání souboru
     @Bean
+    @Lazy
     public Storage googleCloudStorage() throws IOException {
         StorageOptions.Builder optionsBuilder = StorageOptions.newBuilder()
                 .setProjectId(gcsProjectId);
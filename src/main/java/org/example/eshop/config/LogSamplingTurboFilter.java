@@ -0,0 +1,84 @@
+package org.example.eshop.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Logback turbo filtr (registruje se v {@code logback-spring.xml}, není to Spring bean):
+ * <ul>
+ *     <li>Omezí počet událostí na logger a sekundu ({@code maxPerSecond}) pro úroveň INFO - zbytek
+ *     zahodí ještě před formátováním zprávy. WARN a ERROR projdou vždy. Za sekundu s vyřazenými událostmi
+ *     zapíše (při další události loggeru) jeden WARN se souhrnem.</li>
+ *     <li>Pokud je v MDC {@link #DEBUG_MDC_KEY}{@code =true} (viz {@code RequestDebugLoggingFilter}), propustí DEBUG
+ *     a TRACE loggerů pod {@code loggerPrefix} bez ohledu na nastavenou úroveň - detail jednoho požadavku bez
+ *     přepnutí úrovně pro celou aplikaci.</li>
+ * </ul>
+ */
+public class LogSamplingTurboFilter extends TurboFilter {
+
+    public static final String DEBUG_MDC_KEY = "debugLog";
+    private static final String SUMMARY_LOGGER = LogSamplingTurboFilter.class.getName();
+
+    /** Počítadlo událostí jednoho loggeru v aktuální sekundě. */
+    private static final class Window {
+        private volatile long second;
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicInteger dropped = new AtomicInteger();
+    }
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private int maxPerSecond = 200;
+    private String loggerPrefix = "org.example.eshop";
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (level.levelInt < Level.INFO_INT) {
+            return "true".equals(MDC.get(DEBUG_MDC_KEY)) && logger.getName().startsWith(loggerPrefix)
+                    ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+        }
+        // Dotaz isInfoEnabled() (format == null) a vypnuté loggery se nepočítají - rozhodne běžná kontrola úrovně
+        if (format == null || maxPerSecond <= 0 || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Window window = windows.computeIfAbsent(logger.getName(), k -> new Window());
+        long now = System.currentTimeMillis() / 1000;
+        if (window.second != now) {
+            synchronized (window) {
+                if (window.second != now) {
+                    int dropped = window.dropped.getAndSet(0);
+                    window.count.set(0);
+                    window.second = now;
+                    if (dropped > 0) {
+                        LoggerFactory.getLogger(SUMMARY_LOGGER)
+                                .warn("Log sampling: dropped {} INFO events from logger {} (limit {}/s).", dropped, logger.getName(), maxPerSecond);
+                    }
+                }
+            }
+        }
+        if (window.count.incrementAndGet() > maxPerSecond) {
+            window.dropped.incrementAndGet();
+            return FilterReply.DENY;
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
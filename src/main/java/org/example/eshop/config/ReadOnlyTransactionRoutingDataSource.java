@@ -0,0 +1,43 @@
+package org.example.eshop.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Cíl {@code LazyConnectionDataSourceProxy}: read-only transakce ({@code @Transactional(readOnly = true)}) dostanou
+ * spojení z {@link ReplicaRoutingDataSource}, ostatní z {@link ReadYourWritesDataSource}.
+ * <p>
+ * Rozhoduje příznak transakce Springu, ne {@code Connection.setReadOnly}: při uvolňování spojení po transakci
+ * ({@code DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION}) HibernateJpaDialect spojení na začátku transakce
+ * nepřipravuje, takže by {@code LazyConnectionDataSourceProxy.setReadOnlyDataSource} repliku nikdy nepoužil.
+ * Skutečné spojení se bere až u prvního příkazu, kdy už je příznak nastavený.
+ */
+public class ReadOnlyTransactionRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource readWrite;
+    private final DataSource readOnly;
+
+    ReadOnlyTransactionRoutingDataSource(DataSource readWrite, DataSource readOnly) {
+        this.readWrite = readWrite;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return determineTarget().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return readWrite.getConnection(username, password);
+    }
+
+    private DataSource determineTarget() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? readOnly : readWrite;
+    }
+}
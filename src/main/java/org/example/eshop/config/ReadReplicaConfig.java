@@ -0,0 +1,123 @@
+package org.example.eshop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Čtení z replik Cloud SQL pro {@code @Transactional(readOnly = true)} (zapnutí {@code eshop.datasource.replicas.enabled}).
+ * <p>
+ * Výsledný {@code dataSource} je {@link LazyConnectionDataSourceProxy}: skutečné spojení si bere až u prvního
+ * příkazu, kdy už je známo, zda je transakce read-only. Read-only transakce jdou přes {@link ReplicaRoutingDataSource}
+ * (repliky v limitu zpoždění, jinak primary), ostatní přes {@link ReadYourWritesDataSource} na primary - rozhoduje
+ * {@link ReadOnlyTransactionRoutingDataSource}. Primární pool se tu vytváří sám (Spring Boot při vlastním DataSource
+ * beanu svůj nevytvoří) ze stejných {@code spring.datasource.*} a {@code spring.datasource.hikari.*} vlastností.
+ * <p>
+ * Konfigurace je aktivní vždy a vlastnost se čte až za běhu: v obrazu fast-start se podmínky beanů vyhodnotí při
+ * AOT buildu, {@code @ConditionalOnProperty} by proměnnou prostředí při nasazení ignorovala. Bez zapnutí je
+ * {@code dataSource} přímo primární pool jako dřív.
+ * <p>
+ * Lokální ověření se dvěma instancemi MySQL: profil {@code replicas-local}.
+ */
+@Configuration
+public class ReadReplicaConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaConfig.class);
+
+    @Value("${eshop.datasource.replicas.enabled:false}")
+    private boolean enabled;
+    @Value("${eshop.datasource.replicas.urls:}")
+    private List<String> replicaUrls;
+    @Value("${eshop.datasource.replicas.username:}")
+    private String replicaUsername;
+    @Value("${eshop.datasource.replicas.password:}")
+    private String replicaPassword;
+    @Value("${eshop.datasource.replicas.maximum-pool-size:10}")
+    private int replicaPoolSize;
+    @Value("${eshop.datasource.replicas.max-staleness-seconds:5}")
+    private double maxStalenessSeconds;
+    @Value("${eshop.datasource.replicas.lag-check-interval-ms:2000}")
+    private long lagCheckIntervalMs;
+    @Value("${eshop.datasource.replicas.lag-query:SHOW REPLICA STATUS}")
+    private String lagQuery;
+    @Value("${eshop.datasource.replicas.sticky-seconds:15}")
+    private long stickySeconds;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties, MeterRegistry meterRegistry) {
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        if (!enabled) {
+            return new ReplicaRoutingDataSource(primaryDataSource, replicas, lagQuery, maxStalenessSeconds,
+                    lagCheckIntervalMs, meterRegistry);
+        }
+        for (String url : replicaUrls) {
+            if (!StringUtils.hasText(url)) continue;
+            String name = "replica-" + (replicas.size() + 1);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(name);
+            pool.setJdbcUrl(url.trim());
+            pool.setUsername(StringUtils.hasText(replicaUsername) ? replicaUsername : properties.determineUsername());
+            pool.setPassword(StringUtils.hasText(replicaUsername) ? replicaPassword : properties.determinePassword());
+            pool.setMaximumPoolSize(replicaPoolSize);
+            pool.setMinimumIdle(primaryDataSource.getMinimumIdle() == 0 ? 0 : Math.min(2, replicaPoolSize));
+            pool.setInitializationFailTimeout(-1); // Nedostupná replika nesmí zastavit start - čte se z primary
+            pool.setReadOnly(true);
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, pool));
+        }
+        if (replicas.isEmpty()) {
+            log.warn("Read replica routing enabled but eshop.datasource.replicas.urls is empty - all reads go to primary.");
+        } else {
+            log.info("Read replica routing: {} replica(s), max staleness {} s, read-your-writes window {} s.",
+                    replicas.size(), maxStalenessSeconds, stickySeconds);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, lagQuery, maxStalenessSeconds,
+                lagCheckIntervalMs, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 ReplicaRoutingDataSource replicaRoutingDataSource) {
+        if (!enabled) {
+            return primaryDataSource;
+        }
+        return new LazyConnectionDataSourceProxy(new ReadOnlyTransactionRoutingDataSource(
+                new ReadYourWritesDataSource(primaryDataSource, stickySeconds), replicaRoutingDataSource));
+    }
+
+    // Spring jinak drží spojení po celou dobu EntityManageru (open-in-view = celý požadavek). První read-only transakce
+    // by tak požadavku přidělila repliku a zapisující transakce po ní by skončila na read-only spojení.
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> {
+            if (enabled) {
+                properties.put(AvailableSettings.CONNECTION_HANDLING,
+                        PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+            }
+        };
+    }
+}
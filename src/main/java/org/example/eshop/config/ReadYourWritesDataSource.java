@@ -0,0 +1,82 @@
+package org.example.eshop.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Primární databáze pro zapisující transakce. Po commitu zápisu v rámci POST/PUT/DELETE požadavku (odeslání
+ * objednávky, úprava profilu, ...) připne session na {@code stickySeconds} k primární databázi - následné
+ * read-only transakce (typicky stránka po redirectu) tak nečtou z repliky, která zápis ještě nemusí mít.
+ * <p>
+ * Zápisy v GET požadavcích (počítadla, pomocná data) session nepřipínají, session se kvůli tomu nezakládá.
+ */
+public class ReadYourWritesDataSource extends DelegatingDataSource {
+
+    static final String PINNED_UNTIL_ATTRIBUTE = ReadYourWritesDataSource.class.getName() + ".pinnedUntil";
+
+    private final long stickyMillis;
+
+    ReadYourWritesDataSource(DataSource primary, long stickySeconds) {
+        super(primary);
+        this.stickyMillis = stickySeconds * 1000;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (stickyMillis > 0 && TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pinCurrentSession();
+                }
+            });
+        }
+        return super.getConnection();
+    }
+
+    /**
+     * @return true, pokud aktuální požadavek nebo jeho session nedávno zapisovaly a mají číst z primární databáze
+     */
+    static boolean isPinnedToPrimary() {
+        HttpServletRequest request = currentRequest();
+        if (request == null) {
+            return false;
+        }
+        if (request.getAttribute(PINNED_UNTIL_ATTRIBUTE) != null) {
+            return true;
+        }
+        HttpSession session = request.getSession(false);
+        return session != null && session.getAttribute(PINNED_UNTIL_ATTRIBUTE) instanceof Long until
+                && until > System.currentTimeMillis();
+    }
+
+    private void pinCurrentSession() {
+        HttpServletRequest request = currentRequest();
+        if (request == null || HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        Long until = System.currentTimeMillis() + stickyMillis;
+        request.setAttribute(PINNED_UNTIL_ATTRIBUTE, until);
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.setAttribute(PINNED_UNTIL_ATTRIBUTE, until);
+        }
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servletAttributes ? servletAttributes.getRequest() : null;
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.eshop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Zdroj spojení pro read-only transakce: rozkládá čtení na repliky, které nejsou pozadu víc než
+ * {@code maxStalenessSeconds}, jinak (a pro session připnuté po zápisu, viz {@link ReadYourWritesDataSource})
+ * vrací spojení z primární databáze.
+ * <p>
+ * Zpoždění replik měří vlastní vlákno každých {@code checkIntervalMillis} dotazem {@code lagQuery}:
+ * u {@code SHOW REPLICA STATUS} / {@code SHOW SLAVE STATUS} se čte sloupec {@code Seconds_Behind_Source}
+ * ({@code Seconds_Behind_Master}), jinak první sloupec jako počet sekund. Replika bez měření (zastavená replikace,
+ * chyba spojení, monitor nestíhá) se nepoužije, dokud další měření neuspěje.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile double lagSeconds = Double.NaN; // NaN = neznámé zpoždění, replika se nepoužije
+        private volatile long checkedAtMillis;
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final String lagQuery;
+    private final double maxStalenessSeconds;
+    private final long checkIntervalMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService lagMonitor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("replica-lag-monitor").factory());
+    private final Counter replicaReads;
+    private final Counter pinnedReads;
+    private final Counter fallbackReads;
+
+    ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, String lagQuery, double maxStalenessSeconds,
+                             long checkIntervalMillis, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.lagQuery = lagQuery;
+        this.maxStalenessSeconds = maxStalenessSeconds;
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.replicaReads = readCounter(meterRegistry, "replica");
+        this.pinnedReads = readCounter(meterRegistry, "primary-pinned");
+        this.fallbackReads = readCounter(meterRegistry, "primary-fallback");
+        for (Replica replica : this.replicas) {
+            Gauge.builder("eshop.datasource.replica.lag_seconds", replica, r -> r.lagSeconds)
+                    .tag("replica", replica.getName())
+                    .register(meterRegistry);
+        }
+        if (!this.replicas.isEmpty()) {
+            lagMonitor.scheduleWithFixedDelay(this::checkLag, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReadYourWritesDataSource.isPinnedToPrimary()) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+        long now = System.currentTimeMillis();
+        int size = replicas.size();
+        int start = size > 0 ? Math.floorMod(nextReplica.getAndIncrement(), size) : 0;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!isUsable(replica, now)) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.lagSeconds = Double.NaN; // Až do dalšího úspěšného měření
+                log.warn("Read replica {} unavailable, trying next target: {}", replica.getName(), e.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Spojení s explicitními přihlašovacími údaji vždy z primární databáze - pooly replik mají vlastní účty.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    public void close() {
+        lagMonitor.shutdownNow();
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private boolean isUsable(Replica replica, long now) {
+        double lag = replica.lagSeconds;
+        return !Double.isNaN(lag)
+                && lag <= maxStalenessSeconds
+                && now - replica.checkedAtMillis <= 3 * checkIntervalMillis; // Staré měření nic nezaručuje
+    }
+
+    private void checkLag() {
+        for (Replica replica : replicas) {
+            double previous = replica.lagSeconds;
+            double lag;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                lag = readLagSeconds(resultSet);
+            } catch (SQLException | RuntimeException e) {
+                log.debug("Lag check of read replica {} failed: {}", replica.getName(), e.getMessage());
+                lag = Double.NaN;
+            }
+            replica.lagSeconds = lag;
+            replica.checkedAtMillis = System.currentTimeMillis();
+            boolean wasUsable = !Double.isNaN(previous) && previous <= maxStalenessSeconds;
+            boolean usable = !Double.isNaN(lag) && lag <= maxStalenessSeconds;
+            if (wasUsable != usable) {
+                if (usable) {
+                    log.info("Read replica {} back in rotation (lag {} s).", replica.getName(), lag);
+                } else {
+                    log.warn("Read replica {} out of rotation (lag {} s, max {} s), reads fall back to primary.",
+                            replica.getName(), Double.isNaN(lag) ? "unknown" : lag, maxStalenessSeconds);
+                }
+            }
+        }
+    }
+
+    private static double readLagSeconds(ResultSet resultSet) throws SQLException {
+        if (!resultSet.next()) {
+            return Double.NaN; // SHOW REPLICA STATUS na instanci, která není replikou
+        }
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String column = metaData.getColumnLabel(i);
+            if ("Seconds_Behind_Source".equalsIgnoreCase(column) || "Seconds_Behind_Master".equalsIgnoreCase(column)) {
+                return readNumber(resultSet, i);
+            }
+        }
+        return readNumber(resultSet, 1);
+    }
+
+    private static double readNumber(ResultSet resultSet, int column) throws SQLException {
+        double value = resultSet.getDouble(column);
+        return resultSet.wasNull() ? Double.NaN : value; // NULL = replikační vlákno neběží
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("eshop.datasource.readonly.connections")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
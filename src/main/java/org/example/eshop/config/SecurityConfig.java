@@ -48,6 +48,9 @@ public class SecurityConfig {
                                 new AntPathRequestMatcher("/produkty"),
                                 new AntPathRequestMatcher("/produkt/**"),
                                 new AntPathRequestMatcher("/api/product/calculate-price"),
+                                new AntPathRequestMatcher("/api/product/*/pricing-descriptor", "GET"),
+                                new AntPathRequestMatcher("/api/catalog/**", "GET"),
+                                new AntPathRequestMatcher("/api/session-state", "GET"),
                                 new AntPathRequestMatcher("/navrhnout-na-miru"),
                                 new AntPathRequestMatcher("/navrhnout-na-miru/api/calculate-price"),
                                 new AntPathRequestMatcher("/kosik/**"),
@@ -74,6 +77,8 @@ public class SecurityConfig {
                                 new AntPathRequestMatcher("/muj-ucet/**")
                         ).authenticated()
                         .requestMatchers(new AntPathRequestMatcher("/admin/**")).hasRole("ADMIN")
+                        // Dávkové ceny (mřížky pro B2B nabídky) jen pro obsluhu - stovky výpočtů na požadavek
+                        .requestMatchers(new AntPathRequestMatcher("/api/product/calculate-price/batch", "POST")).hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 // Přihlášení a odhlášení
@@ -0,0 +1,54 @@
+package org.example.eshop.config;
+
+import org.example.eshop.web.CompressedResourceResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+
+/**
+ * Verzované a předkomprimované JS/CSS.
+ * <p>
+ * Odkazy v šablonách ({@code th:src="@{/js/global.js}"}) přepisuje {@link ResourceUrlEncodingFilter}
+ * na názvy s hashem obsahu ({@code /js/global-<md5>.js}). Hash se počítá jednou a drží se v cache
+ * resource chainu, stejně jako gzip varianta z {@link CompressedResourceResolver}. Protože se URL se změnou
+ * obsahu změní, mohou se soubory cachovat jako {@code immutable} na rok.
+ * <p>
+ * Na soubory v /js a /css je proto nutné odkazovat vždy přes {@code @{...}}, jinak se po nasazení
+ * nové verze u klientů neprojeví.
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+    @Value("${eshop.static.cache-max-age-days:365}")
+    private long cacheMaxAgeDays;
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        addVersionedHandler(registry, "/js/**", "classpath:/static/js/");
+        addVersionedHandler(registry, "/css/**", "classpath:/static/css/");
+    }
+
+    private void addVersionedHandler(ResourceHandlerRegistry registry, String pathPattern, String location) {
+        registry.addResourceHandler(pathPattern)
+                .addResourceLocations(location)
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(cacheMaxAgeDays)).cachePublic().immutable())
+                .resourceChain(true)
+                // Připravené .br/.gz soubory vedle originálu (pokud je build vytvoří) mají přednost
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new CompressedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+}
@@ -51,7 +51,7 @@ public class CartController implements PriceConstants {
     @Autowired
     private CouponService couponService;
     @Autowired
-    private CustomerService customerService;
+    private CustomerContextService customerContextService;
     @Autowired
     private DesignRepository designRepository;
     @Autowired
@@ -62,6 +62,8 @@ public class CartController implements PriceConstants {
     @Autowired
     private CurrencyService currencyService;
     @Autowired
+    private PricingDescriptorService pricingDescriptorService;
+    @Autowired
     private TaxRateRepository taxRateRepository; // Použito pro načtení TaxRate
 
     // --------------------------------------------------------------------
@@ -89,9 +91,9 @@ public class CartController implements PriceConstants {
             BigDecimal couponDiscountAmount = this.sessionCart.calculateDiscountAmount(currentCurrency);
             Coupon validatedCoupon = null;
             if (this.sessionCart.getAppliedCoupon() != null) {
-                Customer customer = (principal != null) ? customerService.getCustomerByEmail(principal.getName()).orElse(null) : null;
+                Customer customer = customerContextService.getCurrentCustomer(principal).orElse(null);
                 Coupon currentCoupon = this.sessionCart.getAppliedCoupon();
-                boolean stillValid = couponService.isCouponGenerallyValid(currentCoupon) && couponService.checkMinimumOrderValue(currentCoupon, subtotal, currentCurrency) && couponService.checkCustomerUsageLimit(customer, currentCoupon);
+                boolean stillValid = couponService.isCouponGenerallyValid(currentCoupon) && couponService.checkMinimumOrderValue(currentCoupon, subtotal, currentCurrency) && customerContextService.checkCouponUsageLimit(customer, currentCoupon);
                 if (stillValid) {
                     validatedCoupon = currentCoupon;
                     if (validatedCoupon.isFreeShipping()) {
@@ -274,6 +276,7 @@ public class CartController implements PriceConstants {
             BigDecimal unitPriceCZK;
             BigDecimal unitPriceEUR;
             String currency = currencyService.getSelectedCurrency();
+            String priceNotice = null;
 
             if (cartItem.isCustom()) {
                 log.debug("Cesta pro CUSTOM produkt ID: {}", product.getId()); // Změněný log
@@ -297,6 +300,14 @@ public class CartController implements PriceConstants {
                 unitPriceCZK = Optional.ofNullable(priceResponse.getTotalPriceCZK()).orElse(BigDecimal.ZERO);
                 unitPriceEUR = Optional.ofNullable(priceResponse.getTotalPriceEUR()).orElse(BigDecimal.ZERO);
 
+                // Cena z konfigurátoru se počítala v prohlížeči - platí vždy cena serveru, zákazníka jen upozorníme na rozdíl
+                PricingDescriptorService.QuoteCheck quoteCheck = pricingDescriptorService.checkQuote(product,
+                        cartItemDto.getPricingVersion(), cartItemDto.getPricingSignature(), cartItemDto.getQuotedPrice(),
+                        EURO_CURRENCY.equals(currency) ? unitPriceEUR : unitPriceCZK);
+                if (quoteCheck == PricingDescriptorService.QuoteCheck.STALE) {
+                    priceNotice = "Ceník se mezitím změnil, cena produktu '" + product.getName() + "' byla přepočítána podle aktuálního ceníku.";
+                }
+
                 cartItem.setLength(lengthCm);
                 cartItem.setWidth(widthCm);
                 cartItem.setHeight(heightCm);
@@ -384,6 +395,9 @@ public class CartController implements PriceConstants {
             this.sessionCart.addItem(cartItem);
             log.info("--- addToCart END --- Položka přidána/aktualizována. Cart hash: {}, Počet položek: {}", this.sessionCart.hashCode(), this.sessionCart.getItemCount());
             redirectAttributes.addFlashAttribute("cartSuccess", "Produkt '" + product.getName() + "' byl přidán do košíku.");
+            if (priceNotice != null) {
+                redirectAttributes.addFlashAttribute("cartInfo", priceNotice);
+            }
             return "redirect:/kosik";
 
         } catch (ResponseStatusException | EntityNotFoundException e) {
@@ -469,8 +483,8 @@ public class CartController implements PriceConstants {
             log.warn("Coupon '{}' minimum order value not met.", trimmedCode);
             return "redirect:/kosik";
         }
-        Customer customer = (principal != null) ? customerService.getCustomerByEmail(principal.getName()).orElse(null) : null;
-        if (customer != null && !customer.isGuest() && !couponService.checkCustomerUsageLimit(customer, coupon)) {
+        Customer customer = customerContextService.getCurrentCustomer(principal).orElse(null);
+        if (customer != null && !customer.isGuest() && !customerContextService.checkCouponUsageLimit(customer, coupon)) {
             this.sessionCart.setAttemptedCouponCode(trimmedCode);
             ra.addFlashAttribute("couponMessage", "Kupón '" + trimmedCode + "' jste již použil(a) maximální počet krát.");
             log.warn("Customer '{}' reached usage limit for coupon '{}'.", principal.getName(), trimmedCode);
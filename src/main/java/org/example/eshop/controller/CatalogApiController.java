@@ -0,0 +1,121 @@
+package org.example.eshop.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.eshop.dto.CatalogProductDetailDto;
+import org.example.eshop.service.CatalogSnapshot;
+import org.example.eshop.service.CatalogSnapshotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Read-only katalogové JSON API nad paměťovým snapshotem katalogu (žádné entity, žádné dotazy do DB).
+ * <p>
+ * Odpovědi se serializují jednou pro každou generaci snapshotu a posílají se se slabým ETagem
+ * (SHA-256 těla) a hlavičkou Cache-Control. Slabým proto, že Tomcat odpovědi se silným ETagem
+ * nekomprimuje (gzip mění bajty těla). Podmíněné požadavky s If-None-Match vyhodnocuje
+ * Spring MVC automaticky a odpovídá 304 Not Modified bez těla.
+ */
+@RestController
+@RequestMapping("/api/catalog")
+public class CatalogApiController {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogApiController.class);
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${eshop.catalog.api.max-age-seconds:60}")
+    private long maxAgeSeconds;
+    @Value("${eshop.catalog.api.stale-while-revalidate-seconds:300}")
+    private long staleWhileRevalidateSeconds;
+
+    // Serializovaná těla odpovědí podle cesty; platí jen pro snapshot, ze kterého vznikla
+    private final Map<String, CachedBody> bodyCache = new ConcurrentHashMap<>();
+
+    @GetMapping("/products")
+    public ResponseEntity<byte[]> getProducts() {
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        return respond("products", snapshot, CatalogSnapshot::getProducts);
+    }
+
+    @GetMapping("/products/{slug}")
+    public ResponseEntity<byte[]> getProduct(@PathVariable String slug) {
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        return snapshot.findProductBySlug(slug)
+                .map(product -> respond("product:" + product.getSlug(), snapshot,
+                        s -> new CatalogProductDetailDto(product, s.optionsFor(product))))
+                .orElseGet(() -> {
+                    log.debug("Catalog API: product with slug '{}' not found.", slug);
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .cacheControl(cacheControl())
+                            .build();
+                });
+    }
+
+    @GetMapping("/options")
+    public ResponseEntity<byte[]> getOptions() {
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        return respond("options", snapshot, CatalogSnapshot::allOptions);
+    }
+
+    private ResponseEntity<byte[]> respond(String key, CatalogSnapshot snapshot, Function<CatalogSnapshot, Object> payload) {
+        CachedBody body = bodyCache.get(key);
+        if (body == null || body.snapshot() != snapshot) {
+            body = serialize(snapshot, payload.apply(snapshot));
+            bodyCache.put(key, body);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(cacheControl())
+                .eTag(body.etag())
+                .body(body.bytes());
+    }
+
+    private CachedBody serialize(CatalogSnapshot snapshot, Object payload) {
+        try {
+            byte[] bytes = objectMapper.writeValueAsBytes(payload);
+            return new CachedBody(snapshot, bytes, "W/\"" + sha256Hex(bytes) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Nepodařilo se serializovat katalogová data: " + e.getMessage(), e);
+        }
+    }
+
+    private CacheControl cacheControl() {
+        return CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds))
+                .cachePublic()
+                .staleWhileRevalidate(Duration.ofSeconds(staleWhileRevalidateSeconds));
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16); // 128 bitů pro ETag bohatě stačí
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 není k dispozici.", e);
+        }
+    }
+
+    private record CachedBody(CatalogSnapshot snapshot, byte[] bytes, String etag) {
+    }
+}
@@ -66,6 +66,8 @@ public class CheckoutController implements PriceConstants {
     private ObjectMapper objectMapper;
     @Autowired
     private OrderRepository orderRepository;
+    @Autowired
+    private CustomerContextService customerContextService;
 
     @GetMapping
     @Transactional(readOnly = true)
@@ -81,13 +83,14 @@ public class CheckoutController implements PriceConstants {
         }
 
         Customer customer = null;
+        Principal principal = (userDetails != null) ? userDetails::getUsername : null;
         CheckoutFormDataDto checkoutForm = (CheckoutFormDataDto) model.getAttribute("checkoutForm");
 
         if (checkoutForm == null) {
             checkoutForm = new CheckoutFormDataDto();
             if (userDetails != null) {
                 try {
-                    customer = customerService.getCustomerByEmail(userDetails.getUsername())
+                    customer = customerContextService.getCurrentCustomer(principal)
                             .orElseThrow(() -> new IllegalStateException("Authenticated user not found: " + userDetails.getUsername()));
                     checkoutForm.initializeFromCustomer(customer);
                     log.debug("Initialized checkout form DTO from logged-in customer {}.", customer.getId());
@@ -105,7 +108,7 @@ public class CheckoutController implements PriceConstants {
             }
         } else {
             if (userDetails != null) {
-                customer = customerService.getCustomerByEmail(userDetails.getUsername()).orElse(null);
+                customer = customerContextService.getCurrentCustomer(principal).orElse(null);
                 if (customer == null) {
                     log.error("Authenticated user {} not found when preparing model after error.", userDetails.getUsername());
                     return "redirect:/prihlaseni";
@@ -114,6 +117,9 @@ public class CheckoutController implements PriceConstants {
             log.debug("Using checkoutForm DTO from previous request (possibly after error).");
         }
 
+        if (!StringUtils.hasText(checkoutForm.getCheckoutToken())) {
+            checkoutForm.setCheckoutToken(UUID.randomUUID().toString()); // Po chybě formuláře zůstává původní token
+        }
         model.addAttribute("checkoutForm", checkoutForm);
         model.addAttribute("customer", customer);
         model.addAttribute("cart", sessionCart);
@@ -337,7 +343,7 @@ public class CheckoutController implements PriceConstants {
                 customer = customerService.getOrCreateGuestFromCheckoutData(checkoutForm);
             } else {
                 log.debug("Getting logged-in customer: {}", principal.getName());
-                customer = customerService.getCustomerByEmail(principal.getName())
+                customer = customerContextService.loadCurrentCustomerForUpdate(principal)
                         .orElseThrow(() -> new IllegalStateException("Authenticated user not found: " + principal.getName()));
 
                 if (!addressMatches(customer, checkoutForm)) {
@@ -496,7 +502,7 @@ public class CheckoutController implements PriceConstants {
         try {
             // Získání zákazníka (pro validaci kuponu)
             if (principal != null) {
-                customer = customerService.getCustomerByEmail(principal.getName()).orElse(null);
+                customer = customerContextService.getCurrentCustomer(principal).orElse(null);
             }
             // Validace kuponu (potřebujeme znát subtotal pro validaci min. hodnoty)
             BigDecimal subtotalForCoupon = sessionCart.calculateSubtotal(currentCurrency);
@@ -714,7 +720,7 @@ public class CheckoutController implements PriceConstants {
         Customer customer = null;
         if (principal != null) {
             try {
-                customer = customerService.getCustomerByEmail(principal.getName()).orElse(null);
+                customer = customerContextService.getCurrentCustomer(principal).orElse(null);
             } catch (Exception e) {
                 log.error("Error fetching customer {} during prepareModelForError", principal.getName(), e);
             }
@@ -841,7 +847,7 @@ public class CheckoutController implements PriceConstants {
         Coupon coupon = couponOpt.get();
         boolean isValid = couponService.isCouponGenerallyValid(coupon) && couponService.checkMinimumOrderValue(coupon, subtotal, currency);
         if (isValid && customer != null && !customer.isGuest()) {
-            isValid = couponService.checkCustomerUsageLimit(customer, coupon);
+            isValid = customerContextService.checkCouponUsageLimit(customer, coupon);
         }
         if (isValid) {
             if (!Objects.equals(coupon, cart.getAppliedCoupon())) {
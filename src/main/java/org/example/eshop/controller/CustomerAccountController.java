@@ -4,6 +4,7 @@ import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.example.eshop.dto.AddressDto;
 import org.example.eshop.dto.ChangePasswordDto;
+import org.example.eshop.dto.OrderListRowDto;
 import org.example.eshop.dto.ProfileUpdateDto;
 import org.example.eshop.model.Conversation;
 import org.example.eshop.model.Customer;
@@ -11,11 +12,16 @@ import org.example.eshop.model.Message;
 import org.example.eshop.model.Order;
 import org.example.eshop.repository.ConversationRepository;
 import org.example.eshop.service.ConversationService;
+import org.example.eshop.service.CustomerContextService;
 import org.example.eshop.service.CustomerService;
+import org.example.eshop.service.OrderMessageStreamService;
 import org.example.eshop.service.OrderService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional; // Správný import
@@ -23,12 +29,15 @@ import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 // Odebrán import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -46,6 +55,10 @@ public class CustomerAccountController {
     private ConversationService conversationService;
     @Autowired
     private ConversationRepository conversationRepository;
+    @Autowired
+    private OrderMessageStreamService orderMessageStreamService;
+    @Autowired
+    private CustomerContextService customerContextService; // Přihlášený zákazník bez dotazu podle emailu
 
     // Konstruktor pro DI
     @Autowired
@@ -58,8 +71,7 @@ public class CustomerAccountController {
         if (principal == null) {
             throw new IllegalStateException("Uživatel není přihlášen.");
         }
-        String userEmail = principal.getName();
-        return customerService.getCustomerByEmail(userEmail)
+        return customerContextService.getCurrentCustomer(principal)
                 .orElseThrow(() -> new IllegalStateException("Profil přihlášeného uživatele nebyl nalezen."));
     }
 
@@ -150,7 +162,7 @@ public class CustomerAccountController {
     public String viewOrders(Model model, Principal principal, RedirectAttributes redirectAttributes) {
         try {
             Customer customer = getCurrentCustomer(principal);
-            List<Order> orders = orderService.findAllOrdersByCustomerId(customer.getId());
+            List<OrderListRowDto> orders = orderService.findOrderListRowsByCustomerId(customer.getId());
             model.addAttribute("orders", orders);
         } catch (Exception e) {
             log.error("Chyba při načítání objednávek pro {}: {}", principal.getName(), e.getMessage(), e);
@@ -172,7 +184,7 @@ public class CustomerAccountController {
                 throw new IllegalStateException("Uživatel není přihlášen.");
             }
             String userEmail = principal.getName();
-            loggedInCustomer = customerService.getCustomerByEmail(userEmail)
+            loggedInCustomer = customerContextService.getCurrentCustomer(principal)
                     .orElseThrow(() -> new IllegalStateException("Profil přihlášeného uživatele nebyl nalezen. Email: " + userEmail));
             log.debug("Customer {} (ID: {}) viewing order detail for CODE: {}", loggedInCustomer.getEmail(), loggedInCustomer.getId(), orderCode);
 
@@ -184,13 +196,14 @@ public class CustomerAccountController {
             }
 
             // Načtení externích zpráv
-            List<Message> externalMessages = conversationRepository
-                    .findByOrderIdAndType(order.getId(), Conversation.ConversationType.EXTERNAL)
-                    .flatMap(conversation -> conversationRepository.findByIdWithMessages(conversation.getId())) // Načteme i zprávy
+            Optional<Conversation> externalConversation = conversationRepository
+                    .findWithMessagesByOrderIdAndType(order.getId(), Conversation.ConversationType.EXTERNAL); // Jedním dotazem i se zprávami
+            List<Message> externalMessages = externalConversation
                     .map(Conversation::getMessages)
                     .orElse(new ArrayList<>()); // Vrátí prázdný seznam, pokud konverzace nebo zprávy neexistují
 
             model.addAttribute("externalMessages", externalMessages);
+            model.addAttribute("externalUnreadByCustomer", externalConversation.map(Conversation::getUnreadByCustomerCount).orElse(0));
             model.addAttribute("order", order);
             log.info("Order detail for CODE {} loaded successfully for customer {}", orderCode, loggedInCustomer.getEmail());
             return "muj-ucet/objednavka-detail";
@@ -251,6 +264,39 @@ public class CustomerAccountController {
         return "redirect:/muj-ucet/objednavky/" + orderCode;
     }
 
+    // Živý kanál zpráv k objednávce (SSE) - jen externí konverzace
+    @GetMapping(value = "/objednavky/{orderCode}/zpravy/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamMessages(@PathVariable String orderCode, Principal principal) {
+        Order order = getOwnedOrder(orderCode, principal);
+        log.debug("Customer {} subscribed to message stream for order {}", principal.getName(), orderCode);
+        return orderMessageStreamService.subscribe(order.getId(), OrderMessageStreamService.Audience.CUSTOMER);
+    }
+
+    // Označení zpráv od obchodu jako přečtených (volá stránka detailu objednávky)
+    @PostMapping("/objednavky/{orderCode}/zpravy/precteno")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> markMessagesRead(@PathVariable String orderCode, Principal principal) {
+        Order order = getOwnedOrder(orderCode, principal);
+        int updated = conversationService.markExternalMessagesAsRead(order.getId(), Message.SenderType.CUSTOMER);
+        return ResponseEntity.ok(Map.of("marked", updated));
+    }
+
+    private Order getOwnedOrder(String orderCode, Principal principal) {
+        Customer customer;
+        try {
+            customer = getCurrentCustomer(principal);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        }
+        Order order = orderService.findOrderByCode(orderCode)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Objednávka nenalezena."));
+        if (order.getCustomer() == null || !order.getCustomer().getId().equals(customer.getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "K této objednávce nemáte přístup.");
+        }
+        return order;
+    }
+
     // --- Adresy ---
     @GetMapping("/adresy")
     @Transactional(readOnly = true) // Přidáno
@@ -3,9 +3,13 @@ package org.example.eshop.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.example.eshop.config.PriceConstants;
+import org.example.eshop.dto.CatalogProductDto;
+import org.example.eshop.dto.ProductFacetQuery;
 import org.example.eshop.model.Product;
 import org.example.eshop.service.CurrencyService;
+import org.example.eshop.service.ProductFacetService;
 import org.example.eshop.service.ProductService;
+import org.example.eshop.web.PageCacheFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,17 +30,20 @@ public class HomeController implements PriceConstants { // Přidáno PriceConsta
     private final ProductService productService;
     private final CurrencyService currencyService;
     private final ObjectMapper objectMapper;
+    private final ProductFacetService productFacetService;
 
     @Autowired
-    public HomeController(ProductService productService, CurrencyService currencyService, ObjectMapper objectMapper) {
+    public HomeController(ProductService productService, CurrencyService currencyService, ObjectMapper objectMapper,
+                          ProductFacetService productFacetService) {
         this.productService = productService;
         this.currencyService = currencyService;
         this.objectMapper = objectMapper;
+        this.productFacetService = productFacetService;
     }
 
     @GetMapping("/")
     public String home(Model model, HttpServletRequest request) {
-        log.info("Accessing home page - Applying price sorting");
+        log.debug("Accessing home page - Applying price sorting");
         String currentCurrency = currencyService.getSelectedCurrency();
         model.addAttribute("currentGlobalCurrency", currentCurrency); // Pro layout
 
@@ -45,23 +52,12 @@ public class HomeController implements PriceConstants { // Přidáno PriceConsta
         List<Product> featuredProducts = Collections.emptyList();
 
         try {
-            // 1. Načtení VŠECH aktivních standardních produktů
-            List<Product> allActiveStandardProducts = productService.getAllActiveProducts().stream()
-                    .filter(p -> p != null && !p.isCustomisable()) // Filtrujeme standardní a non-null
-                    .collect(Collectors.toList());
-            log.debug("Found {} active standard products initially.", allActiveStandardProducts.size());
-
-            // 2. Seřazení podle ceny v aktuální měně (vzestupně)
-            allActiveStandardProducts.sort(Comparator.comparing(
-                    p -> EURO_CURRENCY.equals(currentCurrency) ? p.getBasePriceEUR() : p.getBasePriceCZK(),
-                    Comparator.nullsLast(BigDecimal::compareTo) // Produkty bez ceny dáme na konec
-            ));
-            log.debug("Sorted active standard products by {} price.", currentCurrency);
-
-            // 3. Výběr prvních 4 (nebo méně, pokud jich není tolik)
-            featuredProducts = allActiveStandardProducts.stream()
-                    .limit(4)
+            // 1.-3. Čtyři nejlevnější standardní produkty v aktuální měně (po slevách) z facetového indexu,
+            // z DB se pak načtou jen tyto čtyři (obrázky, slevy a DPH pro kartu a JSON-LD)
+            List<Long> featuredIds = productFacetService.top(ProductFacetQuery.SortOrder.PRICE_ASC, currentCurrency, 4).stream()
+                    .map(CatalogProductDto::getId)
                     .collect(Collectors.toList());
+            featuredProducts = productService.getActiveProductsByIdsInOrder(featuredIds);
             log.debug("Selected top {} products for display.", featuredProducts.size());
 
             // 4. Výpočet finálních cen a generování JSON-LD (pouze pro vybrané produkty)
@@ -142,6 +138,7 @@ public class HomeController implements PriceConstants { // Přidáno PriceConsta
             model.addAttribute("featuredProducts", Collections.emptyList());
             model.addAttribute("featuredProductPrices", Collections.emptyMap());
             model.addAttribute("productJsonLdList", Collections.emptyList());
+            PageCacheFilter.skipCaching(request); // Prázdnou stránku po chybě neukládáme do cache
         }
         return "index";
     }
@@ -2,33 +2,48 @@ package org.example.eshop.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.example.eshop.dto.CartItemDto;
+import org.example.eshop.dto.CatalogPriceDto;
+import org.example.eshop.dto.CatalogProductDto;
 import org.example.eshop.dto.CustomPriceRequestDto;
 import org.example.eshop.dto.CustomPriceResponseDto;
+import org.example.eshop.dto.PriceQuoteBatchRequestDto;
 import org.example.eshop.dto.ProductConfiguratorDto;
+import org.example.eshop.dto.ProductFacetQuery;
+import org.example.eshop.dto.ProductFacetResult;
 import org.example.eshop.model.*;
 import org.example.eshop.service.CurrencyService;
+import org.example.eshop.service.PriceQuoteBatchService;
+import org.example.eshop.service.PricingDescriptorService;
+import org.example.eshop.service.ProductFacetService;
 import org.example.eshop.service.ProductService;
+import org.example.eshop.web.PageCacheFilter;
+import org.example.eshop.web.RateLimitFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -47,71 +62,65 @@ public class ProductController {
     CurrencyService currencyService;
     @Autowired
     private ProductService productService;
+    @Autowired
+    private ProductFacetService productFacetService;
+    @Autowired
+    private PricingDescriptorService pricingDescriptorService;
+    @Autowired
+    private PriceQuoteBatchService priceQuoteBatchService;
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
 
 
     @GetMapping("/produkty")
-    @Transactional(readOnly = true)
-// Použijeme PageableDefault pro základní nastavení, řazení přepíšeme níže
-    public String listProducts(Model model, @PageableDefault(size = 12) Pageable pageable) {
-        logger.info(">>> [ProductController] Vstupuji do listProducts (STANDARD SORTED). Pageable: {}", pageable);
+    public String listProducts(Model model, @ModelAttribute("filter") ProductFacetQuery filter, BindingResult bindingResult,
+                               HttpServletRequest request) {
+        // Neplatné hodnoty filtru (např. text v poli ceny) se ignorují - pole zůstane prázdné
+        if (bindingResult.hasErrors()) {
+            logger.debug("[ProductController] Ignoruji neplatné parametry filtru: {}", bindingResult.getFieldErrors());
+        }
+        logger.debug(">>> [ProductController] Vstupuji do listProducts. Filtr: sort={}, page={}, filtered={}",
+                filter.getSort(), filter.getPage(), filter.isFiltered());
         String currentCurrency = currencyService.getSelectedCurrency();
         model.addAttribute("currentGlobalCurrency", currentCurrency); // Pro layout
 
         try {
-            // 1. Určení pole pro řazení podle aktuální měny
-            String priceField = EURO_CURRENCY.equals(currentCurrency) ? "basePriceEUR" : "basePriceCZK";
-            Sort priceSort = Sort.by(Sort.Direction.ASC, priceField);
-
-            // 2. Vytvoření Pageable s naším řazením podle ceny
-            // POZNÁMKA: Pokud byste chtěli umožnit uživateli řadit i jinak (např. podle názvu) přes URL parametry,
-            // logika pro kombinaci řazení by byla složitější. Prozatím nastavíme řazení jen podle ceny.
-            Pageable sortedPageable = PageRequest.of(
-                    pageable.getPageNumber(),
-                    pageable.getPageSize(),
-                    priceSort // Použijeme naše vynucené řazení podle ceny
-            );
-
-            logger.debug("Požaduji aktivní standardní produkty seřazené podle {} ASC. Finální Pageable: {}", priceField, sortedPageable);
-
-            // 3. Zavolání NOVÉ service metody pro načtení standardních seřazených produktů
-            // Předpokládá se, že tato metoda v ProductService volá novou metodu
-            // findByActiveTrueAndCustomisableFalse(sortedPageable) v ProductRepository
-            // NÁZEV METODY SI PŘIZPŮSOBTE PODLE SVÉ IMPLEMENTACE V ProductService!
-            Page<Product> productPage = productService.getActiveStandardProducts(sortedPageable);
-
-            logger.info("[ProductController] ProductService.getActiveStandardProducts vrátil stránku: TotalElements={}, TotalPages={}, Number={}, Size={}",
-                    productPage.getTotalElements(), productPage.getTotalPages(), productPage.getNumber(), productPage.getSize());
-
-            // 4. Výpočet finálních cen pro zobrazení
+            // Filtrování, facety, řazení i stránkování v paměti nad katalogovým snapshotem (případně v DB, viz ProductFacetService)
+            ProductFacetResult result = productFacetService.search(filter, currentCurrency);
+            Page<CatalogProductDto> productPage = result.getPage();
+            logger.debug("[ProductController] Facetový výpis ({}): TotalElements={}, TotalPages={}, Number={}",
+                    result.getSource(), productPage.getTotalElements(), productPage.getTotalPages(), productPage.getNumber());
+
+            // Ceny jsou ve snapshotu předpočítané - šablona dostane stejnou strukturu jako z calculateFinalProductPrice
             Map<Long, Map<String, Object>> productPrices = new HashMap<>();
-            for (Product product : productPage.getContent()) {
-                // Již NENÍ potřeba kontrolovat product.isCustomisable(), protože načítáme jen standardní
-                if (product != null && product.getId() != null) { // Kontrola null pro jistotu
-                    try {
-                        Map<String, Object> priceInfo = productService.calculateFinalProductPrice(product, currentCurrency);
-                        productPrices.put(product.getId(), priceInfo);
-                    } catch (Exception priceEx) {
-                        logger.error("Chyba při výpočtu ceny pro produkt ID {} (standard): {}", product.getId(), priceEx.getMessage());
-                        productPrices.put(product.getId(), Collections.emptyMap()); // Přidat prázdnou mapu při chybě
-                    }
+            for (CatalogProductDto product : productPage.getContent()) {
+                CatalogPriceDto price = EURO_CURRENCY.equals(currentCurrency) ? product.getPriceEUR() : product.getPriceCZK();
+                if (price != null && price.getOriginalPrice() != null) {
+                    Map<String, Object> priceInfo = new HashMap<>();
+                    priceInfo.put("originalPrice", price.getOriginalPrice());
+                    priceInfo.put("discountedPrice", price.getDiscountedPrice());
+                    priceInfo.put("discountApplied", price.getDiscountName() != null ? Map.of("name", price.getDiscountName()) : null);
+                    productPrices.put(product.getId(), priceInfo);
                 }
             }
 
-            // 5. Přidání dat do modelu
             model.addAttribute("productPage", productPage);
             model.addAttribute("productPrices", productPrices);
-            // Přidáme i informaci o aktuálním řazení pro případné použití v šabloně (např. pro odkazy v hlavičce tabulky)
-            model.addAttribute("currentSort", sortedPageable.getSort().toString());
+            model.addAttribute("facets", result);
+            model.addAttribute("sortOrders", ProductFacetQuery.SortOrder.values());
+            model.addAttribute("currentSort", filter.getSortOrder().getParam());
+            model.addAttribute("filterParams", filter.toQueryString());
 
         } catch (Exception e) {
-            // Zpracování obecné chyby zůstává stejné
             logger.error("!!! [ProductController] Chyba v listProducts: {} !!!", e.getMessage(), e);
             model.addAttribute("errorMessage", "Nepodařilo se načíst produkty.");
-            model.addAttribute("productPage", Page.empty(pageable)); // Použijeme původní pageable pro prázdnou stránku
+            model.addAttribute("productPage", Page.empty(PageRequest.of(filter.getSafePage(), filter.getSafeSize())));
             model.addAttribute("productPrices", Collections.emptyMap());
-            model.addAttribute("currentSort", Sort.unsorted().toString()); // Default na neřazeno při chybě
+            model.addAttribute("sortOrders", ProductFacetQuery.SortOrder.values());
+            model.addAttribute("currentSort", ProductFacetQuery.SortOrder.PRICE_ASC.getParam());
+            model.addAttribute("filterParams", "");
+            PageCacheFilter.skipCaching(request);
         }
-        logger.info(">>> [ProductController] Opouštím listProducts.");
         return "produkty"; // Název Thymeleaf šablony
     }
 
@@ -171,6 +180,13 @@ public class ProductController {
                     model.addAttribute("configuratorError", "Chyba při přípravě dat konfigurátoru pro JS.");
                 }
 
+                // Ceník pro výpočet ceny v prohlížeči - bez něj konfigurátor počítá přes /api/product/calculate-price
+                try {
+                    model.addAttribute("pricingDescriptorJson", pricingDescriptorService.descriptorFor(product).json());
+                } catch (RuntimeException e) {
+                    logger.error("[ProductController] Error building pricing descriptor for product ID {}: {}", product.getId(), e.getMessage(), e);
+                }
+
                 try {
                     priceForEvent = productService.calculateDynamicProductPrice(product, initialDimensions, currentCurrency);
                     priceForEvent = Optional.ofNullable(priceForEvent).orElse(BigDecimal.ZERO);
@@ -341,6 +357,7 @@ public class ProductController {
         } catch (Exception e) {
             logger.error("!!! [ProductController] Neočekávaná chyba v productDetail pro slug {}: {} !!!", slug, e.getMessage(), e);
             model.addAttribute("errorMessage", "Při načítání detailu produktu došlo k neočekávané chybě.");
+            PageCacheFilter.skipCaching(request);
             return "error/500"; // Zajistěte, že máte error/500.html šablonu
         }
     }
@@ -359,6 +376,29 @@ public class ProductController {
     }
 
 
+    /**
+     * Podepsaný cenový deskriptor konfigurovatelného produktu (stejný, jaký je vložený v detailu produktu).
+     * ETag je verze deskriptoru, takže opakované načtení bez změny ceníku skončí 304. Slabý, jinak by Tomcat
+     * odpověď nekomprimoval.
+     */
+    @GetMapping("/api/product/{id}/pricing-descriptor")
+    @ResponseBody
+    public ResponseEntity<String> pricingDescriptor(@PathVariable Long id, WebRequest webRequest) {
+        PricingDescriptorService.Descriptor descriptor;
+        try {
+            descriptor = pricingDescriptorService.descriptorFor(id);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified("W/\"" + descriptor.version() + "\"")) {
+            return null; // 304 Not Modified
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(descriptor.json());
+    }
+
     @PostMapping("/api/product/calculate-price")
     @ResponseBody
     public ResponseEntity<CustomPriceResponseDto> calculateCustomPrice(@RequestBody CustomPriceRequestDto requestDto) { // Nyní přijímáme nové DTO
@@ -392,4 +432,32 @@ public class ProductController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Dávkový výpočet cen - výčet konfigurací a/nebo mřížka rozměrů (viz {@link PriceQuoteBatchRequestDto}).
+     * Odpověď je NDJSON, jeden řádek na konfiguraci ve vstupním pořadí, zapisovaný průběžně po blocích.
+     */
+    @PostMapping("/api/product/calculate-price/batch")
+    public void calculateCustomPriceBatch(@RequestBody PriceQuoteBatchRequestDto batchRequest,
+                                          HttpServletRequest request,
+                                          HttpServletResponse response) throws IOException {
+        List<CustomPriceRequestDto> quotes;
+        try {
+            quotes = priceQuoteBatchService.expand(batchRequest);
+        } catch (IllegalArgumentException e) {
+            logger.warn("[ProductController] API batch calc: neplatný požadavek: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        // Každá konfigurace stojí jeden token pravidla rate limitu (jeden odebral už filtr)
+        if (!rateLimitFilter.chargeAdditional(request, response, quotes.size() - 1)) {
+            logger.debug("[ProductController] API batch calc: {} konfigurací nad rate limit klienta.", quotes.size());
+            return;
+        }
+        logger.info(">>> [ProductController] API calculateCustomPriceBatch: {} konfigurací.", quotes.size());
+        ProductService.PriceLookup lookup = priceQuoteBatchService.preload(quotes);
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        priceQuoteBatchService.writeQuotes(quotes, lookup, response.getOutputStream());
+    }
+}
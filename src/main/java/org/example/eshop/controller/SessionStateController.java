@@ -0,0 +1,39 @@
+package org.example.eshop.controller;
+
+import org.example.eshop.service.Cart;
+import org.example.eshop.service.CurrencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-session údaje, které se nesmí dostat do sdílené full-page cache (viz {@code PageCacheFilter}).
+ * Stránka obsloužená z cache si je dotáhne skriptem {@code page-state.js} a doplní do DOM.
+ */
+@RestController
+public class SessionStateController {
+
+    @Autowired
+    private Cart sessionCart;
+    @Autowired
+    private CurrencyService currencyService;
+
+    @GetMapping("/api/session-state")
+    public ResponseEntity<Map<String, Object>> getSessionState(CsrfToken csrfToken) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("csrfToken", csrfToken != null ? csrfToken.getToken() : null);
+        state.put("csrfHeaderName", csrfToken != null ? csrfToken.getHeaderName() : null);
+        state.put("csrfParameterName", csrfToken != null ? csrfToken.getParameterName() : null);
+        state.put("cartItemCount", sessionCart.getItemCount());
+        state.put("currency", currencyService.getSelectedCurrency());
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(state);
+    }
+}
@@ -48,4 +48,9 @@ public class CartItemDto {
 
     // Seznam ID vybraných addonů
     private List<Long> selectedAddonIds;
+
+    // Cena spočítaná konfigurátorem v prohlížeči z cenového deskriptoru (jen pro kontrolu, server počítá vždy znovu)
+    private String pricingVersion;
+    private String pricingSignature;
+    private BigDecimal quotedPrice;
 }
\ No newline at end of file
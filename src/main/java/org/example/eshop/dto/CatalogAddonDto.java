@@ -0,0 +1,24 @@
+package org.example.eshop.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Plochá projekce doplňku včetně pravidla pro výpočet ceny (FIXED / PER_CM_* / PER_SQUARE_METER).
+ */
+@Getter
+@Setter
+public class CatalogAddonDto {
+    private Long id;
+    private String name;
+    private String description;
+    private String category;
+    private String sku;
+    private String pricingType;
+    private BigDecimal priceCZK;
+    private BigDecimal priceEUR;
+    private BigDecimal pricePerUnitCZK;
+    private BigDecimal pricePerUnitEUR;
+}
@@ -0,0 +1,20 @@
+package org.example.eshop.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Plochá projekce volitelného atributu produktu (Design, Lazura, Barva střechy).
+ */
+@Getter
+@Setter
+public class CatalogOptionDto {
+    private Long id;
+    private String name;
+    private String description;
+    private String imageUrl;
+    private BigDecimal priceSurchargeCZK;
+    private BigDecimal priceSurchargeEUR;
+}
@@ -0,0 +1,23 @@
+package org.example.eshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Souhrn atributů a doplňků - buď celého katalogu, nebo jen těch dostupných pro jeden produkt.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogOptionsDto {
+    private List<CatalogOptionDto> designs;
+    private List<CatalogOptionDto> glazes;
+    private List<CatalogOptionDto> roofColors;
+    private List<CatalogAddonDto> addons;
+    private List<CatalogTaxRateDto> taxRates;
+}
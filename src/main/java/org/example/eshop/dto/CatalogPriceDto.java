@@ -0,0 +1,23 @@
+package org.example.eshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Předpočítaná cena standardního produktu v jedné měně (bez DPH).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogPriceDto {
+    private String currency;
+    private BigDecimal originalPrice;
+    private BigDecimal discountedPrice; // null, pokud není aplikována sleva
+    private BigDecimal finalPrice;      // discountedPrice nebo originalPrice
+    private String discountName;
+}
@@ -0,0 +1,18 @@
+package org.example.eshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Detail produktu pro katalogové API - produkt a k němu rozbalené atributy, doplňky a sazby DPH.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogProductDetailDto {
+    private CatalogProductDto product;
+    private CatalogOptionsDto options;
+}
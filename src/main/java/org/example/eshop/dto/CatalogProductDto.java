@@ -0,0 +1,41 @@
+package org.example.eshop.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Plochá (read-only) projekce aktivního produktu pro katalogové API.
+ * Neobsahuje žádné reference na entity, vazby jsou vyjádřeny pouze pomocí ID.
+ */
+@Getter
+@Setter
+public class CatalogProductDto {
+    private Long id;
+    private String slug;
+    private String name;
+    private String shortDescription;
+    private String description;
+    private String model;
+    private String material;
+    private BigDecimal length;
+    private BigDecimal width;
+    private BigDecimal height;
+    private String roofOverstep;
+    private boolean customisable;
+    private String metaTitle;
+    private String metaDescription;
+
+    private List<ImageDto> images;       // Seřazené podle displayOrder
+    private List<Long> taxRateIds;
+    private List<Long> designIds;
+    private List<Long> glazeIds;
+    private List<Long> roofColorIds;
+    private List<Long> addonIds;         // Pouze aktivní doplňky (jen custom produkty)
+
+    private ProductConfiguratorDto configurator; // Pouze custom produkty
+    private CatalogPriceDto priceCZK;            // Pouze standardní produkty
+    private CatalogPriceDto priceEUR;
+}
@@ -0,0 +1,15 @@
+package org.example.eshop.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+public class CatalogTaxRateDto {
+    private Long id;
+    private String name;
+    private BigDecimal rate;
+    private boolean reverseCharge;
+}
@@ -91,6 +91,7 @@ public class CheckoutFormDataDto {
     @AssertTrue(message = "Musíte souhlasit s obchodními podmínkami.", groups = DefaultValidationGroup.class)
     private boolean agreeTerms;
     private boolean applyReverseCharge = false;
+    private String checkoutToken; // Jednorázový token formuláře pro deduplikaci odeslání (CheckoutIdempotencyService)
 
     // --- Metoda initializeFromCustomer (upravená) ---
     public void initializeFromCustomer(Customer customer) {
@@ -0,0 +1,24 @@
+package org.example.eshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Souhrn jedné hromadné kampaně kupónů pro přehled v administraci (JPQL constructor expression, bez načítání kódů).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponCampaignSummaryDto {
+    private String campaign;
+    private String name;
+    private Long total;
+    private Long used;
+    private Long active;
+    private LocalDateTime expirationDate;
+}
@@ -0,0 +1,27 @@
+package org.example.eshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Řádek přehledu objednávek zákazníka (/muj-ucet/objednavky).
+ * Načítá se jedním dotazem (JPQL constructor expression) bez položek a dalších asociací objednávky.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderListRowDto {
+    private Long id;
+    private String orderCode;
+    private LocalDateTime orderDate;
+    private String stateCode;
+    private String stateName;
+    private BigDecimal totalPrice;
+    private String currency;
+}
@@ -0,0 +1,43 @@
+package org.example.eshop.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.eshop.model.Conversation;
+import org.example.eshop.model.Message;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Zpráva konverzace k objednávce posílaná otevřeným stránkám přes SSE.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderMessageDto {
+
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    private Long id;
+    private Long conversationId;
+    private Long orderId;
+    private Conversation.ConversationType conversationType;
+    private Message.SenderType senderType;
+    private String senderName;
+    private String content;
+    private LocalDateTime sentAt;
+    private String sentAtFormatted; // Stejný formát jako v šablonách (dd.MM.yyyy HH:mm)
+
+    public OrderMessageDto(Message message, Long orderId, Conversation.ConversationType conversationType) {
+        this.id = message.getId();
+        this.conversationId = message.getConversation() != null ? message.getConversation().getId() : null;
+        this.orderId = orderId;
+        this.conversationType = conversationType;
+        this.senderType = message.getSenderType();
+        this.senderName = message.getSenderName();
+        this.content = message.getContent();
+        this.sentAt = message.getSentAt();
+        this.sentAtFormatted = message.getSentAt() != null ? message.getSentAt().format(DISPLAY_FORMAT) : null;
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.eshop.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Požadavek na dávkový výpočet cen ({@code POST /api/product/calculate-price/batch}).
+ * Obsahuje výčet konfigurací ({@link #quotes}), mřížku rozměrů ({@link #grid}), nebo obojí - výsledky pak jdou
+ * nejdřív pro {@code quotes}, potom pro buňky mřížky.
+ */
+@Getter
+@Setter
+public class PriceQuoteBatchRequestDto {
+
+    private List<CustomPriceRequestDto> quotes = new ArrayList<>();
+    private Grid grid;
+
+    /**
+     * Mřížka rozměrů jednoho produktu se společnými atributy a doplňky. Buňky jdou v pořadí délka, šířka, výška
+     * (výška se mění nejrychleji).
+     */
+    @Getter
+    @Setter
+    public static class Grid {
+        private Long productId;
+        private Range length;
+        private Range width;
+        private Range height;
+        private Long selectedDesignId;
+        private Long selectedGlazeId;
+        private Long selectedRoofColorId;
+        private List<Long> selectedAddonIds;
+    }
+
+    /**
+     * Rozsah v cm včetně obou mezí; bez {@code step} (nebo {@code to}) jen jedna hodnota {@code from}.
+     */
+    @Getter
+    @Setter
+    public static class Range {
+        private BigDecimal from;
+        private BigDecimal to;
+        private BigDecimal step;
+    }
+}
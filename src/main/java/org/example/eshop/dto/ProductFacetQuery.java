@@ -0,0 +1,145 @@
+package org.example.eshop.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Filtr a řazení výpisu standardních produktů ({@code /produkty}). Váže se přímo z query parametrů;
+ * nevyplněné hranice (null) a prázdné seznamy znamenají "bez omezení". Cenové hranice jsou v aktuálně zvolené měně.
+ */
+@Getter
+@Setter
+public class ProductFacetQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 12;
+    public static final int MAX_PAGE_SIZE = 48;
+
+    /**
+     * Podporovaná řazení - hodnota parametru {@code sort} je {@link #getParam()}.
+     */
+    public enum SortOrder {
+        PRICE_ASC("cena", "Od nejlevnějšího"),
+        PRICE_DESC("cena-desc", "Od nejdražšího"),
+        NAME("nazev", "Podle názvu"),
+        SIZE_ASC("velikost", "Od nejmenšího"),
+        SIZE_DESC("velikost-desc", "Od největšího");
+
+        private final String param;
+        private final String label;
+
+        SortOrder(String param, String label) {
+            this.param = param;
+            this.label = label;
+        }
+
+        public String getParam() {
+            return param;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static SortOrder fromParam(String value) {
+            if (value != null) {
+                for (SortOrder order : values()) {
+                    if (order.param.equalsIgnoreCase(value.trim())) {
+                        return order;
+                    }
+                }
+            }
+            return PRICE_ASC; // Výchozí řazení obchodu (i pro staré odkazy typu sort=basePriceCZK,asc)
+        }
+    }
+
+    private List<String> material = new ArrayList<>();
+    private List<String> roofOverstep = new ArrayList<>();
+    private BigDecimal minLength;
+    private BigDecimal maxLength;
+    private BigDecimal minWidth;
+    private BigDecimal maxWidth;
+    private BigDecimal minHeight;
+    private BigDecimal maxHeight;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private String sort;
+    private int page = 0;
+    private int size = DEFAULT_PAGE_SIZE;
+
+    public SortOrder getSortOrder() {
+        return SortOrder.fromParam(sort);
+    }
+
+    public int getSafePage() {
+        return Math.max(page, 0);
+    }
+
+    public int getSafeSize() {
+        return size < 1 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * @return true, pokud je nastavený alespoň jeden filtr (řazení a stránkování se nepočítají)
+     */
+    public boolean isFiltered() {
+        return hasValues(material) || hasValues(roofOverstep)
+                || minLength != null || maxLength != null || minWidth != null || maxWidth != null
+                || minHeight != null || maxHeight != null || minPrice != null || maxPrice != null;
+    }
+
+    /**
+     * Query string filtru a řazení bez čísla stránky (začíná {@code &}, nebo je prázdný) - pro odkazy stránkování.
+     */
+    public String toQueryString() {
+        StringBuilder query = new StringBuilder();
+        nonBlank(material).forEach(v -> addParam(query, "material", v));
+        nonBlank(roofOverstep).forEach(v -> addParam(query, "roofOverstep", v));
+        addParam(query, "minLength", minLength);
+        addParam(query, "maxLength", maxLength);
+        addParam(query, "minWidth", minWidth);
+        addParam(query, "maxWidth", maxWidth);
+        addParam(query, "minHeight", minHeight);
+        addParam(query, "maxHeight", maxHeight);
+        addParam(query, "minPrice", minPrice);
+        addParam(query, "maxPrice", maxPrice);
+        if (sort != null && !sort.isBlank()) {
+            addParam(query, "sort", getSortOrder().getParam());
+        }
+        if (getSafeSize() != DEFAULT_PAGE_SIZE) {
+            addParam(query, "size", String.valueOf(getSafeSize()));
+        }
+        return query.toString();
+    }
+
+    /**
+     * Vybrané hodnoty facety bez prázdných položek, normalizované pro porovnání (trim, malá písmena).
+     */
+    public static List<String> normalizedValues(List<String> values) {
+        return nonBlank(values).stream().map(v -> v.trim().toLowerCase(Locale.ROOT)).distinct().toList();
+    }
+
+    private static List<String> nonBlank(List<String> values) {
+        return values == null ? List.of() : values.stream().filter(v -> v != null && !v.isBlank()).toList();
+    }
+
+    private static boolean hasValues(List<String> values) {
+        return !nonBlank(values).isEmpty();
+    }
+
+    private static void addParam(StringBuilder query, String name, BigDecimal value) {
+        if (value != null) {
+            addParam(query, name, value.stripTrailingZeros().toPlainString());
+        }
+    }
+
+    private static void addParam(StringBuilder query, String name, String value) {
+        query.append('&').append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+    }
+}
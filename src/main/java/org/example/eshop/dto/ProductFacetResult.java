@@ -0,0 +1,33 @@
+package org.example.eshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Výsledek facetového dotazu nad katalogem: stránka produktů a počty pro jednotlivé hodnoty facet.
+ * Počty facety se počítají se všemi filtry kromě filtru téže facety, takže ukazují, kolik produktů
+ * přibude po zaškrtnutí další hodnoty.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductFacetResult {
+
+    @Getter
+    @AllArgsConstructor
+    public static class FacetValue {
+        private String value;
+        private int count;
+        private boolean selected;
+    }
+
+    private Page<CatalogProductDto> page;
+    private List<FacetValue> materials;
+    private List<FacetValue> roofOversteps;
+    private BigDecimal catalogMinPrice; // Rozsah cen celého katalogu v dané měně (pro nápovědu ve formuláři)
+    private BigDecimal catalogMaxPrice;
+    private String source;              // "memory" nebo "db"
+}
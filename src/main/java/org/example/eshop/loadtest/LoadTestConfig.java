@@ -0,0 +1,44 @@
+package org.example.eshop.loadtest;
+
+import org.example.eshop.service.DummyShippingService;
+import org.example.eshop.service.ShippingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.file.Path;
+
+/**
+ * Profil {@code loadtest} - aplikace běží lokálně bez GCP a externích služeb:
+ * <ul>
+ *     <li>databáze H2 v režimu MySQL (application-loadtest.properties, data z {@link LoadTestDataSeeder}),</li>
+ *     <li>soubory do lokálního adresáře místo GCS ({@link LocalFileStorageService}),</li>
+ *     <li>doprava bez Google Maps ({@link DummyShippingService} pod jménem googleMapsShippingService),</li>
+ *     <li>SuperFaktura jako lokální stub ({@link SuperFakturaStubServer}),</li>
+ *     <li>e-maily do in-process SMTP serveru ({@link SmtpSinkServer}).</li>
+ * </ul>
+ * Scénáře zátěže jsou ve scripts/loadtest.
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfig implements WebMvcConfigurer {
+
+    @Value("${eshop.loadtest.blob-dir:${java.io.tmpdir}/eshop-loadtest-blobs}")
+    private String blobDir;
+
+    // Nahrazuje GoogleMapsShippingService (ten je v profilu loadtest vypnutý) - místa s @Qualifier("googleMapsShippingService")
+    // tak dostanou pevnou cenu dopravy bez volání Distance Matrix API
+    @Bean("googleMapsShippingService")
+    public ShippingService loadTestShippingService() {
+        return new DummyShippingService();
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler(LocalFileStorageService.URL_PREFIX + "**")
+                .addResourceLocations(Path.of(blobDir).toUri().toString());
+    }
+}
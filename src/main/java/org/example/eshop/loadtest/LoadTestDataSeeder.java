@@ -0,0 +1,197 @@
+package org.example.eshop.loadtest;
+
+import org.example.eshop.model.*;
+import org.example.eshop.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Naplní prázdnou databázi profilu {@code loadtest} katalogem a účty, se kterými počítají scénáře ve scripts/loadtest:
+ * stavy objednávek, sazby DPH, atributy, doplňky, {@code eshop.loadtest.products} standardních produktů
+ * ({@code loadtest-produkt-N}), produkt na míru ({@code loadtest-na-miru}), zákazníka a administrátora.
+ */
+@Component
+@Profile("loadtest")
+public class LoadTestDataSeeder implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestDataSeeder.class);
+
+    public static final String CUSTOM_PRODUCT_SLUG = "loadtest-na-miru";
+
+    @Autowired
+    private OrderStateRepository orderStateRepository;
+    @Autowired
+    private TaxRateRepository taxRateRepository;
+    @Autowired
+    private DesignRepository designRepository;
+    @Autowired
+    private GlazeRepository glazeRepository;
+    @Autowired
+    private RoofColorRepository roofColorRepository;
+    @Autowired
+    private AddonsRepository addonsRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${eshop.loadtest.products:40}")
+    private int productCount;
+    @Value("${eshop.loadtest.customer.email:zakaznik@loadtest.local}")
+    private String customerEmail;
+    @Value("${eshop.loadtest.admin.email:admin@loadtest.local}")
+    private String adminEmail;
+    @Value("${eshop.loadtest.password:loadtest}")
+    private String password;
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        if (orderStateRepository.count() > 0) {
+            log.info("Load test data already present, skipping seeding.");
+            return;
+        }
+        log.info("Seeding load test data ({} standard products)...", productCount);
+
+        String[][] states = {
+                {"NEW", "Nová"}, {"AWAITING_DEPOSIT", "Čeká na zálohu"}, {"AWAITING_PAYMENT", "Čeká na platbu"},
+                {"PROCESSING", "Zpracovává se"}, {"IN_PRODUCTION", "Ve výrobě"}, {"AT_ZINC_PLATING", "V zinkovně"},
+                {"SHIPPED", "Odesláno"}, {"DELIVERED", "Doručeno"}, {"CANCELLED", "Zrušeno"}};
+        for (int i = 0; i < states.length; i++) {
+            OrderState state = new OrderState();
+            state.setCode(states[i][0]);
+            state.setName(states[i][1]);
+            state.setDisplayOrder(i * 10);
+            state.setFinalState(i >= states.length - 2);
+            orderStateRepository.save(state);
+        }
+
+        TaxRate standardRate = taxRate("Základní 21 %", "0.21");
+        TaxRate reducedRate = taxRate("Snížená 12 %", "0.12");
+        List<Design> designs = List.of(design("Klasik", null), design("Moderní", "1500"));
+        List<Glaze> glazes = List.of(glaze("Bezbarvá", null), glaze("Ořech", "900"));
+        List<RoofColor> roofColors = List.of(roofColor("Antracit", null), roofColor("Červená", "600"));
+        List<Addon> addons = List.of(addon("Okap", "2500"), addon("Příčka", "3200"), addon("Zahradní box", "8900"));
+
+        for (int i = 1; i <= productCount; i++) {
+            Product product = baseProduct("Dřevník Load Test " + i, "loadtest-produkt-" + i, designs, glazes, roofColors, standardRate, reducedRate);
+            product.setBasePriceCZK(BigDecimal.valueOf(15_000L + i * 250L));
+            product.setBasePriceEUR(BigDecimal.valueOf(600L + i * 10L));
+            product.setLength(BigDecimal.valueOf(200));
+            product.setWidth(BigDecimal.valueOf(100));
+            product.setHeight(BigDecimal.valueOf(180));
+            productRepository.save(product);
+        }
+
+        Product custom = baseProduct("Dřevník na míru Load Test", CUSTOM_PRODUCT_SLUG, designs, glazes, roofColors, standardRate, reducedRate);
+        custom.setCustomisable(true);
+        custom.setAvailableAddons(new HashSet<>(addons));
+        ProductConfigurator configurator = new ProductConfigurator();
+        configurator.setProduct(custom);
+        configurator.setMinLength(BigDecimal.valueOf(100));
+        configurator.setMaxLength(BigDecimal.valueOf(500));
+        configurator.setMinWidth(BigDecimal.valueOf(50));
+        configurator.setMaxWidth(BigDecimal.valueOf(200));
+        configurator.setMinHeight(BigDecimal.valueOf(150));
+        configurator.setMaxHeight(BigDecimal.valueOf(250));
+        configurator.setPricePerCmLengthCZK(new BigDecimal("45.00"));
+        configurator.setPricePerCmLengthEUR(new BigDecimal("1.80"));
+        configurator.setPricePerCmWidthCZK(new BigDecimal("30.00"));
+        configurator.setPricePerCmWidthEUR(new BigDecimal("1.20"));
+        configurator.setPricePerCmHeightCZK(new BigDecimal("25.00"));
+        configurator.setPricePerCmHeightEUR(new BigDecimal("1.00"));
+        custom.setConfigurator(configurator);
+        productRepository.save(custom);
+
+        customer(customerEmail, "Zátěžový", "Zákazník", Set.of("ROLE_USER"));
+        customer(adminEmail, "Zátěžový", "Administrátor", Set.of("ROLE_USER", "ROLE_ADMIN"));
+        log.info("Load test data seeded. Customer: {}, admin: {}, password: '{}'", customerEmail, adminEmail, password);
+    }
+
+    private Product baseProduct(String name, String slug, List<Design> designs, List<Glaze> glazes,
+                                List<RoofColor> roofColors, TaxRate... taxRates) {
+        Product product = new Product();
+        product.setName(name);
+        product.setSlug(slug);
+        product.setShortDescription("Produkt pro zátěžové testy");
+        product.setDescription("Produkt vytvořený pro profil loadtest.");
+        product.setMaterial("Smrk");
+        product.setActive(true);
+        product.setAvailableDesigns(new HashSet<>(designs));
+        product.setAvailableGlazes(new HashSet<>(glazes));
+        product.setAvailableRoofColors(new HashSet<>(roofColors));
+        product.setAvailableTaxRates(new HashSet<>(List.of(taxRates)));
+        return product;
+    }
+
+    private TaxRate taxRate(String name, String rate) {
+        TaxRate taxRate = new TaxRate();
+        taxRate.setName(name);
+        taxRate.setRate(new BigDecimal(rate));
+        return taxRateRepository.save(taxRate);
+    }
+
+    private Design design(String name, String surchargeCzk) {
+        Design design = new Design();
+        design.setName(name);
+        design.setPriceSurchargeCZK(surchargeCzk != null ? new BigDecimal(surchargeCzk) : null);
+        design.setPriceSurchargeEUR(surchargeCzk != null ? new BigDecimal(surchargeCzk).divide(BigDecimal.valueOf(25)) : null);
+        return designRepository.save(design);
+    }
+
+    private Glaze glaze(String name, String surchargeCzk) {
+        Glaze glaze = new Glaze();
+        glaze.setName(name);
+        glaze.setPriceSurchargeCZK(surchargeCzk != null ? new BigDecimal(surchargeCzk) : null);
+        glaze.setPriceSurchargeEUR(surchargeCzk != null ? new BigDecimal(surchargeCzk).divide(BigDecimal.valueOf(25)) : null);
+        return glazeRepository.save(glaze);
+    }
+
+    private RoofColor roofColor(String name, String surchargeCzk) {
+        RoofColor roofColor = new RoofColor();
+        roofColor.setName(name);
+        roofColor.setPriceSurchargeCZK(surchargeCzk != null ? new BigDecimal(surchargeCzk) : null);
+        roofColor.setPriceSurchargeEUR(surchargeCzk != null ? new BigDecimal(surchargeCzk).divide(BigDecimal.valueOf(25)) : null);
+        return roofColorRepository.save(roofColor);
+    }
+
+    private Addon addon(String name, String priceCzk) {
+        Addon addon = new Addon();
+        addon.setName(name);
+        addon.setSku("LT-" + name.toUpperCase().replace(' ', '-'));
+        addon.setPriceCZK(new BigDecimal(priceCzk));
+        addon.setPriceEUR(new BigDecimal(priceCzk).divide(BigDecimal.valueOf(25)));
+        return addonsRepository.save(addon);
+    }
+
+    private void customer(String email, String firstName, String lastName, Set<String> roles) {
+        Customer customer = new Customer();
+        customer.setEmail(email);
+        customer.setFirstName(firstName);
+        customer.setLastName(lastName);
+        customer.setPhone("+420777000000");
+        customer.setPassword(passwordEncoder.encode(password));
+        customer.setRoles(new HashSet<>(roles));
+        customer.setInvoiceFirstName(firstName);
+        customer.setInvoiceLastName(lastName);
+        customer.setInvoiceStreet("Zátěžová 1");
+        customer.setInvoiceCity("Praha");
+        customer.setInvoiceZipCode("11000");
+        customerRepository.save(customer);
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.eshop.loadtest;
+
+import org.example.eshop.service.FileStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Lokální náhrada úložiště GCS pro profil {@code loadtest}. Soubory ukládá do adresáře
+ * {@code eshop.loadtest.blob-dir} a vrací URL {@code /loadtest-blobs/...}, které obsluhuje {@link LoadTestConfig}.
+ */
+@Service
+@Primary
+@Profile("loadtest")
+public class LocalFileStorageService extends FileStorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalFileStorageService.class);
+
+    static final String URL_PREFIX = "/loadtest-blobs/";
+
+    @Value("${eshop.loadtest.blob-dir:${java.io.tmpdir}/eshop-loadtest-blobs}")
+    private String blobDir;
+
+    @Override
+    public String storeFile(MultipartFile file, String subDirectory) throws IOException, IllegalArgumentException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Cannot store empty file.");
+        }
+        String directory = StringUtils.hasText(subDirectory) && !subDirectory.contains("..") ? subDirectory : "";
+        String extension = StringUtils.getFilenameExtension(file.getOriginalFilename());
+        String relativePath = (directory.isEmpty() ? "" : directory + "/") + UUID.randomUUID()
+                + (StringUtils.hasText(extension) ? "." + extension : "");
+        Path target = Path.of(blobDir).resolve(relativePath).normalize();
+        Files.createDirectories(target.getParent());
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.debug("Stored file locally: {}", target);
+        return URL_PREFIX + relativePath;
+    }
+
+    @Override
+    public void deleteFile(String fileUrl) {
+        if (!StringUtils.hasText(fileUrl) || !fileUrl.startsWith(URL_PREFIX) || fileUrl.contains("..")) {
+            log.warn("Skipping deletion of non-local file URL: {}", fileUrl);
+            return;
+        }
+        try {
+            Files.deleteIfExists(Path.of(blobDir).resolve(fileUrl.substring(URL_PREFIX.length())));
+        } catch (IOException e) {
+            log.warn("Failed to delete local file {}: {}", fileUrl, e.getMessage());
+        }
+    }
+}
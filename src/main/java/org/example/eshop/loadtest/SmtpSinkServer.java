@@ -0,0 +1,106 @@
+package org.example.eshop.loadtest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimální SMTP server pro profil {@code loadtest}, který přijme a zahodí každou zprávu.
+ * <p>
+ * E-maily tak projdou celou cestou přes JavaMailSender (šablony, MIME, SMTP dialog), jen nikam neodejdou.
+ * Podporuje pouze příkazy, které posílá Jakarta Mail bez TLS a autentizace (application-loadtest.properties).
+ */
+@Component
+@Profile("loadtest")
+public class SmtpSinkServer {
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpSinkServer.class);
+
+    @Value("${spring.mail.port:2525}")
+    private int port;
+
+    private final AtomicLong receivedMessages = new AtomicLong();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private ServerSocket serverSocket;
+
+    @PostConstruct
+    void start() throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptLoop);
+        log.info("SMTP sink listening on localhost:{}", port);
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                return; // Server zavřen
+            } catch (IOException e) {
+                log.warn("SMTP sink accept failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            reply(out, "220 localhost SMTP sink");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line.toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        String dataLine;
+                        while ((dataLine = in.readLine()) != null && !dataLine.equals(".")) {
+                            // Obsah zprávy zahazujeme
+                        }
+                        receivedMessages.incrementAndGet();
+                        reply(out, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK"); // MAIL FROM, RCPT TO, RSET, NOOP
+                }
+            }
+        } catch (IOException e) {
+            log.debug("SMTP sink connection error: {}", e.getMessage());
+        }
+    }
+
+    private static void reply(Writer out, String response) throws IOException {
+        out.write(response + "\r\n");
+        out.flush();
+    }
+
+    public long getReceivedMessages() {
+        return receivedMessages.get();
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+}
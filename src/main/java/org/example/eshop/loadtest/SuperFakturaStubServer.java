@@ -0,0 +1,96 @@
+package org.example.eshop.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lokální stub SuperFaktura API pro profil {@code loadtest}.
+ * <p>
+ * Odpovídá ve stejném tvaru jako skutečné API ({@code {"error":0,"data":{"Invoice":{...}}}}), takže
+ * SuperFakturaInvoiceService projde celou cestou včetně parsování. Volitelná umělá latence
+ * ({@code eshop.loadtest.superfaktura.latency-ms}) simuluje dobu odezvy skutečné služby.
+ * Aplikace musí mít {@code superfaktura.api.url} nasměrovanou na port stubu.
+ */
+@Component
+@Profile("loadtest")
+public class SuperFakturaStubServer {
+
+    private static final Logger log = LoggerFactory.getLogger(SuperFakturaStubServer.class);
+
+    @Value("${eshop.loadtest.superfaktura.port:18089}")
+    private int port;
+    @Value("${eshop.loadtest.superfaktura.latency-ms:150}")
+    private int latencyMs;
+
+    private final AtomicLong invoiceIds = new AtomicLong(900_000);
+    private final AtomicLong requestCount = new AtomicLong();
+    private HttpServer server;
+
+    @PostConstruct
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/invoices/create.json", exchange -> respond(exchange, createdInvoice()));
+        server.createContext("/invoice_payments/", exchange -> respond(exchange, "{\"error\":0,\"message\":\"Payment added\"}"));
+        server.createContext("/invoices/", exchange -> respond(exchange, "{\"error\":0,\"message\":\"OK\"}"));
+        server.createContext("/", exchange -> respond(exchange, "{\"error\":0}"));
+        server.start();
+        log.info("SuperFaktura stub listening on http://localhost:{} (latency {} ms)", port, latencyMs);
+    }
+
+    private String createdInvoice() {
+        long id = invoiceIds.incrementAndGet();
+        String token = UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        return "{\"error\":0,\"data\":{\"Invoice\":{\"id\":" + id + ",\"invoice_no_formatted\":\"LT" + id
+                + "\",\"token\":\"" + token + "\"}}}";
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        requestCount.incrementAndGet();
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        if (latencyMs > 0) {
+            try {
+                // ±25 % rozptyl, ať odezvy nejsou uměle synchronní
+                Thread.sleep(latencyMs * 3L / 4 + ThreadLocalRandom.current().nextLong(latencyMs / 2 + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+}
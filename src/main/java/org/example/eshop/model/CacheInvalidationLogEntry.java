@@ -0,0 +1,54 @@
+package org.example.eshop.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Záznam sdílené sběrnice invalidací cache (viz {@code JdbcCacheInvalidationTransport}) - každá instance
+ * sem zapisuje své změny a čte změny ostatních. Aplikace k tabulce přistupuje přes JDBC; entita slouží
+ * jen jako popis schématu (profil loadtest ho vytváří z entit).
+ * <p>
+ * Tabulka se nevytváří automaticky (ddl-auto=none):
+ * <pre>
+ * CREATE TABLE cache_invalidation_log (
+ *     id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+ *     origin VARCHAR(40) NOT NULL,
+ *     kind VARCHAR(16) NOT NULL,
+ *     region VARCHAR(255),
+ *     entity_key VARCHAR(100),
+ *     created_at DATETIME(3) NOT NULL,
+ *     INDEX idx_cache_invalidation_created (created_at)
+ * );
+ * </pre>
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = CacheInvalidationLogEntry.TABLE, indexes = {
+        @Index(name = "idx_cache_invalidation_created", columnList = "created_at")
+})
+public class CacheInvalidationLogEntry {
+
+    public static final String TABLE = "cache_invalidation_log";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 40)
+    private String origin; // ID instance, která změnu zapsala
+
+    @Column(nullable = false, length = 16)
+    private String kind;
+
+    private String region;
+
+    @Column(name = "entity_key", length = 100)
+    private String entityKey;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
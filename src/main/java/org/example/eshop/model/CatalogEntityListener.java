@@ -0,0 +1,49 @@
+package org.example.eshop.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.example.eshop.service.CatalogChangedEvent;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener pro katalogové entity. Po každém zápisu publikuje {@link CatalogChangedEvent},
+ * takže paměťový katalog se zneplatní i při změnách prováděných přímo přes repository (např. upload obrázku vzorku).
+ * Hibernate instanci získává ze Spring kontextu (SpringBeanContainer), proto je listener běžný bean.
+ */
+@Component
+public class CatalogEntityListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogEntityListener.class);
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onCatalogEntityChange(Object entity) {
+        String entityType = Hibernate.getClass(entity).getSimpleName();
+        Object entityId = resolveId(entity);
+        log.debug("Catalog entity changed: {}#{}", entityType, entityId);
+        eventPublisher.publishEvent(new CatalogChangedEvent(entityType, entityId));
+    }
+
+    private Object resolveId(Object entity) {
+        if (entity instanceof Product p) return p.getId();
+        if (entity instanceof Image i) return i.getId();
+        if (entity instanceof ProductConfigurator c) return c.getId();
+        if (entity instanceof Design d) return d.getId();
+        if (entity instanceof Glaze g) return g.getId();
+        if (entity instanceof RoofColor r) return r.getId();
+        if (entity instanceof Addon a) return a.getId();
+        if (entity instanceof TaxRate t) return t.getId();
+        if (entity instanceof Discount d) return d.getId();
+        return null;
+    }
+}
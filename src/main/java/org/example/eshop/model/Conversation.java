@@ -35,6 +35,13 @@ public class Conversation {
     @OrderBy("sentAt ASC") // Zobrazí zprávy od nejstarší
     private List<Message> messages = new ArrayList<>();
 
+    // Denormalizované počty nepřečtených zpráv - mění se jen atomickými UPDATE dotazy v ConversationRepository
+    @Column(name = "unread_by_admin_count", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int unreadByAdminCount = 0;
+
+    @Column(name = "unread_by_customer_count", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int unreadByCustomerCount = 0;
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
@@ -73,7 +80,8 @@ public class Conversation {
                 "id=" + id +
                 ", orderId=" + (order != null ? order.getId() : null) +
                 ", type=" + type +
-                ", messageCount=" + (messages != null ? messages.size() : 0) +
+                ", unreadByAdminCount=" + unreadByAdminCount +
+                ", unreadByCustomerCount=" + unreadByCustomerCount +
                 ", createdAt=" + createdAt +
                 '}';
     }
@@ -1,6 +1,7 @@
 package org.example.eshop.model;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.Cache;
@@ -8,14 +9,34 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
+/**
+ * Slevový kupón. Kupóny vytvořené v CMS mají {@code campaign = null}, jednorázové kódy hromadné kampaně
+ * ({@code CouponCampaignService}) nesou ID kampaně a zapisují se dávkově přes JDBC.
+ * <p>
+ * Vyhledávání podle kódu jde přes {@code code_normalized} (trim + velká písmena) s unikátním indexem - dotaz
+ * {@code upper(code) = ?} by index nepoužil. Sloupce se nevytváří automaticky (ddl-auto=none):
+ * <pre>
+ * ALTER TABLE coupon
+ *     ADD COLUMN code_normalized VARCHAR(50) NULL,
+ *     ADD COLUMN campaign VARCHAR(50) NULL;
+ * UPDATE coupon SET code_normalized = UPPER(TRIM(code));
+ * ALTER TABLE coupon
+ *     MODIFY code_normalized VARCHAR(50) NOT NULL,
+ *     ADD UNIQUE INDEX idx_coupon_code_normalized (code_normalized),
+ *     ADD INDEX idx_coupon_campaign (campaign, id);
+ * </pre>
+ */
 @Getter
 @Setter
 @Entity
 @Cacheable
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "coupon", indexes = { // Přidána anotace @Table
-        @Index(name = "idx_coupon_code", columnList = "code", unique = true)})
+        @Index(name = "idx_coupon_code", columnList = "code", unique = true),
+        @Index(name = "idx_coupon_code_normalized", columnList = "code_normalized", unique = true),
+        @Index(name = "idx_coupon_campaign", columnList = "campaign, id")})
 public class Coupon {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,6 +44,13 @@ public class Coupon {
 
     @Column(nullable = false, unique = true, length = 50)
     private String code;
+
+    @Setter(AccessLevel.NONE) // Odvozuje se z code při uložení
+    @Column(name = "code_normalized", nullable = false, unique = true, length = 50)
+    private String normalizedCode;
+
+    @Column(length = 50)
+    private String campaign; // ID hromadné kampaně; null = kupón z CMS
     @Column(nullable = false)
     private String name;
     private String description;
@@ -65,6 +93,19 @@ public class Coupon {
     @Column(nullable = false)
     private boolean active = true;
 
+    /**
+     * Tvar kódu pro vyhledávání a unikátnost: bez okrajových mezer, velkými písmeny.
+     */
+    public static String normalizeCode(String code) {
+        return code != null ? code.trim().toUpperCase(Locale.ROOT) : null;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateNormalizedCode() {
+        this.normalizedCode = normalizeCode(code);
+    }
+
     /**
      * Pomocná metoda pro logiku "jen doprava zdarma".
      *
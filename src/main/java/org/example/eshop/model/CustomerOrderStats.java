@@ -0,0 +1,95 @@
+package org.example.eshop.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Souhrn objednávek zákazníka pro CMS (počet, útrata, poslední objednávka, nezaplacené zálohy). Udržuje se
+ * přírůstkově při vytvoření objednávky, platbě a zrušení ({@code CustomerOrderStatsService}) a periodicky se
+ * srovnává s {@code customer_orders}. Zapisuje se jen nativním SQL, přes JPA je entita pouze pro čtení.
+ * <ul>
+ *     <li>útrata = součet {@code total_price} plně zaplacených objednávek ({@code payment_date} vyplněno),</li>
+ *     <li>nezaplacené zálohy = {@code deposit_amount} nezrušených objednávek bez {@code deposit_paid_date}.</li>
+ * </ul>
+ * Řádek existuje jen pro zákazníky s alespoň jednou objednávkou. Indexy (hodnota, customer_id) drží řazení
+ * seznamu zákazníků bez filesortu. Tabulka se nevytváří automaticky (ddl-auto=none):
+ * <pre>
+ * CREATE TABLE customer_order_stats (
+ *     customer_id BIGINT NOT NULL PRIMARY KEY,
+ *     order_count INT NOT NULL DEFAULT 0,
+ *     last_order_date DATETIME(6),
+ *     lifetime_value_czk DECIMAL(14,2) NOT NULL DEFAULT 0,
+ *     lifetime_value_eur DECIMAL(14,2) NOT NULL DEFAULT 0,
+ *     outstanding_deposit_czk DECIMAL(14,2) NOT NULL DEFAULT 0,
+ *     outstanding_deposit_eur DECIMAL(14,2) NOT NULL DEFAULT 0,
+ *     updated_at DATETIME(6) NOT NULL,
+ *     INDEX idx_customer_order_stats_value_czk (lifetime_value_czk, customer_id),
+ *     INDEX idx_customer_order_stats_value_eur (lifetime_value_eur, customer_id),
+ *     INDEX idx_customer_order_stats_last_order (last_order_date, customer_id),
+ *     CONSTRAINT fk_customer_order_stats_customer FOREIGN KEY (customer_id) REFERENCES customer (id) ON DELETE CASCADE
+ * );
+ * </pre>
+ * Naplní ji první běh rekonciliace po startu aplikace (vždy jen jedna instance, viz {@code CustomerOrderStatsService}).
+ * Jednorázově ji lze naplnit i ručně hned po vytvoření, ještě před nasazením:
+ * <pre>
+ * INSERT IGNORE INTO customer_order_stats (customer_id, order_count, last_order_date, lifetime_value_czk,
+ *         lifetime_value_eur, outstanding_deposit_czk, outstanding_deposit_eur, updated_at)
+ * SELECT o.customer_id, COUNT(*), MAX(o.order_date),
+ *        COALESCE(SUM(CASE WHEN o.payment_date IS NOT NULL AND o.currency &lt;&gt; 'EUR' THEN o.total_price END), 0),
+ *        COALESCE(SUM(CASE WHEN o.payment_date IS NOT NULL AND o.currency = 'EUR' THEN o.total_price END), 0),
+ *        COALESCE(SUM(CASE WHEN o.deposit_amount &gt; 0 AND o.deposit_paid_date IS NULL AND o.cancelled_date IS NULL
+ *                          AND o.currency &lt;&gt; 'EUR' THEN o.deposit_amount END), 0),
+ *        COALESCE(SUM(CASE WHEN o.deposit_amount &gt; 0 AND o.deposit_paid_date IS NULL AND o.cancelled_date IS NULL
+ *                          AND o.currency = 'EUR' THEN o.deposit_amount END), 0),
+ *        NOW(6)
+ * FROM customer_orders o WHERE o.customer_id IS NOT NULL GROUP BY o.customer_id;
+ * </pre>
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(name = "customer_order_stats", indexes = {
+        @Index(name = "idx_customer_order_stats_value_czk", columnList = "lifetime_value_czk, customer_id"),
+        @Index(name = "idx_customer_order_stats_value_eur", columnList = "lifetime_value_eur, customer_id"),
+        @Index(name = "idx_customer_order_stats_last_order", columnList = "last_order_date, customer_id")
+})
+public class CustomerOrderStats {
+
+    @Id
+    @Column(name = "customer_id")
+    private Long customerId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "customer_id")
+    private Customer customer;
+
+    @Column(name = "order_count", nullable = false)
+    private int orderCount;
+
+    @Column(name = "last_order_date")
+    private LocalDateTime lastOrderDate;
+
+    @Column(name = "lifetime_value_czk", nullable = false, precision = 14, scale = 2)
+    private BigDecimal lifetimeValueCzk = BigDecimal.ZERO;
+
+    @Column(name = "lifetime_value_eur", nullable = false, precision = 14, scale = 2)
+    private BigDecimal lifetimeValueEur = BigDecimal.ZERO;
+
+    @Column(name = "outstanding_deposit_czk", nullable = false, precision = 14, scale = 2)
+    private BigDecimal outstandingDepositCzk = BigDecimal.ZERO;
+
+    @Column(name = "outstanding_deposit_eur", nullable = false, precision = 14, scale = 2)
+    private BigDecimal outstandingDepositEur = BigDecimal.ZERO;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
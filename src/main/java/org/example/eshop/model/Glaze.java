@@ -12,6 +12,7 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@EntityListeners(CatalogEntityListener.class)
 @Getter
 @Setter
 @Cacheable
@@ -0,0 +1,28 @@
+package org.example.eshop.model;
+
+/**
+ * Společná konfigurace tabulkového generátoru ID pro entity objednávky (Order, OrderItem, OrderItemAddon).
+ * <p>
+ * MySQL nemá sekvence a u {@code GenerationType.IDENTITY} musí Hibernate každý INSERT provést samostatně,
+ * aby zjistil vygenerované ID - JDBC batching je pak vypnutý. Generátor nad tabulkou {@value #TABLE}
+ * rezervuje {@value #ALLOCATION_SIZE} ID najednou (pooled optimizer), takže se celá objednávka
+ * včetně položek a doplňků uloží několika dávkovými INSERTy.
+ * <p>
+ * Tabulka se nevytváří automaticky (ddl-auto=none), musí existovat a být naplněná nad MAX(id) tabulek:
+ * <pre>
+ * CREATE TABLE id_generator (gen_name VARCHAR(64) NOT NULL PRIMARY KEY, next_val BIGINT NOT NULL);
+ * INSERT INTO id_generator SELECT 'customer_orders', COALESCE(MAX(id), 0) + 100 FROM customer_orders;
+ * INSERT INTO id_generator SELECT 'order_item', COALESCE(MAX(id), 0) + 100 FROM order_item;
+ * INSERT INTO id_generator SELECT 'order_item_addon', COALESCE(MAX(id), 0) + 100 FROM order_item_addon;
+ * </pre>
+ */
+public final class IdGeneration {
+
+    public static final String TABLE = "id_generator";
+    public static final String PK_COLUMN = "gen_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGeneration() {
+    }
+}
@@ -8,6 +8,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy; // Přidáno pro cach
 @Getter
 @Setter
 @Entity
+@EntityListeners(CatalogEntityListener.class)
 @jakarta.persistence.Cacheable // JPA standardní anotace pro cachování
 @org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // Specifické pro Hibernate
 @Table(name = "image", indexes = { // Název tabulky by měl být "image"
@@ -36,7 +36,8 @@ import java.util.Optional;
                         name = "orderItemsGraph",
                         attributeNodes = {
                                 @NamedAttributeNode("product") // Načteme produkt v položce
-                                // ODEBRÁNO: @NamedAttributeNode("selectedAddons") <-- TOTO JSME ODEBRALI
+                                // selectedAddons nejsou v grafu (dva List joiny = MultipleBagFetchException),
+                                // načítají se dávkově přes @BatchSize na OrderItem.selectedAddons jedním dalším dotazem
                         }
                 )
         }
@@ -44,7 +45,11 @@ import java.util.Optional;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Tabulkový generátor s pooled optimalizací (IDENTITY vypíná JDBC batch inserty), viz IdGeneration
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_id_gen")
+    @TableGenerator(name = "order_id_gen", table = IdGeneration.TABLE, pkColumnName = IdGeneration.PK_COLUMN,
+            valueColumnName = IdGeneration.VALUE_COLUMN, pkColumnValue = "customer_orders",
+            allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     @Column(precision = 10, scale = 2)
@@ -11,7 +11,11 @@ import java.math.BigDecimal;
 @Entity
 public class OrderItemAddon {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Tabulkový generátor s pooled optimalizací (IDENTITY vypíná JDBC batch inserty), viz IdGeneration
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_addon_id_gen")
+    @TableGenerator(name = "order_item_addon_id_gen", table = IdGeneration.TABLE, pkColumnName = IdGeneration.PK_COLUMN,
+            valueColumnName = IdGeneration.VALUE_COLUMN, pkColumnValue = "order_item_addon",
+            allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     // Vazba na nadřazenou položku objednávky
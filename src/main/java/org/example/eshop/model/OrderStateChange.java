@@ -0,0 +1,69 @@
+package org.example.eshop.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Auditní záznam změny stavu objednávky. Jednotlivé změny z detailu objednávky se ukládají přes entitu,
+ * hromadné změny ({@code OrderService.bulkUpdateOrderState}) jedním INSERT ... SELECT se společným {@code batchId}.
+ * Stavy jsou jen ID (bez vazeb), aby šel záznam zapsat množinově.
+ * <p>
+ * Tabulka se nevytváří automaticky (ddl-auto=none):
+ * <pre>
+ * CREATE TABLE order_state_change (
+ *     id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+ *     order_id BIGINT NOT NULL,
+ *     old_state_id BIGINT,
+ *     new_state_id BIGINT NOT NULL,
+ *     changed_at DATETIME(6) NOT NULL,
+ *     changed_by VARCHAR(100),
+ *     batch_id VARCHAR(36),
+ *     INDEX idx_order_state_change_order (order_id, changed_at),
+ *     INDEX idx_order_state_change_batch (batch_id)
+ * );
+ * </pre>
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "order_state_change", indexes = {
+        @Index(name = "idx_order_state_change_order", columnList = "order_id, changed_at"),
+        @Index(name = "idx_order_state_change_batch", columnList = "batch_id")
+})
+public class OrderStateChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "old_state_id")
+    private Long oldStateId;
+
+    @Column(name = "new_state_id", nullable = false)
+    private Long newStateId;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    @Column(name = "changed_by", length = 100)
+    private String changedBy; // Přihlášený admin; null = systémová změna
+
+    @Column(name = "batch_id", length = 36)
+    private String batchId; // Společné ID hromadné změny; null = jednotlivá změna
+
+    public OrderStateChange(Long orderId, Long oldStateId, Long newStateId, LocalDateTime changedAt, String changedBy) {
+        this.orderId = orderId;
+        this.oldStateId = oldStateId;
+        this.newStateId = newStateId;
+        this.changedAt = changedAt;
+        this.changedBy = changedBy;
+    }
+}
@@ -14,11 +14,15 @@ import java.util.*;
 @Getter
 @Setter
 @Entity
+@EntityListeners(CatalogEntityListener.class)
 @Cacheable
 @org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "product", indexes = {
         @Index(name = "idx_product_slug", columnList = "slug", unique = true),
-        @Index(name = "idx_product_active", columnList = "active")})
+        @Index(name = "idx_product_active", columnList = "active"),
+        // Facetový výpis v DB (ProductSpecifications) - filtr aktivních standardních produktů a řazení podle ceny
+        @Index(name = "idx_product_listing_czk", columnList = "active, customisable, basePriceCZK"),
+        @Index(name = "idx_product_listing_eur", columnList = "active, customisable, basePriceEUR")})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -12,6 +12,7 @@ import java.util.Objects;
 @Getter
 @Setter
 @Entity
+@EntityListeners(CatalogEntityListener.class)
 @Cacheable
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class ProductConfigurator {
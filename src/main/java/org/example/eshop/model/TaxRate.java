@@ -15,6 +15,7 @@ import java.util.Set;
 @Getter
 @Setter
 @Entity
+@EntityListeners(CatalogEntityListener.class)
 @Cacheable
 // Pro TaxRate můžeme nechat READ_ONLY, pokud se nemění často. Pokud ano, změnit na READ_WRITE.
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
@@ -2,10 +2,12 @@ package org.example.eshop.repository;
 
 import org.example.eshop.model.Conversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,7 +24,54 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
     @Query("SELECT c FROM Conversation c LEFT JOIN FETCH c.messages m WHERE c.id = :conversationId ORDER BY m.sentAt ASC")
     Optional<Conversation> findByIdWithMessages(@Param("conversationId") Long conversationId);
 
+    // Konverzace daného typu k objednávce rovnou se zprávami (jeden dotaz místo dvou)
+    @Query("SELECT c FROM Conversation c LEFT JOIN FETCH c.messages m WHERE c.order.id = :orderId AND c.type = :type ORDER BY m.sentAt ASC")
+    Optional<Conversation> findWithMessagesByOrderIdAndType(@Param("orderId") Long orderId, @Param("type") Conversation.ConversationType type);
+
     // Optimalizovaná metoda pro načtení konverzací pro objednávku včetně zpráv
     @Query("SELECT c FROM Conversation c LEFT JOIN FETCH c.messages m WHERE c.order.id = :orderId ORDER BY c.type ASC, m.sentAt ASC")
     List<Conversation> findByOrderIdWithMessages(@Param("orderId") Long orderId);
-}
\ No newline at end of file
+
+    // --- Denormalizované čítače nepřečtených zpráv (atomicky v DB, bez načítání zpráv) ---
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.unreadByAdminCount = c.unreadByAdminCount + 1, c.updatedAt = :now WHERE c.id = :conversationId")
+    int incrementUnreadByAdmin(@Param("conversationId") Long conversationId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.unreadByCustomerCount = c.unreadByCustomerCount + 1, c.updatedAt = :now WHERE c.id = :conversationId")
+    int incrementUnreadByCustomer(@Param("conversationId") Long conversationId, @Param("now") LocalDateTime now);
+
+    // Po označení přečtení přepočet ze zpráv v jednom příkazu - zpráva vložená mezi označením a přepočtem zůstane započtená
+    @Modifying
+    @Query("UPDATE Conversation c SET c.unreadByAdminCount = (SELECT CAST(COUNT(m) AS Integer) FROM Message m " +
+            "WHERE m.conversation.id = :conversationId AND m.senderType = org.example.eshop.model.Message.SenderType.CUSTOMER " +
+            "AND m.readByAdmin = false) WHERE c.id = :conversationId")
+    int recalculateUnreadByAdmin(@Param("conversationId") Long conversationId);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.unreadByCustomerCount = (SELECT CAST(COUNT(m) AS Integer) FROM Message m " +
+            "WHERE m.conversation.id = :conversationId AND m.senderType = org.example.eshop.model.Message.SenderType.ADMIN " +
+            "AND m.readByCustomer = false) WHERE c.id = :conversationId")
+    int recalculateUnreadByCustomer(@Param("conversationId") Long conversationId);
+
+    @Query("SELECT c.id AS conversationId, c.order.id AS orderId, c.type AS type, " +
+            "c.unreadByAdminCount AS unreadByAdminCount, c.unreadByCustomerCount AS unreadByCustomerCount " +
+            "FROM Conversation c WHERE c.id = :conversationId")
+    Optional<UnreadCounters> findUnreadCountersById(@Param("conversationId") Long conversationId);
+
+    /**
+     * Projekce čítačů nepřečtených zpráv jedné konverzace.
+     */
+    interface UnreadCounters {
+        Long getConversationId();
+
+        Long getOrderId();
+
+        Conversation.ConversationType getType();
+
+        int getUnreadByAdminCount();
+
+        int getUnreadByCustomerCount();
+    }
+}
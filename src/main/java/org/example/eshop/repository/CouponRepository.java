@@ -1,19 +1,48 @@
 package org.example.eshop.repository;
 
+import org.example.eshop.dto.CouponCampaignSummaryDto;
 import org.example.eshop.model.Coupon;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
 
     /**
-     * Najde kupón podle jeho kódu (bez ohledu na velikost písmen).
+     * Najde kupón podle normalizovaného kódu (unikátní index {@code idx_coupon_code_normalized}).
      *
-     * @param code Kód kupónu.
+     * @param normalizedCode Kód po {@link Coupon#normalizeCode(String)}.
      * @return Optional obsahující kupón, pokud byl nalezen.
      */
-    Optional<Coupon> findByCodeIgnoreCase(String code);
-}
\ No newline at end of file
+    Optional<Coupon> findByNormalizedCode(String normalizedCode);
+
+    boolean existsByNormalizedCode(String normalizedCode);
+
+    /**
+     * Atomicky započte jedno použití kupónu, pokud ještě nevyčerpal celkový limit (prázdný nebo nulový limit = bez omezení).
+     *
+     * @return 1 při úspěchu, 0 pokud je limit vyčerpán (nebo kupón neexistuje)
+     */
+    @Modifying
+    @Query("UPDATE Coupon c SET c.usedTimes = c.usedTimes + 1 WHERE c.id = :id " +
+            "AND (c.usageLimit IS NULL OR c.usageLimit <= 0 OR c.usedTimes < c.usageLimit)")
+    int incrementUsedTimesWithinLimit(@Param("id") Long id);
+
+    boolean existsByCampaign(String campaign);
+
+    // Kupóny z CMS - kódy kampaní (desetitisíce na kampaň) se vypisují jen souhrnně
+    List<Coupon> findByCampaignIsNull(Sort sort);
+
+    @Query("SELECT new org.example.eshop.dto.CouponCampaignSummaryDto(c.campaign, MIN(c.name), COUNT(c), " +
+            "SUM(CASE WHEN c.usedTimes > 0 THEN 1 ELSE 0 END), SUM(CASE WHEN c.active = true THEN 1 ELSE 0 END), " +
+            "MIN(c.expirationDate)) " +
+            "FROM Coupon c WHERE c.campaign IS NOT NULL GROUP BY c.campaign ORDER BY c.campaign")
+    List<CouponCampaignSummaryDto> findCampaignSummaries();
+}
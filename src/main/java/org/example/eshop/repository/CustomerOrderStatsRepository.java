@@ -0,0 +1,112 @@
+package org.example.eshop.repository;
+
+import org.example.eshop.model.CustomerOrderStats;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CustomerOrderStatsRepository extends JpaRepository<CustomerOrderStats, Long> {
+
+    // Přepočet souhrnu z customer_orders (GROUP BY musí být v odvozené tabulce, aby na ni šlo odkázat v UPDATE části).
+    // Řádky změněné přírůstkově od :notUpdatedSince se nepřepisují - dorovná je až další běh rekonciliace.
+    String RECALCULATE_INSERT = "INSERT INTO customer_order_stats (customer_id, order_count, last_order_date, " +
+            "lifetime_value_czk, lifetime_value_eur, outstanding_deposit_czk, outstanding_deposit_eur, updated_at) " +
+            "SELECT * FROM (SELECT o.customer_id AS customer_id, COUNT(*) AS order_count, MAX(o.order_date) AS last_order_date, " +
+            "COALESCE(SUM(CASE WHEN o.payment_date IS NOT NULL AND o.currency <> 'EUR' THEN o.total_price END), 0) AS lifetime_value_czk, " +
+            "COALESCE(SUM(CASE WHEN o.payment_date IS NOT NULL AND o.currency = 'EUR' THEN o.total_price END), 0) AS lifetime_value_eur, " +
+            "COALESCE(SUM(CASE WHEN o.deposit_amount > 0 AND o.deposit_paid_date IS NULL AND o.cancelled_date IS NULL " +
+            "AND o.currency <> 'EUR' THEN o.deposit_amount END), 0) AS outstanding_deposit_czk, " +
+            "COALESCE(SUM(CASE WHEN o.deposit_amount > 0 AND o.deposit_paid_date IS NULL AND o.cancelled_date IS NULL " +
+            "AND o.currency = 'EUR' THEN o.deposit_amount END), 0) AS outstanding_deposit_eur, " +
+            ":now AS updated_at FROM customer_orders o ";
+    String RECALCULATE_UPSERT = " GROUP BY o.customer_id) AS agg ON DUPLICATE KEY UPDATE " +
+            "order_count = IF(customer_order_stats.updated_at < :notUpdatedSince, agg.order_count, customer_order_stats.order_count), " +
+            "last_order_date = IF(customer_order_stats.updated_at < :notUpdatedSince, agg.last_order_date, customer_order_stats.last_order_date), " +
+            "lifetime_value_czk = IF(customer_order_stats.updated_at < :notUpdatedSince, agg.lifetime_value_czk, customer_order_stats.lifetime_value_czk), " +
+            "lifetime_value_eur = IF(customer_order_stats.updated_at < :notUpdatedSince, agg.lifetime_value_eur, customer_order_stats.lifetime_value_eur), " +
+            "outstanding_deposit_czk = IF(customer_order_stats.updated_at < :notUpdatedSince, agg.outstanding_deposit_czk, customer_order_stats.outstanding_deposit_czk), " +
+            "outstanding_deposit_eur = IF(customer_order_stats.updated_at < :notUpdatedSince, agg.outstanding_deposit_eur, customer_order_stats.outstanding_deposit_eur), " +
+            "updated_at = IF(customer_order_stats.updated_at < :notUpdatedSince, agg.updated_at, customer_order_stats.updated_at)";
+
+    // --- Čtení pro CMS ---
+
+    @Override
+    @EntityGraph(attributePaths = "customer")
+    Page<CustomerOrderStats> findAll(Pageable pageable);
+
+    @Query(value = "SELECT s FROM CustomerOrderStats s JOIN FETCH s.customer c WHERE " +
+            "(:email IS NULL OR LOWER(c.email) LIKE LOWER(CONCAT('%', :email, '%'))) AND " +
+            "(:name IS NULL OR LOWER(c.firstName) LIKE LOWER(CONCAT('%', :name, '%')) OR LOWER(c.lastName) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
+            "(:enabled IS NULL OR c.enabled = :enabled)",
+            countQuery = "SELECT COUNT(s) FROM CustomerOrderStats s JOIN s.customer c WHERE " +
+                    "(:email IS NULL OR LOWER(c.email) LIKE LOWER(CONCAT('%', :email, '%'))) AND " +
+                    "(:name IS NULL OR LOWER(c.firstName) LIKE LOWER(CONCAT('%', :name, '%')) OR LOWER(c.lastName) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
+                    "(:enabled IS NULL OR c.enabled = :enabled)")
+    Page<CustomerOrderStats> findFiltered(@Param("email") String email, @Param("name") String name,
+                                          @Param("enabled") Boolean enabled, Pageable pageable);
+
+    List<CustomerOrderStats> findByCustomerIdIn(Collection<Long> customerIds);
+
+    // --- Přírůstkové změny (v transakci volajícího, 0 = řádek zatím neexistuje) ---
+
+    @Modifying
+    @Query(value = "UPDATE customer_order_stats SET order_count = order_count + 1, " +
+            "last_order_date = GREATEST(COALESCE(last_order_date, :orderDate), :orderDate), " +
+            "outstanding_deposit_czk = outstanding_deposit_czk + :depositCzk, " +
+            "outstanding_deposit_eur = outstanding_deposit_eur + :depositEur, " +
+            "updated_at = :now WHERE customer_id = :customerId", nativeQuery = true)
+    int applyOrderCreated(@Param("customerId") Long customerId, @Param("orderDate") LocalDateTime orderDate,
+                          @Param("depositCzk") BigDecimal depositCzk, @Param("depositEur") BigDecimal depositEur,
+                          @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "UPDATE customer_order_stats SET " +
+            "lifetime_value_czk = lifetime_value_czk + :valueCzk, lifetime_value_eur = lifetime_value_eur + :valueEur, " +
+            "outstanding_deposit_czk = GREATEST(outstanding_deposit_czk + :depositCzk, 0), " +
+            "outstanding_deposit_eur = GREATEST(outstanding_deposit_eur + :depositEur, 0), " +
+            "updated_at = :now WHERE customer_id = :customerId", nativeQuery = true)
+    int applyAmounts(@Param("customerId") Long customerId, @Param("valueCzk") BigDecimal valueCzk,
+                     @Param("valueEur") BigDecimal valueEur, @Param("depositCzk") BigDecimal depositCzk,
+                     @Param("depositEur") BigDecimal depositEur, @Param("now") LocalDateTime now);
+
+    // --- Přepočet z objednávek ---
+
+    @Modifying
+    @Query(value = RECALCULATE_INSERT + "WHERE o.customer_id IN (:customerIds)" + RECALCULATE_UPSERT, nativeQuery = true)
+    int recalculateCustomers(@Param("customerIds") Collection<Long> customerIds, @Param("now") LocalDateTime now,
+                             @Param("notUpdatedSince") LocalDateTime notUpdatedSince);
+
+    @Modifying
+    @Query(value = RECALCULATE_INSERT + "WHERE o.customer_id IN (SELECT x.customer_id FROM customer_orders x WHERE x.id IN (:orderIds))" +
+            RECALCULATE_UPSERT, nativeQuery = true)
+    int recalculateCustomersOfOrders(@Param("orderIds") Collection<Long> orderIds, @Param("now") LocalDateTime now,
+                                     @Param("notUpdatedSince") LocalDateTime notUpdatedSince);
+
+    // Rekonciliace po rozsazích ID zákazníků - každý rozsah ve vlastní krátké transakci
+    @Transactional
+    @Modifying
+    @Query(value = RECALCULATE_INSERT + "WHERE o.customer_id BETWEEN :fromId AND :toId" + RECALCULATE_UPSERT, nativeQuery = true)
+    int reconcileRange(@Param("fromId") long fromId, @Param("toId") long toId, @Param("now") LocalDateTime now,
+                       @Param("notUpdatedSince") LocalDateTime notUpdatedSince);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM customer_order_stats WHERE customer_id BETWEEN :fromId AND :toId AND NOT EXISTS " +
+            "(SELECT 1 FROM customer_orders o WHERE o.customer_id = customer_order_stats.customer_id)", nativeQuery = true)
+    int deleteOrphansInRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query(value = "SELECT COALESCE(MAX(o.customer_id), 0) FROM customer_orders o", nativeQuery = true)
+    long findMaxOrderCustomerId();
+}
@@ -19,4 +19,7 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
     List<Discount> findAllActiveAndPotentiallyApplicable(@Param("now") LocalDateTime now);
 
     Optional<Discount> findWithProductsById(Long id);
+
+    // Nejbližší aktivní sleva, která teprve začne platit (pro určení platnosti předpočítaných cen katalogu)
+    Optional<Discount> findFirstByActiveTrueAndValidFromAfterOrderByValidFromAsc(LocalDateTime now);
 }
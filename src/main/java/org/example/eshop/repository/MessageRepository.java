@@ -2,6 +2,9 @@ package org.example.eshop.repository;
 
 import org.example.eshop.model.Message;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,4 +16,15 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
 
      long countByConversationIdAndReadByAdminFalse(Long conversationId);
      long countByConversationIdAndReadByCustomerFalse(Long conversationId);
+
+    // Hromadné označení přečtení jedním UPDATE (místo ukládání zpráv po jedné)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Message m SET m.readByAdmin = true WHERE m.conversation.id = :conversationId " +
+            "AND m.senderType = org.example.eshop.model.Message.SenderType.CUSTOMER AND m.readByAdmin = false")
+    int markReadByAdmin(@Param("conversationId") Long conversationId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Message m SET m.readByCustomer = true WHERE m.conversation.id = :conversationId " +
+            "AND m.senderType = org.example.eshop.model.Message.SenderType.ADMIN AND m.readByCustomer = false")
+    int markReadByCustomer(@Param("conversationId") Long conversationId);
 }
\ No newline at end of file
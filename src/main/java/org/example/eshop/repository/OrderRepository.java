@@ -1,6 +1,7 @@
 // src/main/java/org/example/eshop/repository/OrderRepository.java
 package org.example.eshop.repository;
 
+import org.example.eshop.dto.OrderListRowDto;
 import org.example.eshop.model.Customer;
 import org.example.eshop.model.Order;
 import org.example.eshop.model.OrderState;
@@ -9,17 +10,21 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
 
-    @Query(value = "SELECT o.order_code FROM customer_orders o WHERE o.order_code REGEXP '^[0-9]+$' ORDER BY CAST(o.order_code AS UNSIGNED) DESC LIMIT 1", nativeQuery = true)
+    // Délka a pak text = číselné pořadí (kódy nemají úvodní nuly); na rozdíl od CAST AS UNSIGNED funguje i v H2 (profil loadtest)
+    @Query(value = "SELECT o.order_code FROM customer_orders o WHERE o.order_code REGEXP '^[0-9]+$' ORDER BY CHAR_LENGTH(o.order_code) DESC, o.order_code DESC LIMIT 1", nativeQuery = true)
     Optional<String> findMaxNumericOrderCode();
     // --- KONEC NOVÉ METODY ---
 
@@ -32,6 +37,11 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
 
     List<Order> findByCustomerIdOrderByOrderDateDesc(Long customerId);
 
+    // Přehled objednávek zákazníka - jen sloupce potřebné pro výpis, jeden dotaz bez ohledu na počet objednávek
+    @Query("SELECT new org.example.eshop.dto.OrderListRowDto(o.id, o.orderCode, o.orderDate, s.code, s.name, o.totalPrice, o.currency) " +
+            "FROM Order o LEFT JOIN o.stateOfOrder s WHERE o.customer.id = :customerId ORDER BY o.orderDate DESC")
+    List<OrderListRowDto> findListRowsByCustomerId(@Param("customerId") Long customerId);
+
     // Najde objednávky podle stavu (přes objekt OrderState)
     Page<Order> findByStateOfOrder(OrderState state, Pageable pageable);
 
@@ -63,4 +73,25 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
 
     @EntityGraph(value = "Order.fetchFullDetail")
     Optional<Order> findFullDetailById(Long id);
-}
\ No newline at end of file
+
+    // --- Hromadná změna stavu (OrderService.bulkUpdateOrderState) ---
+
+    // Zamkne objednávky, kterých se změna týká (ty, které už v cílovém stavu jsou, se přeskočí; bez stavu se mění)
+    @Query(value = "SELECT o.id FROM customer_orders o WHERE o.id IN (:orderIds) AND (o.order_state_id IS NULL OR o.order_state_id <> :newStateId) FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsForStateChange(@Param("orderIds") Collection<Long> orderIds, @Param("newStateId") Long newStateId);
+
+    // Automatická data se nastaví jen tam, kde ještě nejsou (null parametr = datum se nemění), stejně jako u jednotlivé změny
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.stateOfOrder = :newState, " +
+            "o.shippedDate = COALESCE(o.shippedDate, :shippedDate), " +
+            "o.deliveredDate = COALESCE(o.deliveredDate, :deliveredDate), " +
+            "o.cancelledDate = COALESCE(o.cancelledDate, :cancelledDate) " +
+            "WHERE o.id IN :orderIds")
+    int bulkUpdateState(@Param("orderIds") Collection<Long> orderIds, @Param("newState") OrderState newState,
+                        @Param("shippedDate") LocalDateTime shippedDate, @Param("deliveredDate") LocalDateTime deliveredDate,
+                        @Param("cancelledDate") LocalDateTime cancelledDate);
+
+    // Objednávky se zákazníkem pro odeslání notifikací po hromadné změně
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer WHERE o.id IN :orderIds")
+    List<Order> findWithCustomerByIdIn(@Param("orderIds") Collection<Long> orderIds);
+}
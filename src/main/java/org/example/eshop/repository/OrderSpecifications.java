@@ -73,4 +73,18 @@ public class OrderSpecifications {
         return to != null ? (root, query, cb) ->
                 cb.lessThanOrEqualTo(root.get("orderDate"), to) : null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Spojí filtry administrace objednávek (seznam i export) do jedné specifikace.
+     *
+     * @return Specification; bez zadaných filtrů odpovídá všem objednávkám.
+     */
+    public static Specification<Order> adminFilter(String customerEmail, Long stateId, String paymentStatus,
+                                                   LocalDateTime from, LocalDateTime to) {
+        return Specification.where(customerEmailContains(customerEmail))
+                .and(hasStateId(stateId))
+                .and(hasPaymentStatus(paymentStatus))
+                .and(orderDateFrom(from))
+                .and(orderDateTo(to));
+    }
+}
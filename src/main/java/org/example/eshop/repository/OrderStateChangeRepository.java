@@ -0,0 +1,24 @@
+package org.example.eshop.repository;
+
+import org.example.eshop.model.OrderStateChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Repository
+public interface OrderStateChangeRepository extends JpaRepository<OrderStateChange, Long> {
+
+    // Audit hromadné změny jedním příkazem - původní stav se čte přímo z objednávek, proto se volá PŘED hromadným UPDATE
+    @Modifying
+    @Query(value = "INSERT INTO order_state_change (order_id, old_state_id, new_state_id, changed_at, changed_by, batch_id) " +
+            "SELECT o.id, o.order_state_id, :newStateId, :changedAt, :changedBy, :batchId " +
+            "FROM customer_orders o WHERE o.id IN (:orderIds) AND (o.order_state_id IS NULL OR o.order_state_id <> :newStateId)", nativeQuery = true)
+    int insertBulkChange(@Param("orderIds") Collection<Long> orderIds, @Param("newStateId") Long newStateId,
+                         @Param("changedAt") LocalDateTime changedAt, @Param("changedBy") String changedBy,
+                         @Param("batchId") String batchId);
+}
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +22,10 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     boolean existsBySlugIgnoreCaseAndIdNot(String newSlug, Long id);
     Optional<Object> findBySlugIgnoreCaseAndIdNot(String newSlug, Long id); // Zůstává z původního kódu
 
+    // Jen slugy bez entit - podklad pro ActiveProductSlugIndex
+    @Query("SELECT lower(p.slug) FROM Product p WHERE p.active = true AND p.slug IS NOT NULL")
+    List<String> findAllActiveSlugsLowerCase();
+
     @Query("SELECT p FROM Product p WHERE p.active = true AND lower(p.slug) = lower(:slug)")
     @EntityGraph(attributePaths = {
             "images", "availableDesigns", "availableGlazes",
@@ -37,6 +42,20 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     })
     Optional<Product> findByIdWithDetails(@Param("id") Long id);
 
+    /**
+     * Produkty pro výpočet objednávky - konfigurátor a povolené sazby DPH jedním dotazem.
+     * Povolené addony doplní {@link #fetchAvailableAddonsByIdIn(Collection)} (dvě kolekce v jednom
+     * dotazu by vytvořily kartézský součin).
+     */
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.configurator LEFT JOIN FETCH p.availableTaxRates WHERE p.id IN :ids")
+    List<Product> findAllForCheckoutByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Dočte povolené addony k produktům, které už jsou v persistence contextu (viz {@link #findAllForCheckoutByIdIn(Collection)}).
+     */
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.availableAddons WHERE p.id IN :ids")
+    List<Product> fetchAvailableAddonsByIdIn(@Param("ids") Collection<Long> ids);
+
     @EntityGraph(attributePaths = {"images", "discounts", "availableTaxRates"})
     Page<Product> findByActiveTrue(Pageable pageable);
 
@@ -46,4 +65,8 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @EntityGraph(attributePaths = {"images", "discounts", "availableTaxRates"})
     Page<Product> findByActiveTrueAndCustomisableFalse(Pageable pageable);
 
+    // Několik vybraných produktů (např. z ProductFacetService) i s daty pro kartu a výpočet ceny
+    @EntityGraph(attributePaths = {"images", "discounts", "availableTaxRates"})
+    List<Product> findByActiveTrueAndIdIn(Collection<Long> ids);
+
 }
\ No newline at end of file
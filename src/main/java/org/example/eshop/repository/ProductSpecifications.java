@@ -0,0 +1,66 @@
+package org.example.eshop.repository;
+
+import org.example.eshop.dto.ProductFacetQuery;
+import org.example.eshop.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Specifikace pro facetový výpis produktů v DB (záložní cesta k {@code ProductFacetIndex} pro velké katalogy).
+ * Podmínky odpovídají indexům {@code idx_product_listing_czk} / {@code idx_product_listing_eur} na entitě {@link Product}.
+ */
+public class ProductSpecifications {
+
+    /**
+     * Aktivní standardní (ne konfigurovatelné) produkty.
+     */
+    public static Specification<Product> isActiveStandard() {
+        return (root, query, cb) -> cb.and(cb.isTrue(root.get("active")), cb.isFalse(root.get("customisable")));
+    }
+
+    /**
+     * Hodnota textového atributu je jednou z vybraných (bez ohledu na velikost písmen a okolní mezery).
+     *
+     * @return Specification nebo null, pokud není vybrána žádná hodnota.
+     */
+    public static Specification<Product> attributeIn(String attribute, List<String> values) {
+        List<String> normalized = ProductFacetQuery.normalizedValues(values);
+        return normalized.isEmpty() ? null : (root, query, cb) ->
+                cb.lower(cb.trim(root.<String>get(attribute))).in(normalized);
+    }
+
+    /**
+     * Číselný atribut v uzavřeném intervalu; chybějící hranice se neomezuje.
+     *
+     * @return Specification nebo null, pokud nejsou zadány žádné hranice.
+     */
+    public static Specification<Product> between(String attribute, BigDecimal min, BigDecimal max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            if (min == null) return cb.lessThanOrEqualTo(root.<BigDecimal>get(attribute), max);
+            if (max == null) return cb.greaterThanOrEqualTo(root.<BigDecimal>get(attribute), min);
+            return cb.between(root.<BigDecimal>get(attribute), min, max);
+        };
+    }
+
+    /**
+     * Celý filtr výpisu. Facetu lze vynechat ({@code includeMaterial}/{@code includeRoofOverstep} = false)
+     * pro výpočet jejích počtů.
+     *
+     * @param priceAttribute {@code basePriceCZK} nebo {@code basePriceEUR} podle zvolené měny
+     */
+    public static Specification<Product> facetFilter(ProductFacetQuery filter, String priceAttribute,
+                                                     boolean includeMaterial, boolean includeRoofOverstep) {
+        return Specification.where(isActiveStandard())
+                .and(includeMaterial ? attributeIn("material", filter.getMaterial()) : null)
+                .and(includeRoofOverstep ? attributeIn("roofOverstep", filter.getRoofOverstep()) : null)
+                .and(between("length", filter.getMinLength(), filter.getMaxLength()))
+                .and(between("width", filter.getMinWidth(), filter.getMaxWidth()))
+                .and(between("height", filter.getMinHeight(), filter.getMaxHeight()))
+                .and(between(priceAttribute, filter.getMinPrice(), filter.getMaxPrice()));
+    }
+}
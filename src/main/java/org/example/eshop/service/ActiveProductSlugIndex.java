@@ -0,0 +1,148 @@
+package org.example.eshop.service;
+
+import org.example.eshop.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Množina slugů aktivních produktů v paměti - neznámý {@code /produkt/{slug}} (boti, překlepy, staré odkazy)
+ * se odmítne bez dotazu do DB.
+ * <p>
+ * Množina se přestaví jedním lehkým dotazem (jen slugy) při první kontrole po změně generace katalogu
+ * ({@link CatalogSnapshotService#getGeneration()}). Dokud přestavba neproběhne, odpovídá index "možná"
+ * a rozhoduje databáze - nový produkt tak nikdy nedostane 404. Generace je lokální pro instanci, proto se množina
+ * přestavuje i po {@code eshop.product-slug.index-max-age-seconds} (změny provedené na jiné instanci).
+ * <p>
+ * Navíc drží krátkodobou negativní cache slugů, které v množině byly, ale DB je nevrátila
+ * (souběh se změnou katalogu); i ta se se změnou generace zahazuje.
+ */
+@Service
+public class ActiveProductSlugIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveProductSlugIndex.class);
+
+    private record Slugs(long generation, long builtAtMillis, Set<String> values) {
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Value("${eshop.product-slug.index-max-age-seconds:300}")
+    private long indexMaxAgeSeconds;
+    @Value("${eshop.product-slug.negative-ttl-seconds:60}")
+    private long negativeTtlSeconds;
+    @Value("${eshop.product-slug.negative-max-entries:10000}")
+    private int negativeMaxEntries;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final Map<String, Long> negativeCache = new ConcurrentHashMap<>(); // slug -> platnost do (ms)
+    private final AtomicLong rejectedLookups = new AtomicLong();
+    private volatile Slugs slugs;
+    private volatile long negativeCacheGeneration;
+
+    /**
+     * @return false, pokud slug určitě nepatří aktivnímu produktu; true znamená "zeptej se DB"
+     */
+    public boolean mightBeActive(String slug) {
+        if (!StringUtils.hasText(slug)) {
+            return false;
+        }
+        String key = normalize(slug);
+        long generation = catalogSnapshotService.getGeneration();
+        Slugs current = currentSlugs(generation);
+        if (current == null) {
+            return true; // Index se právě přestavuje nebo přestavba selhala - rozhodne DB
+        }
+        if (!current.values().contains(key) || isNegativelyCached(key, generation)) {
+            rejectedLookups.incrementAndGet();
+            log.debug("Product slug '{}' rejected by slug index (generation {}).", key, generation);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Zaznamená slug, pro který DB nevrátila aktivní produkt.
+     */
+    public void recordMiss(String slug) {
+        if (!StringUtils.hasText(slug) || negativeTtlSeconds <= 0) {
+            return;
+        }
+        long generation = catalogSnapshotService.getGeneration();
+        if (negativeCacheGeneration != generation || negativeCache.size() >= negativeMaxEntries) {
+            negativeCache.clear(); // Při záplavě stačí hrubé omezení velikosti
+            negativeCacheGeneration = generation;
+        }
+        negativeCache.put(normalize(slug), System.currentTimeMillis() + negativeTtlSeconds * 1000);
+    }
+
+    public long getRejectedLookups() {
+        return rejectedLookups.get();
+    }
+
+    private Slugs currentSlugs(long generation) {
+        Slugs current = slugs;
+        if (isFresh(current, generation)) {
+            return current;
+        }
+        if (!rebuildLock.tryLock()) {
+            return null;
+        }
+        try {
+            current = slugs;
+            if (isFresh(current, generation)) {
+                return current;
+            }
+            Set<String> values = Set.copyOf(productRepository.findAllActiveSlugsLowerCase());
+            current = new Slugs(generation, System.currentTimeMillis(), values);
+            slugs = current;
+            log.info("Active product slug index rebuilt: {} slugs (catalog generation {}).", values.size(), generation);
+            return current;
+        } catch (RuntimeException e) {
+            log.error("!!! Přestavba indexu slugů selhala: {} !!!", e.getMessage(), e);
+            return null;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private boolean isFresh(Slugs candidate, long generation) {
+        return candidate != null
+                && candidate.generation() == generation
+                && System.currentTimeMillis() - candidate.builtAtMillis() < indexMaxAgeSeconds * 1000;
+    }
+
+    private boolean isNegativelyCached(String key, long generation) {
+        if (negativeCacheGeneration != generation) {
+            negativeCache.clear();
+            negativeCacheGeneration = generation;
+            return false;
+        }
+        Long validUntil = negativeCache.get(key);
+        if (validUntil == null) {
+            return false;
+        }
+        if (validUntil < System.currentTimeMillis()) {
+            negativeCache.remove(key, validUntil);
+            return false;
+        }
+        return true;
+    }
+
+    private static String normalize(String slug) {
+        return slug.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.eshop.service;
+
+/**
+ * Jedna invalidace přenášená mezi instancemi ({@link CacheInvalidationBus}).
+ *
+ * @param kind   druh invalidace
+ * @param region název entity / regionu cache, u {@link Kind#CATALOG} jednoduchý název katalogové entity
+ * @param key    ID entity nebo zákazníka jako text (může být null)
+ */
+public record CacheInvalidation(Kind kind, String region, String key) {
+
+    public enum Kind {
+        /** Změna entity v L2 cache Hibernate - region = název entity. */
+        ENTITY,
+        /** Vyprázdnění celého regionu L2 cache (hromadné UPDATE/DELETE mimo entity). */
+        REGION,
+        /** Změna katalogu - na ostatních instancích se publikuje {@link CatalogChangedEvent}. */
+        CATALOG,
+        /** Změna zákazníka - na ostatních instancích se publikuje {@link CustomerChangedEvent}. */
+        CUSTOMER,
+        /**
+         * Nová zpráva nebo změna čítačů konverzace (region = ID konverzace, key = ID zprávy nebo null) - na ostatních
+         * instancích se publikuje {@link RemoteConversationChangedEvent} pro jejich SSE odběratele.
+         */
+        CONVERSATION
+    }
+}
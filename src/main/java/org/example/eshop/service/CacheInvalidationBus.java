@@ -0,0 +1,385 @@
+package org.example.eshop.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Udržuje paměťové cache všech instancí (Cloud Run) konzistentní: lokální změny rozesílá přes
+ * {@link CacheInvalidationTransport}, změny z ostatních instancí aplikuje.
+ * <p>
+ * Rozesílá se:
+ * <ul>
+ *     <li>každá potvrzená změna entity s L2 cache (post-commit listener Hibernate) - ostatní ji vyhodí z regionu
+ *     entity a zahodí cachované kolekce i Spring cache ({@code @Cacheable}) odvozené z dané entity,</li>
+ *     <li>{@link CatalogChangedEvent} a {@link CustomerChangedEvent} - ostatní je publikují u sebe, takže se
+ *     zneplatní i katalogový snapshot, page/fragment cache, index slugů a kontexty zákazníků; změna katalogu navíc
+ *     vyprázdní všechny Spring cache (ceny, slevy, kupóny),</li>
+ *     <li>vyprázdnění regionu přes {@link #evictRegionEverywhere(String)} (hromadné dotazy mimo entity),</li>
+ *     <li>{@link OrderMessageEvent} - SSE spojení ke zprávám objednávky jsou vázaná na instanci, ostatní instance
+ *     proto změnu konverzace pošlou svým odběratelům ({@link RemoteConversationChangedEvent}).</li>
+ * </ul>
+ * Odesílání je dávkové z vlastního vlákna (po {@code eshop.cache-bus.publish-interval-ms}), požadavky tak na DB
+ * nečekají. Zpoždění mezi instancemi je tedy omezené součtem intervalu odesílání a čtení transportu; při výpadku
+ * transportu se cache zahodí celé ({@link CacheInvalidationTransport.Receiver#onResync()}).
+ * <p>
+ * S read replikami ({@code eshop.datasource.replicas.enabled}) může instance hned po invalidaci načíst řádek
+ * z repliky, která změnu ještě nemá, a uložit ho do cache na celé TTL. Vzdálené invalidace se proto aplikují
+ * podruhé po uplynutí maximálního zpoždění použitelné repliky ({@code max-staleness-seconds} + tři intervaly
+ * měření, viz {@code ReplicaRoutingDataSource}); to samé platí pro {@link #evictRegionEverywhere(String)}.
+ */
+@Service
+@Lazy(false) // Čtení musí běžet od startu i v profilu lazy-init
+public class CacheInvalidationBus implements CacheInvalidationTransport.Receiver {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+    // Vlákno, které právě aplikuje vzdálené invalidace - lokálně publikované události se nerozesílají zpět
+    private static final ThreadLocal<Boolean> APPLYING_REMOTE = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private static final String MODEL_PACKAGE = "org.example.eshop.model.";
+    private static final List<String> PRODUCT_CACHES = List.of("productBySlug", "productDetails", "activeProductsPage",
+            "activeProductsList", "activeStandardProductsPage", "allProductsList", "productsPage");
+    // Spring cache odvozené z entity (podle jednoduchého názvu entity); produkty obsahují ceny, sazby i atributy
+    private static final Map<String, List<String>> SPRING_CACHES_BY_ENTITY = Map.of(
+            "Product", PRODUCT_CACHES,
+            "ProductConfigurator", PRODUCT_CACHES,
+            "Discount", withProductCaches("allDiscounts", "discountById"),
+            "TaxRate", withProductCaches("allTaxRates"),
+            "Design", withProductCaches("allDesigns", "designById"),
+            "Glaze", withProductCaches("allGlazes", "glazeById"),
+            "RoofColor", withProductCaches("allRoofColors", "roofColorById"),
+            "Addon", withProductCaches("allActiveAddons", "addonById"),
+            "Coupon", List.of("couponByCode"),
+            "OrderState", List.of("sortedOrderStates", "orderStateDetails"));
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired(required = false)
+    private CacheInvalidationTransport transport;
+
+    @Value("${eshop.cache-bus.enabled:true}")
+    private boolean enabled;
+    @Value("${eshop.cache-bus.publish-interval-ms:20}")
+    private long publishIntervalMs;
+    @Value("${eshop.datasource.replicas.enabled:false}")
+    private boolean replicasEnabled;
+    @Value("${eshop.datasource.replicas.max-staleness-seconds:5}")
+    private double replicaMaxStalenessSeconds;
+    @Value("${eshop.datasource.replicas.lag-check-interval-ms:2000}")
+    private long replicaLagCheckIntervalMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Queue<CacheInvalidation> outbox = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("cache-bus-publisher").factory());
+    private SessionFactoryImplementor sessionFactory;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        if (!enabled || transport == null) {
+            log.info("Cache invalidation bus disabled (enabled={}, transport={}), caches are local to this instance.",
+                    enabled, transport != null ? transport.getClass().getSimpleName() : "none");
+            return;
+        }
+        EntityChangeListener listener = new EntityChangeListener();
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+
+        running = true;
+        transport.start(nodeId, this);
+        publisher.scheduleWithFixedDelay(this::flushOutbox, publishIntervalMs, publishIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Cache invalidation bus started on node {} ({}).", nodeId, transport.getClass().getSimpleName());
+    }
+
+    /**
+     * Vyprázdní region L2 cache lokálně i na ostatních instancích. Pro změny, o kterých Hibernate neví
+     * (hromadné UPDATE/DELETE, nativní SQL).
+     */
+    public void evictRegionEverywhere(String region) {
+        sessionFactory.getCache().evictRegion(region);
+        enqueue(new CacheInvalidation(CacheInvalidation.Kind.REGION, region, null));
+        scheduleReplay(() -> sessionFactory.getCache().evictRegion(region));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!APPLYING_REMOTE.get()) {
+            enqueue(new CacheInvalidation(CacheInvalidation.Kind.CATALOG, event.getEntityType(),
+                    event.getEntityId() != null ? event.getEntityId().toString() : null));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (!APPLYING_REMOTE.get() && event.getCustomerId() != null) {
+            enqueue(new CacheInvalidation(CacheInvalidation.Kind.CUSTOMER, null, event.getCustomerId().toString()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderMessage(OrderMessageEvent event) {
+        if (!APPLYING_REMOTE.get() && event.getCounters() != null) {
+            enqueue(new CacheInvalidation(CacheInvalidation.Kind.CONVERSATION, event.getCounters().getConversationId().toString(),
+                    event.getMessage() != null ? event.getMessage().getId().toString() : null));
+        }
+    }
+
+    @Override
+    public void onInvalidations(List<CacheInvalidation> invalidations) {
+        applyRemote(invalidations);
+        // Zprávy se neopakují - odběratelé by je dostali dvakrát, s cache replik nesouvisí
+        List<CacheInvalidation> replayed = invalidations.stream()
+                .filter(invalidation -> invalidation.kind() != CacheInvalidation.Kind.CONVERSATION)
+                .toList();
+        if (!replayed.isEmpty()) {
+            scheduleReplay(() -> applyRemote(replayed));
+        }
+    }
+
+    private void applyRemote(List<CacheInvalidation> invalidations) {
+        APPLYING_REMOTE.set(Boolean.TRUE);
+        try {
+            boolean collectionsEvicted = false;
+            boolean allSpringCaches = false;
+            Set<String> springCaches = new LinkedHashSet<>(); // Vyprázdní se jednou za dávku
+            for (CacheInvalidation invalidation : invalidations) {
+                try {
+                    switch (invalidation.kind()) {
+                        case ENTITY -> {
+                            evictEntity(invalidation.region(), invalidation.key());
+                            springCaches.addAll(springCachesFor(invalidation.region()));
+                            if (!collectionsEvicted) {
+                                // Kolekce (Product.images, ...) patří vlastníkovi, ne změněné entitě - zahodit všechny
+                                sessionFactory.getCache().evictCollectionData();
+                                collectionsEvicted = true;
+                            }
+                        }
+                        case REGION -> {
+                            sessionFactory.getCache().evictRegion(invalidation.region());
+                            springCaches.addAll(springCachesFor(invalidation.region()));
+                        }
+                        case CATALOG -> {
+                            if (!collectionsEvicted) {
+                                sessionFactory.getCache().evictCollectionData();
+                                collectionsEvicted = true;
+                            }
+                            allSpringCaches = true;
+                            eventPublisher.publishEvent(new CatalogChangedEvent(invalidation.region(), parseId(invalidation.key())));
+                        }
+                        case CUSTOMER -> eventPublisher.publishEvent(new CustomerChangedEvent(Long.valueOf(invalidation.key())));
+                        case CONVERSATION -> eventPublisher.publishEvent(new RemoteConversationChangedEvent(
+                                Long.valueOf(invalidation.region()), invalidation.key() != null ? Long.valueOf(invalidation.key()) : null));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not apply remote cache invalidation {}: {}", invalidation, e.getMessage());
+                }
+            }
+            if (allSpringCaches) {
+                clearAllSpringCaches();
+            } else {
+                springCaches.forEach(this::clearSpringCache);
+            }
+            log.debug("Applied {} remote cache invalidation(s).", invalidations.size());
+        } finally {
+            APPLYING_REMOTE.remove();
+        }
+    }
+
+    @Override
+    public void onResync() {
+        APPLYING_REMOTE.set(Boolean.TRUE);
+        try {
+            sessionFactory.getCache().evictAllRegions();
+            clearAllSpringCaches();
+            eventPublisher.publishEvent(new CatalogChangedEvent("*", null));
+            eventPublisher.publishEvent(new CustomerChangedEvent(null)); // null = všichni zákazníci
+            log.info("All local caches dropped after cache bus resynchronization.");
+        } finally {
+            APPLYING_REMOTE.remove();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (running) {
+            running = false;
+            publisher.shutdownNow();
+            flushOutbox(); // Změny posledních milisekund ještě odeslat
+            transport.stop();
+        }
+    }
+
+    /**
+     * Zopakuje invalidaci po maximálním zpoždění repliky - zahodí, co se mezitím načetlo z repliky bez změny.
+     */
+    private void scheduleReplay(Runnable replay) {
+        if (!running || !replicasEnabled) {
+            return;
+        }
+        long delayMs = Math.round(replicaMaxStalenessSeconds * 1000) + 3 * replicaLagCheckIntervalMs;
+        publisher.schedule(() -> {
+            try {
+                replay.run();
+            } catch (RuntimeException e) {
+                log.warn("Delayed cache invalidation replay failed: {}", e.getMessage());
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Spring cache odvozené z entity nebo regionu L2 cache ({@code org.example.eshop.model.Product.images} -> Product).
+     */
+    private static List<String> springCachesFor(String region) {
+        if (region == null || !region.startsWith(MODEL_PACKAGE)) {
+            return List.of();
+        }
+        String entity = region.substring(MODEL_PACKAGE.length());
+        int dot = entity.indexOf('.');
+        return SPRING_CACHES_BY_ENTITY.getOrDefault(dot >= 0 ? entity.substring(0, dot) : entity, List.of());
+    }
+
+    private static List<String> withProductCaches(String... caches) {
+        List<String> names = new ArrayList<>(List.of(caches));
+        names.addAll(PRODUCT_CACHES);
+        return List.copyOf(names);
+    }
+
+    private void clearSpringCache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private void clearAllSpringCaches() {
+        cacheManager.getCacheNames().forEach(this::clearSpringCache);
+    }
+
+    private void enqueue(CacheInvalidation invalidation) {
+        if (running) {
+            outbox.add(invalidation);
+        }
+    }
+
+    private void flushOutbox() {
+        Set<CacheInvalidation> batch = new LinkedHashSet<>(); // Stejné invalidace v jedné dávce stačí jednou
+        CacheInvalidation next;
+        while ((next = outbox.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transport.publish(new ArrayList<>(batch));
+            log.debug("Published {} cache invalidation(s).", batch.size());
+        } catch (RuntimeException e) {
+            // Ostatní instance uvidí změnu až po vypršení TTL - nepokoušíme se o opakování, které by mohlo růst bez omezení
+            log.error("!!! Odeslání {} invalidací cache selhalo: {} !!!", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    private void evictEntity(String entityName, String key) {
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(entityName);
+        Class<?> idType = persister.getIdentifierType().getReturnedClass();
+        Object id = idType == Long.class ? Long.valueOf(key)
+                : idType == Integer.class ? Integer.valueOf(key)
+                : key;
+        sessionFactory.getCache().evictEntityData(entityName, id);
+    }
+
+    private static Object parseId(String key) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(key);
+        } catch (NumberFormatException e) {
+            return key;
+        }
+    }
+
+    /**
+     * Potvrzené změny entit, které Hibernate ukládá do L2 cache.
+     */
+    private class EntityChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+            PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            record(event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            record(event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            record(event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return persister.canWriteToCache();
+        }
+
+        private void record(EntityPersister persister, Object id) {
+            if (id != null) {
+                enqueue(new CacheInvalidation(CacheInvalidation.Kind.ENTITY, persister.getEntityName(), id.toString()));
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.eshop.service;
+
+import java.util.List;
+
+/**
+ * Přenos invalidací mezi instancemi pro {@link CacheInvalidationBus}. Výchozí implementace je tabulka v DB
+ * ({@link JdbcCacheInvalidationTransport}, {@code eshop.cache-bus.transport=jdbc}); jiný přenos (např. Pub/Sub)
+ * stačí zaregistrovat jako bean s jinou hodnotou této vlastnosti.
+ */
+public interface CacheInvalidationTransport {
+
+    interface Receiver {
+
+        /**
+         * Invalidace z ostatních instancí (vlastní zprávy transport odfiltruje).
+         */
+        void onInvalidations(List<CacheInvalidation> invalidations);
+
+        /**
+         * Transport mohl zprávy ztratit (výpadek spojení, mezera delší než retence) - je potřeba zahodit vše.
+         */
+        void onResync();
+    }
+
+    void start(String nodeId, Receiver receiver);
+
+    /**
+     * Odešle invalidace ostatním instancím. Volá se z vlákna sběrnice, nikdy z požadavku.
+     */
+    void publish(List<CacheInvalidation> invalidations);
+
+    void stop();
+}
@@ -0,0 +1,24 @@
+package org.example.eshop.service;
+
+import lombok.Getter;
+
+/**
+ * Událost signalizující změnu katalogových dat (produkt, obrázek, atribut, doplněk, sazba DPH, sleva).
+ * Posluchači (např. {@link CatalogSnapshotService}) podle ní zneplatňují paměťové pohledy na katalog.
+ */
+@Getter
+public class CatalogChangedEvent {
+
+    private final String entityType; // Jednoduchý název třídy entity, např. "Product"
+    private final Object entityId;   // ID změněné entity (může být null)
+
+    public CatalogChangedEvent(String entityType, Object entityId) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogChangedEvent{" + entityType + "#" + entityId + "}";
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.eshop.service;
+
+import org.example.eshop.dto.*;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Neměnný paměťový obraz aktivního katalogu (produkty, atributy, doplňky, sazby DPH a předpočítané ceny).
+ * Instance sestavuje {@link CatalogSnapshotBuilder}, drží ji {@link CatalogSnapshotService}.
+ * Všechny kolekce jsou neměnné, takže snapshot lze bezpečně sdílet mezi vlákny.
+ */
+public class CatalogSnapshot {
+
+    private final long generation;
+    private final Instant builtAt;
+    private final LocalDateTime validUntil; // Nejbližší začátek/konec slevy - poté jsou předpočítané ceny neplatné
+
+    private final List<CatalogProductDto> products;
+    private final Map<Long, CatalogProductDto> productsById;
+    private final Map<String, CatalogProductDto> productsBySlug;
+
+    private final Map<Long, CatalogOptionDto> designs;
+    private final Map<Long, CatalogOptionDto> glazes;
+    private final Map<Long, CatalogOptionDto> roofColors;
+    private final Map<Long, CatalogAddonDto> addons;
+    private final Map<Long, CatalogTaxRateDto> taxRates;
+
+    public CatalogSnapshot(long generation, LocalDateTime validUntil,
+                           List<CatalogProductDto> products,
+                           List<CatalogOptionDto> designs, List<CatalogOptionDto> glazes, List<CatalogOptionDto> roofColors,
+                           List<CatalogAddonDto> addons, List<CatalogTaxRateDto> taxRates) {
+        this.generation = generation;
+        this.builtAt = Instant.now();
+        this.validUntil = validUntil;
+        this.products = List.copyOf(products);
+        this.productsById = indexBy(products, CatalogProductDto::getId);
+        this.productsBySlug = indexBy(products, p -> p.getSlug().toLowerCase(Locale.ROOT));
+        this.designs = indexBy(designs, CatalogOptionDto::getId);
+        this.glazes = indexBy(glazes, CatalogOptionDto::getId);
+        this.roofColors = indexBy(roofColors, CatalogOptionDto::getId);
+        this.addons = indexBy(addons, CatalogAddonDto::getId);
+        this.taxRates = indexBy(taxRates, CatalogTaxRateDto::getId);
+    }
+
+    // LinkedHashMap zachová pořadí vstupního seznamu (řazení podle názvu)
+    private static <K, V> Map<K, V> indexBy(List<V> values, Function<V, K> keyFn) {
+        return Collections.unmodifiableMap(values.stream()
+                .collect(Collectors.toMap(keyFn, Function.identity(), (a, b) -> a, LinkedHashMap::new)));
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    public LocalDateTime getValidUntil() {
+        return validUntil;
+    }
+
+    /**
+     * @return true, pokud mezitím začala nebo skončila některá sleva a předpočítané ceny je nutné přepočítat.
+     */
+    public boolean isExpired(LocalDateTime now) {
+        return validUntil != null && !now.isBefore(validUntil);
+    }
+
+    public List<CatalogProductDto> getProducts() {
+        return products;
+    }
+
+    public Optional<CatalogProductDto> findProductById(Long id) {
+        return Optional.ofNullable(id != null ? productsById.get(id) : null);
+    }
+
+    public Optional<CatalogProductDto> findProductBySlug(String slug) {
+        return Optional.ofNullable(slug != null ? productsBySlug.get(slug.toLowerCase(Locale.ROOT)) : null);
+    }
+
+    public Collection<CatalogOptionDto> getDesigns() {
+        return designs.values();
+    }
+
+    public Collection<CatalogOptionDto> getGlazes() {
+        return glazes.values();
+    }
+
+    public Collection<CatalogOptionDto> getRoofColors() {
+        return roofColors.values();
+    }
+
+    public Collection<CatalogAddonDto> getAddons() {
+        return addons.values();
+    }
+
+    public Collection<CatalogTaxRateDto> getTaxRates() {
+        return taxRates.values();
+    }
+
+    public Optional<CatalogOptionDto> findDesign(Long id) {
+        return Optional.ofNullable(id != null ? designs.get(id) : null);
+    }
+
+    public Optional<CatalogOptionDto> findGlaze(Long id) {
+        return Optional.ofNullable(id != null ? glazes.get(id) : null);
+    }
+
+    public Optional<CatalogOptionDto> findRoofColor(Long id) {
+        return Optional.ofNullable(id != null ? roofColors.get(id) : null);
+    }
+
+    public Optional<CatalogAddonDto> findAddon(Long id) {
+        return Optional.ofNullable(id != null ? addons.get(id) : null);
+    }
+
+    public Optional<CatalogTaxRateDto> findTaxRate(Long id) {
+        return Optional.ofNullable(id != null ? taxRates.get(id) : null);
+    }
+
+    /**
+     * Sestaví atributy, doplňky a sazby DPH dostupné pro daný produkt (jen aktivní, v pořadí podle názvu).
+     */
+    public CatalogOptionsDto optionsFor(CatalogProductDto product) {
+        return new CatalogOptionsDto(
+                resolve(product.getDesignIds(), designs),
+                resolve(product.getGlazeIds(), glazes),
+                resolve(product.getRoofColorIds(), roofColors),
+                resolve(product.getAddonIds(), addons),
+                resolve(product.getTaxRateIds(), taxRates));
+    }
+
+    /**
+     * @return všechny aktivní atributy, doplňky a sazby DPH katalogu.
+     */
+    public CatalogOptionsDto allOptions() {
+        return new CatalogOptionsDto(
+                List.copyOf(designs.values()),
+                List.copyOf(glazes.values()),
+                List.copyOf(roofColors.values()),
+                List.copyOf(addons.values()),
+                List.copyOf(taxRates.values()));
+    }
+
+    private static <V> List<V> resolve(List<Long> ids, Map<Long, V> index) {
+        if (ids == null || ids.isEmpty()) return Collections.emptyList();
+        Set<Long> wanted = new HashSet<>(ids);
+        // Iterujeme přes index, aby se zachovalo jeho řazení podle názvu
+        return index.entrySet().stream()
+                .filter(e -> wanted.contains(e.getKey()))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toUnmodifiableList());
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.eshop.service;
+
+import org.example.eshop.config.PriceConstants;
+import org.example.eshop.dto.*;
+import org.example.eshop.model.*;
+import org.example.eshop.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Sestavuje {@link CatalogSnapshot} z databáze. Běží v jedné read-only transakci,
+ * aby bylo možné projít lazy kolekce produktů; výsledkem jsou už jen ploché DTO bez vazby na entity.
+ */
+@Component
+public class CatalogSnapshotBuilder implements PriceConstants {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotBuilder.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private DesignRepository designRepository;
+    @Autowired
+    private GlazeRepository glazeRepository;
+    @Autowired
+    private RoofColorRepository roofColorRepository;
+    @Autowired
+    private AddonsRepository addonsRepository;
+    @Autowired
+    private TaxRateRepository taxRateRepository;
+    @Autowired
+    private DiscountRepository discountRepository;
+    @Autowired
+    private ProductService productService;
+
+    @Transactional(readOnly = true)
+    public CatalogSnapshot build(long generation) {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<CatalogOptionDto> designs = designRepository.findAll(Sort.by("name")).stream()
+                .filter(Design::isActive)
+                .map(d -> toOption(d.getId(), d.getName(), d.getDescription(), d.getImageUrl(), d.getPriceSurchargeCZK(), d.getPriceSurchargeEUR()))
+                .collect(Collectors.toList());
+        List<CatalogOptionDto> glazes = glazeRepository.findAll(Sort.by("name")).stream()
+                .filter(Glaze::isActive)
+                .map(g -> toOption(g.getId(), g.getName(), g.getDescription(), g.getImageUrl(), g.getPriceSurchargeCZK(), g.getPriceSurchargeEUR()))
+                .collect(Collectors.toList());
+        List<CatalogOptionDto> roofColors = roofColorRepository.findAll(Sort.by("name")).stream()
+                .filter(RoofColor::isActive)
+                .map(r -> toOption(r.getId(), r.getName(), r.getDescription(), r.getImageUrl(), r.getPriceSurchargeCZK(), r.getPriceSurchargeEUR()))
+                .collect(Collectors.toList());
+        List<CatalogAddonDto> addons = addonsRepository.findByActiveTrueOrderByNameAsc().stream()
+                .map(this::toAddon)
+                .collect(Collectors.toList());
+        List<CatalogTaxRateDto> taxRates = taxRateRepository.findAll(Sort.by("name")).stream()
+                .map(this::toTaxRate)
+                .collect(Collectors.toList());
+
+        List<CatalogProductDto> products = productRepository.findAllByActiveTrue().stream()
+                .sorted(Comparator.comparing(Product::getName, Comparator.nullsLast(String::compareToIgnoreCase)))
+                .map(this::toProduct)
+                .collect(Collectors.toList());
+
+        CatalogSnapshot snapshot = new CatalogSnapshot(generation, computeValidUntil(now),
+                products, designs, glazes, roofColors, addons, taxRates);
+        log.info("Catalog snapshot #{} built in {} ms: {} products, {} designs, {} glazes, {} roof colors, {} addons. Valid until: {}",
+                generation, System.currentTimeMillis() - start, products.size(), designs.size(), glazes.size(),
+                roofColors.size(), addons.size(), snapshot.getValidUntil() != null ? snapshot.getValidUntil() : "-");
+        return snapshot;
+    }
+
+    /**
+     * Karty vybraných aktivních produktů přímo z DB ve vstupním pořadí, ve stejném tvaru jako ve snapshotu
+     * (DB režim {@link ProductFacetService}).
+     */
+    @Transactional(readOnly = true)
+    public List<CatalogProductDto> buildProducts(List<Long> ids) {
+        return productService.getActiveProductsByIdsInOrder(ids).stream()
+                .map(this::toProduct)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Předpočítané ceny závisí na slevách s časovou platností - snapshot platí jen do nejbližšího
+     * konce aktuálně platné slevy nebo začátku nejbližší budoucí slevy.
+     */
+    private LocalDateTime computeValidUntil(LocalDateTime now) {
+        Stream<LocalDateTime> endsOfCurrent = discountRepository.findAllActiveAndPotentiallyApplicable(now).stream()
+                .map(Discount::getValidTo)
+                .filter(Objects::nonNull);
+        Stream<LocalDateTime> startOfNext = discountRepository.findFirstByActiveTrueAndValidFromAfterOrderByValidFromAsc(now).stream()
+                .map(Discount::getValidFrom);
+        return Stream.concat(endsOfCurrent, startOfNext)
+                .filter(t -> t.isAfter(now))
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+    private CatalogProductDto toProduct(Product product) {
+        CatalogProductDto dto = new CatalogProductDto();
+        dto.setId(product.getId());
+        dto.setSlug(product.getSlug());
+        dto.setName(product.getName());
+        dto.setShortDescription(product.getShortDescription());
+        dto.setDescription(product.getDescription());
+        dto.setModel(product.getModel());
+        dto.setMaterial(product.getMaterial());
+        dto.setLength(product.getLength());
+        dto.setWidth(product.getWidth());
+        dto.setHeight(product.getHeight());
+        dto.setRoofOverstep(product.getRoofOverstep());
+        dto.setCustomisable(product.isCustomisable());
+        dto.setMetaTitle(product.getMetaTitle());
+        dto.setMetaDescription(product.getMetaDescription());
+
+        dto.setImages(product.getImagesOrdered().stream().map(ImageDto::new).collect(Collectors.toUnmodifiableList()));
+        dto.setTaxRateIds(ids(product.getAvailableTaxRates(), TaxRate::getId));
+        dto.setDesignIds(ids(product.getAvailableDesigns(), Design::getId));
+        dto.setGlazeIds(ids(product.getAvailableGlazes(), Glaze::getId));
+        dto.setRoofColorIds(ids(product.getAvailableRoofColors(), RoofColor::getId));
+
+        if (product.isCustomisable()) {
+            dto.setAddonIds(product.getAvailableAddons() == null ? List.of() : product.getAvailableAddons().stream()
+                    .filter(Addon::isActive)
+                    .map(Addon::getId)
+                    .sorted()
+                    .collect(Collectors.toUnmodifiableList()));
+            if (product.getConfigurator() != null) {
+                dto.setConfigurator(toConfigurator(product.getConfigurator()));
+            }
+        } else {
+            dto.setAddonIds(List.of());
+            dto.setPriceCZK(toPrice(product, DEFAULT_CURRENCY));
+            dto.setPriceEUR(toPrice(product, EURO_CURRENCY));
+        }
+        return dto;
+    }
+
+    private CatalogPriceDto toPrice(Product product, String currency) {
+        Map<String, Object> priceInfo = productService.calculateFinalProductPrice(product, currency);
+        BigDecimal original = (BigDecimal) priceInfo.get("originalPrice");
+        BigDecimal discounted = (BigDecimal) priceInfo.get("discountedPrice");
+        Discount discount = (Discount) priceInfo.get("discountApplied");
+        return new CatalogPriceDto(currency, original, discounted,
+                discounted != null ? discounted : original,
+                discount != null ? discount.getName() : null);
+    }
+
+    private ProductConfiguratorDto toConfigurator(ProductConfigurator config) {
+        ProductConfiguratorDto dto = new ProductConfiguratorDto();
+        dto.setMinLength(config.getMinLength());
+        dto.setMaxLength(config.getMaxLength());
+        dto.setStepLength(config.getStepLength());
+        dto.setDefaultLength(config.getDefaultLength());
+        dto.setMinWidth(config.getMinWidth());
+        dto.setMaxWidth(config.getMaxWidth());
+        dto.setStepWidth(config.getStepWidth());
+        dto.setDefaultWidth(config.getDefaultWidth());
+        dto.setMinHeight(config.getMinHeight());
+        dto.setMaxHeight(config.getMaxHeight());
+        dto.setStepHeight(config.getStepHeight());
+        dto.setDefaultHeight(config.getDefaultHeight());
+        return dto;
+    }
+
+    private CatalogOptionDto toOption(Long id, String name, String description, String imageUrl,
+                                      BigDecimal surchargeCZK, BigDecimal surchargeEUR) {
+        CatalogOptionDto dto = new CatalogOptionDto();
+        dto.setId(id);
+        dto.setName(name);
+        dto.setDescription(description);
+        dto.setImageUrl(imageUrl);
+        dto.setPriceSurchargeCZK(surchargeCZK);
+        dto.setPriceSurchargeEUR(surchargeEUR);
+        return dto;
+    }
+
+    private CatalogAddonDto toAddon(Addon addon) {
+        CatalogAddonDto dto = new CatalogAddonDto();
+        dto.setId(addon.getId());
+        dto.setName(addon.getName());
+        dto.setDescription(addon.getDescription());
+        dto.setCategory(addon.getCategory());
+        dto.setSku(addon.getSku());
+        dto.setPricingType(addon.getPricingType());
+        dto.setPriceCZK(addon.getPriceCZK());
+        dto.setPriceEUR(addon.getPriceEUR());
+        dto.setPricePerUnitCZK(addon.getPricePerUnitCZK());
+        dto.setPricePerUnitEUR(addon.getPricePerUnitEUR());
+        return dto;
+    }
+
+    private CatalogTaxRateDto toTaxRate(TaxRate taxRate) {
+        CatalogTaxRateDto dto = new CatalogTaxRateDto();
+        dto.setId(taxRate.getId());
+        dto.setName(taxRate.getName());
+        dto.setRate(taxRate.getRate());
+        dto.setReverseCharge(taxRate.isReverseCharge());
+        return dto;
+    }
+
+    private static <T> List<Long> ids(Collection<T> entities, Function<T, Long> idFn) {
+        if (entities == null || entities.isEmpty()) return List.of();
+        return entities.stream().map(idFn).filter(Objects::nonNull).sorted().collect(Collectors.toUnmodifiableList());
+    }
+}
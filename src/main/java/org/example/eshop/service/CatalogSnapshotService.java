@@ -0,0 +1,94 @@
+package org.example.eshop.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drží aktuální {@link CatalogSnapshot} a líně ho přestavuje po změně katalogu.
+ * <p>
+ * Každá {@link CatalogChangedEvent} (po commitu transakce) zvýší čítač generací; snapshot se starší
+ * generací se při příštím čtení přestaví. Přestavbu provádí vždy jen jedno vlákno - ostatní mezitím
+ * dostanou předchozí snapshot a nečekají. Blokuje se pouze úplně první sestavení po startu.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    @Autowired
+    private CatalogSnapshotBuilder catalogSnapshotBuilder;
+
+    private final AtomicLong generation = new AtomicLong(1);
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile CatalogSnapshot snapshot;
+
+    public CatalogSnapshot getSnapshot() {
+        CatalogSnapshot current = snapshot;
+        if (isFresh(current)) {
+            return current;
+        }
+        if (current == null) {
+            rebuildLock.lock(); // První sestavení - není co jiného vrátit, počkáme
+        } else if (!rebuildLock.tryLock()) {
+            return current; // Přestavbu už provádí jiné vlákno, zatím vrátíme předchozí stav
+        }
+        try {
+            current = snapshot;
+            if (isFresh(current)) {
+                return current;
+            }
+            if (current != null && current.getGeneration() == generation.get()) {
+                // Snapshot vypršel kvůli začátku/konci slevy - ceny se mění, proto i nová generace
+                invalidate();
+            }
+            long targetGeneration = generation.get();
+            current = catalogSnapshotBuilder.build(targetGeneration);
+            snapshot = current;
+            return current;
+        } catch (RuntimeException e) {
+            if (snapshot == null) {
+                throw e;
+            }
+            log.error("!!! Přestavba katalogového snapshotu selhala, vracím předchozí snapshot #{}: {} !!!",
+                    snapshot.getGeneration(), e.getMessage(), e);
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Aktuální generace katalogu. Mění se s každou potvrzenou změnou katalogových entit,
+     * lze ji proto použít jako klíč pro odvozené cache.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Vynutí přestavbu snapshotu při příštím čtení.
+     */
+    public void invalidate() {
+        long newGeneration = generation.incrementAndGet();
+        log.debug("Catalog snapshot invalidated, new generation: {}", newGeneration);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        log.debug("Received {}, invalidating catalog snapshot.", event);
+        invalidate();
+    }
+
+    private boolean isFresh(CatalogSnapshot candidate) {
+        return candidate != null
+                && candidate.getGeneration() == generation.get()
+                && !candidate.isExpired(LocalDateTime.now());
+    }
+}
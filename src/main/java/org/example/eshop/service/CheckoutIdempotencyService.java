@@ -0,0 +1,169 @@
+package org.example.eshop.service;
+
+import org.example.eshop.model.CartItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deduplikace odeslání pokladny ({@code POST /pokladna/odeslat}) - dvojklik nebo opakovaný požadavek z mobilu
+ * nesmí vytvořit druhou objednávku.
+ * <p>
+ * Klíčem pokusu je session + jednorázový token formuláře ({@code checkoutToken}, generuje se při zobrazení pokladny),
+ * ke každému pokusu se uloží otisk košíku (položky podle {@link CartItem#getCartItemId()}, množství, kupón, měna,
+ * platba a doprava). Duplicitou je požadavek se stejným klíčem a stejným otiskem, případně s prázdným košíkem - ten
+ * už vyprázdnil úspěšný první pokus. Souběžný duplikát počká na výsledek rozpracovaného pokusu, pozdější dostane
+ * uložený výsledek (přesměrování na poděkování) znovu po dobu {@code eshop.checkout.idempotency.window-seconds}.
+ * <p>
+ * Pokusy se drží v {@link ConcurrentHashMap} - {@code compute} zamyká jen přihrádku klíče, souběžná odeslání
+ * různých zákazníků na sebe nečekají. Stav je v paměti instance; session je také jen v paměti instance, takže
+ * všechny požadavky jedné session vidí stejnou mapu.
+ */
+@Service
+public class CheckoutIdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutIdempotencyService.class);
+    private static final int PURGE_EVERY_CLAIMS = 64;
+
+    /**
+     * Jeden pokus o odeslání. {@code result} nese výsledné přesměrování, {@code null} znamená neúspěch (duplikát pak
+     * požadavek zpracuje sám).
+     */
+    private static final class Attempt {
+        private final String fingerprint;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private volatile long expiresAtMillis = Long.MAX_VALUE; // Do dokončení nevyprší
+
+        private Attempt(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean isExpired(long now) {
+            return now > expiresAtMillis;
+        }
+    }
+
+    /**
+     * Výsledek {@link #claim}: buď vlastník pokusu (zpracuje objednávku a zavolá {@link #complete} nebo
+     * {@link #release}), nebo duplikát, který čeká přes {@link #awaitResult}.
+     */
+    public static final class Claim {
+        private final String key;
+        private final Attempt attempt;
+        private final boolean owner;
+
+        private Claim(String key, Attempt attempt, boolean owner) {
+            this.key = key;
+            this.attempt = attempt;
+            this.owner = owner;
+        }
+
+        public boolean isOwner() {
+            return owner;
+        }
+    }
+
+    @Value("${eshop.checkout.idempotency.enabled:true}")
+    private boolean enabled;
+    @Value("${eshop.checkout.idempotency.window-seconds:600}")
+    private long windowSeconds;
+    @Value("${eshop.checkout.idempotency.wait-seconds:30}")
+    private long waitSeconds;
+
+    private final Map<String, Attempt> attempts = new ConcurrentHashMap<>();
+    private final AtomicLong claimCounter = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Zaregistruje odeslání pokladny. Bez tokenu (stará stránka v cache prohlížeče) se klíčem stává otisk košíku.
+     *
+     * @param sessionId   ID session zákazníka
+     * @param token       {@code checkoutToken} z formuláře, může být prázdný
+     * @param fingerprint otisk z {@link #cartFingerprint}
+     * @param cartEmpty   košík je prázdný (první pokus už objednávku vytvořil a košík vyprázdnil)
+     */
+    public Claim claim(String sessionId, String token, String fingerprint, boolean cartEmpty) {
+        long now = System.currentTimeMillis();
+        if (claimCounter.incrementAndGet() % PURGE_EVERY_CLAIMS == 0) {
+            attempts.values().removeIf(a -> a.isExpired(now));
+        }
+        String key = sessionId + ":" + (StringUtils.hasText(token) ? token : "fp:" + fingerprint);
+        Attempt fresh = new Attempt(fingerprint);
+        Attempt current = attempts.compute(key, (k, existing) ->
+                existing != null && !existing.isExpired(now) && (cartEmpty || existing.fingerprint.equals(fingerprint))
+                        ? existing : fresh);
+        return new Claim(key, current, current == fresh);
+    }
+
+    /**
+     * Vlastník pokusu uloží výsledek (URL přesměrování) - duplikáty v okně ho dostanou místo nové objednávky.
+     */
+    public void complete(Claim claim, String redirectLocation) {
+        claim.attempt.expiresAtMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(windowSeconds);
+        claim.attempt.result.complete(redirectLocation);
+    }
+
+    /**
+     * Vlastník pokusu neuspěl (chyba validace, výjimka) - pokus se zahodí a čekající duplikát zpracuje požadavek sám.
+     */
+    public void release(Claim claim) {
+        attempts.remove(claim.key, claim.attempt);
+        claim.attempt.result.complete(null);
+    }
+
+    /**
+     * Počká na výsledek pokusu, na který narazil duplikát.
+     *
+     * @return uložené přesměrování; prázdné, pokud pokus neuspěl
+     * @throws TimeoutException pokus se nedokončil do {@code eshop.checkout.idempotency.wait-seconds}
+     */
+    public Optional<String> awaitResult(Claim claim) throws TimeoutException, InterruptedException {
+        try {
+            return Optional.ofNullable(claim.attempt.result.get(waitSeconds, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            return Optional.empty(); // Future se výjimkou nedokončuje, jen pro úplnost
+        }
+    }
+
+    /**
+     * Otisk košíku a parametrů objednávky. Položky se řadí podle {@code cartItemId}, který už zahrnuje produkt
+     * i celou konfiguraci ({@link CartItem#generateCartItemId}).
+     */
+    public String cartFingerprint(List<CartItem> items, String couponCode, String currency,
+                                  String paymentMethod, String shippingCostNoTax) {
+        StringBuilder sb = new StringBuilder();
+        items.stream()
+                .sorted(Comparator.comparing(CartItem::getCartItemId))
+                .forEach(item -> sb.append(item.getCartItemId()).append('x').append(item.getQuantity()).append(';'));
+        sb.append('|').append(couponCode)
+                .append('|').append(currency)
+                .append('|').append(paymentMethod)
+                .append('|').append(shippingCostNoTax);
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 není k dispozici", e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.eshop.service;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.example.eshop.dto.OrderMessageDto;
 import org.example.eshop.model.*;
 import org.example.eshop.repository.ConversationRepository;
 import org.example.eshop.repository.MessageRepository;
@@ -9,7 +10,9 @@ import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -34,6 +37,8 @@ public class ConversationService {
     private OrderRepository orderRepository;
     @Autowired
     private CustomerService customerService; // Pro získání jména zákazníka
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // Nové zprávy a čítače pro SSE (OrderMessageStreamService)
     // @Autowired private AdminUserService adminUserService; // Pokud máš service pro admin uživatele
 
     // Lazy inject EmailService to avoid potential circular dependencies
@@ -104,6 +109,18 @@ public class ConversationService {
         Message savedMessage = messageRepository.save(message);
         log.info("Message (ID: {}) added successfully to conversation ID {}.", savedMessage.getId(), conversationId);
 
+        // Čítač nepřečtených zpráv druhé strany - atomicky v DB, souběžné zprávy se nepřepíší
+        LocalDateTime now = LocalDateTime.now();
+        if (senderType == Message.SenderType.CUSTOMER) {
+            conversationRepository.incrementUnreadByAdmin(conversationId, now);
+        } else if (conversation.getType() == Conversation.ConversationType.EXTERNAL) {
+            conversationRepository.incrementUnreadByCustomer(conversationId, now);
+        }
+        Long orderId = conversation.getOrder().getId(); // Jen FK, proxy objednávky se nenačítá
+        eventPublisher.publishEvent(new OrderMessageEvent(orderId,
+                new OrderMessageDto(savedMessage, orderId, conversation.getType()),
+                conversationRepository.findUnreadCountersById(conversationId).orElse(null)));
+
         // Odeslání notifikace pro externí zprávy
         if (conversation.getType() == Conversation.ConversationType.EXTERNAL) {
             sendNotificationEmail(savedMessage);
@@ -187,47 +204,52 @@ public class ConversationService {
 
     /**
      * Označí zprávy v externí konverzaci jako přečtené daným typem uživatele.
+     * Zprávy se aktualizují jedním hromadným UPDATE a čítač nepřečtených zpráv konverzace se přepočte z tabulky zpráv.
      * @param orderId ID objednávky.
      * @param readerType Kdo čte (ADMIN nebo CUSTOMER).
+     * @return Počet zpráv označených jako přečtené.
      */
     @Transactional
-    public void markExternalMessagesAsRead(Long orderId, Message.SenderType readerType) {
-        log.info("Marking EXTERNAL messages as read for order ID {} by {}", orderId, readerType);
+    public int markExternalMessagesAsRead(Long orderId, Message.SenderType readerType) {
+        log.debug("Marking EXTERNAL messages as read for order ID {} by {}", orderId, readerType);
         Optional<Conversation> externalConvOpt = conversationRepository.findByOrderIdAndType(orderId, Conversation.ConversationType.EXTERNAL);
-
-        if (externalConvOpt.isPresent()) {
-            Conversation conversation = externalConvOpt.get();
-            List<Message> messagesToUpdate = conversation.getMessages().stream()
-                    .filter(msg -> {
-                        // Označujeme jako přečtené adminem zprávy od zákazníka, které admin ještě nečetl
-                        if (readerType == Message.SenderType.ADMIN && msg.getSenderType() == Message.SenderType.CUSTOMER && !msg.isReadByAdmin()) {
-                            return true;
-                        }
-                        // Označujeme jako přečtené zákazníkem zprávy od admina, které zákazník ještě nečetl
-                        if (readerType == Message.SenderType.CUSTOMER && msg.getSenderType() == Message.SenderType.ADMIN && !msg.isReadByCustomer()) {
-                            return true;
-                        }
-                        return false;
-                    })
-                    .toList(); // Collect to list first
-
-            if (!messagesToUpdate.isEmpty()) {
-                log.debug("Found {} messages to mark as read by {} for order ID {}", messagesToUpdate.size(), readerType, orderId);
-                for (Message msg : messagesToUpdate) {
-                    if (readerType == Message.SenderType.ADMIN) {
-                        msg.setReadByAdmin(true);
-                    } else {
-                        msg.setReadByCustomer(true);
-                    }
-                    messageRepository.save(msg); // Uložíme změnu pro každou zprávu
-                }
-                log.info("Successfully marked {} messages as read by {} for order ID {}", messagesToUpdate.size(), readerType, orderId);
-            } else {
-                log.debug("No new messages to mark as read by {} for order ID {}", readerType, orderId);
-            }
-        } else {
+        if (externalConvOpt.isEmpty()) {
             log.debug("No external conversation found for order ID {} to mark messages as read.", orderId);
+            return 0;
         }
+        Long conversationId = externalConvOpt.get().getId();
+        int updated;
+        if (readerType == Message.SenderType.ADMIN) {
+            updated = messageRepository.markReadByAdmin(conversationId);
+            conversationRepository.recalculateUnreadByAdmin(conversationId);
+        } else {
+            updated = messageRepository.markReadByCustomer(conversationId);
+            conversationRepository.recalculateUnreadByCustomer(conversationId);
+        }
+        if (updated > 0) {
+            log.info("Marked {} messages as read by {} for order ID {}", updated, readerType, orderId);
+            // Ostatní otevřená okna (např. další admin) si aktualizují čítače
+            eventPublisher.publishEvent(new OrderMessageEvent(orderId, null,
+                    conversationRepository.findUnreadCountersById(conversationId).orElse(null)));
+        } else {
+            log.debug("No new messages to mark as read by {} for order ID {}", readerType, orderId);
+        }
+        return updated;
+    }
+
+    /**
+     * Změna konverzace z jiné instance - SSE odběratelé této instance dostanou zprávu i čítače jako u lokální změny.
+     * Čte se v zapisující transakci (primary), replika by novou zprávu ještě nemusela mít.
+     */
+    @EventListener
+    @Transactional
+    public void onRemoteConversationChanged(RemoteConversationChangedEvent event) {
+        conversationRepository.findUnreadCountersById(event.getConversationId()).ifPresent(counters -> {
+            OrderMessageDto message = event.getMessageId() == null ? null : messageRepository.findById(event.getMessageId())
+                    .map(m -> new OrderMessageDto(m, counters.getOrderId(), counters.getType()))
+                    .orElse(null);
+            eventPublisher.publishEvent(new OrderMessageEvent(counters.getOrderId(), message, counters));
+        });
     }
 
 
@@ -0,0 +1,301 @@
+package org.example.eshop.service;
+
+import org.example.eshop.dto.CouponCampaignSummaryDto;
+import org.example.eshop.model.Coupon;
+import org.example.eshop.repository.CouponRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Hromadné kampaně jednorázových kupónů (desetitisíce kódů najednou).
+ * <p>
+ * Kódy jsou náhodné ({@link SecureRandom}, abeceda bez zaměnitelných 0/O/1/I) s volitelným prefixem. Kolize se
+ * vylučují bez dotazu na každý kód: existující kódy se stejným prefixem se jedním průchodem kurzoru načtou do
+ * Bloomova filtru, nové kódy se hlídají množinou. Kandidát, kterého filtr "možná zná", se zahodí a vygeneruje znovu -
+ * falešná shoda tak stojí jen další náhodný kód. Souběžně vložený stejný kód by zastavil unikátní index
+ * {@code idx_coupon_code_normalized} (celá kampaň se pak vrátí).
+ * <p>
+ * Zápis jde přes JDBC dávky po {@code eshop.coupon.campaign.batch-size} řádcích (na MySQL díky
+ * {@code rewriteBatchedStatements=true} jako víceřádkový INSERT), export kódů čte serverovým kurzorem.
+ */
+@Service
+public class CouponCampaignService {
+
+    private static final Logger log = LoggerFactory.getLogger(CouponCampaignService.class);
+    private static final char[] CODE_ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789".toCharArray();
+    private static final Pattern CAMPAIGN_PATTERN = Pattern.compile("[A-Z0-9_-]{1,50}");
+    private static final Pattern PREFIX_PATTERN = Pattern.compile("[A-Z0-9]{0,20}");
+    private static final int MIN_RANDOM_LENGTH = 8;
+    private static final int MAX_CODE_LENGTH = 50;
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final String INSERT_SQL = "INSERT INTO coupon (code, code_normalized, campaign, name, description, " +
+            "is_percentage, value, value_czk, value_eur, free_shipping, start_date, expiration_date, usage_limit, " +
+            "usage_limit_per_customer, used_times, minimum_order_value_czk, minimum_order_value_eur, active) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?)";
+
+    public record CampaignResult(String campaign, int generated, long millis) {
+    }
+
+    @Autowired
+    private CouponRepository couponRepository;
+    @Autowired
+    private CouponService couponService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${eshop.coupon.campaign.max-count:100000}")
+    private int maxCount;
+    @Value("${eshop.coupon.campaign.batch-size:1000}")
+    private int batchSize;
+    @Value("${eshop.coupon.campaign.fetch-size:1000}")
+    private int fetchSize;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Vygeneruje a uloží {@code count} jednorázových kupónů kampaně. Sleva, podmínky a platnost se berou ze šablony
+     * (validuje se stejně jako kupón z CMS), každý kód má celkový limit použití 1.
+     *
+     * @throws IllegalArgumentException neplatná šablona, název kampaně, prefix nebo počet; kampaň už existuje
+     */
+    @Transactional
+    public CampaignResult generateCampaign(Coupon template, String campaign, String prefix, int count, int randomLength) {
+        long start = System.currentTimeMillis();
+        String campaignId = normalize(campaign);
+        String codePrefix = normalize(prefix);
+        if (!CAMPAIGN_PATTERN.matcher(campaignId).matches()) {
+            throw new IllegalArgumentException("Kampaň musí mít 1-50 znaků A-Z, 0-9, '-' nebo '_'.");
+        }
+        if (!PREFIX_PATTERN.matcher(codePrefix).matches()) {
+            throw new IllegalArgumentException("Prefix kódu smí obsahovat jen A-Z a 0-9 (max. 20 znaků).");
+        }
+        if (count < 1 || count > maxCount) {
+            throw new IllegalArgumentException("Počet kódů musí být mezi 1 a " + maxCount + ".");
+        }
+        if (randomLength < MIN_RANDOM_LENGTH || codePrefix.length() + randomLength > MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Náhodná část kódu musí mít alespoň " + MIN_RANDOM_LENGTH
+                    + " znaků a celý kód nejvýš " + MAX_CODE_LENGTH + ".");
+        }
+        if (!StringUtils.hasText(template.getName())) {
+            throw new IllegalArgumentException("Název kupónu nesmí být prázdný.");
+        }
+        if (couponRepository.existsByCampaign(campaignId)) {
+            throw new IllegalArgumentException("Kampaň '" + campaignId + "' již existuje.");
+        }
+        template.setUsageLimit(1);
+        couponService.validateCouponValues(template, null);
+
+        List<String> codes = generateCodes(codePrefix, count, randomLength);
+        for (int from = 0; from < codes.size(); from += batchSize) {
+            List<String> batch = codes.subList(from, Math.min(from + batchSize, codes.size()));
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, code) -> bindCoupon(ps, code, campaignId, template));
+        }
+        long millis = System.currentTimeMillis() - start;
+        log.info("Coupon campaign '{}' generated: {} codes (prefix '{}') in {} ms.", campaignId, codes.size(), codePrefix, millis);
+        return new CampaignResult(campaignId, codes.size(), millis);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean campaignExists(String campaign) {
+        return couponRepository.existsByCampaign(normalize(campaign));
+    }
+
+    @Transactional(readOnly = true)
+    public List<CouponCampaignSummaryDto> getCampaignSummaries() {
+        return couponRepository.findCampaignSummaries();
+    }
+
+    /**
+     * Zapíše kódy kampaně jako CSV (kód; použito) přímo do {@code out}, bez načtení celé kampaně do paměti.
+     *
+     * @return počet exportovaných kódů
+     */
+    @Transactional(readOnly = true)
+    public long exportCampaign(String campaign, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("Kód;Použito\r\n");
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "SELECT code, used_times FROM coupon WHERE campaign = ? ORDER BY id");
+                ps.setFetchSize(fetchSize);
+                ps.setString(1, normalize(campaign));
+                return ps;
+            }, rs -> {
+                try {
+                    writer.write(rs.getString(1));
+                    writer.write(';');
+                    writer.write(Integer.toString(rs.getInt(2)));
+                    writer.write("\r\n");
+                    if (++rows[0] % fetchSize == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Coupon campaign '{}' exported: {} codes.", campaign, rows[0]);
+        return rows[0];
+    }
+
+    private List<String> generateCodes(String prefix, int count, int randomLength) {
+        BloomFilter existing = loadExistingCodes(prefix);
+        Set<String> generated = new HashSet<>(count * 2);
+        List<String> codes = new ArrayList<>(count);
+        int rejected = 0;
+        char[] buffer = new char[prefix.length() + randomLength];
+        prefix.getChars(0, prefix.length(), buffer, 0);
+        while (codes.size() < count) {
+            for (int i = prefix.length(); i < buffer.length; i++) {
+                buffer[i] = CODE_ALPHABET[random.nextInt(CODE_ALPHABET.length)];
+            }
+            String code = new String(buffer);
+            if (existing.mightContain(code) || !generated.add(code)) {
+                rejected++;
+                continue;
+            }
+            codes.add(code);
+        }
+        log.debug("Generated {} coupon codes, {} candidates rejected by pre-check.", count, rejected);
+        return codes;
+    }
+
+    // Jen kódy se stejným prefixem - jiné s novými kolidovat nemůžou (LIKE 'PREFIX%' jde po indexu)
+    private BloomFilter loadExistingCodes(String prefix) {
+        Long existingCount = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM coupon WHERE code_normalized LIKE ?", Long.class, prefix + "%");
+        BloomFilter filter = new BloomFilter(existingCount != null ? existingCount : 0, BLOOM_FALSE_POSITIVE_RATE);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT code_normalized FROM coupon WHERE code_normalized LIKE ?");
+            ps.setFetchSize(fetchSize);
+            ps.setString(1, prefix + "%");
+            return ps;
+        }, rs -> {
+            filter.add(rs.getString(1));
+        });
+        log.debug("Coupon code pre-check: {} existing codes with prefix '{}'.", existingCount, prefix);
+        return filter;
+    }
+
+    private static void bindCoupon(PreparedStatement ps, String code, String campaign, Coupon t) throws SQLException {
+        ps.setString(1, code);
+        ps.setString(2, code); // Generovaný kód už je normalizovaný
+        ps.setString(3, campaign);
+        ps.setString(4, t.getName());
+        ps.setString(5, t.getDescription());
+        ps.setBoolean(6, t.isPercentage());
+        setDecimal(ps, 7, t.getValue());
+        setDecimal(ps, 8, t.getValueCZK());
+        setDecimal(ps, 9, t.getValueEUR());
+        ps.setBoolean(10, t.isFreeShipping());
+        ps.setTimestamp(11, t.getStartDate() != null ? Timestamp.valueOf(t.getStartDate()) : null);
+        ps.setTimestamp(12, t.getExpirationDate() != null ? Timestamp.valueOf(t.getExpirationDate()) : null);
+        ps.setInt(13, 1);
+        if (t.getUsageLimitPerCustomer() != null) {
+            ps.setInt(14, t.getUsageLimitPerCustomer());
+        } else {
+            ps.setNull(14, Types.INTEGER);
+        }
+        setDecimal(ps, 15, t.getMinimumOrderValueCZK());
+        setDecimal(ps, 16, t.getMinimumOrderValueEUR());
+        ps.setBoolean(17, t.isActive());
+    }
+
+    private static void setDecimal(PreparedStatement ps, int index, BigDecimal value) throws SQLException {
+        if (value != null) {
+            ps.setBigDecimal(index, value);
+        } else {
+            ps.setNull(index, Types.DECIMAL);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value != null ? value.trim().toUpperCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Bloomův filtr nad řetězci: bez falešně negativních odpovědí, falešně pozitivní s pravděpodobností
+     * zhruba {@code falsePositiveRate}. Indexy bitů dvojitým hashováním ze dvou 64bitových otisků.
+     */
+    private static final class BloomFilter {
+        private final long[] bits;
+        private final int bitCount;
+        private final int hashCount;
+
+        private BloomFilter(long expectedItems, double falsePositiveRate) {
+            long n = Math.max(expectedItems, 1024);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bitCount = (int) Math.min(m, Integer.MAX_VALUE - 63);
+            this.bits = new long[(bitCount + 63) / 64];
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        }
+
+        private void add(String value) {
+            long h1 = hash(value, 0x9E3779B97F4A7C15L);
+            long h2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = (int) Long.remainderUnsigned(h1 + i * h2, bitCount);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        private boolean mightContain(String value) {
+            long h1 = hash(value, 0x9E3779B97F4A7C15L);
+            long h2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = (int) Long.remainderUnsigned(h1 + i * h2, bitCount);
+                if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a se semínkem a závěrečným promícháním (splitmix64)
+        private static long hash(String value, long seed) {
+            long h = seed ^ 0xCBF29CE484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x100000001B3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.example.eshop.repository.OrderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -15,6 +17,8 @@ import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
@@ -38,6 +42,10 @@ public class CouponService {
     private CouponRepository couponRepository;
     @Autowired
     private OrderRepository orderRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
 
     // --- Metody pro čtení ---
     @Transactional(readOnly = true)
@@ -52,9 +60,9 @@ public class CouponService {
         if (!StringUtils.hasText(code)) {
             return Optional.empty();
         }
-        String trimmedCode = code.trim().toUpperCase();
-        log.debug("Finding coupon by code (case-insensitive): '{}'", trimmedCode);
-        return couponRepository.findByCodeIgnoreCase(trimmedCode);
+        String normalizedCode = Coupon.normalizeCode(code);
+        log.debug("Finding coupon by normalized code: '{}'", normalizedCode);
+        return couponRepository.findByNormalizedCode(normalizedCode);
     }
 
     // --- Metody pro validaci a aplikaci ---
@@ -183,18 +191,47 @@ public class CouponService {
         return allowed;
     }
 
+    /**
+     * Započte použití kupónu v transakci objednávky jedním podmíněným UPDATE - souběžné objednávky nepřekročí
+     * celkový limit. Cache kupónů (couponByCode, L2 region na všech instancích) se vyprázdní po commitu.
+     *
+     * @throws IllegalStateException kupón mezitím vyčerpal limit použití (objednávka se nesmí vytvořit)
+     */
     @Transactional
     public void markCouponAsUsed(Coupon coupon) {
         if (coupon == null || coupon.getId() == null) {
             log.warn("Attempted to mark a null or transient coupon as used.");
             return;
         }
-        couponRepository.findById(coupon.getId()).ifPresentOrElse(couponToUpdate -> {
-            couponToUpdate.setUsedTimes(couponToUpdate.getUsedTimes() + 1);
-            couponRepository.save(couponToUpdate);
-            log.info("Incremented usage count for coupon '{}' (ID: {}). New count: {}",
-                    couponToUpdate.getCode(), couponToUpdate.getId(), couponToUpdate.getUsedTimes());
-        }, () -> log.error("Could not mark coupon as used, not found with ID: {}", coupon.getId()));
+        if (couponRepository.incrementUsedTimesWithinLimit(coupon.getId()) == 0) {
+            log.warn("Coupon '{}' (ID: {}) rejected at redemption: usage limit reached or coupon missing.",
+                    coupon.getCode(), coupon.getId());
+            throw new IllegalStateException("Kupón '" + coupon.getCode() + "' již byl vyčerpán. Odeberte jej prosím z košíku.");
+        }
+        log.info("Incremented usage count for coupon '{}' (ID: {}).", coupon.getCode(), coupon.getId());
+        evictCouponCachesAfterCommit();
+    }
+
+    private void evictCouponCachesAfterCommit() {
+        Runnable evict = () -> {
+            // Klíčem je kód tak, jak ho zadal zákazník - jednotlivé varianty neznáme, cache je malá
+            Cache cache = cacheManager.getCache("couponByCode");
+            if (cache != null) {
+                cache.clear();
+            }
+            // Hromadný UPDATE nevyvolá post-commit listener sběrnice, ostatní instance je třeba upozornit zvlášť
+            cacheInvalidationBus.evictRegionEverywhere(Coupon.class.getName());
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
     }
 
 
@@ -202,7 +239,7 @@ public class CouponService {
     @Transactional(readOnly = true)
     public List<Coupon> getAllCoupons() {
         log.debug("Fetching all coupons for CMS");
-        return couponRepository.findAll(Sort.by("code"));
+        return couponRepository.findByCampaignIsNull(Sort.by("code")); // Kódy kampaní viz CouponCampaignService
     }
 
     @Transactional
@@ -212,9 +249,9 @@ public class CouponService {
         coupon.setCode(coupon.getCode() != null ? coupon.getCode().trim().toUpperCase() : null);
         validateCouponData(coupon, null); // Validace
 
-        couponRepository.findByCodeIgnoreCase(coupon.getCode()).ifPresent(c -> {
+        if (couponRepository.existsByNormalizedCode(Coupon.normalizeCode(coupon.getCode()))) {
             throw new IllegalArgumentException("Kupón s kódem '" + coupon.getCode() + "' již existuje.");
-        });
+        }
 
         coupon.setUsedTimes(0);
         // Model má defaultně active=true, zde není třeba nastavovat
@@ -243,7 +280,7 @@ public class CouponService {
 
         // OPRAVA: Ověření unikátnosti kódu, pokud se mění
         if (newCode != null && !existingCoupon.getCode().equalsIgnoreCase(newCode)) {
-            couponRepository.findByCodeIgnoreCase(newCode)
+            couponRepository.findByNormalizedCode(newCode)
                     .filter(found -> !found.getId().equals(id)) // Zajistí, že nenajdeme sami sebe
                     .ifPresent(found -> {
                         throw new IllegalArgumentException("Kupón s kódem '" + newCode + "' již existuje.");
@@ -302,7 +339,13 @@ public class CouponService {
             throw new IllegalArgumentException("Název kupónu nesmí být prázdný.");
 
         coupon.setCode(coupon.getCode().trim().toUpperCase());
+        validateCouponValues(coupon, idBeingUpdated);
+    }
 
+    /**
+     * Validace a normalizace slevy, podmínek a limitů bez kódu - sdílí ji i šablona hromadné kampaně.
+     */
+    void validateCouponValues(Coupon coupon, Long idBeingUpdated) {
         boolean hasValueDiscount = false;
 
         // 1. Validace procentuální slevy
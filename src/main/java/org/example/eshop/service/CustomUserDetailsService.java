@@ -7,7 +7,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -50,13 +49,11 @@ public class CustomUserDetailsService implements UserDetailsService {
         Collection<? extends GrantedAuthority> authorities = mapRolesToAuthorities(customer.getRoles());
 
         // Vrátíme objekt UserDetails, který Spring Security používá pro autentizaci
-        // Použijeme vestavěnou implementaci org.springframework.security.core.userdetails.User
-        return new User(customer.getEmail(), // username
+        // CustomerUserDetails nese i ID zákazníka pro CustomerContextService (bez dalšího hledání podle emailu)
+        return new CustomerUserDetails(customer.getId(),
+                customer.getEmail(), // username
                 customer.getPassword(), // heslo (již hashované v DB)
                 customer.isEnabled(), // enabled
-                true, // accountNonExpired
-                true, // credentialsNonExpired
-                true, // accountNonLocked
                 authorities); // role/oprávnění
     }
 
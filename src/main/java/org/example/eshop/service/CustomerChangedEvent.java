@@ -0,0 +1,22 @@
+package org.example.eshop.service;
+
+import lombok.Getter;
+
+/**
+ * Událost signalizující změnu údajů zákazníka (profil, adresy, heslo, použití kupónu).
+ * Posluchač {@link CustomerContextService} podle ní zneplatní kontexty zákazníka uložené v session.
+ */
+@Getter
+public class CustomerChangedEvent {
+
+    private final Long customerId; // null = všichni zákazníci
+
+    public CustomerChangedEvent(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerChangedEvent{customerId=" + customerId + "}";
+    }
+}
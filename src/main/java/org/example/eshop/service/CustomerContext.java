@@ -0,0 +1,40 @@
+package org.example.eshop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.example.eshop.model.Customer;
+import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.SessionScope;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kontext přihlášeného zákazníka uložený v session - viz {@link CustomerContextService}.
+ * <p>
+ * Načtený zákazník a počty použití kupónů jsou transient: po obnovení session z disku se jen znovu načtou podle ID.
+ */
+@Getter
+@Setter
+@Component
+@SessionScope(proxyMode = ScopedProxyMode.TARGET_CLASS)
+public class CustomerContext implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String email;      // Principal, pro kterého kontext platí
+    private Long customerId;
+    private long version;      // Verze zákazníka v CustomerContextService v době načtení
+    private transient Customer customer;
+    private transient Map<Long, Long> couponUsageCounts; // ID kupónu -> počet objednávek zákazníka s kupónem
+
+    void reset(String email, Long customerId, long version, Customer customer) {
+        this.email = email;
+        this.customerId = customerId;
+        this.version = version;
+        this.customer = customer;
+        this.couponUsageCounts = new ConcurrentHashMap<>();
+    }
+}
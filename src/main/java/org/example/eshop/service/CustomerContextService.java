@@ -0,0 +1,142 @@
+package org.example.eshop.service;
+
+import org.example.eshop.model.Coupon;
+import org.example.eshop.model.Customer;
+import org.example.eshop.repository.CustomerRepository;
+import org.example.eshop.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Přihlášený zákazník pro controllery bez opakovaného hledání podle e-mailu.
+ * <p>
+ * Zákazník se načte jednou za session (podle ID z {@link CustomerUserDetails}, jinak podle e-mailu) a drží se
+ * v {@link CustomerContext}. Každá změna zákazníka ({@link CustomerChangedEvent} po commitu) zvýší jeho verzi;
+ * kontext se starší verzí se při příštím přístupu načte znovu - platí to i pro změny provedené administrátorem
+ * v jiné session. Spolu se zákazníkem se cachují počty použití kupónů, aby košík a pokladna nepočítaly
+ * objednávky při každém zobrazení (závazná kontrola při vytvoření objednávky v {@link OrderService} zůstává).
+ * <p>
+ * Vrácený zákazník je sdílený napříč požadavky session a slouží jen ke čtení. Pro změny (odeslání objednávky)
+ * slouží {@link #loadCurrentCustomerForUpdate(Principal)}.
+ */
+@Service
+public class CustomerContextService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerContextService.class);
+
+    @Autowired
+    private CustomerContext customerContext;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final Map<Long, Long> customerVersions = new ConcurrentHashMap<>();
+    private final AtomicLong globalVersion = new AtomicLong(); // Změna "všech zákazníků" (resynchronizace cache)
+
+    public Optional<Customer> getCurrentCustomer(Principal principal) {
+        if (principal == null) {
+            return Optional.empty();
+        }
+        String email = principal.getName();
+        Long knownId = customerContext.getCustomerId();
+        if (customerContext.getCustomer() != null && email.equalsIgnoreCase(customerContext.getEmail())
+                && customerContext.getVersion() == versionOf(knownId)) {
+            return Optional.of(customerContext.getCustomer());
+        }
+
+        Long customerId = resolveCustomerId(principal);
+        // Verzi čteme před načtením - změna během načítání tak vynutí další načtení
+        long version = customerId != null ? versionOf(customerId) : 0;
+        Optional<Customer> loaded = customerId != null
+                ? customerRepository.findById(customerId)
+                : customerRepository.findByEmailIgnoreCase(email.trim());
+        if (loaded.isEmpty()) {
+            log.warn("Authenticated user {} not found in customer database.", email);
+            customerContext.reset(null, null, 0, null);
+            return Optional.empty();
+        }
+        Customer customer = loaded.get();
+        if (customerId == null) {
+            version = versionOf(customer.getId());
+        }
+        customerContext.reset(email, customer.getId(), version, customer);
+        log.debug("Customer context loaded for {} (ID {}, version {}).", email, customer.getId(), version);
+        return loaded;
+    }
+
+    public Optional<Long> getCurrentCustomerId(Principal principal) {
+        Long customerId = resolveCustomerId(principal);
+        return customerId != null ? Optional.of(customerId) : getCurrentCustomer(principal).map(Customer::getId);
+    }
+
+    /**
+     * Spravovaná entita přihlášeného zákazníka (načtení podle primárního klíče) pro operace, které ji mění.
+     */
+    public Optional<Customer> loadCurrentCustomerForUpdate(Principal principal) {
+        Optional<Long> customerId = getCurrentCustomerId(principal);
+        // V rámci jednoho požadavku může jít o stejnou instanci jako v kontextu - případnou neuloženou změnu nechceme držet
+        customerContext.setCustomer(null);
+        return customerId.flatMap(customerRepository::findById);
+    }
+
+    /**
+     * Kontrola limitu použití kupónu na zákazníka s počtem objednávek cachovaným v kontextu.
+     * Chová se stejně jako {@link CouponService#checkCustomerUsageLimit}.
+     */
+    public boolean checkCouponUsageLimit(Customer customer, Coupon coupon) {
+        if (coupon == null || coupon.getUsageLimitPerCustomer() == null || coupon.getUsageLimitPerCustomer() <= 0) {
+            return true;
+        }
+        if (customer == null || customer.getId() == null || customer.isGuest()) {
+            return true;
+        }
+        Map<Long, Long> usageCounts = customer.getId().equals(customerContext.getCustomerId())
+                ? customerContext.getCouponUsageCounts() : null;
+        long usageCount = usageCounts != null
+                ? usageCounts.computeIfAbsent(coupon.getId(), id -> orderRepository.countByCustomerIdAndAppliedCouponId(customer.getId(), id))
+                : orderRepository.countByCustomerIdAndAppliedCouponId(customer.getId(), coupon.getId());
+        return usageCount < coupon.getUsageLimitPerCustomer();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (event.getCustomerId() != null) {
+            customerVersions.merge(event.getCustomerId(), 1L, Long::sum);
+        } else {
+            globalVersion.incrementAndGet();
+        }
+        log.debug("Received {}, customer contexts invalidated.", event);
+    }
+
+    private Long resolveCustomerId(Principal principal) {
+        if (principal == null) {
+            return null;
+        }
+        Authentication authentication = principal instanceof Authentication a ? a
+                : SecurityContextHolder.getContext().getAuthentication(); // Controllery předávají i Principal z UserDetails
+        if (authentication != null && authentication.getPrincipal() instanceof CustomerUserDetails details
+                && details.getUsername().equalsIgnoreCase(principal.getName())) {
+            return details.getCustomerId();
+        }
+        if (customerContext.getCustomerId() != null && principal.getName().equalsIgnoreCase(customerContext.getEmail())) {
+            return customerContext.getCustomerId();
+        }
+        return null;
+    }
+
+    private long versionOf(Long customerId) {
+        return globalVersion.get() + (customerId != null ? customerVersions.getOrDefault(customerId, 0L) : 0);
+    }
+}
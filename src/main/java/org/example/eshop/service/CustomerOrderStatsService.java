@@ -0,0 +1,289 @@
+package org.example.eshop.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.eshop.model.CustomerOrderStats;
+import org.example.eshop.model.Order;
+import org.example.eshop.repository.CustomerOrderStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Souhrny objednávek zákazníků pro CMS ({@link CustomerOrderStats}).
+ * <p>
+ * Vytvoření objednávky, platba a zrušení posunou řádek zákazníka jedním UPDATE v transakci volajícího, takže seznam
+ * zákazníků řazený podle útraty nebo poslední objednávky čte jen stránku z indexu tabulky souhrnů a nic nesčítá.
+ * Když řádek ještě neexistuje (první objednávka), přepočítá se zákazník z {@code customer_orders}.
+ * <p>
+ * Rekonciliace běží na pozadí (virtuální vlákno) po rozsazích ID zákazníků a srovná souhrny se skutečnými
+ * objednávkami - zachytí hromadné úpravy mimo aplikaci i případný rozjezd. Běží na každé instanci, ale jen s MySQL
+ * zámkem {@code GET_LOCK} (drží ho spojení po dobu běhu): souběžně rekoncilovat nemohou ani instance jedné revize
+ * Cloud Run, které mají stejné proměnné prostředí. První běh krátce po startu naplní i nově založenou tabulku.
+ */
+@Service
+@Lazy(false) // Rekonciliaci plánuje konstruktor - musí vzniknout i v profilu lazy-init
+public class CustomerOrderStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerOrderStatsService.class);
+    private static final String CURRENCY_EUR = "EUR";
+    // Přepočet uvnitř transakce, která drží zámek řádku - přepíše i čerstvě změněné řádky
+    private static final LocalDateTime OVERWRITE_ALWAYS = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final Set<String> STATS_SORT_PROPERTIES = Set.of("lifetimeValueCzk", "lifetimeValueEur", "lastOrderDate");
+    private static final String RECONCILE_LOCK = "eshop.customer_order_stats.reconcile";
+
+    @Autowired
+    private CustomerOrderStatsRepository customerOrderStatsRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${eshop.customer-stats.reconcile.batch-size:1000}")
+    private int reconcileBatchSize;
+
+    private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("customer-stats-reconciler").factory());
+
+    public CustomerOrderStatsService(@Value("${eshop.customer-stats.reconcile.enabled:true}") boolean reconcileEnabled,
+                                     @Value("${eshop.customer-stats.reconcile.interval-minutes:360}") long intervalMinutes) {
+        if (reconcileEnabled && intervalMinutes > 0) {
+            // První běh krátce po startu - naplní i nově založenou tabulku
+            reconciler.scheduleWithFixedDelay(this::runReconciliation, 1, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    // --- Přírůstkové změny ---
+
+    /**
+     * Započte novou objednávku (počet, datum poslední objednávky, požadovaná záloha). Volá se po uložení objednávky.
+     */
+    @Transactional
+    public void recordOrderCreated(Order order) {
+        Long customerId = customerIdOf(order);
+        if (customerId == null) return;
+        BigDecimal deposit = outstandingDeposit(order);
+        int updated = customerOrderStatsRepository.applyOrderCreated(customerId, order.getOrderDate(),
+                isEur(order) ? BigDecimal.ZERO : deposit, isEur(order) ? deposit : BigDecimal.ZERO, LocalDateTime.now());
+        if (updated == 0) {
+            recalculateCustomer(customerId);
+        }
+    }
+
+    /**
+     * Započte platbu objednávky. Volá se po změně stavu platby s příznaky, co platba nově vyrovnala
+     * (stav objednávky před platbou zná jen volající).
+     *
+     * @param depositSettled záloha objednávky byla do teď nezaplacená a touto platbou je uhrazena
+     * @param fullyPaid      objednávka je touto platbou plně zaplacena
+     */
+    @Transactional
+    public void recordPayment(Order order, boolean depositSettled, boolean fullyPaid) {
+        Long customerId = customerIdOf(order);
+        if (customerId == null) return;
+        BigDecimal value = fullyPaid ? Optional.ofNullable(order.getTotalPrice()).orElse(BigDecimal.ZERO) : BigDecimal.ZERO;
+        // Záloha zrušené objednávky se mezi nezaplacené nepočítá, není co odečíst
+        BigDecimal deposit = depositSettled && order.getCancelledDate() == null && hasDeposit(order)
+                ? order.getDepositAmount() : BigDecimal.ZERO;
+        if (value.signum() == 0 && deposit.signum() == 0) return;
+        applyAmounts(customerId, order, value, deposit.negate());
+    }
+
+    /**
+     * Odečte nezaplacenou zálohu právě zrušené objednávky. Volá se jen při prvním přechodu do stavu CANCELLED.
+     */
+    @Transactional
+    public void recordOrderCancelled(Order order) {
+        Long customerId = customerIdOf(order);
+        if (customerId == null || !hasDeposit(order) || order.getDepositPaidDate() != null) return;
+        applyAmounts(customerId, order, BigDecimal.ZERO, order.getDepositAmount().negate());
+    }
+
+    /**
+     * Přepočte souhrny zákazníků daných objednávek z {@code customer_orders} - pro hromadné změny, kde se
+     * jednotlivé rozdíly nepočítají.
+     */
+    @Transactional
+    public void recalculateCustomersOfOrders(Collection<Long> orderIds) {
+        if (CollectionUtils.isEmpty(orderIds)) return;
+        customerOrderStatsRepository.recalculateCustomersOfOrders(orderIds, LocalDateTime.now(), OVERWRITE_ALWAYS);
+    }
+
+    private void applyAmounts(Long customerId, Order order, BigDecimal value, BigDecimal deposit) {
+        boolean eur = isEur(order);
+        int updated = customerOrderStatsRepository.applyAmounts(customerId,
+                eur ? BigDecimal.ZERO : value, eur ? value : BigDecimal.ZERO,
+                eur ? BigDecimal.ZERO : deposit, eur ? deposit : BigDecimal.ZERO, LocalDateTime.now());
+        if (updated == 0) {
+            recalculateCustomer(customerId);
+        }
+    }
+
+    private void recalculateCustomer(Long customerId) {
+        log.debug("No order stats row for customer {} yet, recalculating from orders.", customerId);
+        customerOrderStatsRepository.recalculateCustomers(List.of(customerId), LocalDateTime.now(), OVERWRITE_ALWAYS);
+    }
+
+    // --- Rekonciliace ---
+
+    /**
+     * Srovná všechny souhrny s objednávkami po rozsazích {@code eshop.customer-stats.reconcile.batch-size} ID
+     * zákazníků (každý rozsah ve vlastní transakci). Řádky změněné přírůstkově během běhu se nepřepisují.
+     *
+     * @return počet vložených/změněných řádků (dle MySQL affected rows)
+     */
+    public long reconcileAll() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long maxCustomerId = customerOrderStatsRepository.findMaxOrderCustomerId();
+        int batchSize = Math.max(reconcileBatchSize, 1);
+        long affected = 0;
+        long removed = 0;
+        for (long fromId = 0; fromId <= maxCustomerId; fromId += batchSize) {
+            long toId = fromId + batchSize - 1;
+            affected += customerOrderStatsRepository.reconcileRange(fromId, toId, LocalDateTime.now(), startedAt);
+            removed += customerOrderStatsRepository.deleteOrphansInRange(fromId, toId);
+        }
+        log.info("Customer order stats reconciled up to customer ID {} in {} ms ({} rows affected, {} removed).",
+                maxCustomerId, Duration.between(startedAt, LocalDateTime.now()).toMillis(), affected, removed);
+        return affected;
+    }
+
+    private void runReconciliation() {
+        try {
+            boolean ran = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) this::reconcileUnderLock));
+            if (!ran) {
+                log.info("Customer order stats reconciliation skipped, another instance is running it.");
+            }
+        } catch (Exception e) {
+            // Výjimka by zrušila další plánované běhy
+            log.error("Customer order stats reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Spustí {@link #reconcileAll()}, pokud spojení získá zámek. Jednotlivé rozsahy běží ve vlastních transakcích
+     * na jiných spojeních, toto spojení jen drží zámek. Mimo MySQL (H2 v profilu loadtest) běží bez zámku.
+     */
+    private boolean reconcileUnderLock(Connection connection) throws SQLException {
+        if (!"MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+            reconcileAll();
+            return true;
+        }
+        if (!lockQuery(connection, "SELECT GET_LOCK(?, 0)")) {
+            return false;
+        }
+        try {
+            reconcileAll();
+        } finally {
+            lockQuery(connection, "SELECT RELEASE_LOCK(?)");
+        }
+        return true;
+    }
+
+    private static boolean lockQuery(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, RECONCILE_LOCK);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 1; // NULL (chyba) = nezískán
+            }
+        }
+    }
+
+    // --- Čtení pro CMS ---
+
+    public static boolean isStatsSort(Sort sort) {
+        return sort.isSorted() && sort.stream().allMatch(order -> STATS_SORT_PROPERTIES.contains(order.getProperty()));
+    }
+
+    /**
+     * Řazení podle souhrnu a podle vlastností zákazníka jde každé jiným dotazem a nelze je kombinovat. Obsahuje-li
+     * řazení (např. {@code sort=lifetimeValueCzk,desc&sort=email}) vlastnost souhrnu, ponechají se jen ty.
+     */
+    public static Pageable normalizeSort(Pageable pageable) {
+        Sort sort = pageable.getSort();
+        if (isStatsSort(sort) || sort.stream().noneMatch(order -> STATS_SORT_PROPERTIES.contains(order.getProperty()))) {
+            return pageable;
+        }
+        List<Sort.Order> statsOrders = sort.stream()
+                .filter(order -> STATS_SORT_PROPERTIES.contains(order.getProperty()))
+                .toList();
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(statsOrders));
+    }
+
+    /**
+     * Stránka zákazníků s objednávkou řazená podle souhrnu (útrata, poslední objednávka). Bez filtrů jde o čtení
+     * stránky z indexu; řazení doplní {@code customerId}, aby pořadí odpovídalo indexu a bylo stabilní.
+     */
+    @Transactional(readOnly = true)
+    public Page<CustomerOrderStats> findStatsPage(Pageable pageable, String emailFragment, String nameFragment, Boolean enabled) {
+        Sort.Direction direction = pageable.getSort().stream().findFirst().map(Sort.Order::getDirection).orElse(Sort.Direction.DESC);
+        Pageable sortedPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                pageable.getSort().and(Sort.by(direction, "customerId")));
+        if (!StringUtils.hasText(emailFragment) && !StringUtils.hasText(nameFragment) && enabled == null) {
+            return customerOrderStatsRepository.findAll(sortedPageable);
+        }
+        return customerOrderStatsRepository.findFiltered(
+                StringUtils.hasText(emailFragment) ? emailFragment : null,
+                StringUtils.hasText(nameFragment) ? nameFragment : null,
+                enabled, sortedPageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, CustomerOrderStats> getStatsByCustomerIds(Collection<Long> customerIds) {
+        if (CollectionUtils.isEmpty(customerIds)) return Collections.emptyMap();
+        return customerOrderStatsRepository.findByCustomerIdIn(customerIds).stream()
+                .collect(Collectors.toMap(CustomerOrderStats::getCustomerId, Function.identity()));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<CustomerOrderStats> getStats(Long customerId) {
+        return customerOrderStatsRepository.findById(customerId);
+    }
+
+    // --- Pomocné metody ---
+
+    private static Long customerIdOf(Order order) {
+        return order != null && order.getCustomer() != null ? order.getCustomer().getId() : null;
+    }
+
+    private static boolean isEur(Order order) {
+        return CURRENCY_EUR.equals(order.getCurrency());
+    }
+
+    private static boolean hasDeposit(Order order) {
+        return order.getDepositAmount() != null && order.getDepositAmount().signum() > 0;
+    }
+
+    private static BigDecimal outstandingDeposit(Order order) {
+        return hasDeposit(order) && order.getDepositPaidDate() == null && order.getCancelledDate() == null
+                ? order.getDepositAmount() : BigDecimal.ZERO;
+    }
+}
@@ -12,6 +12,7 @@ import org.example.eshop.repository.PasswordResetTokenRepository; // Přidáno
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy; // Přidáno
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -40,6 +41,8 @@ public class CustomerService {
     @Getter
     @Autowired(required = false)
     private Validator validator;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // Zneplatnění CustomerContext v session
 
     // --- PŘIDANÉ ZÁVISLOSTI PRO RESET HESLA ---
     @Autowired
@@ -100,6 +103,7 @@ public class CustomerService {
             }
         }
         customerRepository.save(customer); // Uložení změn
+        eventPublisher.publishEvent(new CustomerChangedEvent(customer.getId()));
         log.info("Profile updated successfully for user: {}", currentEmail);
     }
 
@@ -128,6 +132,7 @@ public class CustomerService {
 
         customer.setPassword(passwordEncoder.encode(dto.getNewPassword()));
         customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(customerId));
         log.info("Password changed successfully for customer ID: {}", customerId);
     }
 
@@ -223,6 +228,7 @@ public class CustomerService {
             log.debug("Set useInvoiceAddressAsDelivery to false for customer {}", customerId);
         }
         customerRepository.save(customer); // Uložení změn
+        eventPublisher.publishEvent(new CustomerChangedEvent(customerId));
         log.info("{} address updated successfully for customer ID: {}", addressType, customerId);
     }
 
@@ -275,6 +281,7 @@ public class CustomerService {
         }
         customer.setUseInvoiceAddressAsDelivery(useInvoiceAddress);
         customerRepository.save(customer); // Uložení změny
+        eventPublisher.publishEvent(new CustomerChangedEvent(customerId));
         log.info("useInvoiceAddressAsDelivery flag updated for customer ID: {}", customerId);
     }
 
@@ -307,7 +314,9 @@ public class CustomerService {
     @Transactional
     public Customer saveCustomer(Customer customer) {
         log.info("Saving customer ID: {}", customer.getId());
-        return customerRepository.save(customer);
+        Customer saved = customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(saved.getId()));
+        return saved;
     }
 
     // --- Pomocná metoda pro validaci (BEZE ZMĚNY) ---
@@ -421,6 +430,7 @@ public class CustomerService {
 
         // Smažeme použitý token
         passwordResetTokenRepository.delete(token);
+        eventPublisher.publishEvent(new CustomerChangedEvent(customer.getId()));
 
         log.info("Heslo úspěšně nastaveno/změněno pro uživatele: {} pomocí reset tokenu", customer.getEmail());
     }
@@ -0,0 +1,23 @@
+package org.example.eshop.service;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * {@link User} rozšířený o ID zákazníka - {@link CustomerContextService} pak zákazníka načte podle primárního
+ * klíče a nemusí ho hledat podle e-mailu.
+ */
+@Getter
+public class CustomerUserDetails extends User {
+
+    private final Long customerId;
+
+    public CustomerUserDetails(Long customerId, String username, String password, boolean enabled,
+                               Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.customerId = customerId;
+    }
+}
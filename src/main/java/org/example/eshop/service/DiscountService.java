@@ -12,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -32,6 +33,8 @@ public class DiscountService implements PriceConstants {
     private DiscountRepository discountRepository;
     @Autowired
     private ProductRepository productRepository; // Pro načítání produktů
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Cacheable("allDiscounts")
     @Transactional(readOnly = true)
@@ -52,14 +55,25 @@ public class DiscountService implements PriceConstants {
     @Transactional(readOnly = true)
     public List<Discount> findActiveDiscountsForProduct(Product product) {
         if (product == null) return Collections.emptyList();
-        LocalDateTime now = LocalDateTime.now();
-        Long productId = product.getId();
-        log.debug("Finding active discounts for product ID: {} at time: {}", productId, now);
+        return filterDiscountsForProduct(findAllActiveDiscounts(), product);
+    }
 
+    /**
+     * Všechny aktuálně platné slevy (globální i produktové) včetně přiřazených produktů.
+     * Při zpracování více produktů najednou (objednávka) stačí načíst jednou a filtrovat
+     * pro každý produkt přes {@link #applyBestPercentageDiscount(BigDecimal, Product, List)}.
+     */
+    @Transactional(readOnly = true)
+    public List<Discount> findAllActiveDiscounts() {
+        LocalDateTime now = LocalDateTime.now();
         // Volání NOVÉ repository metody
         List<Discount> potentialDiscounts = discountRepository.findAllActiveAndPotentiallyApplicable(now);
-        log.debug("Found {} potentially applicable active discounts.", potentialDiscounts.size());
+        log.debug("Found {} potentially applicable active discounts at time: {}", potentialDiscounts.size(), now);
+        return potentialDiscounts;
+    }
 
+    private List<Discount> filterDiscountsForProduct(List<Discount> potentialDiscounts, Product product) {
+        Long productId = product.getId();
         // Filtrujeme ty, které jsou buď globální, nebo přiřazené k danému produktu
         List<Discount> applicableDiscounts = potentialDiscounts.stream()
                 .filter(discount -> {
@@ -85,7 +99,16 @@ public class DiscountService implements PriceConstants {
     @Transactional(readOnly = true)
     public BigDecimal applyBestPercentageDiscount(BigDecimal price, Product product) {
         if (price == null || price.compareTo(BigDecimal.ZERO) <= 0 || product == null) return price;
-        List<Discount> activeDiscounts = findActiveDiscountsForProduct(product);
+        return applyBestPercentageDiscount(price, product, findAllActiveDiscounts());
+    }
+
+    /**
+     * Varianta {@link #applyBestPercentageDiscount(BigDecimal, Product)} nad předem načteným seznamem
+     * platných slev (viz {@link #findAllActiveDiscounts()}) - bez dalšího dotazu do DB.
+     */
+    public BigDecimal applyBestPercentageDiscount(BigDecimal price, Product product, List<Discount> allActiveDiscounts) {
+        if (price == null || price.compareTo(BigDecimal.ZERO) <= 0 || product == null) return price;
+        List<Discount> activeDiscounts = filterDiscountsForProduct(allActiveDiscounts, product);
 
         Optional<Discount> bestPercentageDiscount = activeDiscounts.stream()
                 .filter(Discount::isPercentage)
@@ -189,6 +212,8 @@ public class DiscountService implements PriceConstants {
             productsToAssign.forEach(product -> existingDiscount.getProducts().add(product));
 
             Discount updatedDiscount = discountRepository.save(existingDiscount);
+            // Změna pouze přiřazených produktů nevyvolá @PostUpdate (Discount nemá @Version), proto explicitně
+            eventPublisher.publishEvent(new CatalogChangedEvent("Discount", id));
             log.info("Discount {} (ID: {}) updated successfully.", updatedDiscount.getName(), updatedDiscount.getId());
             return Optional.of(updatedDiscount); // Vrátíme Optional<Discount>
         });
@@ -26,6 +26,7 @@ import org.thymeleaf.exceptions.TemplateProcessingException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
@@ -132,6 +133,35 @@ public class EmailService {
      */
     @Async
     public void sendOrderStatusUpdateEmail(Order order, OrderState newState) {
+        sendOrderStatusUpdateEmailNow(order, newState);
+    }
+
+    /**
+     * Odešle emaily o změně stavu pro celou hromadnou změnu jako jednu asynchronní úlohu (jedno vlákno z poolu
+     * místo jednoho na objednávku). Konfigurace šablony se ověří jednou; chyba u jedné objednávky ostatní nezastaví.
+     * Objednávky musí mít načteného zákazníka.
+     */
+    @Async
+    public void sendOrderStatusUpdateEmails(List<Order> orders, OrderState newState) {
+        if (orders == null || orders.isEmpty() || newState == null || !StringUtils.hasText(newState.getCode())) {
+            return;
+        }
+        if (!isMailConfigured()) {
+            log.warn("Mail sending skipped for bulk status update {} ({} orders): Mail is not configured.", newState.getCode(), orders.size());
+            return;
+        }
+        if (!loadEmailConfigForState(newState.getCode()).isSendEmail()) {
+            log.info("Email notification is disabled for order state '{}'. No emails sent for {} orders.", newState.getCode(), orders.size());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        for (Order order : orders) {
+            sendOrderStatusUpdateEmailNow(order, newState);
+        }
+        log.info("Bulk status update emails for state '{}' processed: {} orders in {} ms.", newState.getCode(), orders.size(), System.currentTimeMillis() - start);
+    }
+
+    private void sendOrderStatusUpdateEmailNow(Order order, OrderState newState) {
         String orderCode = (order != null && order.getOrderCode() != null) ? order.getOrderCode() : "N/A";
         String stateCode = (newState != null && newState.getCode() != null) ? newState.getCode() : "N/A";
         log.debug("Attempting to send status update email for order {} to state {}", orderCode, stateCode);
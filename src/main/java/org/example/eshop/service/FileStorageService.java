@@ -5,6 +5,7 @@ import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
@@ -27,6 +28,7 @@ public class FileStorageService {
     private String bucketName;
 
     @Autowired // Injektujte GCS Storage klienta (nakonfigurujte jako Bean)
+    @Lazy // Klient (a ADC) se vytvoří až při prvním použití, ne při startu aplikace
     private Storage storage;
     // --- KONEC PŘIDÁNÍ/ÚPRAV ---
 
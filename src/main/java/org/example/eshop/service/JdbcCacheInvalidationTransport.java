@@ -0,0 +1,203 @@
+package org.example.eshop.service;
+
+import org.example.eshop.model.CacheInvalidationLogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sběrnice invalidací nad tabulkou {@value CacheInvalidationLogEntry#TABLE}: odeslání = dávkový INSERT,
+ * příjem = čtení nových řádků ({@code id > poslední}) každých {@code eshop.cache-bus.poll-interval-ms}.
+ * <p>
+ * AUTO_INCREMENT ID se nepotvrzují v pořadí - řádek s nižším ID může být vidět až po řádku s vyšším. Vynechaná ID
+ * se proto drží jako mezery a dotazují se znovu, dokud nepřijdou nebo nevyprší {@code gap-timeout-ms} (rollback,
+ * přeskočené hodnoty). Řádky starší než {@code retention-minutes} průběžně maže každá instance.
+ * <p>
+ * Pauza čtení delší než {@code max-silence-ms} (Cloud Run mezi požadavky omezuje CPU, výpadek DB) sama o sobě nic
+ * neztrácí - log se dočte od posledního ID. {@link Receiver#onResync()} přijde, jen když mezitím úklid smazal
+ * nepřečtené řádky nebo ID poskočilo víc, než lze sledovat.
+ */
+@Component
+@ConditionalOnProperty(name = "eshop.cache-bus.transport", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcCacheInvalidationTransport.class);
+    private static final String TABLE = CacheInvalidationLogEntry.TABLE;
+    private static final int MAX_TRACKED_GAPS = 1000;
+    private static final long CLEANUP_INTERVAL_MILLIS = 60_000;
+
+    private record Row(long id, String origin, CacheInvalidation invalidation) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${eshop.cache-bus.poll-interval-ms:200}")
+    private long pollIntervalMs;
+    @Value("${eshop.cache-bus.batch-size:500}")
+    private int batchSize;
+    @Value("${eshop.cache-bus.gap-timeout-ms:5000}")
+    private long gapTimeoutMs;
+    @Value("${eshop.cache-bus.max-silence-ms:30000}")
+    private long maxSilenceMs;
+    @Value("${eshop.cache-bus.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private final ScheduledExecutorService reader = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("cache-bus-reader").factory());
+    // Stav čtení patří jen vláknu reader
+    private final Map<Long, Long> gaps = new LinkedHashMap<>(); // id -> kdy jsme mezeru zaznamenali
+    private long lastId = -1;
+    private long lastPollMillis;
+    private long lastCleanupMillis;
+    private boolean failing;
+    private boolean resyncRequired;
+
+    private String nodeId;
+    private Receiver receiver;
+
+    @Override
+    public void start(String nodeId, Receiver receiver) {
+        this.nodeId = nodeId;
+        this.receiver = receiver;
+        reader.scheduleWithFixedDelay(this::poll, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("JDBC cache invalidation transport started (node {}, poll every {} ms).", nodeId, pollIntervalMs);
+    }
+
+    @Override
+    public void publish(List<CacheInvalidation> invalidations) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate("INSERT INTO " + TABLE + " (origin, kind, region, entity_key, created_at) VALUES (?, ?, ?, ?, ?)",
+                invalidations, invalidations.size(), (ps, invalidation) -> {
+                    ps.setString(1, nodeId);
+                    ps.setString(2, invalidation.kind().name());
+                    ps.setString(3, invalidation.region());
+                    ps.setString(4, invalidation.key());
+                    ps.setTimestamp(5, now);
+                });
+    }
+
+    @Override
+    public void stop() {
+        reader.shutdownNow();
+    }
+
+    private void poll() {
+        long now = System.currentTimeMillis();
+        try {
+            if (lastId < 0) {
+                // Start: historie nás nezajímá, lokální cache jsou prázdné
+                lastId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + TABLE, Long.class);
+                lastPollMillis = now;
+                return;
+            }
+            if (now - lastPollMillis > maxSilenceMs) {
+                // Po pauze jde dočíst vše, co úklid ještě nesmazal; mezery se během pauzy nedotazovaly, dostanou čas znovu
+                Long oldestId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM " + TABLE, Long.class);
+                if (oldestId != null && oldestId > lastId + 1) {
+                    resyncRequired = true;
+                }
+                gaps.replaceAll((id, since) -> now);
+                log.debug("Cache invalidation log not read for {} ms, catching up from ID {}.", now - lastPollMillis, lastId);
+            }
+            List<Row> rows = jdbcTemplate.query("SELECT id, origin, kind, region, entity_key FROM " + TABLE
+                    + " WHERE id > ? ORDER BY id LIMIT ?", this::mapRow, lastId, batchSize);
+            for (Row row : rows) {
+                trackGaps(row.id(), now);
+                lastId = row.id();
+            }
+            List<Row> lateRows = queryGaps(now);
+
+            lastPollMillis = now;
+            if (failing) {
+                failing = false;
+                log.info("Cache invalidation log readable again.");
+            }
+            if (resyncRequired) {
+                resyncRequired = false;
+                log.warn("Unread cache invalidations were lost (log cleanup or ID jump), resynchronizing local caches.");
+                receiver.onResync();
+            }
+            deliver(rows);
+            deliver(lateRows);
+            if (now - lastCleanupMillis > CLEANUP_INTERVAL_MILLIS) {
+                lastCleanupMillis = now;
+                int deleted = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE created_at < ?",
+                        new Timestamp(now - TimeUnit.MINUTES.toMillis(retentionMinutes)));
+                log.debug("Cache invalidation log cleanup removed {} rows.", deleted);
+            }
+        } catch (RuntimeException e) {
+            if (!failing) {
+                failing = true;
+                log.warn("Reading cache invalidation log failed, will retry: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void trackGaps(long id, long now) {
+        if (id - lastId - 1 > MAX_TRACKED_GAPS) {
+            resyncRequired = true; // Skok mimo možnosti sledování - zahodit vše při nejbližším úspěšném čtení
+            return;
+        }
+        for (long missing = lastId + 1; missing < id; missing++) {
+            gaps.put(missing, now);
+        }
+    }
+
+    private List<Row> queryGaps(long now) {
+        gaps.values().removeIf(since -> now - since > gapTimeoutMs);
+        if (gaps.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(gaps.keySet());
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Row> found = jdbcTemplate.query("SELECT id, origin, kind, region, entity_key FROM " + TABLE
+                + " WHERE id IN (" + placeholders + ")", this::mapRow, ids.toArray());
+        for (Row row : found) {
+            gaps.remove(row.id());
+        }
+        return found;
+    }
+
+    private void deliver(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<CacheInvalidation> invalidations = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (row.invalidation() != null && !nodeId.equals(row.origin())) {
+                invalidations.add(row.invalidation());
+            }
+        }
+        if (!invalidations.isEmpty()) {
+            receiver.onInvalidations(invalidations);
+        }
+    }
+
+    private Row mapRow(ResultSet rs, int rowNum) throws SQLException {
+        CacheInvalidation invalidation;
+        try {
+            invalidation = new CacheInvalidation(CacheInvalidation.Kind.valueOf(rs.getString("kind")),
+                    rs.getString("region"), rs.getString("entity_key"));
+        } catch (IllegalArgumentException e) {
+            invalidation = null; // Neznámý druh (novější verze aplikace při nasazování) - přeskočit
+        }
+        return new Row(rs.getLong("id"), rs.getString("origin"), invalidation);
+    }
+}
@@ -1,11 +1,13 @@
 // src/main/java/org/example/eshop/service/OrderCodeGeneratorService.java
 package org.example.eshop.service;
 
-import jakarta.annotation.PostConstruct;
 import org.example.eshop.repository.OrderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,9 +24,36 @@ public class OrderCodeGeneratorService {
     @Autowired
     private OrderRepository orderRepository;
 
-    private AtomicLong orderCounter;
+    private volatile AtomicLong orderCounter;
+
+    /**
+     * Čítač se nenačítá při startu kontextu (dotaz na maximum kódu prochází celou tabulku objednávek
+     * a zdržoval by studený start), ale až po startu aplikace na pozadí, případně při první objednávce.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpCounter() {
+        try {
+            ensureInitialized();
+        } catch (Exception e) {
+            // Nevadí - inicializace se zopakuje při první objednávce
+            log.warn("Background initialization of order code counter failed: {}", e.getMessage());
+        }
+    }
+
+    private AtomicLong ensureInitialized() {
+        AtomicLong counter = orderCounter;
+        if (counter == null) {
+            synchronized (this) {
+                if (orderCounter == null) {
+                    initializeCounter();
+                }
+                counter = orderCounter;
+            }
+        }
+        return counter;
+    }
 
-    @PostConstruct
     @Transactional(readOnly = true) // Transakce pro čtení z DB
     protected void initializeCounter() {
         log.info("Initializing order code counter...");
@@ -60,16 +89,12 @@ public class OrderCodeGeneratorService {
      * @return Další číslo v pořadí jako String.
      */
     public String getNextOrderCode() {
-        if (orderCounter == null) {
-            // Pojistka, pokud by PostConstruct z nějakého důvodu selhal před prvním použitím
-            log.error("Order counter not initialized! Falling back to emergency initialization.");
-            initializeCounter(); // Zkusíme znovu inicializovat
-            if (orderCounter == null) { // Pokud ani nouzová inicializace nepomohla
-                throw new IllegalStateException("Order counter could not be initialized.");
-            }
+        AtomicLong counter = ensureInitialized();
+        if (counter == null) {
+            throw new IllegalStateException("Order counter could not be initialized.");
         }
         // Inkrementujeme AŽ PO získání aktuální hodnoty pro generování
-        long nextCode = orderCounter.incrementAndGet();
+        long nextCode = counter.incrementAndGet();
         log.debug("Generated next order code: {}", nextCode);
         return String.valueOf(nextCode);
     }
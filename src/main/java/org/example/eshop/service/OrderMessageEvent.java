@@ -0,0 +1,28 @@
+package org.example.eshop.service;
+
+import lombok.Getter;
+import org.example.eshop.dto.OrderMessageDto;
+import org.example.eshop.repository.ConversationRepository;
+
+/**
+ * Událost po změně konverzace k objednávce - nová zpráva a/nebo nové čítače nepřečtených zpráv.
+ * Zpracovává ji {@link OrderMessageStreamService} až po commitu transakce.
+ */
+@Getter
+public class OrderMessageEvent {
+
+    private final Long orderId;
+    private final OrderMessageDto message; // null, pokud se změnily jen čítače (označení přečtení)
+    private final ConversationRepository.UnreadCounters counters;
+
+    public OrderMessageEvent(Long orderId, OrderMessageDto message, ConversationRepository.UnreadCounters counters) {
+        this.orderId = orderId;
+        this.message = message;
+        this.counters = counters;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderMessageEvent{order=" + orderId + ", message=" + (message != null ? message.getId() : null) + "}";
+    }
+}
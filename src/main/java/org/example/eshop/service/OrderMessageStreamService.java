@@ -0,0 +1,149 @@
+package org.example.eshop.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.eshop.dto.OrderMessageDto;
+import org.example.eshop.model.Conversation;
+import org.example.eshop.repository.ConversationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Push kanál (Server-Sent Events) pro zprávy k objednávkám.
+ * <p>
+ * Otevřená stránka detailu objednávky (zákazník i admin) se přihlásí k odběru a po commitu každé nové zprávy
+ * nebo změny čítačů nepřečtených zpráv dostane událost {@code message} resp. {@code unread}.
+ * Zákazník dostává pouze EXTERNAL konverzaci, admin obě. Odběratelé jsou vázaní na instanci; změny z ostatních
+ * instancí sem přinese {@link CacheInvalidationBus} (zpoždění dané intervalem jeho transportu).
+ * <p>
+ * Samotné odesílání běží na virtuálních vláknech - pomalý klient tak neblokuje vlákno, které zprávu uložilo,
+ * a otevřená spojení nedrží vlákna Tomcatu (SseEmitter je asynchronní).
+ */
+@Service
+public class OrderMessageStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderMessageStreamService.class);
+
+    public enum Audience {
+        CUSTOMER, // Jen externí konverzace
+        ADMIN     // Interní i externí konverzace
+    }
+
+    private record Subscriber(SseEmitter emitter, Audience audience) {
+    }
+
+    @Value("${eshop.messages.stream.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    private final Map<Long, List<Subscriber>> subscribersByOrder = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("order-messages-heartbeat").factory());
+
+    public OrderMessageStreamService(@Value("${eshop.messages.stream.heartbeat-seconds:25}") long heartbeatSeconds) {
+        // Komentář udrží spojení přes proxy/load balancer a zároveň odhalí odpojené klienty
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Přihlásí odběr zpráv pro objednávku. Oprávnění k objednávce musí ověřit volající controller.
+     */
+    public SseEmitter subscribe(Long orderId, Audience audience) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(timeoutMinutes));
+        Subscriber subscriber = new Subscriber(emitter, audience);
+        subscribersByOrder.compute(orderId, (id, subscribers) -> {
+            List<Subscriber> list = subscribers != null ? subscribers : new CopyOnWriteArrayList<>();
+            list.add(subscriber);
+            return list;
+        });
+        emitter.onCompletion(() -> unsubscribe(orderId, subscriber));
+        emitter.onTimeout(() -> unsubscribe(orderId, subscriber));
+        emitter.onError(e -> unsubscribe(orderId, subscriber));
+        log.debug("SSE subscriber ({}) registered for order ID {}. Subscribers: {}", audience, orderId,
+                subscribersByOrder.getOrDefault(orderId, List.of()).size());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderMessage(OrderMessageEvent event) {
+        List<Subscriber> subscribers = subscribersByOrder.get(event.getOrderId());
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        log.debug("Dispatching {} to {} SSE subscriber(s).", event, subscribers.size());
+        OrderMessageDto message = event.getMessage();
+        Map<String, Object> counters = toCounters(event.getCounters());
+        boolean external = event.getCounters() != null
+                ? event.getCounters().getType() == Conversation.ConversationType.EXTERNAL
+                : message != null && message.getConversationType() == Conversation.ConversationType.EXTERNAL;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.audience() == Audience.CUSTOMER && !external) {
+                continue; // Interní poznámky zákazník nikdy nevidí
+            }
+            sender.execute(() -> {
+                if (message != null) {
+                    send(event.getOrderId(), subscriber, SseEmitter.event()
+                            .name("message").id(String.valueOf(message.getId()))
+                            .data(message, MediaType.APPLICATION_JSON));
+                }
+                if (counters != null) {
+                    send(event.getOrderId(), subscriber, SseEmitter.event()
+                            .name("unread").data(counters, MediaType.APPLICATION_JSON));
+                }
+            });
+        }
+    }
+
+    private Map<String, Object> toCounters(ConversationRepository.UnreadCounters counters) {
+        if (counters == null) return null;
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("conversationId", counters.getConversationId());
+        data.put("conversationType", counters.getType());
+        data.put("unreadByAdminCount", counters.getUnreadByAdminCount());
+        data.put("unreadByCustomerCount", counters.getUnreadByCustomerCount());
+        return data;
+    }
+
+    private void send(Long orderId, Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter().send(event);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("SSE subscriber for order ID {} disconnected: {}", orderId, e.getMessage());
+            unsubscribe(orderId, subscriber);
+        }
+    }
+
+    private void sendHeartbeat() {
+        subscribersByOrder.forEach((orderId, subscribers) -> subscribers.forEach(subscriber ->
+                sender.execute(() -> send(orderId, subscriber, SseEmitter.event().comment("keepalive")))));
+    }
+
+    private void unsubscribe(Long orderId, Subscriber subscriber) {
+        subscribersByOrder.computeIfPresent(orderId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    public int getSubscriberCount() {
+        return subscribersByOrder.values().stream().mapToInt(List::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        subscribersByOrder.values().forEach(subscribers -> subscribers.forEach(s -> s.emitter().complete()));
+        subscribersByOrder.clear();
+        sender.shutdown();
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.EntityNotFoundException;
 import org.example.eshop.config.PriceConstants;
 import org.example.eshop.dto.CartItemDto;
 import org.example.eshop.dto.CreateOrderRequest;
+import org.example.eshop.dto.OrderListRowDto;
 import org.example.eshop.model.*;
 import org.example.eshop.repository.*;
 import org.hibernate.Hibernate;
@@ -12,12 +13,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
@@ -26,6 +30,7 @@ import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,6 +44,7 @@ public class OrderService implements PriceConstants {
     private static final String PAYMENT_STATUS_DEPOSIT_PAID = "DEPOSIT_PAID";
     private static final String PAYMENT_STATUS_PAID = "PAID"; // Používáme 'static final' pro konstanty
     private static final String PAYMENT_STATUS_PENDING = "PENDING";
+    private static final int BULK_STATE_CHUNK_SIZE = 1000; // Počet ID v jednom IN (...) hromadné změny stavu
     @Value("${app.base-url:https://www.drevniknamiru.cz}") // Načte hodnotu z application.properties, s výchozí hodnotou
     private String baseUrl;
 
@@ -63,6 +69,8 @@ public class OrderService implements PriceConstants {
     private GlazeRepository glazeRepository;
     @Autowired
     private RoofColorRepository roofColorRepository;
+    @Autowired
+    private OrderStateChangeRepository orderStateChangeRepository;
 
     // Services
     @Autowired
@@ -85,6 +93,10 @@ public class OrderService implements PriceConstants {
     private PaymentService paymentService;
     @Autowired
     private OrderCodeGeneratorService orderCodeGeneratorService;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private CustomerOrderStatsService customerOrderStatsService;
 
     // Vlož nebo nahraď ve třídě OrderService
 
@@ -141,6 +153,8 @@ public class OrderService implements PriceConstants {
             if (request.getItems() == null) {
                 throw new IllegalArgumentException("Order items list cannot be null.");
             }
+            // Všechny produkty, sazby, atributy, addony a slevy pro celou objednávku načteme najednou
+            CheckoutCatalog checkoutCatalog = resolveCheckoutCatalog(request.getItems());
             for (CartItemDto itemDto : request.getItems()) {
                 if (itemDto == null || itemDto.getQuantity() <= 0) {
                     log.warn("Skipping null or zero quantity item.");
@@ -149,7 +163,7 @@ public class OrderService implements PriceConstants {
                 try {
                     log.debug("Processing item with Product ID: {}", itemDto.getProductId());
                     // --- ZMĚNA: Předání applyReverseCharge do processCartItem ---
-                    OrderItem orderItem = processCartItem(itemDto, order, orderCurrency, applyReverseCharge);
+                    OrderItem orderItem = processCartItem(itemDto, order, orderCurrency, applyReverseCharge, checkoutCatalog);
                     // --- KONEC ZMĚNY ---
                     order.getOrderItems().add(orderItem);
                     // Add to running totals (with null checks)
@@ -351,18 +365,20 @@ public class OrderService implements PriceConstants {
                 // Re-throw to interrupt order creation
                 throw new RuntimeException("Failed to save order: " + e.getMessage(), e);
             }
+            // Souhrn zákazníka pro CMS - ve stejné transakci jako objednávka
+            customerOrderStatsService.recordOrderCreated(savedOrder);
 
-            // --- Non-critical steps (Log errors, but don't fail the transaction) ---
-            // 9. Marking Coupon Used
+            // 9. Marking Coupon Used - atomicky v transakci objednávky; vyčerpaný kupón objednávku zruší (rollback)
             if (appliedCoupon != null) {
                 log.debug("[Order Creation - Step 9] Marking coupon {} used...", appliedCoupon.getCode());
-                try {
-                    couponService.markCouponAsUsed(appliedCoupon);
-                } catch (Exception e) {
-                    log.error("Non-critical error marking coupon used (ID: {}): {}. Order creation continues.",
-                            appliedCoupon.getId(), e.getMessage(), e);
+                couponService.markCouponAsUsed(appliedCoupon);
+                if (savedOrder.getCustomer() != null) {
+                    // Počty použití kupónu v CustomerContext zákazníka už neplatí
+                    eventPublisher.publishEvent(new CustomerChangedEvent(savedOrder.getCustomer().getId()));
                 }
             }
+
+            // --- Non-critical steps (Log errors, but don't fail the transaction) ---
             // 10. Sending Confirmation Email
             log.debug("[Order Creation - Step 10] Preparing to send confirmation email for order {}...", savedOrder.getOrderCode());
             try {
@@ -429,11 +445,12 @@ public class OrderService implements PriceConstants {
      * @throws IllegalArgumentException Pokud chybí povinná data (ID sazby, rozměry u custom produktu).
      * @throws IllegalStateException Pokud chybí konfigurace cen produktu.
      */
-    private OrderItem processCartItem(CartItemDto itemDto, Order order, String currency, boolean applyReverseCharge) {
+    private OrderItem processCartItem(CartItemDto itemDto, Order order, String currency, boolean applyReverseCharge,
+                                      CheckoutCatalog catalog) {
         log.debug("Starting processCartItem for Product ID: {}, TaxRate ID: {}, Apply RC Flag from Checkout: {}",
                 itemDto.getProductId(), itemDto.getSelectedTaxRateId(), applyReverseCharge);
 
-        Product product = productRepository.findByIdWithDetails(itemDto.getProductId()) // Načteme s detaily včetně asociací
+        Product product = Optional.ofNullable(catalog.products().get(itemDto.getProductId())) // Načteno předem včetně asociací
                 .orElseThrow(() -> new EntityNotFoundException("Produkt nenalezen: " + itemDto.getProductId()));
         if (!product.isActive())
             throw new IllegalArgumentException("Produkt '" + product.getName() + "' není aktivní a nelze jej objednat.");
@@ -442,7 +459,7 @@ public class OrderService implements PriceConstants {
         if (itemDto.getSelectedTaxRateId() == null) {
             throw new IllegalArgumentException("Chybí ID vybrané daňové sazby pro produkt: " + product.getName());
         }
-        TaxRate selectedTaxRate = taxRateRepository.findById(itemDto.getSelectedTaxRateId())
+        TaxRate selectedTaxRate = Optional.ofNullable(catalog.taxRates().get(itemDto.getSelectedTaxRateId()))
                 .orElseThrow(() -> new EntityNotFoundException("Daňová sazba nenalezena: ID " + itemDto.getSelectedTaxRateId()));
 
         Set<TaxRate> availableRates = product.getAvailableTaxRates();
@@ -467,11 +484,11 @@ public class OrderService implements PriceConstants {
         orderItem.setSelectedTaxRateName(selectedTaxRate.getName());
 
         // Načtení vybraných atributů (Design, Glaze, RoofColor)
-        Design selectedDesign = designRepository.findById(itemDto.getSelectedDesignId())
+        Design selectedDesign = Optional.ofNullable(catalog.designs().get(itemDto.getSelectedDesignId()))
                 .orElseThrow(() -> new EntityNotFoundException("Design nenalezen: ID " + itemDto.getSelectedDesignId()));
-        Glaze selectedGlaze = glazeRepository.findById(itemDto.getSelectedGlazeId())
+        Glaze selectedGlaze = Optional.ofNullable(catalog.glazes().get(itemDto.getSelectedGlazeId()))
                 .orElseThrow(() -> new EntityNotFoundException("Lazura nenalezena: ID " + itemDto.getSelectedGlazeId()));
-        RoofColor selectedRoofColor = roofColorRepository.findById(itemDto.getSelectedRoofColorId())
+        RoofColor selectedRoofColor = Optional.ofNullable(catalog.roofColors().get(itemDto.getSelectedRoofColorId()))
                 .orElseThrow(() -> new EntityNotFoundException("Barva střechy nenalezena: ID " + itemDto.getSelectedRoofColorId()));
 
         // Výpočet příplatků za atributy podle měny objednávky
@@ -503,11 +520,7 @@ public class OrderService implements PriceConstants {
             List<Long> selectedAddonIds = itemDto.getSelectedAddonIds();
             if (selectedAddonIds != null && !selectedAddonIds.isEmpty()) {
                 log.debug("[processCartItem] Processing addons for custom item. Addon IDs from DTO: {}", selectedAddonIds);
-                Set<Long> requestedAddonIds = new HashSet<>(selectedAddonIds);
-                Map<Long, Addon> addonsMap = addonsRepository.findAllById(requestedAddonIds).stream()
-                        .filter(Addon::isActive)
-                        .collect(Collectors.toMap(Addon::getId, a -> a));
-                log.debug("[processCartItem] Found active addons from DB for custom item: {}", addonsMap.keySet());
+                Map<Long, Addon> addonsMap = catalog.activeAddons();
 
                 Set<Long> allowedAddonIds = Optional.ofNullable(product.getAvailableAddons())
                         .orElse(Collections.emptySet())
@@ -559,7 +572,7 @@ public class OrderService implements PriceConstants {
         saveHistoricalItemData(orderItem, product, itemDto, selectedDesign, selectedGlaze, selectedRoofColor);
 
         // Aplikace slevy na produkt
-        BigDecimal unitPriceAfterDiscountNoTax = Optional.ofNullable(discountService.applyBestPercentageDiscount(baseUnitPriceNoTax, product))
+        BigDecimal unitPriceAfterDiscountNoTax = Optional.ofNullable(discountService.applyBestPercentageDiscount(baseUnitPriceNoTax, product, catalog.activeDiscounts()))
                 .orElse(baseUnitPriceNoTax);
         if (unitPriceAfterDiscountNoTax.compareTo(baseUnitPriceNoTax) != 0) {
             log.debug("[processCartItem] Unit Price after Product Discount applied: {}", unitPriceAfterDiscountNoTax);
@@ -587,6 +600,79 @@ public class OrderService implements PriceConstants {
     }
 
 
+    /**
+     * Katalogová data potřebná pro ocenění všech položek jedné objednávky.
+     */
+    private record CheckoutCatalog(Map<Long, Product> products,
+                                   Map<Long, TaxRate> taxRates,
+                                   Map<Long, Design> designs,
+                                   Map<Long, Glaze> glazes,
+                                   Map<Long, RoofColor> roofColors,
+                                   Map<Long, Addon> activeAddons,
+                                   List<Discount> activeDiscounts) {
+    }
+
+    /**
+     * Posbírá ID produktů, sazeb DPH, atributů a addonů ze všech položek a načte je dávkovými dotazy (IN).
+     * Počet dotazů tak nezávisí na počtu položek objednávky (dříve cca 6 dotazů na položku,
+     * z toho jeden s osmi kolekcemi v jednom joinu).
+     * Chybějící záznamy se ohlásí až při zpracování konkrétní položky, stejně jako dříve.
+     */
+    private CheckoutCatalog resolveCheckoutCatalog(List<CartItemDto> items) {
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> taxRateIds = new HashSet<>();
+        Set<Long> designIds = new HashSet<>();
+        Set<Long> glazeIds = new HashSet<>();
+        Set<Long> roofColorIds = new HashSet<>();
+        Set<Long> addonIds = new HashSet<>();
+        for (CartItemDto itemDto : items) {
+            if (itemDto == null || itemDto.getQuantity() <= 0) continue;
+            addIfNotNull(productIds, itemDto.getProductId());
+            addIfNotNull(taxRateIds, itemDto.getSelectedTaxRateId());
+            addIfNotNull(designIds, itemDto.getSelectedDesignId());
+            addIfNotNull(glazeIds, itemDto.getSelectedGlazeId());
+            addIfNotNull(roofColorIds, itemDto.getSelectedRoofColorId());
+            if (itemDto.isCustom() && itemDto.getSelectedAddonIds() != null) {
+                itemDto.getSelectedAddonIds().forEach(id -> addIfNotNull(addonIds, id));
+            }
+        }
+
+        Map<Long, Product> products = Collections.emptyMap();
+        if (!productIds.isEmpty()) {
+            products = productRepository.findAllForCheckoutByIdIn(productIds).stream()
+                    .collect(Collectors.toMap(Product::getId, p -> p, (a, b) -> a));
+            // Druhým dotazem dočteme addony do již načtených produktů (bez kartézského součinu se sazbami)
+            productRepository.fetchAvailableAddonsByIdIn(productIds);
+        }
+        Map<Long, Addon> activeAddons = addonIds.isEmpty() ? Collections.emptyMap()
+                : addonsRepository.findAllById(addonIds).stream()
+                .filter(Addon::isActive)
+                .collect(Collectors.toMap(Addon::getId, a -> a));
+
+        CheckoutCatalog catalog = new CheckoutCatalog(
+                products,
+                toIdMap(taxRateIds, taxRateRepository::findAllById, TaxRate::getId),
+                toIdMap(designIds, designRepository::findAllById, Design::getId),
+                toIdMap(glazeIds, glazeRepository::findAllById, Glaze::getId),
+                toIdMap(roofColorIds, roofColorRepository::findAllById, RoofColor::getId),
+                activeAddons,
+                discountService.findAllActiveDiscounts());
+        log.debug("Checkout catalog resolved: {} products, {} tax rates, {} designs, {} glazes, {} roof colors, {} active addons, {} active discounts",
+                products.size(), catalog.taxRates().size(), catalog.designs().size(), catalog.glazes().size(),
+                catalog.roofColors().size(), activeAddons.size(), catalog.activeDiscounts().size());
+        return catalog;
+    }
+
+    private static void addIfNotNull(Set<Long> ids, Long id) {
+        if (id != null) ids.add(id);
+    }
+
+    private static <T> Map<Long, T> toIdMap(Set<Long> ids, Function<Set<Long>, List<T>> loader,
+                                            Function<T, Long> idGetter) {
+        if (ids.isEmpty()) return Collections.emptyMap();
+        return loader.apply(ids).stream().collect(Collectors.toMap(idGetter, e -> e, (a, b) -> a));
+    }
+
     /**
      * Přepočítá částky DPH a celkové ceny s DPH pro OrderItem
      * na základě aktuálně nastavené sazby DPH a příznaku isReverseCharge.
@@ -933,8 +1019,30 @@ public class OrderService implements PriceConstants {
         return orderRepository.findByCustomerIdOrderByOrderDateDesc(customerId);
     }
 
+    /**
+     * Přehled objednávek zákazníka jako DTO - jeden dotaz, bez načítání položek a stavů po jednotlivých objednávkách.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderListRowDto> findOrderListRowsByCustomerId(Long customerId) {
+        if (customerId == null) return Collections.emptyList();
+        log.debug("Finding order list rows for customer ID: {}", customerId);
+        return orderRepository.findListRowsByCustomerId(customerId);
+    }
+
+    /**
+     * Výsledek hromadné změny stavu: kolik objednávek bylo vybráno, kolik se skutečně změnilo
+     * (ostatní už v cílovém stavu byly nebo neexistují) a ID dávky v auditu.
+     */
+    public record BulkStateChangeResult(int requested, int changed, String batchId) {
+    }
+
     @Transactional
     public Order updateOrderState(Long orderId, Long newOrderStateId) {
+        return updateOrderState(orderId, newOrderStateId, null);
+    }
+
+    @Transactional
+    public Order updateOrderState(Long orderId, Long newOrderStateId, String changedBy) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new EntityNotFoundException("Order not found: " + orderId));
         OrderState newOrderState = orderStateRepository.findById(newOrderStateId)
@@ -951,9 +1059,15 @@ public class OrderService implements PriceConstants {
                 oldState != null ? oldState.getName() : "null",
                 newOrderState.getName());
 
+        boolean wasCancelled = order.getCancelledDate() != null;
         order.setStateOfOrder(newOrderState);
         updateOrderTimestamps(order, newOrderState); // Update timestamps based on the new state
         Order savedOrder = orderRepository.save(order);
+        if (!wasCancelled && savedOrder.getCancelledDate() != null) {
+            customerOrderStatsService.recordOrderCancelled(savedOrder);
+        }
+        orderStateChangeRepository.save(new OrderStateChange(savedOrder.getId(), oldState != null ? oldState.getId() : null,
+                newOrderState.getId(), LocalDateTime.now(), changedBy));
 
         // Send email (asynchronously)
         try {
@@ -966,6 +1080,60 @@ public class OrderService implements PriceConstants {
         return savedOrder;
     }
 
+    /**
+     * Hromadná změna stavu vybraných objednávek v jedné transakci: zámek dotčených řádků, audit jedním
+     * INSERT ... SELECT, jeden množinový UPDATE (po blocích {@value #BULK_STATE_CHUNK_SIZE} ID) a emaily zákazníkům
+     * jako jedna asynchronní dávka až po commitu. Automatická data (odeslání, doručení, zrušení) se nastavují stejně
+     * jako u {@link #updateOrderState(Long, Long, String)}.
+     */
+    @Transactional
+    public BulkStateChangeResult bulkUpdateOrderState(Collection<Long> orderIds, Long newOrderStateId, String changedBy) {
+        OrderState newOrderState = orderStateRepository.findById(newOrderStateId)
+                .orElseThrow(() -> new EntityNotFoundException("OrderState not found: " + newOrderStateId));
+        List<Long> requestedIds = orderIds == null ? List.of() : orderIds.stream().filter(Objects::nonNull).distinct().toList();
+        String batchId = UUID.randomUUID().toString();
+        if (requestedIds.isEmpty()) {
+            return new BulkStateChangeResult(0, 0, batchId);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        String code = newOrderState.getCode() != null ? newOrderState.getCode().toUpperCase() : "";
+        LocalDateTime shippedDate = ("SHIPPED".equals(code) || "DELIVERED".equals(code)) ? now : null;
+        LocalDateTime deliveredDate = "DELIVERED".equals(code) ? now : null;
+        LocalDateTime cancelledDate = "CANCELLED".equals(code) ? now : null;
+
+        List<Long> changedIds = new ArrayList<>();
+        for (int from = 0; from < requestedIds.size(); from += BULK_STATE_CHUNK_SIZE) {
+            List<Long> chunk = requestedIds.subList(from, Math.min(from + BULK_STATE_CHUNK_SIZE, requestedIds.size()));
+            List<Long> lockedIds = orderRepository.lockIdsForStateChange(chunk, newOrderStateId);
+            if (lockedIds.isEmpty()) continue;
+            orderStateChangeRepository.insertBulkChange(lockedIds, newOrderStateId, now, changedBy, batchId);
+            orderRepository.bulkUpdateState(lockedIds, newOrderState, shippedDate, deliveredDate, cancelledDate);
+            if (cancelledDate != null) { // Zrušení mění nezaplacené zálohy - přepočet zákazníků bloku jedním příkazem
+                customerOrderStatsService.recalculateCustomersOfOrders(lockedIds);
+            }
+            changedIds.addAll(lockedIds);
+        }
+        log.info("Bulk state change {} by {}: {} of {} orders moved to '{}'.",
+                batchId, changedBy, changedIds.size(), requestedIds.size(), newOrderState.getName());
+
+        if (!changedIds.isEmpty()) {
+            List<Order> changedOrders = new ArrayList<>(changedIds.size());
+            for (int from = 0; from < changedIds.size(); from += BULK_STATE_CHUNK_SIZE) {
+                changedOrders.addAll(orderRepository.findWithCustomerByIdIn(
+                        changedIds.subList(from, Math.min(from + BULK_STATE_CHUNK_SIZE, changedIds.size()))));
+            }
+            // Emaily až po commitu - při rollbacku se zákazníkům nic neodešle
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    emailService.sendOrderStatusUpdateEmails(changedOrders, newOrderState);
+                }
+            });
+        }
+        return new BulkStateChangeResult(requestedIds.size(), changedIds.size(), batchId);
+    }
+
     private void updateOrderTimestamps(Order order, OrderState newState) {
         LocalDateTime now = LocalDateTime.now();
         if (newState == null || newState.getCode() == null) return;
@@ -999,23 +1167,9 @@ public class OrderService implements PriceConstants {
                 customerEmail.orElse("N/A"), stateId.orElse(null), paymentStatus.orElse("N/A"),
                 dateTimeFrom.orElse(null), dateTimeTo.orElse(null), pageable);
 
-        Specification<Order> spec = Specification.where(null); // Start with empty spec
-
-        if (customerEmail.filter(StringUtils::hasText).isPresent()) {
-            spec = spec.and(OrderSpecifications.customerEmailContains(customerEmail.get()));
-        }
-        if (stateId.isPresent()) {
-            spec = spec.and(OrderSpecifications.hasStateId(stateId.get()));
-        }
-        if (paymentStatus.filter(StringUtils::hasText).isPresent()) {
-            spec = spec.and(OrderSpecifications.hasPaymentStatus(paymentStatus.get()));
-        }
-        if (dateTimeFrom.isPresent()) {
-            spec = spec.and(OrderSpecifications.orderDateFrom(dateTimeFrom.get()));
-        }
-        if (dateTimeTo.isPresent()) {
-            spec = spec.and(OrderSpecifications.orderDateTo(dateTimeTo.get()));
-        }
+        Specification<Order> spec = OrderSpecifications.adminFilter(
+                customerEmail.orElse(null), stateId.orElse(null), paymentStatus.orElse(null),
+                dateTimeFrom.orElse(null), dateTimeTo.orElse(null));
 
         Page<Order> result = orderRepository.findAll(spec, pageable);
         log.info("Found {} orders matching criteria using specifications.", result.getTotalElements());
@@ -1046,6 +1200,7 @@ public class OrderService implements PriceConstants {
         order.setDepositPaidDate(paymentDate.atStartOfDay()); // Store time as well (start of day)
         log.info("Marking deposit paid for order {} on {}", order.getOrderCode(), paymentDate);
         Order savedOrder = orderRepository.save(order);
+        customerOrderStatsService.recordPayment(savedOrder, true, false);
 
         // --- Call SuperFaktura API ---
         Long invoiceIdToMark = savedOrder.getSfProformaInvoiceId(); // Try to mark the proforma
@@ -1125,15 +1280,18 @@ public class OrderService implements PriceConstants {
         amountJustPaid = amountJustPaid.max(BigDecimal.ZERO); // Ensure non-negative
 
         // Update order status
+        boolean depositWasOutstanding = order.getDepositAmount() != null && order.getDepositAmount().compareTo(BigDecimal.ZERO) > 0
+                && order.getDepositPaidDate() == null;
         order.setPaymentStatus(PAYMENT_STATUS_PAID);
         order.setPaymentDate(paymentDate.atStartOfDay());
         // If deposit was required but not marked, mark it now
-        if (order.getDepositAmount() != null && order.getDepositAmount().compareTo(BigDecimal.ZERO) > 0 && order.getDepositPaidDate() == null) {
+        if (depositWasOutstanding) {
             log.warn("Marking order {} fully paid also sets missing deposit paid date to {}", order.getOrderCode(), paymentDate);
             order.setDepositPaidDate(paymentDate.atStartOfDay());
         }
         log.info("Marking order {} fully paid on {}", order.getOrderCode(), paymentDate);
         Order savedOrder = orderRepository.save(order);
+        customerOrderStatsService.recordPayment(savedOrder, depositWasOutstanding, true);
 
         // --- Call SuperFaktura API ---
         // Mark payment on the FINAL invoice if it exists
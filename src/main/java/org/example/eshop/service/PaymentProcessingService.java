@@ -29,6 +29,8 @@ public class PaymentProcessingService {
     private OrderRepository orderRepository;
     @Autowired
     private InvoiceService invoiceService; // Pro generování DDKP
+    @Autowired
+    private CustomerOrderStatsService customerOrderStatsService; // Souhrny zákazníků v CMS
 
     /**
      * Zpracuje notifikaci (webhook) o platbě ze SuperFaktury.
@@ -103,6 +105,7 @@ public class PaymentProcessingService {
             order.setPaymentStatus(PAYMENT_STATUS_DEPOSIT_PAID);
             order.setDepositPaidDate(paymentDateTime);
             orderRepository.save(order);
+            customerOrderStatsService.recordPayment(order, true, false);
             log.info("Order {} payment status updated to DEPOSIT_PAID, date set to {}", order.getOrderCode(), paymentDateTime);
 
             // Trigger pro generování DDKP
@@ -120,11 +123,13 @@ public class PaymentProcessingService {
         } else if (!isProformaPayment && totalMatches && order.getPaymentDate() == null) {
             // Plná platba (zaplacena ostrá faktura nebo doplatek)
             log.info("Processing FULL payment for order {}", order.getOrderCode());
+            boolean depositWasOutstanding = order.getDepositPaidDate() == null;
             order.setPaymentStatus(PAYMENT_STATUS_PAID);
             order.setPaymentDate(paymentDateTime);
             if (order.getDepositPaidDate() == null)
                 order.setDepositPaidDate(paymentDateTime); // Pokud nebyla záloha, nastavíme i datum zálohy? Nebo nechat null?
             orderRepository.save(order);
+            customerOrderStatsService.recordPayment(order, depositWasOutstanding, true);
             log.info("Order {} payment status updated to PAID, date set to {}", order.getOrderCode(), paymentDateTime);
             // TODO: Změnit stav objednávky?
 
@@ -134,6 +139,7 @@ public class PaymentProcessingService {
             order.setPaymentStatus(PAYMENT_STATUS_DEPOSIT_PAID);
             order.setDepositPaidDate(paymentDateTime);
             orderRepository.save(order);
+            customerOrderStatsService.recordPayment(order, true, false);
             log.info("Order {} payment status updated to DEPOSIT_PAID, date set to {}", order.getOrderCode(), paymentDateTime);
             // DDKP už bylo vygenerováno, když jsme poslali tuto fakturu
 
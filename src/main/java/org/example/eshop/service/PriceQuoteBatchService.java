@@ -0,0 +1,236 @@
+package org.example.eshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PreDestroy;
+import org.example.eshop.dto.CustomPriceRequestDto;
+import org.example.eshop.dto.CustomPriceResponseDto;
+import org.example.eshop.dto.PriceQuoteBatchRequestDto;
+import org.example.eshop.dto.PriceQuoteBatchRequestDto.Grid;
+import org.example.eshop.dto.PriceQuoteBatchRequestDto.Range;
+import org.example.eshop.model.*;
+import org.example.eshop.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Dávkový výpočet cen konfigurovatelných produktů (nabídky pro B2B, ceníkové mřížky) - endpoint je jen pro
+ * přihlášené administrátory.
+ * <p>
+ * Produkty, designy, lazury, barvy střech a doplňky všech konfigurací se načtou jednou na začátku
+ * ({@link #preload}), jednotlivé ceny pak počítá {@link ProductService#calculateDetailedCustomPrice(CustomPriceRequestDto, ProductService.PriceLookup)}
+ * nad těmito daty bez dalšího přístupu do DB - po blocích na malém vlastním poolu vláken
+ * ({@code eshop.pricing.batch.threads}), aby dávky nemohly obsadit společný ForkJoinPool. Každý blok se
+ * hned zapíše do výstupu jako NDJSON, klient tak dostává výsledky průběžně ve vstupním pořadí.
+ */
+@Service
+public class PriceQuoteBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceQuoteBatchService.class);
+
+    /**
+     * Jeden řádek odpovědi: pořadí konfigurace ve vstupu, konfigurace a její cena (nebo chyba v {@code quote.errorMessage}).
+     */
+    public record QuoteLine(int index, CustomPriceRequestDto request, CustomPriceResponseDto quote) {
+    }
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private DesignRepository designRepository;
+    @Autowired
+    private GlazeRepository glazeRepository;
+    @Autowired
+    private RoofColorRepository roofColorRepository;
+    @Autowired
+    private AddonsRepository addonsRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${eshop.pricing.batch.max-quotes:500}")
+    private int maxQuotes;
+    @Value("${eshop.pricing.batch.chunk-size:10}")
+    private int chunkSize;
+
+    private final ExecutorService workers;
+
+    public PriceQuoteBatchService(@Value("${eshop.pricing.batch.threads:2}") int threads) {
+        this.workers = Executors.newFixedThreadPool(Math.max(threads, 1),
+                Thread.ofPlatform().name("price-quote-batch-", 0).daemon(true).factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Rozvine požadavek na seznam konfigurací: nejdřív {@code quotes}, potom buňky mřížky.
+     *
+     * @throws IllegalArgumentException prázdný požadavek, neplatná mřížka nebo víc konfigurací než {@code max-quotes}
+     */
+    public List<CustomPriceRequestDto> expand(PriceQuoteBatchRequestDto request) {
+        List<CustomPriceRequestDto> quotes = new ArrayList<>();
+        if (request.getQuotes() != null) {
+            request.getQuotes().stream().filter(Objects::nonNull).forEach(quotes::add);
+        }
+        Grid grid = request.getGrid();
+        if (grid != null) {
+            if (grid.getProductId() == null) {
+                throw new IllegalArgumentException("Mřížka musí mít vyplněné productId.");
+            }
+            List<BigDecimal> lengths = rangeValues("length", grid.getLength());
+            List<BigDecimal> widths = rangeValues("width", grid.getWidth());
+            List<BigDecimal> heights = rangeValues("height", grid.getHeight());
+            checkLimit((long) quotes.size() + (long) lengths.size() * widths.size() * heights.size());
+            List<Long> addonIds = grid.getSelectedAddonIds() != null ? new ArrayList<>(grid.getSelectedAddonIds()) : null;
+            for (BigDecimal length : lengths) {
+                for (BigDecimal width : widths) {
+                    for (BigDecimal height : heights) {
+                        CustomPriceRequestDto quote = new CustomPriceRequestDto();
+                        quote.setProductId(grid.getProductId());
+                        quote.setCustomDimensions(new LinkedHashMap<>(Map.of("length", length, "width", width, "height", height)));
+                        quote.setSelectedDesignId(grid.getSelectedDesignId());
+                        quote.setSelectedGlazeId(grid.getSelectedGlazeId());
+                        quote.setSelectedRoofColorId(grid.getSelectedRoofColorId());
+                        quote.setSelectedAddonIds(addonIds);
+                        quotes.add(quote);
+                    }
+                }
+            }
+        }
+        if (quotes.isEmpty()) {
+            throw new IllegalArgumentException("Požadavek neobsahuje žádnou konfiguraci.");
+        }
+        checkLimit(quotes.size());
+        return quotes;
+    }
+
+    /**
+     * Načte jedním průchodem všechny entity potřebné pro výpočet daných konfigurací. Vrácený zdroj už do DB nesahá
+     * a je bezpečný pro souběžné čtení.
+     */
+    @Transactional(readOnly = true)
+    public ProductService.PriceLookup preload(List<CustomPriceRequestDto> quotes) {
+        Map<Long, Optional<Product>> products = new HashMap<>();
+        Set<Long> designIds = new HashSet<>();
+        Set<Long> glazeIds = new HashSet<>();
+        Set<Long> roofColorIds = new HashSet<>();
+        Set<Long> addonIds = new HashSet<>();
+        for (CustomPriceRequestDto quote : quotes) {
+            if (quote.getProductId() != null) {
+                products.computeIfAbsent(quote.getProductId(), productRepository::findByIdWithDetails);
+            }
+            if (quote.getSelectedDesignId() != null) designIds.add(quote.getSelectedDesignId());
+            if (quote.getSelectedGlazeId() != null) glazeIds.add(quote.getSelectedGlazeId());
+            if (quote.getSelectedRoofColorId() != null) roofColorIds.add(quote.getSelectedRoofColorId());
+            if (quote.getSelectedAddonIds() != null) {
+                quote.getSelectedAddonIds().stream().filter(Objects::nonNull).forEach(addonIds::add);
+            }
+        }
+        Map<Long, Design> designs = byId(designRepository.findAllById(designIds), Design::getId);
+        Map<Long, Glaze> glazes = byId(glazeRepository.findAllById(glazeIds), Glaze::getId);
+        Map<Long, RoofColor> roofColors = byId(roofColorRepository.findAllById(roofColorIds), RoofColor::getId);
+        Map<Long, Addon> addons = byId(addonsRepository.findAllById(addonIds), Addon::getId);
+        log.debug("Batch price quote preload: {} products, {} designs, {} glazes, {} roof colors, {} addons.",
+                products.size(), designs.size(), glazes.size(), roofColors.size(), addons.size());
+
+        return new ProductService.PriceLookup(
+                id -> products.getOrDefault(id, Optional.empty()),
+                id -> Optional.ofNullable(designs.get(id)),
+                id -> Optional.ofNullable(glazes.get(id)),
+                id -> Optional.ofNullable(roofColors.get(id)),
+                // Stejně jako findAllById: duplicitní ID se nepočítají dvakrát, neexistující se vynechají
+                ids -> ids.stream().distinct().map(addons::get).filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * Spočítá ceny po blocích {@code chunk-size} na poolu dávkových výpočtů a každý blok zapíše jako NDJSON řádky ve vstupním pořadí.
+     * Chybná konfigurace nezastaví dávku - její řádek má vyplněné {@code quote.errorMessage}.
+     */
+    public void writeQuotes(List<CustomPriceRequestDto> quotes, ProductService.PriceLookup lookup, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(QuoteLine.class);
+        int chunk = Math.max(chunkSize, 1);
+        int errors = 0;
+        long start = System.nanoTime();
+        for (int from = 0; from < quotes.size(); from += chunk) {
+            List<Callable<QuoteLine>> tasks = new ArrayList<>();
+            for (int i = from; i < Math.min(from + chunk, quotes.size()); i++) {
+                int index = i;
+                tasks.add(() -> new QuoteLine(index, quotes.get(index), productService.calculateDetailedCustomPrice(quotes.get(index), lookup)));
+            }
+            for (QuoteLine line : computeAll(tasks)) {
+                out.write(writer.writeValueAsBytes(line));
+                out.write('\n');
+                if (line.quote().getErrorMessage() != null) errors++;
+            }
+            out.flush();
+        }
+        log.info("Batch price quote: {} configurations ({} with error) in {} ms.",
+                quotes.size(), errors, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private List<QuoteLine> computeAll(List<Callable<QuoteLine>> tasks) throws IOException {
+        try {
+            List<QuoteLine> lines = new ArrayList<>(tasks.size());
+            for (Future<QuoteLine> future : workers.invokeAll(tasks)) {
+                lines.add(future.get());
+            }
+            return lines;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch price quote interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch price quote failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private List<BigDecimal> rangeValues(String name, Range range) {
+        if (range == null || range.getFrom() == null) {
+            throw new IllegalArgumentException("Mřížka: chybí rozsah '" + name + "'.");
+        }
+        if (range.getTo() == null || range.getStep() == null) {
+            return List.of(range.getFrom());
+        }
+        if (range.getStep().signum() <= 0 || range.getTo().compareTo(range.getFrom()) < 0) {
+            throw new IllegalArgumentException("Mřížka: neplatný rozsah '" + name + "' (from <= to, step > 0).");
+        }
+        BigDecimal steps = range.getTo().subtract(range.getFrom()).divideToIntegralValue(range.getStep());
+        if (steps.compareTo(BigDecimal.valueOf(maxQuotes)) >= 0) {
+            throw new IllegalArgumentException("Mřížka: rozsah '" + name + "' má víc než " + maxQuotes + " hodnot.");
+        }
+        List<BigDecimal> values = new ArrayList<>();
+        for (long i = 0; i <= steps.longValue(); i++) {
+            values.add(range.getFrom().add(range.getStep().multiply(BigDecimal.valueOf(i))));
+        }
+        return values;
+    }
+
+    private void checkLimit(long count) {
+        if (count > maxQuotes) {
+            throw new IllegalArgumentException("Příliš mnoho konfigurací v jednom požadavku (" + count + ", maximum " + maxQuotes + ").");
+        }
+    }
+
+    private static <T> Map<Long, T> byId(List<T> entities, Function<T, Long> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity(), (a, b) -> a));
+    }
+}
@@ -0,0 +1,254 @@
+package org.example.eshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import org.example.eshop.config.PriceConstants;
+import org.example.eshop.model.*;
+import org.example.eshop.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cenové deskriptory konfigurovatelných produktů: vše, co je potřeba pro výpočet ceny konfigurace v prohlížeči
+ * (sazby za cm, limity rozměrů, příplatky atributů a pravidla doplňků v CZK i EUR). Konfigurátor pak při změně
+ * rozměrů nevolá {@code /api/product/calculate-price}, cenu počítá {@code product-configurator.js} lokálně.
+ * <p>
+ * Verze deskriptoru je otisk jeho obsahu (stejná na všech instancích), podpis je HMAC verze klíčem
+ * {@code eshop.pricing.descriptor-secret}. Prohlížeč posílá verzi a podpis zpět při vložení do košíku; server cenu
+ * vždy počítá znovu sám a podle verze pozná, že zákazník viděl zastaralý ceník (viz {@link #checkQuote}).
+ * Deskriptory se drží v paměti pro aktuální generaci katalogu.
+ */
+@Service
+public class PricingDescriptorService implements PriceConstants {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingDescriptorService.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Podepsaný deskriptor jednoho produktu; {@code json} je hotová obálka pro stránku i API.
+     */
+    public record Descriptor(Long productId, String version, String signature, String json, long generation) {
+    }
+
+    /**
+     * Výsledek ověření ceny, kterou zákazník viděl v konfigurátoru.
+     */
+    public enum QuoteCheck {
+        /** Klient neposlal verzi (starý skript, vypnutý JS) - nelze porovnat. */
+        UNKNOWN,
+        /** Cena odpovídá aktuálnímu ceníku. */
+        MATCH,
+        /** Klient počítal podle starší verze ceníku nebo se jeho cena liší. */
+        STALE,
+        /** Verze neodpovídá podpisu - data od klienta byla upravena. */
+        FORGED
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${eshop.pricing.descriptor-secret:}")
+    private String secret;
+    @Value("${eshop.pricing.allow-random-descriptor-secret:false}")
+    private boolean allowRandomSecret;
+
+    private final Map<Long, Descriptor> descriptors = new ConcurrentHashMap<>();
+    private byte[] secretKey;
+
+    @PostConstruct
+    void init() {
+        if (StringUtils.hasText(secret)) {
+            secretKey = secret.getBytes(StandardCharsets.UTF_8);
+        } else if (!allowRandomSecret) {
+            // Náhodný klíč na každé instanci = deskriptory z jiné instance vypadají jako podvržené (FORGED)
+            throw new IllegalStateException("eshop.pricing.descriptor-secret must be set (same value on all instances). "
+                    + "For a single local instance set eshop.pricing.allow-random-descriptor-secret=true.");
+        } else {
+            secretKey = new byte[32];
+            new SecureRandom().nextBytes(secretKey);
+            log.warn("eshop.pricing.descriptor-secret is not set, using a random per-instance key - "
+                    + "pricing descriptor signatures will not verify across instances.");
+        }
+    }
+
+    /**
+     * Deskriptor pro produkt, který už volající načetl i s atributy a doplňky (detail produktu).
+     */
+    public Descriptor descriptorFor(Product product) {
+        long generation = catalogSnapshotService.getGeneration();
+        Descriptor cached = descriptors.get(product.getId());
+        if (cached != null && cached.generation() == generation) {
+            return cached;
+        }
+        Descriptor descriptor = build(product, generation);
+        descriptors.put(product.getId(), descriptor);
+        return descriptor;
+    }
+
+    /**
+     * Deskriptor podle ID produktu (API) - z DB se čte jen při první potřebě v dané generaci katalogu.
+     *
+     * @throws EntityNotFoundException pokud produkt neexistuje, není aktivní nebo není konfigurovatelný
+     */
+    @Transactional(readOnly = true)
+    public Descriptor descriptorFor(Long productId) {
+        Descriptor cached = descriptors.get(productId);
+        if (cached != null && cached.generation() == catalogSnapshotService.getGeneration()) {
+            return cached;
+        }
+        Product product = productRepository.findByIdWithDetails(productId)
+                .filter(p -> p.isActive() && p.isCustomisable() && p.getConfigurator() != null)
+                .orElseThrow(() -> new EntityNotFoundException("Konfigurovatelný produkt nenalezen: " + productId));
+        return descriptorFor(product);
+    }
+
+    /**
+     * Porovná cenu, kterou klient spočítal z deskriptoru, s cenou spočítanou serverem. Server vždy použije svou cenu;
+     * výsledek slouží jen k upozornění zákazníka a k logování.
+     */
+    public QuoteCheck checkQuote(Product product, String version, String signature, BigDecimal quotedPrice, BigDecimal serverPrice) {
+        if (!StringUtils.hasText(version) || !StringUtils.hasText(signature)) {
+            return QuoteCheck.UNKNOWN;
+        }
+        if (!MessageDigest.isEqual(sign(product.getId(), version).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII))) {
+            log.warn("Pricing descriptor signature mismatch for product {} (version {}).", product.getId(), version);
+            return QuoteCheck.FORGED;
+        }
+        boolean currentVersion = descriptorFor(product).version().equals(version);
+        boolean samePrice = quotedPrice == null || serverPrice == null || quotedPrice.compareTo(serverPrice) == 0;
+        if (!currentVersion || !samePrice) {
+            log.info("Stale configurator quote for product {}: version {} (current: {}), quoted {} vs. server {}.",
+                    product.getId(), version, currentVersion, quotedPrice, serverPrice);
+            return QuoteCheck.STALE;
+        }
+        return QuoteCheck.MATCH;
+    }
+
+    private Descriptor build(Product product, long generation) {
+        ProductConfigurator config = product.getConfigurator();
+        if (config == null) {
+            throw new IllegalArgumentException("Produkt ID " + product.getId() + " nemá konfigurátor.");
+        }
+        // TreeMap + seřazené klíče = kanonický JSON, otisk je tak stejný na všech instancích.
+        // Částky jsou řetězce (toPlainString) - JS je počítá přesně v BigInt, ne jako double.
+        Map<String, Object> pricing = new TreeMap<>();
+        pricing.put("priceScale", PRICE_SCALE);
+        pricing.put("limits", Map.of(
+                "length", limits(config.getMinLength(), config.getMaxLength()),
+                "width", limits(config.getMinWidth(), config.getMaxWidth()),
+                "height", limits(config.getMinHeight(), config.getMaxHeight())));
+        pricing.put("rates", Map.of(
+                DEFAULT_CURRENCY, rates(config.getPricePerCmLengthCZK(), config.getPricePerCmWidthCZK(), config.getPricePerCmHeightCZK()),
+                EURO_CURRENCY, rates(config.getPricePerCmLengthEUR(), config.getPricePerCmWidthEUR(), config.getPricePerCmHeightEUR())));
+
+        Map<String, Object> designs = new TreeMap<>();
+        for (Design design : product.getAvailableDesigns()) {
+            designs.put(String.valueOf(design.getId()), surcharge(design.getPriceSurchargeCZK(), design.getPriceSurchargeEUR()));
+        }
+        pricing.put("designs", designs);
+        Map<String, Object> glazes = new TreeMap<>();
+        for (Glaze glaze : product.getAvailableGlazes()) {
+            glazes.put(String.valueOf(glaze.getId()), surcharge(glaze.getPriceSurchargeCZK(), glaze.getPriceSurchargeEUR()));
+        }
+        pricing.put("glazes", glazes);
+        Map<String, Object> roofColors = new TreeMap<>();
+        for (RoofColor roofColor : product.getAvailableRoofColors()) {
+            roofColors.put(String.valueOf(roofColor.getId()), surcharge(roofColor.getPriceSurchargeCZK(), roofColor.getPriceSurchargeEUR()));
+        }
+        pricing.put("roofColors", roofColors);
+
+        Map<String, Object> addons = new TreeMap<>();
+        for (Addon addon : product.getAvailableAddons()) {
+            if (!addon.isActive()) continue; // Server neaktivní doplňky nepočítá
+            Map<String, Object> rule = new TreeMap<>();
+            rule.put("name", addon.getName());
+            rule.put("pricingType", addon.getPricingType());
+            rule.put(DEFAULT_CURRENCY, addonPrices(addon.getPriceCZK(), addon.getPricePerUnitCZK()));
+            rule.put(EURO_CURRENCY, addonPrices(addon.getPriceEUR(), addon.getPricePerUnitEUR()));
+            addons.put(String.valueOf(addon.getId()), rule);
+        }
+        pricing.put("addons", addons);
+
+        try {
+            String pricingJson = objectMapper.writer()
+                    .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsString(pricing);
+            String version = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(pricingJson.getBytes(StandardCharsets.UTF_8)), 0, 8);
+            String signature = sign(product.getId(), version);
+            String json = "{\"productId\":" + product.getId()
+                    + ",\"version\":\"" + version + "\""
+                    + ",\"signature\":\"" + signature + "\""
+                    + ",\"pricing\":" + pricingJson + "}";
+            log.debug("Pricing descriptor for product {} built, version {}.", product.getId(), version);
+            return new Descriptor(product.getId(), version, signature, json, generation);
+        } catch (JsonProcessingException | GeneralSecurityException e) {
+            throw new IllegalStateException("Nepodařilo se sestavit cenový deskriptor produktu " + product.getId(), e);
+        }
+    }
+
+    private String sign(Long productId, String version) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secretKey, HMAC_ALGORITHM));
+            byte[] digest = mac.doFinal((productId + ":" + version).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC podpis cenového deskriptoru selhal", e);
+        }
+    }
+
+    private static Map<String, Object> limits(BigDecimal min, BigDecimal max) {
+        Map<String, Object> limits = new TreeMap<>();
+        limits.put("min", plain(min));
+        limits.put("max", plain(max));
+        return limits;
+    }
+
+    // Chybějící sazba zůstane null - klient pak cenu nechá spočítat server (ten vrátí chybu konfigurace)
+    private static Map<String, Object> rates(BigDecimal length, BigDecimal width, BigDecimal height) {
+        Map<String, Object> rates = new TreeMap<>();
+        rates.put("length", plain(length));
+        rates.put("width", plain(width));
+        rates.put("height", plain(height));
+        return rates;
+    }
+
+    private static Map<String, Object> surcharge(BigDecimal czk, BigDecimal eur) {
+        return Map.of(DEFAULT_CURRENCY, plain(czk != null ? czk : BigDecimal.ZERO), EURO_CURRENCY, plain(eur != null ? eur : BigDecimal.ZERO));
+    }
+
+    private static Map<String, Object> addonPrices(BigDecimal fixed, BigDecimal perUnit) {
+        Map<String, Object> prices = new TreeMap<>();
+        prices.put("price", plain(fixed));     // FIXED; null = 0
+        prices.put("perUnit", plain(perUnit)); // PER_CM_*, PER_SQUARE_METER; null = chyba konfigurace, 0 = doplněk nic nestojí
+        return prices;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+}
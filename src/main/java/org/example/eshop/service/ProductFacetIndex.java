@@ -0,0 +1,267 @@
+package org.example.eshop.service;
+
+import org.example.eshop.config.PriceConstants;
+import org.example.eshop.dto.CatalogPriceDto;
+import org.example.eshop.dto.CatalogProductDto;
+import org.example.eshop.dto.ProductFacetQuery;
+import org.example.eshop.dto.ProductFacetQuery.SortOrder;
+import org.example.eshop.dto.ProductFacetResult;
+import org.example.eshop.dto.ProductFacetResult.FacetValue;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.text.Collator;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Sloupcový index standardních produktů jednoho {@link CatalogSnapshot} pro facetové filtrování výpisu.
+ * <p>
+ * Každý atribut je samostatné pole indexované pořadím produktu (rozměry, plocha, předpočítané finální ceny v CZK
+ * a EUR); textové facety (materiál, přesah střechy) jsou slovníkově zakódované na čísla. Pro každé řazení je
+ * předem seřazená permutace řádků, dotaz tedy jen jednou projde sloupce, spočítá facety a z permutace vybere
+ * stránku - bez alokace entit a bez dotazu do DB. Instance je neměnná a sdílená mezi vlákny.
+ * <p>
+ * Chybějící hodnota (rozměr, "cena na dotaz") je {@code NaN}: neprojde žádným nastaveným rozsahem
+ * a při řazení je vždy na konci.
+ */
+public class ProductFacetIndex implements PriceConstants {
+
+    private final long generation;
+    private final int size;
+    private final CatalogProductDto[] products;
+
+    private final double[] length;
+    private final double[] width;
+    private final double[] height;
+    private final double[] priceCZK;
+    private final double[] priceEUR;
+
+    private final Dictionary materials;
+    private final Dictionary roofOversteps;
+
+    private final Map<SortOrder, int[]> ordersCZK = new EnumMap<>(SortOrder.class);
+    private final Map<SortOrder, int[]> ordersEUR = new EnumMap<>(SortOrder.class);
+
+    public ProductFacetIndex(CatalogSnapshot snapshot) {
+        this.generation = snapshot.getGeneration();
+        this.products = snapshot.getProducts().stream()
+                .filter(p -> !p.isCustomisable())
+                .toArray(CatalogProductDto[]::new);
+        this.size = products.length;
+
+        this.length = new double[size];
+        this.width = new double[size];
+        this.height = new double[size];
+        this.priceCZK = new double[size];
+        this.priceEUR = new double[size];
+        double[] area = new double[size];
+        for (int i = 0; i < size; i++) {
+            CatalogProductDto product = products[i];
+            length[i] = toDouble(product.getLength());
+            width[i] = toDouble(product.getWidth());
+            height[i] = toDouble(product.getHeight());
+            area[i] = length[i] * width[i]; // NaN, pokud jeden z rozměrů chybí
+            priceCZK[i] = finalPrice(product.getPriceCZK());
+            priceEUR[i] = finalPrice(product.getPriceEUR());
+        }
+
+        Collator collator = Collator.getInstance(Locale.forLanguageTag("cs"));
+        this.materials = new Dictionary(products, CatalogProductDto::getMaterial, collator);
+        this.roofOversteps = new Dictionary(products, CatalogProductDto::getRoofOverstep, collator);
+
+        Integer[] rows = new Integer[size];
+        for (int i = 0; i < size; i++) rows[i] = i;
+        Arrays.sort(rows, Comparator.comparing((Integer row) -> Objects.toString(products[row].getName(), ""), collator)
+                .thenComparing(row -> products[row].getId(), Comparator.nullsLast(Long::compareTo)));
+        int[] nameRank = new int[size];
+        for (int rank = 0; rank < size; rank++) nameRank[rows[rank]] = rank;
+        Comparator<Integer> byName = Comparator.comparingInt(row -> nameRank[row]);
+
+        int[] nameOrder = sortedRows(byName);
+        int[] sizeAsc = sortedRows(byColumn(area, false).thenComparing(byName));
+        int[] sizeDesc = sortedRows(byColumn(area, true).thenComparing(byName));
+        for (Map<SortOrder, int[]> orders : List.of(ordersCZK, ordersEUR)) {
+            orders.put(SortOrder.NAME, nameOrder);
+            orders.put(SortOrder.SIZE_ASC, sizeAsc);
+            orders.put(SortOrder.SIZE_DESC, sizeDesc);
+        }
+        ordersCZK.put(SortOrder.PRICE_ASC, sortedRows(byColumn(priceCZK, false).thenComparing(byName)));
+        ordersCZK.put(SortOrder.PRICE_DESC, sortedRows(byColumn(priceCZK, true).thenComparing(byName)));
+        ordersEUR.put(SortOrder.PRICE_ASC, sortedRows(byColumn(priceEUR, false).thenComparing(byName)));
+        ordersEUR.put(SortOrder.PRICE_DESC, sortedRows(byColumn(priceEUR, true).thenComparing(byName)));
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Vyfiltruje, spočítá facety a vrátí požadovanou stránku. Ceny se porovnávají ve zvolené měně.
+     */
+    public ProductFacetResult search(ProductFacetQuery query, String currency) {
+        double[] price = EURO_CURRENCY.equals(currency) ? priceEUR : priceCZK;
+        boolean[] materialSelected = materials.selection(query.getMaterial());
+        boolean[] roofOverstepSelected = roofOversteps.selection(query.getRoofOverstep());
+
+        double minLength = toDouble(query.getMinLength()), maxLength = toDouble(query.getMaxLength());
+        double minWidth = toDouble(query.getMinWidth()), maxWidth = toDouble(query.getMaxWidth());
+        double minHeight = toDouble(query.getMinHeight()), maxHeight = toDouble(query.getMaxHeight());
+        double minPrice = toDouble(query.getMinPrice()), maxPrice = toDouble(query.getMaxPrice());
+
+        int[] materialCounts = new int[materials.values.length];
+        int[] roofOverstepCounts = new int[roofOversteps.values.length];
+        BitSet matches = new BitSet(size);
+        for (int row = 0; row < size; row++) {
+            if (!inRange(length[row], minLength, maxLength) || !inRange(width[row], minWidth, maxWidth)
+                    || !inRange(height[row], minHeight, maxHeight) || !inRange(price[row], minPrice, maxPrice)) {
+                continue;
+            }
+            int materialCode = materials.codes[row];
+            int roofOverstepCode = roofOversteps.codes[row];
+            boolean materialOk = materialSelected == null || (materialCode >= 0 && materialSelected[materialCode]);
+            boolean roofOverstepOk = roofOverstepSelected == null || (roofOverstepCode >= 0 && roofOverstepSelected[roofOverstepCode]);
+            // Každá faceta se počítá bez vlastního filtru
+            if (roofOverstepOk && materialCode >= 0) materialCounts[materialCode]++;
+            if (materialOk && roofOverstepCode >= 0) roofOverstepCounts[roofOverstepCode]++;
+            if (materialOk && roofOverstepOk) matches.set(row);
+        }
+
+        int pageSize = query.getSafeSize();
+        int pageNumber = query.getSafePage();
+        long from = (long) pageNumber * pageSize;
+        List<CatalogProductDto> content = new ArrayList<>(pageSize);
+        int seen = 0;
+        for (int row : (EURO_CURRENCY.equals(currency) ? ordersEUR : ordersCZK).get(query.getSortOrder())) {
+            if (!matches.get(row)) continue;
+            if (seen++ >= from) {
+                content.add(products[row]);
+                if (content.size() == pageSize) break;
+            }
+        }
+
+        return new ProductFacetResult(
+                new PageImpl<>(content, PageRequest.of(pageNumber, pageSize), matches.cardinality()),
+                materials.facet(materialCounts, materialSelected),
+                roofOversteps.facet(roofOverstepCounts, roofOverstepSelected),
+                bound(price, true), bound(price, false), "memory");
+    }
+
+    /**
+     * Prvních {@code limit} produktů v daném řazení bez filtrů (např. nejlevnější na úvodní stránku).
+     */
+    public List<CatalogProductDto> top(SortOrder sortOrder, String currency, int limit) {
+        int[] order = (EURO_CURRENCY.equals(currency) ? ordersEUR : ordersCZK).get(sortOrder);
+        List<CatalogProductDto> result = new ArrayList<>(Math.min(limit, size));
+        for (int i = 0; i < order.length && result.size() < limit; i++) {
+            result.add(products[order[i]]);
+        }
+        return result;
+    }
+
+    private int[] sortedRows(Comparator<Integer> comparator) {
+        Integer[] rows = new Integer[size];
+        for (int i = 0; i < size; i++) rows[i] = i;
+        Arrays.sort(rows, comparator);
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) result[i] = rows[i];
+        return result;
+    }
+
+    private static Comparator<Integer> byColumn(double[] column, boolean descending) {
+        return (a, b) -> {
+            double x = column[a], y = column[b];
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                return Boolean.compare(Double.isNaN(x), Double.isNaN(y)); // Chybějící hodnoty vždy na konec
+            }
+            return descending ? Double.compare(y, x) : Double.compare(x, y);
+        };
+    }
+
+    private static boolean inRange(double value, double min, double max) {
+        if (Double.isNaN(min) && Double.isNaN(max)) return true;
+        if (Double.isNaN(value)) return false;
+        return (Double.isNaN(min) || value >= min) && (Double.isNaN(max) || value <= max);
+    }
+
+    private static BigDecimal bound(double[] column, boolean min) {
+        double result = Double.NaN;
+        for (double value : column) {
+            if (!Double.isNaN(value) && (Double.isNaN(result) || (min ? value < result : value > result))) {
+                result = value;
+            }
+        }
+        return Double.isNaN(result) ? null : BigDecimal.valueOf(result);
+    }
+
+    private static double finalPrice(CatalogPriceDto price) {
+        return price != null ? toDouble(price.getFinalPrice()) : Double.NaN;
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Slovníkové kódování textové facety: hodnota se porovnává bez ohledu na velikost písmen a okolní mezery,
+     * zobrazuje se první výskyt. Kód -1 = hodnota chybí.
+     */
+    private static final class Dictionary {
+
+        private final String[] values;
+        private final Map<String, Integer> codesByKey = new HashMap<>();
+        private final int[] codes;
+
+        Dictionary(CatalogProductDto[] products, Function<CatalogProductDto, String> attribute, Collator collator) {
+            Map<String, String> displayByKey = new HashMap<>();
+            for (CatalogProductDto product : products) {
+                String value = attribute.apply(product);
+                if (value != null && !value.isBlank()) {
+                    displayByKey.putIfAbsent(key(value), value.trim());
+                }
+            }
+            this.values = displayByKey.values().stream().sorted(collator).toArray(String[]::new);
+            for (int code = 0; code < values.length; code++) {
+                codesByKey.put(key(values[code]), code);
+            }
+            this.codes = new int[products.length];
+            for (int row = 0; row < products.length; row++) {
+                String value = attribute.apply(products[row]);
+                codes[row] = value != null && !value.isBlank() ? codesByKey.get(key(value)) : -1;
+            }
+        }
+
+        /**
+         * @return null = faceta se nefiltruje; jinak příznak zvolení pro každý kód
+         */
+        boolean[] selection(List<String> selectedValues) {
+            List<String> keys = ProductFacetQuery.normalizedValues(selectedValues);
+            if (keys.isEmpty()) {
+                return null;
+            }
+            boolean[] selected = new boolean[values.length];
+            for (String key : keys) {
+                Integer code = codesByKey.get(key);
+                if (code != null) selected[code] = true; // Neznámá hodnota nic nevybere
+            }
+            return selected;
+        }
+
+        List<FacetValue> facet(int[] counts, boolean[] selected) {
+            List<FacetValue> result = new ArrayList<>(values.length);
+            for (int code = 0; code < values.length; code++) {
+                result.add(new FacetValue(values[code], counts[code], selected != null && selected[code]));
+            }
+            return result;
+        }
+
+        private static String key(String value) {
+            return value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.eshop.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.example.eshop.config.PriceConstants;
+import org.example.eshop.dto.CatalogProductDto;
+import org.example.eshop.dto.ProductFacetQuery;
+import org.example.eshop.dto.ProductFacetQuery.SortOrder;
+import org.example.eshop.dto.ProductFacetResult;
+import org.example.eshop.dto.ProductFacetResult.FacetValue;
+import org.example.eshop.model.Product;
+import org.example.eshop.repository.ProductSpecifications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Facetové filtrování a řazení výpisu standardních produktů.
+ * <p>
+ * Výchozí cesta je {@link ProductFacetIndex} nad aktuálním {@link CatalogSnapshot} - index se přestaví při první
+ * potřebě po změně generace katalogu (stejně líně jako snapshot) a dotazy pak nestojí žádný SQL dotaz.
+ * Pro velké katalogy ({@code eshop.catalog.facets.mode=db}) se filtruje v DB přes {@link ProductSpecifications}
+ * a snapshot se nepoužije vůbec: načtou se ID stránky, karty jen pro tato ID ({@link CatalogSnapshotBuilder#buildProducts})
+ * a počty facet jedním GROUP BY na facetu. V DB režimu se filtruje a řadí podle základní ceny bez slev -
+ * předpočítané finální ceny existují jen v paměti.
+ */
+@Service
+public class ProductFacetService implements PriceConstants {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetService.class);
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+    @Autowired
+    private CatalogSnapshotBuilder catalogSnapshotBuilder;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${eshop.catalog.facets.mode:memory}")
+    private String mode; // memory | db
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile ProductFacetIndex index;
+
+    /**
+     * Vyfiltruje a seřadí standardní produkty, ceny v dané měně.
+     */
+    @Transactional(readOnly = true)
+    public ProductFacetResult search(ProductFacetQuery query, String currency) {
+        if (useDatabase()) {
+            return searchDatabase(query, currency);
+        }
+        return currentIndex(catalogSnapshotService.getSnapshot()).search(query, currency);
+    }
+
+    /**
+     * Prvních {@code limit} standardních produktů v daném řazení (úvodní stránka).
+     */
+    @Transactional(readOnly = true)
+    public List<CatalogProductDto> top(SortOrder sortOrder, String currency, int limit) {
+        if (useDatabase()) {
+            ProductFacetQuery query = new ProductFacetQuery();
+            query.setSort(sortOrder.getParam());
+            query.setSize(limit);
+            return searchDatabase(query, currency).getPage().getContent();
+        }
+        return currentIndex(catalogSnapshotService.getSnapshot()).top(sortOrder, currency, limit);
+    }
+
+    private boolean useDatabase() {
+        return "db".equalsIgnoreCase(mode.trim());
+    }
+
+    private ProductFacetIndex currentIndex(CatalogSnapshot snapshot) {
+        ProductFacetIndex current = index;
+        if (current != null && current.getGeneration() == snapshot.getGeneration()) {
+            return current;
+        }
+        if (current == null) {
+            rebuildLock.lock(); // První sestavení - není co jiného vrátit
+        } else if (!rebuildLock.tryLock()) {
+            return current; // Přestavuje jiné vlákno, zatím stačí předchozí index
+        }
+        try {
+            current = index;
+            if (current == null || current.getGeneration() != snapshot.getGeneration()) {
+                long start = System.nanoTime();
+                current = new ProductFacetIndex(snapshot);
+                index = current;
+                log.info("Product facet index rebuilt: {} products in {} µs (catalog generation {}).",
+                        current.size(), (System.nanoTime() - start) / 1000, current.getGeneration());
+            }
+            return current;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // --- Záložní cesta přes DB ---
+
+    private ProductFacetResult searchDatabase(ProductFacetQuery query, String currency) {
+        String priceAttribute = EURO_CURRENCY.equals(currency) ? "basePriceEUR" : "basePriceCZK";
+        int pageSize = query.getSafeSize();
+        int pageNumber = query.getSafePage();
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> idQuery = cb.createQuery(Long.class);
+        Root<Product> root = idQuery.from(Product.class);
+        idQuery.select(root.<Long>get("id"))
+                .where(ProductSpecifications.facetFilter(query, priceAttribute, true, true).toPredicate(root, idQuery, cb))
+                .orderBy(orderFor(query.getSortOrder(), priceAttribute, root, cb));
+        List<Long> ids = entityManager.createQuery(idQuery)
+                .setFirstResult(pageNumber * pageSize)
+                .setMaxResults(pageSize)
+                .getResultList();
+
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Product> countRoot = countQuery.from(Product.class);
+        countQuery.select(cb.count(countRoot))
+                .where(ProductSpecifications.facetFilter(query, priceAttribute, true, true).toPredicate(countRoot, countQuery, cb));
+        long total = entityManager.createQuery(countQuery).getSingleResult();
+
+        List<CatalogProductDto> content = catalogSnapshotBuilder.buildProducts(ids);
+
+        CriteriaQuery<Tuple> boundsQuery = cb.createTupleQuery();
+        Root<Product> boundsRoot = boundsQuery.from(Product.class);
+        boundsQuery.multiselect(cb.min(boundsRoot.<BigDecimal>get(priceAttribute)), cb.max(boundsRoot.<BigDecimal>get(priceAttribute)))
+                .where(ProductSpecifications.isActiveStandard().toPredicate(boundsRoot, boundsQuery, cb));
+        Tuple bounds = entityManager.createQuery(boundsQuery).getSingleResult();
+
+        log.debug("Product facet search in DB: {} of {} products (page {}).", content.size(), total, pageNumber);
+        return new ProductFacetResult(
+                new PageImpl<>(content, PageRequest.of(pageNumber, pageSize), total),
+                facetCounts("material", query.getMaterial(), ProductSpecifications.facetFilter(query, priceAttribute, false, true)),
+                facetCounts("roofOverstep", query.getRoofOverstep(), ProductSpecifications.facetFilter(query, priceAttribute, true, false)),
+                bounds.get(0, BigDecimal.class), bounds.get(1, BigDecimal.class), "db");
+    }
+
+    private List<Order> orderFor(SortOrder sortOrder, String priceAttribute, Root<Product> root, CriteriaBuilder cb) {
+        Expression<BigDecimal> price = root.get(priceAttribute);
+        Expression<BigDecimal> area = cb.prod(root.<BigDecimal>get("length"), root.<BigDecimal>get("width"));
+        return switch (sortOrder) {
+            case PRICE_ASC -> List.of(nullsLast(price, cb), cb.asc(price), cb.asc(root.get("name")));
+            case PRICE_DESC -> List.of(nullsLast(price, cb), cb.desc(price), cb.asc(root.get("name")));
+            case SIZE_ASC -> List.of(nullsLast(area, cb), cb.asc(area), cb.asc(root.get("name")));
+            case SIZE_DESC -> List.of(nullsLast(area, cb), cb.desc(area), cb.asc(root.get("name")));
+            case NAME -> List.of(cb.asc(root.get("name")), cb.asc(root.get("id")));
+        };
+    }
+
+    // MySQL řadí NULL při ASC na začátek - produkty bez hodnoty chceme vždy na konci
+    private static Order nullsLast(Expression<?> expression, CriteriaBuilder cb) {
+        return cb.asc(cb.<Integer>selectCase().when(cb.isNull(expression), 1).otherwise(0));
+    }
+
+    private List<FacetValue> facetCounts(String attribute, List<String> selectedValues, Specification<Product> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        Expression<String> value = cb.trim(root.<String>get(attribute));
+        query.multiselect(value, cb.count(root))
+                .where(cb.and(filter.toPredicate(root, query, cb), cb.isNotNull(root.get(attribute))))
+                .groupBy(value);
+
+        // Sloučení hodnot lišících se jen velikostí písmen, stejně jako v paměťovém indexu
+        Set<String> selected = new HashSet<>(ProductFacetQuery.normalizedValues(selectedValues));
+        Map<String, FacetValue> byKey = new TreeMap<>();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            String display = row.get(0, String.class);
+            if (display == null || display.isBlank()) continue;
+            String key = display.toLowerCase(Locale.ROOT);
+            int count = row.get(1, Long.class).intValue();
+            FacetValue existing = byKey.get(key);
+            byKey.put(key, new FacetValue(existing != null ? existing.getValue() : display,
+                    count + (existing != null ? existing.getCount() : 0), selected.contains(key)));
+        }
+        return new ArrayList<>(byKey.values());
+    }
+}
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.text.Normalizer;
 import java.util.*;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -57,6 +58,8 @@ public class ProductService implements PriceConstants {
     private RoofColorRepository roofColorRepository;
     @Autowired
     private AddonsRepository addonsRepository;
+    @Autowired
+    private ActiveProductSlugIndex activeProductSlugIndex;
 
     public static String generateSlug(String input) {
         if (input == null || input.trim().isEmpty()) {
@@ -176,9 +179,16 @@ public class ProductService implements PriceConstants {
     public Optional<Product> getActiveProductBySlug(String slug) {
         logger.info(">>> [ProductService] Vstupuji do getActiveProductBySlug using findActiveBySlugWithDetails. Slug: {}", slug);
         Optional<Product> result = Optional.empty();
+        if (!activeProductSlugIndex.mightBeActive(slug)) {
+            logger.info("[ProductService] getActiveProductBySlug: Slug '{}' není v indexu aktivních produktů, DB se nedotazuji.", slug);
+            return result;
+        }
         try {
             result = productRepository.findActiveBySlugWithDetails(slug);
             logger.info("[ProductService] getActiveProductBySlug: Aktivní produkt se slugem '{}' {}.", slug, result.isPresent() ? "nalezen (with details)" : "nenalezen");
+            if (result.isEmpty()) {
+                activeProductSlugIndex.recordMiss(slug);
+            }
         } catch (Exception e) {
             logger.error("!!! [ProductService] Chyba v getActiveProductBySlug (Slug: {}): {} !!!", slug, e.getMessage(), e);
         }
@@ -217,10 +227,7 @@ public class ProductService implements PriceConstants {
 
     @Transactional(readOnly = true)
     public Map<String, Object> calculateFinalProductPrice(Product product, String currency) {
-        // *** PŘIDÁNO LOGOVÁNÍ NA ZAČÁTEK ***
         Long productId = (product != null) ? product.getId() : null;
-        logger.info(">>> [ProductService] Vstupuji do calculateFinalProductPrice. Product ID: {}, Currency: {}", productId, currency);
-        // ---------------------------------
 
         Map<String, Object> priceInfo = new HashMap<>();
         priceInfo.put("originalPrice", null);
@@ -228,7 +235,7 @@ public class ProductService implements PriceConstants {
         priceInfo.put("discountApplied", null);
 
         if (product == null || product.isCustomisable()) {
-            logger.warn("[ProductService] calculateFinalProductPrice: Produkt je null nebo customisable (ID: {}). Vracím prázdné ceny.", productId);
+            logger.debug("[ProductService] calculateFinalProductPrice: Produkt je null nebo customisable (ID: {}). Vracím prázdné ceny.", productId);
             return priceInfo;
         }
 
@@ -303,9 +310,7 @@ public class ProductService implements PriceConstants {
             priceInfo.put("discountApplied", null);
         }
 
-        // *** PŘIDÁNO LOGOVÁNÍ PŘED NÁVRATEM ***
-        logger.info(">>> [ProductService] Opouštím calculateFinalProductPrice. Product ID: {}, Currency: {}. Vrácená mapa: {}", productId, currency, priceInfo);
-        // ------------------------------------
+        logger.debug("[ProductService] calculateFinalProductPrice: Product ID: {}, Currency: {}. Vrácená mapa: {}", productId, currency, priceInfo);
         return priceInfo;
     }
 
@@ -1094,9 +1099,32 @@ public class ProductService implements PriceConstants {
         logger.info(">>> [ProductService] Opouštím updateImageDisplayOrder. Product ID: {}", productId);
     }
 
+    /**
+     * Zdroj produktu, atributů a doplňků pro {@link #calculateDetailedCustomPrice(CustomPriceRequestDto, PriceLookup)}.
+     * Jednotlivý výpočet čte z repozitářů, dávkový výpočet ({@link PriceQuoteBatchService}) z map načtených předem.
+     */
+    public record PriceLookup(Function<Long, Optional<Product>> products,
+                              Function<Long, Optional<Design>> designs,
+                              Function<Long, Optional<Glaze>> glazes,
+                              Function<Long, Optional<RoofColor>> roofColors,
+                              Function<List<Long>, List<Addon>> addons) {
+    }
+
     @Transactional(readOnly = true)
     public CustomPriceResponseDto calculateDetailedCustomPrice(CustomPriceRequestDto requestDto) {
         logger.info(">>> [ProductService] Vstupuji do calculateDetailedCustomPrice. Product ID: {}", requestDto.getProductId());
+        CustomPriceResponseDto response = calculateDetailedCustomPrice(requestDto, new PriceLookup(
+                productRepository::findByIdWithDetails, designRepository::findById, glazeRepository::findById,
+                roofColorRepository::findById, addonsRepository::findAllById));
+        logger.info(">>> [ProductService] Opouštím calculateDetailedCustomPrice. Product ID: {}. Response has error: {}", requestDto.getProductId(), response.getErrorMessage() != null);
+        return response;
+    }
+
+    /**
+     * Detailní cena konfigurace nad daným zdrojem dat. Sama nic nenačítá mimo {@code lookup}, takže ji dávkový výpočet
+     * může volat paralelně nad předem načtenými entitami. Chyby vrací v {@link CustomPriceResponseDto#getErrorMessage()}.
+     */
+    public CustomPriceResponseDto calculateDetailedCustomPrice(CustomPriceRequestDto requestDto, PriceLookup lookup) {
         BigDecimal zero = BigDecimal.ZERO.setScale(PRICE_SCALE, ROUNDING_MODE);
         CustomPriceResponseDto response = new CustomPriceResponseDto();
         response.setAddonPricesCZK(new HashMap<>()); // Inicializace map
@@ -1116,7 +1144,7 @@ public class ProductService implements PriceConstants {
 
         try {
             // --- Validace a načtení produktu ---
-            Product product = productRepository.findByIdWithDetails(requestDto.getProductId())
+            Product product = lookup.products().apply(requestDto.getProductId())
                     .orElseThrow(() -> new EntityNotFoundException("Produkt nenalezen: " + requestDto.getProductId()));
 
             if (!product.isActive() || !product.isCustomisable() || product.getConfigurator() == null) {
@@ -1157,7 +1185,7 @@ public class ProductService implements PriceConstants {
             BigDecimal designPriceCZK = zero;
             BigDecimal designPriceEUR = zero;
             if (requestDto.getSelectedDesignId() != null) {
-                Design design = designRepository.findById(requestDto.getSelectedDesignId()) // Opraveno: Použití designRepository
+                Design design = lookup.designs().apply(requestDto.getSelectedDesignId())
                         .orElseThrow(() -> new EntityNotFoundException("Design nenalezen: " + requestDto.getSelectedDesignId()));
                 // Použití správných getterů getPriceSurchargeCZK/EUR
                 designPriceCZK = Optional.ofNullable(design.getPriceSurchargeCZK()).orElse(zero); // Opraveno
@@ -1170,7 +1198,7 @@ public class ProductService implements PriceConstants {
             BigDecimal glazePriceCZK = zero;
             BigDecimal glazePriceEUR = zero;
             if (requestDto.getSelectedGlazeId() != null) {
-                Glaze glaze = glazeRepository.findById(requestDto.getSelectedGlazeId()) // Opraveno: Použití glazeRepository
+                Glaze glaze = lookup.glazes().apply(requestDto.getSelectedGlazeId())
                         .orElseThrow(() -> new EntityNotFoundException("Lazura nenalezena: " + requestDto.getSelectedGlazeId()));
                 // Použití správných getterů getPriceSurchargeCZK/EUR
                 glazePriceCZK = Optional.ofNullable(glaze.getPriceSurchargeCZK()).orElse(zero); // Opraveno
@@ -1183,7 +1211,7 @@ public class ProductService implements PriceConstants {
             BigDecimal roofColorPriceCZK = zero;
             BigDecimal roofColorPriceEUR = zero;
             if (requestDto.getSelectedRoofColorId() != null) {
-                RoofColor roofColor = roofColorRepository.findById(requestDto.getSelectedRoofColorId()) // Opraveno: Použití roofColorRepository
+                RoofColor roofColor = lookup.roofColors().apply(requestDto.getSelectedRoofColorId())
                         .orElseThrow(() -> new EntityNotFoundException("Barva střechy nenalezena: " + requestDto.getSelectedRoofColorId()));
                 // Použití správných getterů getPriceSurchargeCZK/EUR
                 roofColorPriceCZK = Optional.ofNullable(roofColor.getPriceSurchargeCZK()).orElse(zero); // Opraveno
@@ -1197,7 +1225,7 @@ public class ProductService implements PriceConstants {
             BigDecimal totalAddonsCZK = zero;
             BigDecimal totalAddonsEUR = zero;
             if (requestDto.getSelectedAddonIds() != null && !requestDto.getSelectedAddonIds().isEmpty()) {
-                List<Addon> selectedAddons = addonsRepository.findAllById(requestDto.getSelectedAddonIds()); // Opraveno: Použití addonsRepository
+                List<Addon> selectedAddons = lookup.addons().apply(requestDto.getSelectedAddonIds());
                 if (selectedAddons.size() != requestDto.getSelectedAddonIds().size()) {
                     Set<Long> foundIds = selectedAddons.stream().map(Addon::getId).collect(Collectors.toSet());
                     requestDto.getSelectedAddonIds().stream()
@@ -1250,7 +1278,7 @@ public class ProductService implements PriceConstants {
                     .add(totalAddonsEUR);
             response.setTotalPriceEUR(totalPriceEUR.setScale(PRICE_SCALE, ROUNDING_MODE));
 
-            logger.info("[calculateDetailedCustomPrice] Total price calculated: CZK={}, EUR={}", response.getTotalPriceCZK(), response.getTotalPriceEUR());
+            logger.debug("[calculateDetailedCustomPrice] Total price calculated: CZK={}, EUR={}", response.getTotalPriceCZK(), response.getTotalPriceEUR());
 
         } catch (IllegalArgumentException | EntityNotFoundException | IllegalStateException e) {
             logger.error("!!! [ProductService] Chyba v calculateDetailedCustomPrice for Product ID {}: {} !!!", requestDto.getProductId(), e.getMessage());
@@ -1260,10 +1288,21 @@ public class ProductService implements PriceConstants {
             logger.error("!!! [ProductService] Neočekávaná chyba v calculateDetailedCustomPrice for Product ID {}: {} !!!", requestDto.getProductId(), e.getMessage(), e);
             response.setErrorMessage("Došlo k neočekávané chybě při výpočtu ceny.");
         }
-
-        logger.info(">>> [ProductService] Opouštím calculateDetailedCustomPrice. Product ID: {}. Response has error: {}", requestDto.getProductId(), response.getErrorMessage() != null);
         return response;
     }
+    /**
+     * Aktivní produkty podle ID ve stejném pořadí, jaké mají ID na vstupu (pořadí určuje volající, např. facetový index).
+     */
+    @Transactional(readOnly = true)
+    public List<Product> getActiveProductsByIdsInOrder(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Product> byId = productRepository.findByActiveTrueAndIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, p -> p));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
     @Transactional(readOnly = true)
     // PŘIDÁNA ANOTACE @Cacheable
     @Cacheable(value = "activeStandardProductsPage", key = "#pageable.toString()")
@@ -0,0 +1,24 @@
+package org.example.eshop.service;
+
+import lombok.Getter;
+
+/**
+ * Konverzace se změnila na jiné instanci (nová zpráva nebo označení přečtení) - publikuje {@link CacheInvalidationBus}.
+ * Posluchač {@link ConversationService} z ní sestaví {@link OrderMessageEvent} pro SSE odběratele této instance.
+ */
+@Getter
+public class RemoteConversationChangedEvent {
+
+    private final Long conversationId;
+    private final Long messageId; // null = změnily se jen čítače nepřečtených zpráv
+
+    public RemoteConversationChangedEvent(Long conversationId, Long messageId) {
+        this.conversationId = conversationId;
+        this.messageId = messageId;
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteConversationChangedEvent{conversation=" + conversationId + ", message=" + messageId + "}";
+    }
+}
@@ -342,9 +342,9 @@ public class SuperFakturaInvoiceService implements InvoiceService, PriceConstant
 
     // Znovu načte objednávku a inicializuje potřebné kolekce
     private Order reloadOrder(Long orderId) {
-        return orderRepository.findById(orderId).map(order -> {
-            Hibernate.initialize(order.getCustomer());
-            Hibernate.initialize(order.getOrderItems());
+        // Zákazník, položky a produkty jedním dotazem (Order.fetchFullDetail), doplňky všech položek
+        // pak jedním dávkovým dotazem (@BatchSize) - počet dotazů nezávisí na počtu položek
+        return orderRepository.findFullDetailById(orderId).map(order -> {
             if (order.getOrderItems() != null) {
                 order.getOrderItems().forEach(item -> Hibernate.initialize(item.getSelectedAddons()));
             }
@@ -356,16 +356,19 @@ public class SuperFakturaInvoiceService implements InvoiceService, PriceConstant
     private JsonNode callSuperfakturaApi(String endpoint, HttpMethod method, Map<String, Object> payload, String orderCode, String requestType) {
         HttpHeaders headers = prepareHeaders();
         HttpEntity<?> requestEntity;
-        String jsonPayloadString = "(Payload is null)";
-        if (payload != null) {
-            try {
-                jsonPayloadString = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(payload);
-            } catch (JsonProcessingException e) {
-                log.error("Error serializing payload for logging (Order {} - {})", orderCode, requestType, e);
-                jsonPayloadString = "(Payload serialization error)";
+        // Payload se serializuje jen pro debug log (lze zapnout i pro jeden požadavek, viz RequestDebugLoggingFilter)
+        if (log.isDebugEnabled()) {
+            String jsonPayloadString = "(Payload is null)";
+            if (payload != null) {
+                try {
+                    jsonPayloadString = objectMapper.writeValueAsString(payload);
+                } catch (JsonProcessingException e) {
+                    log.error("Error serializing payload for logging (Order {} - {})", orderCode, requestType, e);
+                    jsonPayloadString = "(Payload serialization error)";
+                }
             }
+            log.debug("SF API Request Payload ({} - Order {}): {}", requestType, orderCode, jsonPayloadString);
         }
-        log.info("SF API Request Payload ({} - Order {}):\n{}", requestType, orderCode, jsonPayloadString);
 
         if (method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH) {
             requestEntity = new HttpEntity<>(payload, headers);
@@ -0,0 +1,126 @@
+package org.example.eshop.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.example.eshop.service.Cart;
+import org.example.eshop.service.CheckoutIdempotencyService;
+import org.example.eshop.service.CheckoutIdempotencyService.Claim;
+import org.example.eshop.service.CurrencyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.support.SessionFlashMapManager;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotentní odeslání pokladny: opakované {@code POST /pokladna/odeslat} se stejným tokenem formuláře a stejným
+ * košíkem nevolá {@code CheckoutController.processCheckout} znovu, ale dostane přesměrování prvního úspěšného pokusu
+ * (viz {@link CheckoutIdempotencyService}).
+ * <p>
+ * Běží jako filtr před transakčním controllerem, aby čekající duplikát nedržel DB spojení. Úspěch pozná podle
+ * přesměrování na {@code /pokladna/dekujeme} - to se posílá až po commitu transakce objednávky.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 10) // Až po Spring Security (CSRF) a RequestContextFilter (session-scoped Cart)
+public class CheckoutIdempotencyFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutIdempotencyFilter.class);
+    private static final String CHECKOUT_SUBMIT_PATH = "/pokladna/odeslat";
+    private static final String CONFIRMATION_PATH = "/pokladna/dekujeme";
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    @Autowired
+    private CheckoutIdempotencyService checkoutIdempotencyService;
+    @Autowired
+    private Cart sessionCart;
+    @Autowired
+    private CurrencyService currencyService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !checkoutIdempotencyService.isEnabled()
+                || !"POST".equals(request.getMethod())
+                || !CHECKOUT_SUBMIT_PATH.equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        if (session == null) { // Bez session není košík, controller jen přesměruje
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String token = request.getParameter("checkoutToken");
+        String fingerprint = checkoutIdempotencyService.cartFingerprint(sessionCart.getItemsList(),
+                sessionCart.getAppliedCouponCode(), currencyService.getSelectedCurrency(),
+                request.getParameter("paymentMethod"), request.getParameter("shippingCostNoTax"));
+        boolean cartEmpty = !sessionCart.hasItems();
+
+        for (int i = 0; i < MAX_CLAIM_ATTEMPTS; i++) {
+            Claim claim = checkoutIdempotencyService.claim(session.getId(), token, fingerprint, cartEmpty);
+            if (claim.isOwner()) {
+                processAsOwner(claim, request, response, filterChain);
+                return;
+            }
+            Optional<String> result;
+            try {
+                result = checkoutIdempotencyService.awaitResult(claim);
+            } catch (TimeoutException e) {
+                log.warn("Duplicate checkout submission for session {} timed out waiting for the first attempt.", session.getId());
+                redirectWithCartError(request, response,
+                        "Vaše objednávka se stále zpracovává. Než ji odešlete znovu, zkontrolujte prosím e-mail s potvrzením.");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException("Interrupted while waiting for checkout result", e);
+            }
+            if (result.isPresent()) {
+                log.info("Duplicate checkout submission for session {} (token {}), replaying redirect {}.",
+                        session.getId(), token, result.get());
+                response.sendRedirect(result.get());
+                return;
+            }
+            // První pokus neuspěl - požadavek se zpracuje znovu (typicky vrátí stejné chyby formuláře)
+            log.debug("First checkout attempt for session {} failed, processing duplicate normally.", session.getId());
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void processAsOwner(Claim claim, HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            String location = response.getHeader(HttpHeaders.LOCATION);
+            if (location != null && location.contains(CONFIRMATION_PATH)) {
+                checkoutIdempotencyService.complete(claim, location);
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                checkoutIdempotencyService.release(claim);
+            }
+        }
+    }
+
+    private void redirectWithCartError(HttpServletRequest request, HttpServletResponse response, String message) throws IOException {
+        FlashMap flashMap = new FlashMap();
+        flashMap.put("cartError", message);
+        flashMap.setTargetRequestPath(request.getContextPath() + "/kosik");
+        new SessionFlashMapManager().saveOutputFlashMap(flashMap, request, response);
+        response.sendRedirect(request.getContextPath() + "/kosik");
+    }
+}
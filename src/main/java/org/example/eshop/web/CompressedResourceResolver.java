@@ -0,0 +1,157 @@
+package org.example.eshop.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Servíruje JS a CSS komprimované gzipem, ale komprese proběhne pro každou verzi souboru jen jednou
+ * (při prvním požadavku) a výsledek zůstává v paměti. Odpadá tak komprese při každém požadavku,
+ * kterou by jinak prováděl Tomcat ({@code server.compression}).
+ * <p>
+ * Pokud vedle souboru leží už připravená varianta {@code .br}/{@code .gz}, obslouží ji dříve
+ * zařazený {@link org.springframework.web.servlet.resource.EncodedResourceResolver}.
+ */
+public class CompressedResourceResolver extends AbstractResourceResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CompressedResourceResolver.class);
+
+    private static final List<String> COMPRESSIBLE_EXTENSIONS = List.of(".js", ".css");
+
+    private final Map<String, GzippedResource> compressed = new ConcurrentHashMap<>();
+
+    @Override
+    protected Resource resolveResourceInternal(@Nullable HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource == null || request == null || !acceptsGzip(request) || !isCompressible(resource)) {
+            return resource;
+        }
+        try {
+            String key = resource.getURL().toExternalForm();
+            long lastModified = resource.lastModified();
+            GzippedResource cached = compressed.get(key);
+            if (cached == null || cached.sourceLastModified != lastModified) {
+                cached = new GzippedResource(resource, gzip(resource), lastModified);
+                compressed.put(key, cached);
+                log.debug("Compressed static resource {}: {} -> {} bytes", requestPath, resource.contentLength(), cached.contentLength());
+            }
+            return cached;
+        } catch (IOException e) {
+            log.warn("Failed to compress static resource {}, serving uncompressed: {}", requestPath, e.getMessage());
+            return resource;
+        }
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+                                            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+
+    private static boolean isCompressible(Resource resource) {
+        String filename = resource.getFilename();
+        return filename != null && COMPRESSIBLE_EXTENSIONS.stream().anyMatch(filename.toLowerCase(Locale.ROOT)::endsWith);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> values = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (values.hasMoreElements()) {
+            if (values.nextElement().toLowerCase(Locale.ROOT).contains("gzip")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(Resource resource) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = resource.getInputStream();
+             GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            in.transferTo(gzip);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Gzipem komprimovaná kopie zdroje; přebírá hlavičky původního zdroje (např. ETag z verze)
+     * a přidává Content-Encoding a Vary.
+     */
+    private static final class GzippedResource extends AbstractResource implements HttpResource {
+
+        private final Resource original;
+        private final byte[] body;
+        private final long sourceLastModified; // Při změně souboru (dev režim) se komprese zopakuje
+
+        private GzippedResource(Resource original, byte[] body, long sourceLastModified) {
+            this.original = original;
+            this.body = body;
+            this.sourceLastModified = sourceLastModified;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long lastModified() {
+            return sourceLastModified;
+        }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException {
+            return original.createRelative(relativePath);
+        }
+
+        @Override
+        @Nullable
+        public String getFilename() {
+            return original.getFilename(); // Podle původního názvu se určí Content-Type
+        }
+
+        @Override
+        public String getDescription() {
+            return "gzip-compressed " + original.getDescription();
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            if (original instanceof HttpResource httpResource) {
+                headers.putAll(httpResource.getResponseHeaders());
+            }
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            return headers;
+        }
+    }
+}
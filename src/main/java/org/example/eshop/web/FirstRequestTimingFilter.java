@@ -0,0 +1,73 @@
+package org.example.eshop.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Měří dobu studeného startu: od spuštění JVM do připravenosti aplikace (ApplicationReadyEvent)
+ * a do dokončení prvního HTTP požadavku, který je pro Cloud Run rozhodující.
+ * <p>
+ * Výsledek se zaloguje jen jednou, řádek začíná {@code STARTUP} (využívá ho scripts/startup-benchmark.sh).
+ * Po prvním požadavku filtr už nic neměří.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class FirstRequestTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(FirstRequestTimingFilter.class);
+
+    @Value("${eshop.startup.timing.enabled:true}")
+    private boolean enabled;
+
+    private final AtomicBoolean firstRequestDone = new AtomicBoolean(false);
+    private volatile long readyAtMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        readyAtMillis = System.currentTimeMillis();
+        if (enabled) {
+            log.info("STARTUP ready: {} ms since JVM start (Spring context {} ms)",
+                    sinceJvmStart(readyAtMillis), event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || firstRequestDone.get();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long startMillis = System.currentTimeMillis();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (firstRequestDone.compareAndSet(false, true)) {
+                long endMillis = System.currentTimeMillis();
+                log.info("STARTUP first request: {} {} -> {} took {} ms, {} ms since JVM start ({} ms after ready)",
+                        request.getMethod(), request.getRequestURI(), response.getStatus(), endMillis - startMillis,
+                        sinceJvmStart(endMillis), readyAtMillis > 0 ? endMillis - readyAtMillis : -1);
+            }
+        }
+    }
+
+    private static long sinceJvmStart(long nowMillis) {
+        return nowMillis - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.eshop.web;
+
+import org.example.eshop.service.CatalogChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paměťové úložiště vyrenderovaných fragmentů šablon (atribut {@code cache:fragment}, viz {@link FragmentCacheDialect}).
+ * <p>
+ * Na rozdíl od {@link PageCache} slouží i přihlášeným uživatelům - cachují se jen části stránky, které nezávisí
+ * na session (karta produktu pro danou měnu, patička). Fragmenty vycházejí z katalogu, proto každá změna katalogu
+ * nebo slev ({@link CatalogChangedEvent}) vyprázdní celé úložiště; TTL pokrývá slevy, které začnou nebo skončí
+ * bez zásahu do DB.
+ */
+@Component
+public class FragmentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FragmentCache.class);
+
+    private record Entry(String html, long expiresAt) {
+    }
+
+    @Value("${eshop.fragment-cache.enabled:true}")
+    private boolean enabled;
+    @Value("${eshop.fragment-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+    @Value("${eshop.fragment-cache.max-entries:2000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> fragments = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String get(String key) {
+        Entry entry = fragments.get(key);
+        if (entry != null && entry.expiresAt() < System.currentTimeMillis()) {
+            fragments.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.html();
+    }
+
+    public void put(String key, String html) {
+        long now = System.currentTimeMillis();
+        if (fragments.size() >= maxEntries) {
+            fragments.values().removeIf(e -> e.expiresAt() < now);
+            if (fragments.size() >= maxEntries) {
+                log.debug("Fragment cache is full ({} entries), not storing '{}'.", fragments.size(), key);
+                return;
+            }
+        }
+        fragments.put(key, new Entry(html, now + ttlSeconds * 1000));
+    }
+
+    public void clear() {
+        int size = fragments.size();
+        fragments.clear();
+        log.debug("Fragment cache cleared ({} entries). Hits: {}, misses: {}", size, hits.get(), misses.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        log.debug("Received {}, clearing fragment cache.", event);
+        clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.eshop.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.dialect.AbstractProcessorDialect;
+import org.thymeleaf.processor.IProcessor;
+
+import java.util.Set;
+
+/**
+ * Thymeleaf dialekt s atributem {@code cache:fragment} pro cachování vyrenderovaných fragmentů.
+ * <p>
+ * Použití: {@code <div cache:fragment="'product-card:' + ${product.id} + ':' + ${currentGlobalCurrency}">}.
+ * Hodnota je výraz dávající klíč - musí obsahovat vše, na čem obsah fragmentu závisí (ID, měna...).
+ * Výraz vracející {@code null} cachování pro daný prvek vypne. Uvnitř fragmentu nesmí být nic závislého
+ * na session nebo uživateli (košík, CSRF token, přihlášení).
+ * Spring Boot dialekt zaregistruje automaticky (bean typu IDialect).
+ */
+@Component
+public class FragmentCacheDialect extends AbstractProcessorDialect {
+
+    public static final String PREFIX = "cache";
+    private static final int DIALECT_PRECEDENCE = 1100; // Až po StandardDialect (1000)
+
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    public FragmentCacheDialect() {
+        super("Eshop Fragment Cache", PREFIX, DIALECT_PRECEDENCE);
+    }
+
+    @Override
+    public Set<IProcessor> getProcessors(String dialectPrefix) {
+        return Set.of(new FragmentCacheProcessor(dialectPrefix, fragmentCache));
+    }
+}
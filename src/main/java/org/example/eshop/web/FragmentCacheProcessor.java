@@ -0,0 +1,69 @@
+package org.example.eshop.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.engine.TemplateManager;
+import org.thymeleaf.engine.TemplateModel;
+import org.thymeleaf.inline.NoOpInliner;
+import org.thymeleaf.model.IModel;
+import org.thymeleaf.processor.element.AbstractAttributeModelProcessor;
+import org.thymeleaf.processor.element.IElementModelStructureHandler;
+import org.thymeleaf.standard.expression.StandardExpressions;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import java.io.StringWriter;
+
+/**
+ * Zpracování atributu {@code cache:fragment} - viz {@link FragmentCacheDialect}.
+ * <p>
+ * Při zásahu nahradí celý prvek uloženým HTML jako text. Při minutí prvek (bez atributu) vyrenderuje
+ * s aktuálním kontextem včetně lokálních proměnných ({@code th:each}, {@code th:with}), výsledek uloží
+ * a vloží stejným způsobem. Dialekt má nižší prioritu než standardní dialekt, atribut se tedy zpracuje až po
+ * všech {@code th:*} atributech téhož prvku - dá se dát přímo na iterovaný prvek ({@code th:each}) a vyhodnocuje
+ * se pro každou iteraci zvlášť.
+ */
+class FragmentCacheProcessor extends AbstractAttributeModelProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(FragmentCacheProcessor.class);
+
+    static final String ATTRIBUTE_NAME = "fragment";
+    static final int PRECEDENCE = 1000;
+
+    private final FragmentCache fragmentCache;
+
+    FragmentCacheProcessor(String dialectPrefix, FragmentCache fragmentCache) {
+        super(TemplateMode.HTML, dialectPrefix, null, false, ATTRIBUTE_NAME, true, PRECEDENCE, true);
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Override
+    protected void doProcess(ITemplateContext context, IModel model, AttributeName attributeName,
+                             String attributeValue, IElementModelStructureHandler structureHandler) {
+        if (!fragmentCache.isEnabled()) {
+            return; // Prvek se vyrenderuje běžně
+        }
+        Object key = StandardExpressions.getExpressionParser(context.getConfiguration())
+                .parseExpression(context, attributeValue)
+                .execute(context);
+        if (key == null) {
+            return;
+        }
+        String cacheKey = key.toString();
+        String html = fragmentCache.get(cacheKey);
+        if (html == null) {
+            TemplateManager templateManager = context.getConfiguration().getTemplateManager();
+            TemplateModel fragment = templateManager.parseString(context.getTemplateData(), model.toString(),
+                    0, 0, getTemplateMode(), false);
+            StringWriter writer = new StringWriter(1024);
+            templateManager.process(fragment, context, writer);
+            html = writer.toString();
+            fragmentCache.put(cacheKey, html);
+            log.trace("Fragment '{}' rendered and cached ({} chars).", cacheKey, html.length());
+        }
+        model.reset();
+        model.add(context.getModelFactory().createText(html));
+        structureHandler.setInliner(NoOpInliner.INSTANCE); // Hotové HTML už se nesmí znovu zpracovat jako [[...]]
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.eshop.web;
+
+import org.example.eshop.service.CatalogChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Paměťové úložiště vyrenderovaných HTML stránek pro anonymní návštěvníky (viz {@link PageCacheFilter}).
+ * <p>
+ * Těla se drží už zkomprimovaná gzipem, takže se klientům s podporou gzip posílají bez další práce.
+ * Každá změna katalogu nebo slev ({@link CatalogChangedEvent}) vyprázdní celé úložiště.
+ */
+@Component
+public class PageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PageCache.class);
+
+    @Value("${eshop.page-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+    @Value("${eshop.page-cache.max-entries:500}")
+    private int maxEntries;
+
+    private final Map<String, CachedPage> pages = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachedPage get(String key) {
+        CachedPage page = pages.get(key);
+        if (page != null && page.isExpired(System.currentTimeMillis())) {
+            pages.remove(key, page);
+            page = null;
+        }
+        if (page != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return page;
+    }
+
+    public void put(String key, String contentType, byte[] body) {
+        long now = System.currentTimeMillis();
+        if (pages.size() >= maxEntries) {
+            pages.values().removeIf(p -> p.isExpired(now));
+            if (pages.size() >= maxEntries) {
+                log.debug("Page cache is full ({} entries), not storing '{}'.", pages.size(), key);
+                return;
+            }
+        }
+        pages.put(key, new CachedPage(contentType, gzip(body), now + ttlSeconds * 1000));
+    }
+
+    public void clear() {
+        int size = pages.size();
+        pages.clear();
+        log.debug("Page cache cleared ({} entries). Hits: {}, misses: {}", size, hits.get(), misses.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        log.debug("Received {}, clearing page cache.", event);
+        clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return pages.size();
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(512, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] gunzip(byte[] gzipped) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Uložená stránka: Content-Type a gzipem komprimované tělo.
+     */
+    public record CachedPage(String contentType, byte[] gzippedBody, long expiresAtMillis) {
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+}
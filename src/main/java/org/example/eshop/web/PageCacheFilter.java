@@ -0,0 +1,250 @@
+package org.example.eshop.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.example.eshop.config.PriceConstants;
+import org.example.eshop.dto.ProductFacetQuery;
+import org.example.eshop.service.CatalogSnapshotService;
+import org.example.eshop.service.CurrencyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.support.SessionFlashMapManager;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Full-page cache veřejných stránek obchodu pro nepřihlášené návštěvníky.
+ * <p>
+ * Klíčem je generace katalogu, zvolená měna, cesta a stránkovací parametry. Per-session části stránky
+ * se při renderování pro cache vůbec nevykreslí: místo CSRF tokenu dostane šablona zástupnou hodnotu (skutečný
+ * odložený token se nenačte, takže anonymní návštěva kvůli cache nezakládá session) a odznak košíku zůstane prázdný
+ * (atribut {@link #PLACEHOLDERS_ATTRIBUTE}). Doplní je až klient skriptem {@code page-state.js} přes
+ * {@code GET /api/session-state} - i pro návštěvníka, jehož požadavek stránku do cache uložil.
+ * <p>
+ * Filtr běží až za Spring Security, takže má k dispozici přihlášeného uživatele i CSRF token.
+ * Stránky se nekešují pro přihlášené uživatele, při čekající flash zprávě, s neznámými query parametry
+ * a pokud controller zavolá {@link #skipCaching(HttpServletRequest)}. Povolené parametry {@code page}, {@code size}
+ * a {@code sort} se kešují jen v kanonickém tvaru (jedna hodnota, číslo bez nul na začátku, známé řazení
+ * z {@link ProductFacetQuery.SortOrder}, velikost stránky z {@code allowed-sizes}, stránka do {@code max-page});
+ * jinak by libovolné hodnoty zakládaly nové záznamy a vytlačily z cache skutečně navštěvované stránky.
+ */
+@Component
+public class PageCacheFilter extends OncePerRequestFilter implements PriceConstants {
+
+    private static final Logger log = LoggerFactory.getLogger(PageCacheFilter.class);
+
+    public static final String CSRF_PLACEHOLDER = "__PAGE_CACHE_CSRF__";
+    /** Atribut požadavku pro šablony: vykreslit per-session části (odznak košíku) bez dat návštěvníka. */
+    public static final String PLACEHOLDERS_ATTRIBUTE = "pageCachePlaceholders";
+    // Výchozí názvy HttpSessionCsrfTokenRepository - z odloženého tokenu je číst nelze, načetly by ho
+    private static final CsrfToken PLACEHOLDER_TOKEN = new DefaultCsrfToken("X-CSRF-TOKEN", "_csrf", CSRF_PLACEHOLDER);
+    private static final String SKIP_ATTRIBUTE = PageCacheFilter.class.getName() + ".SKIP";
+    private static final String FLASH_MAPS_ATTRIBUTE = SessionFlashMapManager.class.getName() + ".FLASH_MAPS";
+    private static final String CACHE_STATUS_HEADER = "X-Page-Cache";
+    // Parametry reklamních kampaní obsah stránky nemění - do klíče se nepromítají
+    private static final Set<String> TRACKING_PARAMS = Set.of("gclid", "fbclid", "msclkid", "gbraid", "wbraid", "sznclid", "dclid");
+
+    @Autowired
+    private PageCache pageCache;
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+    @Autowired
+    private CurrencyService currencyService;
+
+    @Value("${eshop.page-cache.enabled:true}")
+    private boolean enabled;
+    @Value("${eshop.page-cache.paths:/,/produkty,/produkt/*,/o-nas,/gdpr,/obchodni-podminky}")
+    private List<String> cachedPaths;
+    @Value("${eshop.page-cache.allowed-params:page,size,sort}")
+    private Set<String> allowedParams;
+    @Value("${eshop.page-cache.allowed-sizes:12,24,48}")
+    private Set<Integer> allowedSizes;
+    @Value("${eshop.page-cache.max-page:100}")
+    private int maxPage;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * Označí aktuální požadavek jako nevhodný pro uložení do cache (např. controller vrátil chybovou stránku se statusem 200).
+     */
+    public static void skipCaching(HttpServletRequest request) {
+        request.setAttribute(SKIP_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return cachedPaths.stream().noneMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        String key = isCacheable(request, session) ? buildKey(request, session) : null;
+        if (key == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        PageCache.CachedPage cached = pageCache.get(key);
+        if (cached != null) {
+            log.debug("Page cache HIT: {}", key);
+            writeCached(request, response, cached);
+            return;
+        }
+
+        log.debug("Page cache MISS: {}", key);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        wrapper.setHeader(CACHE_STATUS_HEADER, "MISS");
+        wrapper.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING); // Stejně jako HIT - sdílené cache nesmí míchat varianty
+        request.setAttribute(PLACEHOLDERS_ATTRIBUTE, Boolean.TRUE);
+        request.setAttribute(CsrfToken.class.getName(), PLACEHOLDER_TOKEN);
+        request.setAttribute(PLACEHOLDER_TOKEN.getParameterName(), PLACEHOLDER_TOKEN);
+        try {
+            chain.doFilter(request, wrapper);
+            store(request, wrapper, key);
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private boolean isCacheable(HttpServletRequest request, HttpSession session) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return false;
+        }
+        if (session != null && session.getAttribute(FLASH_MAPS_ATTRIBUTE) instanceof Collection<?> flashMaps
+                && !flashMaps.isEmpty()) {
+            return false; // Flash zpráva se musí vyrenderovat a spotřebovat
+        }
+        for (Map.Entry<String, String[]> param : request.getParameterMap().entrySet()) {
+            if (allowedParams.contains(param.getKey())) {
+                if (!isCanonicalValue(param.getKey(), param.getValue())) {
+                    return false; // Např. ?size=5000 nebo ?sort=x - vykreslí se bez cache
+                }
+            } else if (!isTrackingParam(param.getKey())) {
+                return false; // Např. ?odhlaseno - stránka může zobrazit hlášku
+            }
+        }
+        return true;
+    }
+
+    private boolean isCanonicalValue(String param, String[] values) {
+        if (values.length != 1) {
+            return false;
+        }
+        String value = values[0];
+        return switch (param) {
+            case "page" -> {
+                Integer page = parseCanonicalInt(value);
+                yield page != null && page <= maxPage;
+            }
+            case "size" -> {
+                Integer size = parseCanonicalInt(value);
+                yield size != null && size <= ProductFacetQuery.MAX_PAGE_SIZE && allowedSizes.contains(size);
+            }
+            case "sort" -> Arrays.stream(ProductFacetQuery.SortOrder.values())
+                    .anyMatch(order -> order.getParam().equals(value));
+            default -> true; // Další parametry z eshop.page-cache.allowed-params se do klíče berou tak, jak jsou
+        };
+    }
+
+    private String buildKey(HttpServletRequest request, HttpSession session) {
+        // Bez session nemohl návštěvník měnu změnit, nesahejme na session-scoped bean (založil by session)
+        String currency = session != null ? currencyService.getSelectedCurrency() : DEFAULT_CURRENCY;
+        StringBuilder key = new StringBuilder()
+                .append(catalogSnapshotService.getGeneration()).append('|')
+                .append(currency).append('|')
+                .append(request.getServletPath());
+        char separator = '?';
+        for (Map.Entry<String, String[]> param : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            if (!allowedParams.contains(param.getKey())) continue;
+            for (String value : param.getValue()) {
+                key.append(separator).append(param.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    private void writeCached(HttpServletRequest request, HttpServletResponse response, PageCache.CachedPage page)
+            throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(page.contentType());
+        response.setHeader(CACHE_STATUS_HEADER, "HIT");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        byte[] body;
+        if (acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = page.gzippedBody();
+        } else {
+            body = PageCache.gunzip(page.gzippedBody());
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void store(HttpServletRequest request, ContentCachingResponseWrapper response, String key) {
+        String contentType = response.getContentType();
+        if (response.getStatus() != HttpServletResponse.SC_OK
+                || contentType == null || !contentType.startsWith("text/html")
+                || request.getAttribute(SKIP_ATTRIBUTE) != null) {
+            return;
+        }
+        // CSRF token i odznak košíku jsou už vykreslené jako zástupné hodnoty (viz doFilterInternal)
+        pageCache.put(key, contentType, response.getContentAsByteArray());
+        log.debug("Page cache STORE: {} ({} cached pages)", key, pageCache.size());
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> values = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (values.hasMoreElements()) {
+            if (values.nextElement().toLowerCase(Locale.ROOT).contains("gzip")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return nezáporné číslo zapsané bez znaménka a nul na začátku ("0", "12"), jinak null
+     */
+    private static Integer parseCanonicalInt(String value) {
+        if (value.isEmpty() || value.length() > 9 || (value.length() > 1 && value.charAt(0) == '0')) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        return Integer.parseInt(value);
+    }
+
+    private static boolean isTrackingParam(String param) {
+        return param.startsWith("utm_") || TRACKING_PARAMS.contains(param);
+    }
+}
@@ -0,0 +1,221 @@
+package org.example.eshop.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletRequestWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Omezení četnosti a odlehčení zátěže pro drahé veřejné endpointy (výpočet ceny, výpočet dopravy přes Google Maps).
+ * <p>
+ * Pravidla {@code eshop.rate-limit.rules} mají tvar {@code METODA /cesta=kapacita:tokenů_za_minutu}; každý klient
+ * (IP adresa) má pro pravidlo vlastní token bucket. Za proxy se adresa bere z X-Forwarded-For, ale ne zleva
+ * (tu hodnotu posílá klient a může ji podvrhnout, {@code getRemoteAddr()} při
+ * {@code server.forward-headers-strategy=FRAMEWORK} vrací právě ji): klíčem je hodnota, kterou připojila první
+ * důvěryhodná proxy, tj. {@code eshop.rate-limit.trusted-proxy-hops}-tá zprava. Nad to globální odlehčení pro
+ * všechny hlídané endpointy dohromady:
+ * <ul>
+ *     <li>víc než {@code eshop.rate-limit.max-concurrent} souběžných požadavků,</li>
+ *     <li>klouzavý průměr latence nad {@code eshop.rate-limit.max-latency-ms} - propustí se jen
+ *     {@code eshop.rate-limit.probe-percent} % požadavků, aby se průměr mohl zotavit.</li>
+ * </ul>
+ * Endpointy, jejichž cena je známá až z těla požadavku (dávkový výpočet cen), si zbytek tokenů odeberou samy přes
+ * {@link #chargeAdditional}.
+ * <p>
+ * Odmítnutý požadavek dostane 429 s {@code Retry-After} a JSON {@code errorMessage}, který klientské skripty
+ * zobrazují. Odmítnutí se počítají v metrice {@code eshop.ratelimit.rejected} (tagy rule, reason).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 30)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+    private static final String REJECTED_BODY =
+            "{\"errorMessage\":\"Příliš mnoho požadavků, zkuste to prosím za chvíli znovu.\"}";
+    private static final double LATENCY_EWMA_WEIGHT = 0.1;
+
+    private record Rule(String method, String path, TokenBucketRateLimiter limiter) {
+        String name() {
+            return method + " " + path;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${eshop.rate-limit.enabled:true}")
+    private boolean enabled;
+    @Value("${eshop.rate-limit.rules:}")
+    private List<String> ruleDefinitions;
+    @Value("${eshop.rate-limit.max-clients:20000}")
+    private int maxClients;
+    @Value("${eshop.rate-limit.max-concurrent:40}")
+    private int maxConcurrent;
+    @Value("${eshop.rate-limit.max-latency-ms:3000}")
+    private long maxLatencyMs;
+    @Value("${eshop.rate-limit.probe-percent:10}")
+    private int probePercent;
+    @Value("${eshop.rate-limit.trusted-proxy-hops:1}")
+    private int trustedProxyHops;
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, Counter> rejectionCounters = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double latencyEwmaMs;
+
+    @PostConstruct
+    void parseRules() {
+        for (String definition : ruleDefinitions) {
+            String trimmed = definition.trim();
+            if (trimmed.isEmpty()) continue;
+            int space = trimmed.indexOf(' ');
+            int eq = trimmed.lastIndexOf('=');
+            int colon = trimmed.lastIndexOf(':');
+            if (space < 0 || eq < space || colon < eq) {
+                log.warn("Ignoring invalid rate limit rule '{}'. Expected 'METHOD /path=capacity:tokensPerMinute'.", trimmed);
+                continue;
+            }
+            try {
+                int capacity = Integer.parseInt(trimmed.substring(eq + 1, colon).trim());
+                double perMinute = Double.parseDouble(trimmed.substring(colon + 1).trim());
+                if (capacity < 1 || perMinute <= 0) throw new NumberFormatException();
+                rules.add(new Rule(trimmed.substring(0, space).toUpperCase(), trimmed.substring(space + 1, eq).trim(),
+                        new TokenBucketRateLimiter(capacity, perMinute, maxClients)));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring rate limit rule '{}' with invalid capacity or rate.", trimmed);
+            }
+        }
+        Gauge.builder("eshop.ratelimit.in_flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("eshop.ratelimit.latency_ewma_ms", this, f -> f.latencyEwmaMs).register(meterRegistry);
+        log.info("Rate limiting {} with {} rule(s), max {} concurrent, latency threshold {} ms, {} trusted proxy hop(s).",
+                enabled ? "enabled" : "disabled", rules.size(), maxConcurrent, maxLatencyMs, trustedProxyHops);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || findRule(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Rule rule = findRule(request);
+        long now = System.nanoTime();
+
+        long waitNanos = rule.limiter().tryAcquire(clientKey(request), now);
+        if (waitNanos > 0) {
+            reject(response, rule, "rate", Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+            return;
+        }
+        if (latencyEwmaMs > maxLatencyMs && ThreadLocalRandom.current().nextInt(100) >= probePercent) {
+            reject(response, rule, "latency", 2);
+            return;
+        }
+        if (inFlight.incrementAndGet() > maxConcurrent) {
+            inFlight.decrementAndGet();
+            reject(response, rule, "concurrency", 1);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+            double elapsedMs = (System.nanoTime() - now) / 1_000_000.0;
+            latencyEwmaMs = latencyEwmaMs + LATENCY_EWMA_WEIGHT * (elapsedMs - latencyEwmaMs); // Souběžný zápis nevadí, jde o odhad
+        }
+    }
+
+    /**
+     * Odebere dalších {@code permits} tokenů z pravidla aktuálního požadavku (filtr už odebral jeden). Při nedostatku
+     * tokenů rovnou zapíše odpověď 429 a vrátí {@code false}; volající pak už nic nezapisuje.
+     * <p>
+     * Víc tokenů, než je kapacita pravidla, by neprošlo nikdy (a {@code Retry-After} by lhal) - odebere se nejvýš
+     * celá kapacita. Velikost požadavku omezuje volající vlastním limitem.
+     */
+    public boolean chargeAdditional(HttpServletRequest request, HttpServletResponse response, int permits) throws IOException {
+        Rule rule = enabled && permits > 0 ? findRule(request) : null;
+        if (rule == null) {
+            return true;
+        }
+        int charged = Math.min(permits, rule.limiter().capacity() - 1);
+        if (charged < permits) {
+            log.warn("Request cost {} exceeds capacity of rule {}, charging {} token(s).", permits + 1, rule.name(), charged + 1);
+        }
+        if (charged <= 0) {
+            return true;
+        }
+        long waitNanos = rule.limiter().tryAcquire(clientKey(request), charged, System.nanoTime());
+        if (waitNanos > 0) {
+            reject(response, rule, "cost", Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+            return false;
+        }
+        return true;
+    }
+
+    private void reject(HttpServletResponse response, Rule rule, String reason, long retryAfterSeconds) throws IOException {
+        rejectionCounters.computeIfAbsent(rule.name() + "|" + reason, k -> Counter.builder("eshop.ratelimit.rejected")
+                .tag("rule", rule.name())
+                .tag("reason", reason)
+                .register(meterRegistry)).increment();
+        log.debug("Rejected {} ({}), retry after {} s.", rule.name(), reason, retryAfterSeconds);
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(REJECTED_BODY);
+    }
+
+    /**
+     * Adresa klienta podle důvěryhodných proxy. ForwardedHeaderFilter hlavičky X-Forwarded-* před aplikací skrývá,
+     * proto se čtou z původního požadavku kontejneru.
+     */
+    String clientKey(HttpServletRequest request) {
+        ServletRequest original = request;
+        while (original instanceof ServletRequestWrapper wrapper) {
+            original = wrapper.getRequest();
+        }
+        String forwardedFor = original instanceof HttpServletRequest http ? http.getHeader("X-Forwarded-For") : null;
+        if (trustedProxyHops <= 0 || forwardedFor == null || forwardedFor.isBlank()) {
+            return original.getRemoteAddr();
+        }
+        String[] hops = forwardedFor.split(",");
+        // Méně hodnot, než kolik proxy má připojit = hlavička nepřišla přes ně; první hodnota je nejbližší klientovi
+        return hops[Math.max(0, hops.length - trustedProxyHops)].trim();
+    }
+
+    private Rule findRule(HttpServletRequest request) {
+        String path = request.getServletPath();
+        for (Rule rule : rules) {
+            if (rule.method().equals(request.getMethod()) && rule.path().equals(path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.eshop.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.eshop.config.LogSamplingTurboFilter;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.UUID;
+
+/**
+ * Kontext logování požadavku: do MDC dá {@code requestId} (z hlavičky {@code X-Request-Id}, jinak nové), který
+ * nese každý JSON záznam, a při hlavičce {@code X-Debug-Log} se správným tokenem
+ * ({@code eshop.logging.debug-token}) zapne DEBUG výpisy aplikace jen pro tento požadavek
+ * (viz {@link LogSamplingTurboFilter}). Bez nastaveného tokenu je přepínání vypnuté.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1) // Hned po měření startu, aby MDC měly i záznamy ostatních filtrů
+public class RequestDebugLoggingFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_MDC_KEY = "requestId";
+    private static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final String DEBUG_HEADER = "X-Debug-Log";
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    @Value("${eshop.logging.debug-token:}")
+    private String debugToken;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (!StringUtils.hasText(requestId) || requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            requestId = UUID.randomUUID().toString();
+        }
+        MDC.put(REQUEST_ID_MDC_KEY, requestId);
+        if (isDebugRequested(request)) {
+            MDC.put(LogSamplingTurboFilter.DEBUG_MDC_KEY, "true");
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(LogSamplingTurboFilter.DEBUG_MDC_KEY);
+            MDC.remove(REQUEST_ID_MDC_KEY);
+        }
+    }
+
+    private boolean isDebugRequested(HttpServletRequest request) {
+        String header = request.getHeader(DEBUG_HEADER);
+        return StringUtils.hasText(debugToken) && header != null
+                && MessageDigest.isEqual(debugToken.getBytes(StandardCharsets.UTF_8), header.getBytes(StandardCharsets.UTF_8));
+    }
+}
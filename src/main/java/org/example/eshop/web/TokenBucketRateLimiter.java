@@ -0,0 +1,99 @@
+package org.example.eshop.web;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket pro jedno pravidlo, klíčem je klient (IP).
+ * <p>
+ * Stav bucketu je jediný {@code AtomicLong} - teoretický čas příchodu dalšího požadavku (GCRA, ekvivalent
+ * token bucketu): požadavek projde, pokud nepředbíhá o víc než {@code burst} intervalů, jinak se vrátí doba
+ * čekání. Žádné zámky, jen CAS. Buckety jsou rozložené do pevného počtu stripe map; každá má vlastní limit
+ * velikosti a při jeho dosažení zahodí buckety, které už jsou zase plné (neaktivní klienti). Pokud to nestačí,
+ * zahodí nejdéle nečerpané buckety (nejmenší teoretický čas příchodu) - klienti, kteří právě narazili na limit,
+ * mají čas příchodu v budoucnosti a zůstanou, takže záplava nových klíčů jim limit nevynuluje.
+ */
+class TokenBucketRateLimiter {
+
+    private static final int STRIPES = 16;
+
+    private final int capacity;
+    private final long intervalNanos; // Doba doplnění jednoho tokenu
+    private final long burstNanos;    // Kolik času lze "předběhnout" = kapacita bucketu
+    private final int maxKeysPerStripe;
+    private final int evictToSize;
+    private final Map<String, AtomicLong>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    TokenBucketRateLimiter(int capacity, double tokensPerMinute, int maxKeys) {
+        this.capacity = capacity;
+        this.intervalNanos = (long) (60_000_000_000L / tokensPerMinute);
+        this.burstNanos = intervalNanos * Math.max(0, capacity - 1);
+        this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+        this.evictToSize = maxKeysPerStripe * 9 / 10; // Rezerva, aby se netřídilo při každém novém klíči
+        this.stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Pokusí se odebrat token.
+     *
+     * @return 0, pokud požadavek projde; jinak za kolik nanosekund bude token k dispozici
+     */
+    long tryAcquire(String key, long nowNanos) {
+        return tryAcquire(key, 1, nowNanos);
+    }
+
+    /**
+     * Pokusí se odebrat {@code permits} tokenů najednou (všechny, nebo žádný).
+     *
+     * @return 0, pokud požadavek projde; jinak za kolik nanosekund bude tokenů dost
+     */
+    long tryAcquire(String key, int permits, long nowNanos) {
+        Map<String, AtomicLong> stripe = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        AtomicLong state = stripe.get(key);
+        if (state == null) {
+            if (stripe.size() >= maxKeysPerStripe) {
+                evictIdle(stripe, nowNanos);
+            }
+            state = stripe.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        while (true) {
+            long theoreticalArrival = state.get();
+            long base = Math.max(theoreticalArrival, nowNanos);
+            long wait = base + (permits - 1) * intervalNanos - nowNanos - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (state.compareAndSet(theoreticalArrival, base + permits * intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    private void evictIdle(Map<String, AtomicLong> stripe, long nowNanos) {
+        for (Iterator<AtomicLong> it = stripe.values().iterator(); it.hasNext(); ) {
+            if (it.next().get() <= nowNanos) {
+                it.remove(); // Bucket je plný - nový by vypadal stejně
+            }
+        }
+        if (stripe.size() >= maxKeysPerStripe) {
+            // Záplava z mnoha adres - zahodit nejdéle nečerpané, ne celou stripe
+            List<Map.Entry<String, AtomicLong>> oldest = stripe.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().get()))
+                    .limit(Math.max(1, stripe.size() - evictToSize))
+                    .toList();
+            oldest.forEach(e -> stripe.remove(e.getKey(), e.getValue()));
+        }
+    }
+}
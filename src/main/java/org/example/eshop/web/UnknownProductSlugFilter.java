@@ -0,0 +1,60 @@
+package org.example.eshop.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.eshop.service.ActiveProductSlugIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Odpoví 404 na {@code GET /produkt/{slug}} s neznámým slugem ještě před controllerem.
+ * <p>
+ * Controller detailu běží v transakci a spolu s {@code GlobalModelAttributeAdvice} sahá do DB i u neexistujícího
+ * produktu; crawler zkoušející mrtvé odkazy tak generoval zátěž Cloud SQL. Tady rozhoduje jen
+ * {@link ActiveProductSlugIndex} v paměti, chybová stránka se vyrenderuje standardně přes {@code sendError}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class UnknownProductSlugFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(UnknownProductSlugFilter.class);
+    private static final String PRODUCT_PATH_PREFIX = "/produkt/";
+
+    @Autowired
+    private ActiveProductSlugIndex activeProductSlugIndex;
+
+    @Value("${eshop.product-slug.filter.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return !path.startsWith(PRODUCT_PATH_PREFIX) || path.indexOf('/', PRODUCT_PATH_PREFIX.length()) >= 0;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String slug = request.getServletPath().substring(PRODUCT_PATH_PREFIX.length());
+        if (!activeProductSlugIndex.mightBeActive(slug)) {
+            log.debug("Unknown product slug '{}' answered with 404 without hitting the database.", slug);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,89 @@
+// Živé zprávy k objednávce (SSE) pro detail objednávky v účtu zákazníka i v administraci.
+// Kontejner [data-message-stream] nese URL kanálu (data-stream-url), URL pro označení přečtení (data-read-url).
+// Zprávy a čítače nepřečtených zpráv dorazí jako události "message" a "unread".
+(function () {
+    const root = document.querySelector("[data-message-stream]");
+    if (!root || typeof EventSource === "undefined") {
+        return;
+    }
+    const readUrl = root.dataset.readUrl;
+    const csrfToken = document.querySelector('meta[name="_csrf"]')?.content;
+    const csrfHeader = document.querySelector('meta[name="_csrf_header"]')?.content;
+
+    function unreadCount() {
+        const counter = root.querySelector("[data-unread-counter]");
+        return counter ? parseInt(counter.textContent, 10) || 0 : 0;
+    }
+
+    function markRead() {
+        if (!readUrl || document.hidden || unreadCount() === 0) {
+            return;
+        }
+        const headers = {"Accept": "application/json"};
+        if (csrfToken && csrfHeader) headers[csrfHeader] = csrfToken;
+        fetch(readUrl, {method: "POST", credentials: "same-origin", headers: headers})
+            .catch(function (error) {
+                console.warn("[Order Messages] Označení zpráv jako přečtených selhalo:", error);
+            });
+    }
+
+    function appendMessage(msg) {
+        const box = root.querySelector('[data-chat-box="' + msg.conversationType + '"]');
+        if (!box || box.querySelector('[data-message-id="' + msg.id + '"]')) {
+            return; // Konverzace se na stránce nezobrazuje nebo zprávu už máme
+        }
+        box.querySelectorAll("[data-chat-empty]").forEach(function (el) {
+            el.remove();
+        });
+
+        const item = document.createElement("div");
+        item.className = "chat-message";
+        if (msg.conversationType === "EXTERNAL") {
+            item.classList.add(msg.senderType === "ADMIN" ? "admin-message" : "customer-message");
+        }
+        item.dataset.messageId = msg.id;
+
+        const info = document.createElement("div");
+        info.className = "sender-info";
+        const name = document.createElement("span");
+        name.className = "sender-name";
+        name.textContent = msg.senderName;
+        const time = document.createElement("span");
+        time.className = "message-time";
+        time.textContent = msg.sentAtFormatted || "";
+        info.append(name, time);
+
+        const content = document.createElement("p");
+        content.className = "message-content";
+        content.textContent = msg.content;
+
+        item.append(info, content);
+        box.appendChild(item);
+        box.scrollTop = box.scrollHeight;
+    }
+
+    function updateCounters(counters) {
+        if (counters.conversationType !== "EXTERNAL") {
+            return;
+        }
+        root.querySelectorAll("[data-unread-counter]").forEach(function (el) {
+            const value = counters[el.dataset.unreadCounter] || 0;
+            el.textContent = value;
+            el.classList.toggle("d-none", value === 0);
+        });
+        markRead(); // Zpráva od druhé strany dorazila do otevřené stránky - je přečtená
+    }
+
+    const source = new EventSource(root.dataset.streamUrl);
+    source.addEventListener("message", function (event) {
+        appendMessage(JSON.parse(event.data));
+    });
+    source.addEventListener("unread", function (event) {
+        updateCounters(JSON.parse(event.data));
+    });
+    window.addEventListener("beforeunload", function () {
+        source.close();
+    });
+    document.addEventListener("visibilitychange", markRead);
+    markRead();
+})();
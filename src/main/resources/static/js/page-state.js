@@ -0,0 +1,34 @@
+// Doplnění per-session údajů do stránky obsloužené z full-page cache (PageCacheFilter).
+// Uložená stránka nese místo CSRF tokenu zástupnou hodnotu a odznak košíku bez počtu položek.
+(function () {
+    const PLACEHOLDER = "__PAGE_CACHE_CSRF__";
+    const csrfMeta = document.querySelector('meta[name="_csrf"]');
+    if (!csrfMeta || csrfMeta.content !== PLACEHOLDER) {
+        return; // Stránka byla vyrenderována pro tuto session, není co doplňovat
+    }
+    fetch("/api/session-state", {credentials: "same-origin", cache: "no-store", headers: {"Accept": "application/json"}})
+        .then(function (response) {
+            if (!response.ok) throw new Error("HTTP " + response.status);
+            return response.json();
+        })
+        .then(function (state) {
+            if (state.csrfToken) {
+                // Šablona může mít CSRF meta tag i vlastní (např. detail produktu na míru) - doplníme všechny
+                document.querySelectorAll('meta[name="_csrf"]').forEach(function (meta) {
+                    meta.content = state.csrfToken;
+                });
+                document.querySelectorAll('input[type="hidden"]').forEach(function (input) {
+                    if (input.value === PLACEHOLDER) input.value = state.csrfToken;
+                });
+            }
+            const badge = document.getElementById("cart-badge");
+            if (badge) {
+                const count = state.cartItemCount || 0;
+                badge.textContent = count;
+                badge.classList.toggle("d-none", count === 0);
+            }
+        })
+        .catch(function (error) {
+            console.warn("[Page State] Nepodařilo se načíst stav session:", error);
+        });
+})();
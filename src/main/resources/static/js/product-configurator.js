@@ -1,4 +1,4 @@
-let formElement,priceDisplay,priceContainer,totalSpinner,errorDiv,submitButton;let breakdownContainer,breakdownBasePrice,breakdownDesignRow,breakdownDesignPrice,breakdownGlazeRow,breakdownGlazePrice;let breakdownRoofColorRow,breakdownRoofColorPrice,breakdownAddonsContainer,breakdownAddonsList,breakdownLoading;let lengthSlider,widthSlider,heightSlider,lengthValueDisplay,widthValueDisplay,heightValueDisplay;let lengthHiddenInput,widthHiddenInput,heightHiddenInput;let designSelect,glazeSelect,roofColorSelect,addonSelects,addonOptionElements;let calculationTimeout;let config={calculatePriceUrl:null,currency:'CZK',csrfToken:null,csrfHeaderName:null,productId:null,configuratorData:null};const DEBOUNCE_DELAY=450;const PRICE_SCALE=2;function updateRangeValueDisplay(sliderElement,displayElement){if(sliderElement&&displayElement){const valueCm=parseFloat(sliderElement.value);if(!isNaN(valueCm)){const step=parseFloat(sliderElement.step)||1;const decimals=(step%1===0)?0:(step<0.1?2:1);displayElement.textContent=valueCm.toFixed(decimals);const hiddenInputId=sliderElement.id+'Input';const hiddenInput=document.getElementById(hiddenInputId);if(hiddenInput){hiddenInput.value=valueCm.toFixed(2)}}else{displayElement.textContent='???'}}}
+let formElement,priceDisplay,priceContainer,totalSpinner,errorDiv,submitButton;let breakdownContainer,breakdownBasePrice,breakdownDesignRow,breakdownDesignPrice,breakdownGlazeRow,breakdownGlazePrice;let breakdownRoofColorRow,breakdownRoofColorPrice,breakdownAddonsContainer,breakdownAddonsList,breakdownLoading;let lengthSlider,widthSlider,heightSlider,lengthValueDisplay,widthValueDisplay,heightValueDisplay;let lengthHiddenInput,widthHiddenInput,heightHiddenInput;let designSelect,glazeSelect,roofColorSelect,addonSelects,addonOptionElements;let calculationTimeout;let config={calculatePriceUrl:null,currency:'CZK',csrfToken:null,csrfHeaderName:null,productId:null,configuratorData:null,pricingDescriptor:null};const DEBOUNCE_DELAY=450;const PRICE_SCALE=2;const CALCULATION_SCALE=4;function updateRangeValueDisplay(sliderElement,displayElement){if(sliderElement&&displayElement){const valueCm=parseFloat(sliderElement.value);if(!isNaN(valueCm)){const step=parseFloat(sliderElement.step)||1;const decimals=(step%1===0)?0:(step<0.1?2:1);displayElement.textContent=valueCm.toFixed(decimals);const hiddenInputId=sliderElement.id+'Input';const hiddenInput=document.getElementById(hiddenInputId);if(hiddenInput){hiddenInput.value=valueCm.toFixed(2)}}else{displayElement.textContent='???'}}}
 function formatCurrency(amount,currencyCode){if(amount==null||isNaN(amount))return"N/A";const options={style:'currency',currency:currencyCode,minimumFractionDigits:2,maximumFractionDigits:2};const locale=currencyCode==='EUR'?'sk-SK':'cs-CZ';try{return new Intl.NumberFormat(locale,options).format(amount).replace(/\s/g,' ')}catch(e){const fixedAmount=amount.toFixed(2).replace('.',',');return `${fixedAmount} ${currencyCode === 'EUR' ? '€' : 'Kč'}`}}
 function displayCalculationError(message){const errorMsg=message||'Při výpočtu ceny došlo k chybě.';console.error(`[ERROR] displayCalculationError: ${errorMsg}`);if(priceDisplay)priceDisplay.innerHTML=`<span class="text-danger">Chyba</span>`;if(breakdownBasePrice)breakdownBasePrice.textContent="-";hideElement(breakdownDesignRow);hideElement(breakdownGlazeRow);hideElement(breakdownRoofColorRow);hideElement(breakdownAddonsContainer);hideElement(breakdownLoading);if(priceContainer)priceContainer.classList.remove('price-loading');if(errorDiv){errorDiv.textContent=errorMsg;errorDiv.style.display='block'}
     if(submitButton)submitButton.disabled=!0}
@@ -21,8 +21,29 @@ function updatePriceUI(priceData){console.log("[UI_UPDATE] Updating price UI wit
     const addonPrices=config.currency==='EUR'?priceData.addonPricesEUR:priceData.addonPricesCZK;breakdownAddonsList.innerHTML='';let hasAddons=!1;if(addonPrices&&Object.keys(addonPrices).length>0){Object.entries(addonPrices).forEach(([name,priceStr])=>{const price=parseFloat(priceStr);if(!isNaN(price)&&price>0){hasAddons=!0;const addonRow=document.createElement('div');addonRow.className='d-flex justify-content-between mb-1';const nameSpan=document.createElement('span');nameSpan.textContent=name;const priceSpan=document.createElement('span');priceSpan.className='fw-bold';priceSpan.textContent=formatCurrency(price,config.currency);addonRow.appendChild(nameSpan);addonRow.appendChild(priceSpan);breakdownAddonsList.appendChild(addonRow)}})}
     if(hasAddons&&breakdownAddonsContainer){showElement(breakdownAddonsContainer)}else{hideElement(breakdownAddonsContainer)}
     hideElement(breakdownLoading);console.log("[UI_UPDATE] Price UI update complete.")}
+function decParse(value){if(value===null||value===undefined)return null;const m=String(value).trim().match(/^(-?)(\d*)(?:\.(\d*))?$/);if(!m||(m[2]===''&&!m[3]))return null;const frac=m[3]||'';return{v:BigInt(m[1]+(m[2]||'0')+frac),s:frac.length}}
+function decAlign(a,scale){return a.v*(10n**BigInt(scale-a.s))}
+function decAdd(a,b){const s=Math.max(a.s,b.s);return{v:decAlign(a,s)+decAlign(b,s),s:s}}
+function decMul(a,b){return{v:a.v*b.v,s:a.s+b.s}}
+function decRound(a,scale){if(a.s<=scale)return{v:decAlign(a,scale),s:scale};const d=10n**BigInt(a.s-scale);const neg=a.v<0n;const abs=neg?-a.v:a.v;let q=abs/d;if((abs%d)*2n>=d)q+=1n;return{v:neg?-q:q,s:scale}}
+function decCmp(a,b){const s=Math.max(a.s,b.s);const x=decAlign(a,s),y=decAlign(b,s);return x<y?-1:(x>y?1:0)}
+function decToString(a){const neg=a.v<0n;let digits=(neg?-a.v:a.v).toString();if(a.s===0)return(neg?'-':'')+digits;digits=digits.padStart(a.s+1,'0');return(neg?'-':'')+digits.slice(0,-a.s)+'.'+digits.slice(-a.s)}
+function calculateLocalAddonPrice(rule,currency,dims){const zero={v:0n,s:PRICE_SCALE};const prices=rule[currency]||{};if(rule.pricingType==='FIXED'){const fixed=decParse(prices.price);if(!fixed)return zero;const rounded=decRound(fixed,PRICE_SCALE);return rounded.v<0n?zero:rounded}
+    const unitPrice=decParse(prices.perUnit);if(!unitPrice)return null;if(unitPrice.v<=0n||dims.length.v<=0n||dims.width.v<=0n||dims.height.v<=0n)return zero;let price;switch(rule.pricingType){case 'PER_CM_WIDTH':price=decMul(unitPrice,dims.width);break;case 'PER_CM_LENGTH':price=decMul(unitPrice,dims.length);break;case 'PER_CM_HEIGHT':price=decMul(unitPrice,dims.height);break;case 'PER_SQUARE_METER':price=decMul(decMul(unitPrice,decRound({v:dims.length.v,s:dims.length.s+2},CALCULATION_SCALE)),decRound({v:dims.width.v,s:dims.width.s+2},CALCULATION_SCALE));break;default:price=zero}
+    price=decRound(price,PRICE_SCALE);return price.v<0n?zero:price}
+function calculateLocalSurcharge(surcharges,selectElement,currency){if(!selectElement)return{v:0n,s:PRICE_SCALE};const id=parseInt(selectElement.value,10);if(isNaN(id))return{v:0n,s:PRICE_SCALE};const entry=surcharges?surcharges[String(id)]:null;const value=entry?decParse(entry[currency]):null;return value?decRound(value,PRICE_SCALE):null}
+function calculateLocalPriceData(){const pricing=config.pricingDescriptor?.pricing;if(!pricing||typeof BigInt!=='function')return null;const dims={length:decParse(lengthHiddenInput?.value),width:decParse(widthHiddenInput?.value),height:decParse(heightHiddenInput?.value)};for(const key of['length','width','height']){const min=decParse(pricing.limits?.[key]?.min);const max=decParse(pricing.limits?.[key]?.max);if(!dims[key]||!min||!max||decCmp(dims[key],min)<0||decCmp(dims[key],max)>0)return null}
+    const selectedAddonIds=[];if(addonSelects){addonSelects.forEach(select=>{const id=parseInt(select.value,10);if(!isNaN(id)&&select.value!=='0')selectedAddonIds.push(id)})}
+    const zero={v:0n,s:PRICE_SCALE};const priceData={errorMessage:null,addonPricesCZK:{},addonPricesEUR:{}};for(const currency of['CZK','EUR']){const rates=pricing.rates?.[currency];const rateLength=decParse(rates?.length),rateWidth=decParse(rates?.width),rateHeight=decParse(rates?.height);if(!rateLength||!rateWidth||!rateHeight)return null;let base=decRound(decAdd(decAdd(decMul(dims.height,rateHeight),decMul(dims.length,rateLength)),decMul(dims.width,rateWidth)),PRICE_SCALE);if(base.v<0n)base=zero;const design=calculateLocalSurcharge(pricing.designs,designSelect,currency);const glaze=calculateLocalSurcharge(pricing.glazes,glazeSelect,currency);const roofColor=calculateLocalSurcharge(pricing.roofColors,roofColorSelect,currency);if(!design||!glaze||!roofColor)return null;let total=decAdd(decAdd(decAdd(base,design),glaze),roofColor);
+        for(const addonId of selectedAddonIds){const rule=pricing.addons?.[String(addonId)];if(!rule)return null;const price=calculateLocalAddonPrice(rule,currency,dims);if(!price)return null;if(price.v>0n){priceData['addonPrices'+currency][rule.name]=decToString(price);total=decAdd(total,price)}}
+        priceData['basePrice'+currency]=decToString(base);priceData['designPrice'+currency]=decToString(design);priceData['glazePrice'+currency]=decToString(glaze);priceData['roofColorPrice'+currency]=decToString(roofColor);priceData['totalPrice'+currency]=decToString(decRound(total,PRICE_SCALE))}
+    return priceData}
+function setQuoteFields(quotedPrice){const descriptor=quotedPrice!=null?config.pricingDescriptor:null;const setValue=(id,value)=>{const input=document.getElementById(id);if(input)input.value=value||''};setValue('pricingVersionInput',descriptor?.version);setValue('pricingSignatureInput',descriptor?.signature);setValue('quotedPriceInput',descriptor?quotedPrice:null)}
+function applyLocalPrice(){let priceData=null;try{priceData=calculateLocalPriceData()}catch(e){console.warn("[LOCAL_PRICE] Local calculation failed, falling back to API.",e)}
+    if(!priceData){setQuoteFields(null);return!1}
+    console.log("[LOCAL_PRICE] Price calculated from pricing descriptor",config.pricingDescriptor.version);updatePriceUI(priceData);setQuoteFields(config.currency==='EUR'?priceData.totalPriceEUR:priceData.totalPriceCZK);return!0}
 function handleConfigurationChange(event){const targetElement=event?.target;if(!targetElement)return;console.log(`[EVENT] Config change detected on: ${targetElement.id || targetElement.name}`);if(priceContainer)priceContainer.classList.add('price-loading');if(breakdownLoading)showElement(breakdownLoading);if(submitButton)submitButton.disabled=!0;if(errorDiv)errorDiv.style.display='none';if(targetElement.matches('.dimension-slider')){const valueDisplayId=targetElement.id+'Value';const valueDisplayElement=document.getElementById(valueDisplayId);updateRangeValueDisplay(targetElement,valueDisplayElement);updateAllAddonOptions()}
-    clearTimeout(calculationTimeout);calculationTimeout=setTimeout(fetchDetailedPriceApiCall,DEBOUNCE_DELAY)}
+    clearTimeout(calculationTimeout);if(!applyLocalPrice())calculationTimeout=setTimeout(fetchDetailedPriceApiCall,DEBOUNCE_DELAY)}
 function fetchDetailedPriceApiCall(){console.log("[API_CALL] Debounce finished. Starting API call...");if(!lengthHiddenInput||!widthHiddenInput||!heightHiddenInput){console.error("API call aborted, hidden dimension inputs missing.");displayCalculationError("Chyba konfigurace (hidden inputs).");return}
     const lengthValue=lengthHiddenInput.value;const widthValue=widthHiddenInput.value;const heightValue=heightHiddenInput.value;if(lengthValue===undefined||widthValue===undefined||heightValue===undefined||isNaN(parseFloat(lengthValue))||isNaN(parseFloat(widthValue))||isNaN(parseFloat(heightValue))){displayCalculationError('Zvolené rozměry nejsou platné.');return}
     const selectedAddonIds=[];if(addonSelects){addonSelects.forEach(select=>{const val=select.value;if(val&&val!=='0'){const id=parseInt(val,10);if(!isNaN(id))selectedAddonIds.push(id);}})}
@@ -33,4 +54,4 @@ function prepareFormDataBeforeSubmit(){console.log("[FORM_SUBMIT] Preparing form
     console.log("[FORM_SUBMIT] Form data prepared.")}
 function initializeConfigurator(initData){console.log("Initializing Configurator with data:",initData);config={...config,...initData};formElement=document.querySelector(config.formSelector||'#custom-product-form');productIdInput=formElement?formElement.querySelector('input[name="productId"]'):null;priceDisplay=document.getElementById('calculatedPrice');priceContainer=document.getElementById('price-summary-section');totalSpinner=priceContainer?priceContainer.querySelector('.price-loading-spinner'):null;errorDiv=document.getElementById('customPriceErrorDisplay');submitButton=formElement?formElement.querySelector('button[type="submit"]'):null;breakdownContainer=document.getElementById('price-breakdown');breakdownBasePrice=document.getElementById('breakdown-base-price');breakdownDesignRow=document.getElementById('breakdown-design-row');breakdownDesignPrice=document.getElementById('breakdown-design-price');breakdownGlazeRow=document.getElementById('breakdown-glaze-row');breakdownGlazePrice=document.getElementById('breakdown-glaze-price');breakdownRoofColorRow=document.getElementById('breakdown-roof-color-row');breakdownRoofColorPrice=document.getElementById('breakdown-roof-color-price');breakdownAddonsContainer=document.getElementById('breakdown-addons-container');breakdownAddonsList=document.getElementById('breakdown-addons-list');breakdownLoading=document.getElementById('breakdown-loading');lengthSlider=document.getElementById('length');widthSlider=document.getElementById('width');heightSlider=document.getElementById('height');lengthValueDisplay=document.getElementById('lengthValue');widthValueDisplay=document.getElementById('widthValue');heightValueDisplay=document.getElementById('heightValue');lengthHiddenInput=document.getElementById('lengthInput');widthHiddenInput=document.getElementById('widthInput');heightHiddenInput=document.getElementById('heightInput');designSelect=document.getElementById('designSelect');glazeSelect=document.getElementById('glazeSelect');roofColorSelect=document.getElementById('roofColorSelect');addonSelects=document.querySelectorAll('select[data-is-addon-category-select="true"]');addonOptionElements=document.querySelectorAll('select[data-is-addon-category-select="true"] option[data-addon-id]');if(!formElement){console.error("[INIT] Form element not found! Aborting initialization.");return}
     const configInputs=formElement.querySelectorAll('.config-input');if(configInputs.length>0){configInputs.forEach(input=>{const eventType=input.matches('.dimension-slider')?'input':'change';input.removeEventListener(eventType,handleConfigurationChange);input.addEventListener(eventType,handleConfigurationChange)});console.log(`[INIT] Attached listeners to ${configInputs.length} config inputs.`)}else{console.warn("[INIT] No elements with class 'config-input' found inside the form.")}
-    if(lengthSlider&&lengthValueDisplay)updateRangeValueDisplay(lengthSlider,lengthValueDisplay);if(widthSlider&&widthValueDisplay)updateRangeValueDisplay(widthSlider,widthValueDisplay);if(heightSlider&&heightValueDisplay)updateRangeValueDisplay(heightSlider,heightValueDisplay);updateAllAddonOptions();fetchDetailedPriceApiCall();console.log("[INIT] Configurator initialization complete.")}
\ No newline at end of file
+    if(lengthSlider&&lengthValueDisplay)updateRangeValueDisplay(lengthSlider,lengthValueDisplay);if(widthSlider&&widthValueDisplay)updateRangeValueDisplay(widthSlider,widthValueDisplay);if(heightSlider&&heightValueDisplay)updateRangeValueDisplay(heightSlider,heightValueDisplay);updateAllAddonOptions();if(!applyLocalPrice())fetchDetailedPriceApiCall();console.log("[INIT] Configurator initialization complete.")}
\ No newline at end of file
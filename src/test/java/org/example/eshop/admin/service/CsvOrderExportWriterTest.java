@@ -0,0 +1,44 @@
+package org.example.eshop.admin.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ochrana exportu objednávek proti vložení vzorce (CSV injection) - text otevřený v Excelu nesmí začínat
+ * znakem vzorce, čísla zůstávají čísly.
+ */
+class CsvOrderExportWriterTest {
+
+    @Test
+    void prefixesTextThatExcelWouldEvaluateAsFormula() throws IOException {
+        String row = writeRow(Arrays.asList("=HYPERLINK(\"http://evil\";\"klik\")", "+420777000000", "-1+1", "@SUM(A1)",
+                "\tTab", "\rCR", "Jan Novák", "", null));
+
+        assertThat(row).isEqualTo("\"'=HYPERLINK(\"\"http://evil\"\";\"\"klik\"\")\";'+420777000000;'-1+1;'@SUM(A1);"
+                + "'\tTab;\"'\rCR\";Jan Novák;;");
+    }
+
+    @Test
+    void leavesNumbersUnprefixed() throws IOException {
+        String row = writeRow(List.of(new BigDecimal("-150.50"), -3, 42L));
+
+        assertThat(row).isEqualTo("-150,50;-3;42");
+    }
+
+    private static String writeRow(List<?> values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvOrderExportWriter writer = new CsvOrderExportWriter(out);
+        writer.writeRow(values);
+        writer.finish();
+        String csv = out.toString(StandardCharsets.UTF_8);
+        return csv.substring(1, csv.length() - 2); // Bez BOM a konce řádku
+    }
+}
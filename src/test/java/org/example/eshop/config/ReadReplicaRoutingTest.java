@@ -0,0 +1,65 @@
+package org.example.eshop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Směrování read-only transakcí na repliku přes skutečný JpaTransactionManager a Hibernate.
+ * <p>
+ * Primary i "replika" jsou samostatné H2 databáze v paměti (profil {@code loadtest}, replika bez schématu stačí
+ * - dotazuje se jen název databáze); zpoždění repliky je pevně 0 ({@code lag-query=SELECT 0}). Porty stub serverů
+ * jsou posunuté, aby kontext mohl běžet vedle ostatních testů profilu {@code loadtest}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1",
+        "eshop.datasource.replicas.enabled=true",
+        "eshop.datasource.replicas.urls=jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "eshop.datasource.replicas.lag-query=SELECT 0",
+        "eshop.datasource.replicas.lag-check-interval-ms=200",
+        "eshop.loadtest.superfaktura.port=18189",
+        "spring.mail.port=2625"})
+@ActiveProfiles("loadtest")
+class ReadReplicaRoutingTest {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void readOnlyTransactionsReachReplicaAndWritesStayOnPrimary() throws InterruptedException {
+        // Replika se použije až po prvním měření zpoždění
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"routing-replica".equalsIgnoreCase(currentDatabase(true)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        double replicaReadsBefore = replicaReads();
+        assertThat(currentDatabase(true)).isEqualToIgnoringCase("routing-replica");
+        assertThat(replicaReads()).isGreaterThan(replicaReadsBefore);
+
+        assertThat(currentDatabase(false)).isEqualToIgnoringCase("routing-primary");
+    }
+
+    private String currentDatabase(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                String.valueOf(entityManager.createNativeQuery("SELECT DATABASE()").getSingleResult()));
+    }
+
+    private double replicaReads() {
+        return meterRegistry.get("eshop.datasource.readonly.connections").tag("target", "replica").counter().count();
+    }
+}
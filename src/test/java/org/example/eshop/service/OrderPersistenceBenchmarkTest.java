@@ -0,0 +1,162 @@
+package org.example.eshop.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.example.eshop.model.*;
+import org.example.eshop.repository.AddonsRepository;
+import org.example.eshop.repository.CustomerRepository;
+import org.example.eshop.repository.OrderStateRepository;
+import org.example.eshop.repository.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Měření ukládání objednávek různé velikosti (počet položek z {@code eshop.benchmark.order-lines}).
+ * <p>
+ * Běží jen na vyžádání proti H2 profilu {@code loadtest} (data z {@code LoadTestDataSeeder}), nikdy proti
+ * nakonfigurované produkční DB: {@code mvn test -Dtest=OrderPersistenceBenchmarkTest -Deshop.benchmark=true}.
+ * Proti MySQL stačí přepsat LOADTEST_DB_URL / LOADTEST_DB_DIALECT (viz application-loadtest.properties).
+ * Každá objednávka se uloží a flushne v transakci, která se následně vrátí (rollback). Reportuje čas flushe
+ * a počet připravených JDBC příkazů (při zapnutém batchingu odpovídá zhruba počtu round tripů do DB).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "eshop.benchmark", matches = "true")
+class OrderPersistenceBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPersistenceBenchmarkTest.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private OrderStateRepository orderStateRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private AddonsRepository addonsRepository;
+
+    @Value("${eshop.benchmark.order-lines:1,20,200}")
+    private List<Integer> orderLines;
+    @Value("${eshop.benchmark.addons-per-line:2}")
+    private int addonsPerLine;
+    @Value("${eshop.benchmark.iterations:5}")
+    private int iterations;
+
+    @Test
+    void measureOrderFlush() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        log.info("Order persistence benchmark: lines {}, {} addons per line, {} iterations", orderLines, addonsPerLine, iterations);
+        // Zahřátí (JIT, první alokace bloku ID)
+        transactionTemplate.executeWithoutResult(status -> {
+            persistOrder(orderLines.get(0), statistics);
+            status.setRollbackOnly();
+        });
+
+        for (Integer lines : orderLines) {
+            long totalNanos = 0;
+            long totalStatements = 0;
+            for (int i = 0; i < iterations; i++) {
+                long[] result = transactionTemplate.execute(status -> {
+                    long[] measured = persistOrder(lines, statistics);
+                    status.setRollbackOnly();
+                    return measured;
+                });
+                totalNanos += result[0];
+                totalStatements += result[1];
+            }
+            log.info("BENCHMARK order with {} lines ({} addons): avg flush {} ms, avg {} JDBC statements",
+                    lines, lines * addonsPerLine, String.format("%.2f", totalNanos / 1_000_000.0 / iterations),
+                    totalStatements / iterations);
+        }
+    }
+
+    /**
+     * @return [doba persist + flush v ns, počet připravených JDBC příkazů během flushe]
+     */
+    private long[] persistOrder(int lines, Statistics statistics) {
+        Customer customer = customerRepository.findAll(PageRequest.of(0, 1)).stream().findFirst()
+                .orElseThrow(() -> new IllegalStateException("Benchmark requires at least one customer."));
+        OrderState state = orderStateRepository.findByCodeIgnoreCase("NEW")
+                .orElseThrow(() -> new IllegalStateException("Benchmark requires order state NEW."));
+        Product product = productRepository.findAll(PageRequest.of(0, 1)).stream().findFirst()
+                .orElseThrow(() -> new IllegalStateException("Benchmark requires at least one product."));
+        List<Addon> addons = addonsRepository.findAll(PageRequest.of(0, Math.max(1, addonsPerLine))).getContent();
+
+        Order order = new Order();
+        order.setOrderCode("BENCH-" + System.nanoTime());
+        order.setCustomer(customer);
+        order.setStateOfOrder(state);
+        order.setPaymentMethod("BANK_TRANSFER");
+        order.setDeliveryStreet("Benchmark 1");
+        order.setDeliveryCity("Benchmark");
+        order.setDeliveryZipCode("00000");
+        order.setDeliveryCountry("Česká republika");
+        order.setInvoiceStreet("Benchmark 1");
+        order.setInvoiceCity("Benchmark");
+        order.setInvoiceZipCode("00000");
+        order.setInvoiceCountry("Česká republika");
+        order.setOrderItems(new ArrayList<>());
+        for (int i = 0; i < lines; i++) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(product);
+            item.setProductName(product.getName());
+            item.setCount(1);
+            item.setUnitPriceWithoutTax(BigDecimal.TEN);
+            item.setTaxRate(new BigDecimal("0.21"));
+            item.setUnitTaxAmount(new BigDecimal("2.10"));
+            item.setUnitPriceWithTax(new BigDecimal("12.10"));
+            item.setTotalPriceWithoutTax(BigDecimal.TEN);
+            item.setTotalTaxAmount(new BigDecimal("2.10"));
+            item.setTotalPriceWithTax(new BigDecimal("12.10"));
+            List<OrderItemAddon> itemAddons = new ArrayList<>();
+            for (int a = 0; a < addonsPerLine && !addons.isEmpty(); a++) {
+                Addon addon = addons.get(a % addons.size());
+                OrderItemAddon itemAddon = new OrderItemAddon();
+                itemAddon.setOrderItem(item);
+                itemAddon.setAddon(addon);
+                itemAddon.setAddonName(addon.getName());
+                itemAddon.setAddonPriceWithoutTax(BigDecimal.ONE);
+                itemAddon.setTotalPriceWithoutTax(BigDecimal.ONE);
+                itemAddons.add(itemAddon);
+            }
+            item.setSelectedAddons(itemAddons);
+            order.getOrderItems().add(item);
+        }
+
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long start = System.nanoTime();
+        entityManager.persist(order);
+        entityManager.flush();
+        long elapsed = System.nanoTime() - start;
+        long statements = statistics.getPrepareStatementCount() - statementsBefore;
+        entityManager.clear();
+        return new long[]{elapsed, statements};
+    }
+}
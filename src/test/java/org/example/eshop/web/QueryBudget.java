@@ -0,0 +1,38 @@
+package org.example.eshop.web;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Počítadlo SQL dotazů pro {@link QueryBudgetTest}.
+ * <p>
+ * Hibernate volá {@link #inspect(String)} pro každý připravovaný příkaz; test ho registruje přes
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}. Počítají se jen dotazy vlákna,
+ * které zavolalo {@link #start()} (MockMvc zpracuje požadavek ve vlákně testu) - asynchronní práce po commitu
+ * (e-maily, faktury) se do rozpočtu stránky nezapočte.
+ */
+public class QueryBudget implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    static void start() {
+        CURRENT.set(new int[1]);
+    }
+
+    /**
+     * @return počet dotazů od {@link #start()} (-1, pokud počítání neběželo)
+     */
+    static int finish() {
+        int[] count = CURRENT.get();
+        CURRENT.remove();
+        return count != null ? count[0] : -1;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = CURRENT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
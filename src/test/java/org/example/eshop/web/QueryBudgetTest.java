@@ -0,0 +1,133 @@
+package org.example.eshop.web;
+
+import com.jayway.jsonpath.JsonPath;
+import org.example.eshop.model.Order;
+import org.example.eshop.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrlPattern;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Rozpočty SQL dotazů klíčových stránek - N+1 v šabloně nebo nová líná asociace shodí build.
+ * <p>
+ * Běží proti H2 v režimu MySQL s daty z {@code LoadTestDataSeeder} (profil {@code loadtest}). HTML cache stránek
+ * a fragmentů je vypnutá, aby se měřilo skutečné vykreslení. Měří se druhý požadavek na stránku: první plní
+ * L2 cache Hibernate, což v provozu platí jen jednou za TTL. Limity odpovídají dřívějším pravidlům
+ * {@code eshop.query-budget.rules}; při zvýšení limitu patří do commitu důvod.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.example.eshop.web.QueryBudget",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "eshop.page-cache.enabled=false",
+        "eshop.fragment-cache.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("loadtest")
+class QueryBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Value("${eshop.loadtest.customer.email}")
+    private String customerEmail;
+    @Value("${eshop.loadtest.admin.email}")
+    private String adminEmail;
+
+    @Test
+    void storefrontPagesStayWithinBudget() throws Exception {
+        assertWarmBudget("GET /", 8, get("/"));
+        assertWarmBudget("GET /produkty", 8, get("/produkty"));
+        assertWarmBudget("GET /produkt/{slug}", 12, get("/produkt/loadtest-produkt-1"));
+        assertWarmBudget("GET /google_feed.xml", 10, get("/google_feed.xml"));
+        assertWarmBudget("GET /sitemap.xml", 6, get("/sitemap.xml"));
+        assertWarmBudget("GET /muj-ucet/objednavky", 4, get("/muj-ucet/objednavky").with(user(customerEmail).roles("USER")));
+    }
+
+    @Test
+    void cartCheckoutAndAdminStayWithinBudget() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        String product = mockMvc.perform(get("/api/catalog/products/loadtest-produkt-2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertBudget("POST /kosik/pridat", 12, status().is3xxRedirection(), post("/kosik/pridat").session(session).with(csrf())
+                .param("productId", JsonPath.read(product, "$.product.id").toString())
+                .param("quantity", "1")
+                .param("isCustom", "false")
+                .param("selectedTaxRateId", firstId(product, "$.product.taxRateIds"))
+                .param("selectedDesignId", firstId(product, "$.product.designIds"))
+                .param("selectedGlazeId", firstId(product, "$.product.glazeIds"))
+                .param("selectedRoofColorId", firstId(product, "$.product.roofColorIds")));
+
+        String shipping = mockMvc.perform(post("/pokladna/calculate-shipping").session(session).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"street\":\"Rozpočtová 1\",\"city\":\"Praha\",\"zipCode\":\"11000\",\"country\":\"Česká republika\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        MvcResult checkout = assertBudget("POST /pokladna/odeslat", 40, redirectedUrlPattern("/pokladna/dekujeme?orderCode=*"),
+                post("/pokladna/odeslat").session(session).with(csrf())
+                        .param("email", "rozpocet@loadtest.local")
+                        .param("firstName", "Rozpočet")
+                        .param("lastName", "Dotazů")
+                        .param("phone", "+420777000000")
+                        .param("invoiceStreet", "Rozpočtová 1")
+                        .param("invoiceCity", "Praha")
+                        .param("invoiceZipCode", "11000")
+                        .param("invoiceCountry", "Česká republika")
+                        .param("useInvoiceAddressAsDelivery", "true")
+                        .param("paymentMethod", "BANK_TRANSFER")
+                        .param("agreeTerms", "true")
+                        .param("shippingCostNoTax", JsonPath.read(shipping, "$.shippingCostNoTax").toString())
+                        .param("shippingTax", JsonPath.read(shipping, "$.shippingTax").toString()));
+        String redirect = checkout.getResponse().getRedirectedUrl();
+        Order order = orderRepository.findByOrderCode(redirect.substring(redirect.indexOf("orderCode=") + "orderCode=".length()))
+                .orElseThrow();
+
+        assertWarmBudget("GET /admin/orders", 10, get("/admin/orders").with(user(adminEmail).roles("USER", "ADMIN")));
+        assertWarmBudget("GET /admin/orders/{id}", 14, get("/admin/orders/" + order.getId()).with(user(adminEmail).roles("USER", "ADMIN")));
+    }
+
+    private void assertWarmBudget(String flow, int budget, RequestBuilder request) throws Exception {
+        mockMvc.perform(request).andExpect(status().isOk());
+        assertBudget(flow, budget, status().isOk(), request);
+    }
+
+    private MvcResult assertBudget(String flow, int budget, ResultMatcher expectedStatus, RequestBuilder request) throws Exception {
+        QueryBudget.start();
+        MvcResult result;
+        int queries;
+        try {
+            result = mockMvc.perform(request).andExpect(expectedStatus).andReturn();
+        } finally {
+            queries = QueryBudget.finish();
+        }
+        assertThat(queries).as("SQL statements for %s", flow).isLessThanOrEqualTo(budget);
+        return result;
+    }
+
+    private static String firstId(String json, String path) {
+        List<Object> ids = JsonPath.read(json, path);
+        return ids.get(0).toString();
+    }
+}